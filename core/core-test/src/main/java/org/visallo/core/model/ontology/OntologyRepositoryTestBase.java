@@ -11,10 +11,13 @@ import org.junit.rules.ExpectedException;
 import org.semanticweb.owlapi.model.IRI;
 import org.vertexium.*;
 import org.vertexium.util.IterableUtils;
+import org.visallo.core.cache.CacheService;
+import org.visallo.core.cache.InMemoryCacheService;
 import org.visallo.core.exception.VisalloAccessDeniedException;
 import org.visallo.core.exception.VisalloException;
 import org.visallo.core.model.properties.VisalloProperties;
 import org.visallo.core.model.workspace.Workspace;
+import org.visallo.core.status.JmxMetricsManager;
 import org.visallo.core.user.SystemUser;
 import org.visallo.core.user.User;
 import org.visallo.core.util.VisalloInMemoryTestBase;
@@ -63,6 +66,7 @@ public abstract class OntologyRepositoryTestBase extends VisalloInMemoryTestBase
     private Authorizations authorizations;
     private User user;
     private User adminUser;
+    private CacheService cacheService;
 
     @Rule
     public ExpectedException thrown = ExpectedException.none();
@@ -84,6 +88,17 @@ public abstract class OntologyRepositoryTestBase extends VisalloInMemoryTestBase
         getWorkspaceRepository().updateUserOnWorkspace(workspace, adminUser.getUserId(), WorkspaceAccess.WRITE, systemUser);
     }
 
+    /**
+     * Ontology repositories are tested with the cache used in production so the cache updates are exercised.
+     */
+    @Override
+    public CacheService getCacheService() {
+        if (cacheService == null) {
+            cacheService = new InMemoryCacheService(new JmxMetricsManager());
+        }
+        return cacheService;
+    }
+
     @Test
     public void testChangingDisplayAnnotationsShouldSucceed() throws Exception {
         loadTestOwlFile();
@@ -240,6 +255,42 @@ public abstract class OntologyRepositoryTestBase extends VisalloInMemoryTestBase
         getOntologyRepository().deleteConcept(SANDBOX_CONCEPT_IRI, adminUser, workspaceId);
     }
 
+    @Test
+    public void testUpdateCacheAddsConceptToCachedSandboxedOntology() throws Exception {
+        createSampleOntology();
+        Ontology before = getOntologyRepository().getOntology(workspaceId);
+        assertSame(before, getCacheService().getIfPresent(OntologyRepositoryBase.ONTOLOGY_CACHE_NAME, workspaceId));
+        Concept concept = getOntologyRepository().getConceptByIRI(SANDBOX_CONCEPT_IRI, workspaceId);
+
+        Concept child = getOntologyRepository().getOrCreateConcept(concept, SANDBOX_CONCEPT_IRI + "child", SANDBOX_DISPLAY_NAME, null, systemUser, workspaceId);
+        getOntologyRepository().updateCache(workspaceId, Collections.singletonList(child), null, null);
+
+        // the cached snapshot was replaced by an updated copy, not invalidated and left to be rebuilt
+        Ontology updated = getCacheService().getIfPresent(OntologyRepositoryBase.ONTOLOGY_CACHE_NAME, workspaceId);
+        assertNotNull(updated);
+        assertNotSame(before, updated);
+        Ontology after = getOntologyRepository().getOntology(workspaceId);
+        assertSame(updated, after);
+
+        assertNull(before.getConceptByIri(child.getIRI()));
+        assertEquals(SANDBOX_CONCEPT_IRI, after.getConceptByIri(child.getIRI()).getParentConceptIRI());
+        assertSame(before.getConceptByIri(SANDBOX_CONCEPT_IRI), after.getConceptByIri(SANDBOX_CONCEPT_IRI));
+    }
+
+    @Test
+    public void testImportFileClearsCachedOntologiesOnceImported() throws Exception {
+        Ontology before = getOntologyRepository().getOntology(PUBLIC);
+        assertNull(before.getConceptByIri(TEST_HIERARCHY_IRI + "#person"));
+
+        loadHierarchyOwlFile();
+
+        assertNull(getCacheService().getIfPresent(OntologyRepositoryBase.ONTOLOGY_CACHE_NAME, PUBLIC));
+        Ontology after = getOntologyRepository().getOntology(PUBLIC);
+        Concept person = after.getConceptByIri(TEST_HIERARCHY_IRI + "#person");
+        assertNotNull(person);
+        assertEquals(TEST_HIERARCHY_IRI + "#name", person.getProperties().iterator().next().getIri());
+    }
+
     @Test
     public void testExceptionDeletingSandboxedConceptsWithRelationshipsDomain() throws Exception {
         createSampleOntology();
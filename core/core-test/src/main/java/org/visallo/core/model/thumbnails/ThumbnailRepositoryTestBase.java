@@ -9,9 +9,12 @@ import org.visallo.core.model.properties.VisalloProperties;
 import org.visallo.core.util.VisalloInMemoryTestBase;
 
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 public abstract class ThumbnailRepositoryTestBase extends VisalloInMemoryTestBase {
     public abstract ThumbnailRepository getThumbnailRepository();
@@ -47,4 +50,40 @@ public abstract class ThumbnailRepositoryTestBase extends VisalloInMemoryTestBas
         assertEquals(width, thumbnail.getImage().getWidth());
         assertEquals(height, thumbnail.getImage().getHeight());
     }
+
+    @Test
+    public void testCreateThumbnails() {
+        Authorizations authorizations = getAuthorizationRepository().getGraphAuthorizations(getUserRepository().getSystemUser());
+        Vertex artifactVertex = getGraph().addVertex("v1", new Visibility(""), authorizations);
+        StreamingPropertyValue value = StreamingPropertyValue.create(getClass().getResourceAsStream("/org/visallo/core/model/thumbnails/sample-image.jpg"), byte[].class);
+        VisalloProperties.RAW.setProperty(artifactVertex, value, new Visibility(""), authorizations);
+
+        InputStream in = VisalloProperties.RAW.getPropertyValue(artifactVertex).getInputStream();
+        List<Thumbnail> thumbnails = getThumbnailRepository().createThumbnails(
+                artifactVertex,
+                VisalloProperties.RAW.getPropertyName(),
+                "raw",
+                in,
+                Arrays.asList(new int[]{100, 100}, new int[]{200, 200}),
+                getUserRepository().getSystemUser()
+        );
+        assertEquals(2, thumbnails.size());
+        assertTrue(thumbnails.get(0).getImage().getWidth() <= 100);
+        assertTrue(thumbnails.get(1).getImage().getWidth() > 100);
+
+        for (Thumbnail thumbnail : thumbnails) {
+            int width = thumbnail.getImage().getWidth();
+            int height = thumbnail.getImage().getHeight();
+            Thumbnail savedThumbnail = getThumbnailRepository().getThumbnail(
+                    artifactVertex.getId(),
+                    "raw",
+                    width,
+                    height,
+                    "workspace1",
+                    getUserRepository().getSystemUser());
+            assertNotNull(savedThumbnail);
+            assertEquals(width, savedThumbnail.getImage().getWidth());
+            assertEquals(height, savedThumbnail.getImage().getHeight());
+        }
+    }
 }
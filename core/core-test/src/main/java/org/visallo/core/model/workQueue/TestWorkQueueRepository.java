@@ -10,11 +10,13 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 
 public class TestWorkQueueRepository extends WorkQueueRepository {
     public List<JSONObject> broadcastJsonValues = new ArrayList<>();
     public Map<String, List<byte[]>> queues = new HashMap<>();
+    private final List<BroadcastConsumer> broadcastConsumers = new CopyOnWriteArrayList<>();
 
     public TestWorkQueueRepository(
             Graph graph,
@@ -27,6 +29,9 @@ public class TestWorkQueueRepository extends WorkQueueRepository {
     @Override
     protected void broadcastJson(JSONObject json) {
         broadcastJsonValues.add(json);
+        for (BroadcastConsumer broadcastConsumer : broadcastConsumers) {
+            broadcastConsumer.broadcastReceived(json);
+        }
     }
 
     @Override
@@ -71,12 +76,12 @@ public class TestWorkQueueRepository extends WorkQueueRepository {
 
     @Override
     public void subscribeToBroadcastMessages(BroadcastConsumer broadcastConsumer) {
-
+        broadcastConsumers.add(broadcastConsumer);
     }
 
     @Override
     public void unsubscribeFromBroadcastMessages(BroadcastConsumer broadcastConsumer) {
-
+        broadcastConsumers.remove(broadcastConsumer);
     }
 
     @Override
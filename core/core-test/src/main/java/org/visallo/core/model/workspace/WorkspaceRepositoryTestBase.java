@@ -351,6 +351,55 @@ public abstract class WorkspaceRepositoryTestBase extends VisalloInMemoryTestBas
         assertEquals(0, diffs.size());
     }
 
+    @Test
+    public void testGetDiffPage() {
+        Authorizations authorizations = getAuthorizationRepository().getGraphAuthorizations(user, workspace.getWorkspaceId());
+        for (int i = 0; i < 3; i++) {
+            Vertex vertex = getGraphRepository().addVertex("v" + i, JUNIT_CONCEPT_TYPE, "", workspace.getWorkspaceId(), null, null, user, authorizations);
+            getWorkspaceRepository().updateEntityOnWorkspace(workspace, vertex.getId(), user);
+        }
+
+        List<ClientApiWorkspaceDiff.Item> diffs = getWorkspaceRepository().getDiff(workspace, user, null).getDiffs();
+        assertTrue(diffs.size() >= 3);
+
+        ClientApiWorkspaceDiff page = getWorkspaceRepository().getDiff(workspace, user, null, 1, 2);
+        assertEquals(diffs.size(), page.getTotalCount().intValue());
+        assertEquals(2, page.getDiffs().size());
+        assertEquals(diffs.get(1).toString(), page.getDiffs().get(0).toString());
+        assertEquals(diffs.get(2).toString(), page.getDiffs().get(1).toString());
+
+        page = getWorkspaceRepository().getDiff(workspace, user, null, diffs.size() - 1, -1);
+        assertEquals(1, page.getDiffs().size());
+        assertEquals(diffs.get(diffs.size() - 1).toString(), page.getDiffs().get(0).toString());
+
+        page = getWorkspaceRepository().getDiff(workspace, user, null, diffs.size() + 10, 5);
+        assertEquals(0, page.getDiffs().size());
+    }
+
+    @Test
+    public void testGetDiffAfterBroadcastChange() {
+        User systemUser = getUserRepository().getSystemUser();
+        Authorizations systemAuthorizations = getAuthorizationRepository().getGraphAuthorizations(systemUser);
+        Vertex vertex = getGraphRepository().addVertex("v1", JUNIT_CONCEPT_TYPE, "", null, null, null, systemUser, systemAuthorizations);
+        getWorkspaceRepository().updateEntityOnWorkspace(workspace, vertex.getId(), user);
+
+        List<ClientApiWorkspaceDiff.Item> diffs = getWorkspaceRepository().getDiff(workspace, user, null).getDiffs();
+        assertEquals(0, diffs.size());
+
+        VisibilityAndElementMutation<Vertex> setPropertyMutation = getGraphRepository().setProperty(vertex, JUNIT_PROPERTY_NAME, "junit", "new value", new Metadata(), "", "", workspace.getWorkspaceId(), null, null, user, workspaceAuthorizations);
+        setPropertyMutation.elementMutation.save(workspaceAuthorizations);
+        getGraph().flush();
+
+        // the diff of the vertex is cached until its change is broadcast
+        diffs = getWorkspaceRepository().getDiff(workspace, user, null).getDiffs();
+        assertEquals(0, diffs.size());
+
+        getWorkQueueRepository().broadcastElement(vertex, workspace.getWorkspaceId());
+        diffs = getWorkspaceRepository().getDiff(workspace, user, null).getDiffs();
+        assertEquals(1, diffs.size());
+        assertEquals("PropertyDiffItem", diffs.get(0).getType());
+    }
+
 
     private void doTestPublishEdgeAdd(String edgeLabel, String expectedError, SandboxStatus expectedEdgeStatus) {
         User systemUser = getUserRepository().getSystemUser();
@@ -179,7 +179,10 @@ public abstract class VisalloInMemoryTestBase {
                 getGraph(),
                 getUserRepository(),
                 getAuthorizationRepository(),
-                getFormulaEvaluator()
+                getFormulaEvaluator(),
+                getWorkQueueRepository(),
+                getConfiguration(),
+                new ShutdownService()
         );
         return workspaceDiffHelper;
     }
@@ -24,6 +24,9 @@ import org.visallo.core.security.DirectVisibilityTranslator;
 import org.visallo.core.security.VisibilityTranslator;
 import org.visallo.core.user.User;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -551,6 +554,63 @@ public class EntityHighlighterTest {
         assertMatchStyleAndMeta(expectedText, highlightedText, 1);
     }
 
+    @Test
+    public void testGetHighlightedTextWindow() throws Exception {
+        List<OffsetItem> offsetItems = new ArrayList<>();
+        offsetItems.add(mockOffsetItem(0, 7, "This is"));
+        offsetItems.add(mockOffsetItem(10, 14, "test"));
+        offsetItems.add(mockOffsetItem(15, 23, "sentence"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EntityHighlighter.transformToHighlightedText(
+                new ByteArrayInputStream("This is a test sentence".getBytes(StandardCharsets.UTF_8)),
+                out,
+                offsetItems,
+                5,
+                12,
+                -1,
+                EnumSet.noneOf(EntityHighlighter.Options.class)
+        );
+        String expectedText =
+                "<span class=\"This is\" data-info=\"{&quot;data&quot;:&quot;attribute&quot;}\">is</span>" +
+                " a " +
+                "<span class=\"test\" data-info=\"{&quot;data&quot;:&quot;attribute&quot;}\">test</span>" +
+                " " +
+                "<span class=\"sentence\" data-info=\"{&quot;data&quot;:&quot;attribute&quot;}\">se</span>";
+        assertEquals(expectedText, out.toString(StandardCharsets.UTF_8.name()));
+    }
+
+    @Test
+    public void testGetHighlightedTextTruncatedAfterOpenItemsClose() throws Exception {
+        List<OffsetItem> offsetItems = new ArrayList<>();
+        offsetItems.add(mockOffsetItem(5, 9, "is a"));
+        offsetItems.add(mockOffsetItem(15, 23, "sentence"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EntityHighlighter.transformToHighlightedText(
+                new ByteArrayInputStream("This is a test sentence".getBytes(StandardCharsets.UTF_8)),
+                out,
+                offsetItems,
+                7,
+                EnumSet.noneOf(EntityHighlighter.Options.class)
+        );
+        String expectedText =
+                "This " +
+                "<span class=\"is a\" data-info=\"{&quot;data&quot;:&quot;attribute&quot;}\">is a</span>" +
+                "<div class=\"truncated\">This text has exceeded the configured maximum length, and has been truncated.</div>";
+        assertEquals(expectedText, out.toString(StandardCharsets.UTF_8.name()));
+    }
+
+    private OffsetItem mockOffsetItem(long start, long end, String cssClass) throws Exception {
+        OffsetItem offsetItem = mock(VertexOffsetItem.class);
+        when(offsetItem.getStart()).thenReturn(start);
+        when(offsetItem.getEnd()).thenReturn(end);
+        when(offsetItem.getCssClasses()).thenReturn(asList(new String[]{cssClass}));
+        when(offsetItem.shouldHighlight()).thenReturn(true);
+        when(offsetItem.getInfoJson()).thenReturn(new JSONObject("{\"data\":\"attribute\"}"));
+        return offsetItem;
+    }
+
     private List<String> asList(String[] strings) {
         List<String> results = new ArrayList<>();
         Collections.addAll(results, strings);
@@ -0,0 +1,115 @@
+package org.visallo.core.cache;
+
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.vertexium.Graph;
+import org.visallo.core.config.Configuration;
+import org.visallo.core.model.WorkQueueNames;
+import org.visallo.core.model.workQueue.TestWorkQueueRepository;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DistributedCacheServiceTest {
+    private static final String CACHE_NAME = "cache1";
+    private TestWorkQueueRepository workQueueRepository;
+    private DistributedCacheService node1;
+    private DistributedCacheService node2;
+
+    @Mock
+    private Graph graph;
+
+    @Mock
+    private WorkQueueNames workQueueNames;
+
+    @Mock
+    private Configuration configuration;
+
+    @Before
+    public void before() {
+        workQueueRepository = new TestWorkQueueRepository(graph, workQueueNames, configuration);
+        node1 = new DistributedCacheService(new SimpleCacheService(), workQueueRepository);
+        node2 = new DistributedCacheService(new SimpleCacheService(), workQueueRepository);
+    }
+
+    @Test
+    public void testInvalidateKeyIsAppliedOnPeers() {
+        putOnBothNodes("key1", "value1");
+        putOnBothNodes("key2", "value2");
+
+        node1.invalidate(CACHE_NAME, "key1");
+
+        assertNull(node1.getIfPresent(CACHE_NAME, "key1"));
+        assertNull(node2.getIfPresent(CACHE_NAME, "key1"));
+        assertEquals("value2", node1.getIfPresent(CACHE_NAME, "key2"));
+        assertEquals("value2", node2.getIfPresent(CACHE_NAME, "key2"));
+
+        JSONObject json = workQueueRepository.getLastBroadcastedJson();
+        assertEquals(DistributedCacheService.BROADCAST_TYPE, json.getString("type"));
+        assertEquals(0, json.getJSONObject("permissions").getJSONArray("users").length());
+    }
+
+    @Test
+    public void testInvalidateCacheIsAppliedOnPeers() {
+        putOnBothNodes("key1", "value1");
+        node2.put("cache2", "key1", "value3", new CacheOptions());
+
+        node2.invalidate(CACHE_NAME);
+
+        assertNull(node1.getIfPresent(CACHE_NAME, "key1"));
+        assertNull(node2.getIfPresent(CACHE_NAME, "key1"));
+        assertEquals("value3", node2.getIfPresent("cache2", "key1"));
+    }
+
+    @Test
+    public void testReceivedInvalidationsAreNotRebroadcast() {
+        putOnBothNodes("key1", "value1");
+
+        node1.invalidate(CACHE_NAME, "key1");
+
+        assertEquals(1, workQueueRepository.getBroadcastJsonValues().size());
+    }
+
+    private void putOnBothNodes(String key, String value) {
+        node1.put(CACHE_NAME, key, value, new CacheOptions());
+        node2.put(CACHE_NAME, key, value, new CacheOptions());
+    }
+
+    private static class SimpleCacheService implements CacheService {
+        private final Map<String, Map<String, Object>> caches = new HashMap<>();
+
+        @Override
+        public <T> T put(String cacheName, String key, T t, CacheOptions cacheOptions) {
+            caches.computeIfAbsent(cacheName, k -> new HashMap<>()).put(key, t);
+            return t;
+        }
+
+        @Override
+        public <T> T getIfPresent(String cacheName, String key) {
+            Map<String, Object> cache = caches.get(cacheName);
+            //noinspection unchecked
+            return cache == null ? null : (T) cache.get(key);
+        }
+
+        @Override
+        public void invalidate(String cacheName) {
+            caches.remove(cacheName);
+        }
+
+        @Override
+        public void invalidate(String cacheName, String key) {
+            Map<String, Object> cache = caches.get(cacheName);
+            if (cache != null) {
+                cache.remove(key);
+            }
+        }
+    }
+}
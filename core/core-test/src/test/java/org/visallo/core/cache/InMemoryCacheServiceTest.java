@@ -0,0 +1,80 @@
+package org.visallo.core.cache;
+
+import com.codahale.metrics.Counter;
+import org.junit.Before;
+import org.junit.Test;
+import org.visallo.core.status.MetricsManager;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class InMemoryCacheServiceTest {
+    private Map<String, Counter> counters = new HashMap<>();
+    private InMemoryCacheService cacheService;
+
+    @Before
+    public void before() {
+        MetricsManager metricsManager = mock(MetricsManager.class);
+        when(metricsManager.counter(any(), anyString())).thenAnswer(invocation -> {
+            Counter counter = new Counter();
+            counters.put((String) invocation.getArguments()[1], counter);
+            return counter;
+        });
+        cacheService = new InMemoryCacheService(metricsManager);
+    }
+
+    @Test
+    public void testPutGetAndInvalidate() {
+        assertNull(cacheService.getIfPresent("cache1", "key1"));
+
+        cacheService.put("cache1", "key1", "value1", new CacheOptions());
+        cacheService.put("cache1", "key2", "value2", new CacheOptions());
+        cacheService.put("cache2", "key1", "value3", new CacheOptions());
+        assertEquals("value1", cacheService.getIfPresent("cache1", "key1"));
+        assertEquals("value3", cacheService.getIfPresent("cache2", "key1"));
+        assertCounts("cache1", 1, 0);
+        assertCounts("cache2", 1, 0);
+
+        cacheService.invalidate("cache1", "key1");
+        assertNull(cacheService.getIfPresent("cache1", "key1"));
+        assertCounts("cache1", 1, 1);
+        assertEquals("value2", cacheService.getIfPresent("cache1", "key2"));
+        assertCounts("cache1", 2, 1);
+
+        cacheService.invalidate("cache1");
+        assertNull(cacheService.getIfPresent("cache1", "key2"));
+        assertCounts("cache1", 2, 2);
+        assertEquals("value3", cacheService.getIfPresent("cache2", "key1"));
+        assertCounts("cache2", 2, 0);
+    }
+
+    private void assertCounts(String cacheName, long expectedHits, long expectedMisses) {
+        assertEquals(expectedHits, counters.get(cacheName + "-hits").getCount());
+        assertEquals(expectedMisses, counters.get(cacheName + "-misses").getCount());
+    }
+
+    @Test
+    public void testMaximumWeight() {
+        CacheOptions cacheOptions = new CacheOptions()
+                .setMaximumWeight(10L, (key, value) -> ((String) value).length());
+        cacheService.put("cache1", "key1", "12345", cacheOptions);
+        cacheService.put("cache1", "key2", "12345", cacheOptions);
+        cacheService.put("cache1", "key3", "12345", cacheOptions);
+
+        int present = 0;
+        for (String key : new String[]{"key1", "key2", "key3"}) {
+            if (cacheService.getIfPresent("cache1", key) != null) {
+                present++;
+            }
+        }
+        assertEquals(2, present);
+        assertEquals(1, counters.get("cache1-evictions").getCount());
+    }
+}
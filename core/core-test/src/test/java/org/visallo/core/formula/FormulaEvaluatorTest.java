@@ -14,7 +14,9 @@ import org.visallo.core.config.ConfigurationLoader;
 import org.visallo.core.config.HashMapConfigurationLoader;
 import org.visallo.core.model.ontology.OntologyRepository;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.Semaphore;
@@ -29,6 +31,7 @@ public class FormulaEvaluatorTest {
     private FormulaEvaluator.UserContext userContext;
     private Graph graph;
     private Authorizations authorizations;
+    private volatile String ontologyJson;
 
     @Mock
     private OntologyRepository ontologyRepository;
@@ -46,7 +49,7 @@ public class FormulaEvaluatorTest {
         String timeZone = "America/New_York";
         userContext = new FormulaEvaluator.UserContext(locale, null, timeZone, null);
 
-        final String ontologyJson = IOUtils.toString(FormulaEvaluatorTest.class.getResourceAsStream("ontology.json"), "utf-8");
+        ontologyJson = IOUtils.toString(FormulaEvaluatorTest.class.getResourceAsStream("ontology.json"), "utf-8");
         final String configurationJson = IOUtils.toString(FormulaEvaluatorTest.class.getResourceAsStream("configuration.json"), "utf-8");
         final String vertexJson = IOUtils.toString(FormulaEvaluatorTest.class.getResourceAsStream("vertex.json"), "utf-8");
 
@@ -97,6 +100,25 @@ public class FormulaEvaluatorTest {
         assertEquals("2014-11-20", evaluator.evaluateTimeFormula(null, userContext, authorizations));
     }
 
+    @Test
+    public void testEvaluateFormulas() {
+        List<FormulaEvaluator.FormulaResults> results = evaluator.evaluateFormulas(Arrays.asList(null, null), userContext, authorizations);
+        assertEquals(2, results.size());
+        for (FormulaEvaluator.FormulaResults result : results) {
+            assertEquals("Prop A Value, Prop B Value", result.getTitle());
+            assertEquals("Prop C Value", result.getSubtitle());
+            assertEquals("2014-11-20", result.getTime());
+        }
+    }
+
+    @Test
+    public void testOntologyChange() {
+        assertEquals("Prop A Value, Prop B Value", evaluator.evaluateTitleFormula(null, userContext, authorizations));
+
+        ontologyJson = ontologyJson.replace("+ ', ' +", "+ ' - ' +");
+        assertEquals("Prop A Value - Prop B Value", evaluator.evaluateTitleFormula(null, userContext, authorizations));
+    }
+
     @Test
     public void testDuration() {
         String propertyKey = "pkey";
@@ -20,15 +20,22 @@ import org.visallo.core.model.workspace.Workspace;
 import org.visallo.core.model.workspace.WorkspaceRepository;
 import org.visallo.core.security.DirectVisibilityTranslator;
 import org.visallo.core.security.VisibilityTranslator;
+import org.visallo.core.status.JmxMetricsManager;
+import org.visallo.core.status.MetricsManager;
 import org.visallo.core.user.User;
 import org.visallo.web.clientapi.model.ClientApiImportProperty;
 
 import java.io.File;
+import java.nio.file.Files;
 import java.util.*;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.vertexium.util.IterableUtils.count;
 import static org.vertexium.util.IterableUtils.toList;
 import static org.visallo.core.model.ontology.OntologyRepository.PUBLIC;
 
@@ -170,6 +177,32 @@ public class FileImportTest {
         assertNotEquals(results.firstVertexId, results.secondVertexId);
     }
 
+    @Test
+    public void testImportDirectory() throws Exception {
+        when(configuration.getInt(FileImport.CONFIG_IMPORT_DIRECTORY_THREAD_COUNT, FileImport.DEFAULT_IMPORT_DIRECTORY_THREAD_COUNT)).thenReturn(4);
+        MetricsManager metricsManager = spy(new JmxMetricsManager());
+        fileImport.setMetricsManager(metricsManager);
+
+        File dataDir = Files.createTempDirectory("test").toFile();
+        try {
+            FileUtils.writeStringToFile(new File(dataDir, "a.txt"), "Hello World");
+            FileUtils.writeStringToFile(new File(dataDir, "b.txt"), "Hello World");
+            FileUtils.writeStringToFile(new File(dataDir, "c.txt"), "Hello Test");
+            FileUtils.writeStringToFile(new File(dataDir, ".hidden"), "Hello Hidden");
+
+            fileImport.importDirectory(dataDir, false, null, "", workspace, Priority.NORMAL, user, authorizations);
+            assertEquals(2, count(graph.getVertices(authorizations)));
+
+            fileImport.importDirectory(dataDir, false, null, "", workspace, Priority.NORMAL, user, authorizations);
+            assertEquals(2, count(graph.getVertices(authorizations)));
+
+            verify(metricsManager, times(1)).timer(fileImport, "import-directory-hash-time");
+            verify(metricsManager, times(1)).counter(fileImport, "import-directory-imported");
+        } finally {
+            FileUtils.deleteDirectory(dataDir);
+        }
+    }
+
     private ImportTwiceResults importFileTwice(boolean findExistingByFileHash) throws Exception {
         File testFile = File.createTempFile("test", "test");
         try {
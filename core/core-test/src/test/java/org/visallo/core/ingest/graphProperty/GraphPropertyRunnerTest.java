@@ -7,8 +7,10 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
 import org.vertexium.*;
 import org.visallo.core.config.Configuration;
+import org.visallo.core.ingest.WorkerTuple;
 import org.visallo.core.model.user.AuthorizationRepository;
 import org.visallo.core.model.workQueue.Priority;
 import org.visallo.core.model.workQueue.WorkQueueRepository;
@@ -16,9 +18,7 @@ import org.visallo.core.status.JmxMetricsManager;
 import org.visallo.core.status.MetricsManager;
 
 import java.io.InputStream;
-import java.util.Collections;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static org.hamcrest.CoreMatchers.is;
@@ -37,6 +37,8 @@ public class GraphPropertyRunnerTest {
 
     private GraphPropertyRunner testSubject;
     private Graph graph;
+    private Map<String, Vertex> vertices = new HashMap<>();
+    private Map<String, Edge> edges = new HashMap<>();
     private MetricsManager metricsManager = new JmxMetricsManager();
 
     @Mock
@@ -57,6 +59,8 @@ public class GraphPropertyRunnerTest {
                 authorizationRepository
         );
         graph = mock(Graph.class);
+        when(graph.getVertices(any(Iterable.class), any(EnumSet.class), any(Authorizations.class))).thenAnswer(getElementsAnswer(vertices));
+        when(graph.getEdges(any(Iterable.class), any(EnumSet.class), any(Authorizations.class))).thenAnswer(getElementsAnswer(edges));
         testSubject.setGraph(graph);
     }
 
@@ -138,6 +142,28 @@ public class GraphPropertyRunnerTest {
         testMultiElementMessage(numMessages, numProperties, createMultiVertexIdJSONGPWMessage(ids));
     }
 
+    @Test
+    public void testPrefetchLoadsElementsForAllTuplesInOneCall() throws Exception {
+        String[] ids = new String[]{VERTEX_ID + "_0", VERTEX_ID + "_1", VERTEX_ID + "_2"};
+        for (String id : ids) {
+            inflateVertexAndAddToGraph(id, 1L);
+        }
+        List<WorkerTuple> tuples = new ArrayList<>();
+        for (String id : ids) {
+            tuples.add(new WorkerTuple(id, createVertexIdJSONGPWMessage(id).toBytes()));
+        }
+
+        testSubject.prefetchTupleData(tuples);
+        for (WorkerTuple tuple : tuples) {
+            GraphPropertyWorkerItem workerItem = testSubject.tupleDataToWorkerItem(tuple.getData());
+            assertThat(workerItem.getElements().size(), is(1));
+            assertThat(workerItem.getElements().get(0).getId(), is(tuple.getMessageId()));
+        }
+
+        verify(graph, times(1)).getVertices(any(Iterable.class), any(EnumSet.class), any(Authorizations.class));
+        verify(graph, never()).getVertex(any(String.class), any(Authorizations.class));
+    }
+
     @Test
     public void testMultipleElementsOnSinglePropertyRunsOnPropertyOnAllElements() throws Exception {
         int numElements = 5;
@@ -289,11 +315,25 @@ public class GraphPropertyRunnerTest {
     }
 
     private void registerVertexWithGraph(String id, Vertex v) {
-        when(graph.getVertex(eq(id), any(Authorizations.class))).thenReturn(v);
+        vertices.put(id, v);
     }
 
     private void registerEdgeWithGraph(String edgeId, Edge e) {
-        when(graph.getEdge(eq(edgeId), any(Authorizations.class))).thenReturn(e);
+        edges.put(edgeId, e);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Answer<Iterable<T>> getElementsAnswer(Map<String, T> elements) {
+        return invocation -> {
+            List<T> results = new ArrayList<>();
+            for (String id : (Iterable<String>) invocation.getArguments()[0]) {
+                T element = elements.get(id);
+                if (element != null) {
+                    results.add(element);
+                }
+            }
+            return results;
+        };
     }
 
     private static GraphPropertyMessage createMultiEdgeIdJSONGPWMessage(String... edgeIds) {
@@ -0,0 +1,121 @@
+package org.visallo.core.ingest.graphProperty;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.Test;
+import org.vertexium.Edge;
+import org.vertexium.Element;
+import org.vertexium.Property;
+import org.vertexium.Vertex;
+import org.visallo.core.model.properties.VisalloProperties;
+
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class GraphPropertyWorkerIndexTest {
+    private final TestWorker anyWorker = new TestWorker(null, null);
+    private final TestWorker nameWorker = new TestWorker(Sets.newHashSet("name"), null);
+    private final TestWorker rawWorker = new TestWorker(Sets.newHashSet("raw"), null);
+    private final TestWorker personWorker = new TestWorker(null, Sets.newHashSet("person"));
+
+    @Test
+    public void testDeclaredPropertyNames() {
+        GraphPropertyWorkerIndex<GraphPropertyWorker> index = createIndex(anyWorker, nameWorker, rawWorker);
+        Vertex vertex = createVertex("thing");
+
+        assertEquals(
+                Lists.newArrayList(anyWorker, nameWorker),
+                index.getCandidates(vertex, createProperty("name"), ElementOrPropertyStatus.UPDATE)
+        );
+        assertEquals(
+                Lists.newArrayList(anyWorker, rawWorker),
+                index.getCandidates(vertex, createProperty("raw"), ElementOrPropertyStatus.UPDATE)
+        );
+        assertEquals(
+                Collections.singletonList(anyWorker),
+                index.getCandidates(vertex, createProperty("other"), ElementOrPropertyStatus.UPDATE)
+        );
+        assertEquals(
+                Lists.newArrayList(anyWorker, nameWorker, rawWorker),
+                index.getCandidates(vertex, null, ElementOrPropertyStatus.UPDATE)
+        );
+    }
+
+    @Test
+    public void testDeclaredPropertyNamesOnlyApplyToTheirStatus() {
+        GraphPropertyWorkerIndex<GraphPropertyWorker> index = createIndex(anyWorker, nameWorker);
+
+        assertEquals(
+                Lists.newArrayList(anyWorker, nameWorker),
+                index.getCandidates(createVertex("thing"), createProperty("other"), ElementOrPropertyStatus.DELETION)
+        );
+    }
+
+    @Test
+    public void testDeclaredConceptTypes() {
+        GraphPropertyWorkerIndex<GraphPropertyWorker> index = createIndex(anyWorker, personWorker);
+
+        assertEquals(
+                Lists.newArrayList(anyWorker, personWorker),
+                index.getCandidates(createVertex("person"), createProperty("name"), ElementOrPropertyStatus.UPDATE)
+        );
+        assertEquals(
+                Collections.singletonList(anyWorker),
+                index.getCandidates(createVertex("place"), createProperty("name"), ElementOrPropertyStatus.UPDATE)
+        );
+        assertEquals(
+                Collections.singletonList(anyWorker),
+                index.getCandidates(mock(Edge.class), createProperty("name"), ElementOrPropertyStatus.UPDATE)
+        );
+    }
+
+    private GraphPropertyWorkerIndex<GraphPropertyWorker> createIndex(GraphPropertyWorker... workers) {
+        return new GraphPropertyWorkerIndex<>(Lists.newArrayList(workers), worker -> worker);
+    }
+
+    private Vertex createVertex(String conceptType) {
+        Vertex vertex = mock(Vertex.class);
+        when(vertex.getPropertyValue(VisalloProperties.CONCEPT_TYPE.getPropertyName())).thenReturn(conceptType);
+        return vertex;
+    }
+
+    private Property createProperty(String name) {
+        Property property = mock(Property.class);
+        when(property.getName()).thenReturn(name);
+        return property;
+    }
+
+    private static class TestWorker extends GraphPropertyWorker {
+        private final Set<String> propertyNames;
+        private final Set<String> conceptTypes;
+
+        private TestWorker(Set<String> propertyNames, Set<String> conceptTypes) {
+            this.propertyNames = propertyNames;
+            this.conceptTypes = conceptTypes;
+        }
+
+        @Override
+        public Set<String> getHandledPropertyNames(ElementOrPropertyStatus status) {
+            return status == ElementOrPropertyStatus.UPDATE ? propertyNames : null;
+        }
+
+        @Override
+        public Set<String> getHandledConceptTypes() {
+            return conceptTypes;
+        }
+
+        @Override
+        public boolean isHandled(Element element, Property property) {
+            return true;
+        }
+
+        @Override
+        public void execute(InputStream in, GraphPropertyWorkData data) throws Exception {
+        }
+    }
+}
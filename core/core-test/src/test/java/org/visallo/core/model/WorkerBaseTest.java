@@ -8,14 +8,27 @@ import org.mockito.runners.MockitoJUnitRunner;
 import org.visallo.core.config.Configuration;
 import org.visallo.core.exception.VisalloException;
 import org.visallo.core.ingest.WorkerSpout;
+import org.visallo.core.ingest.WorkerTuple;
 import org.visallo.core.ingest.graphProperty.WorkerItem;
 import org.visallo.core.model.workQueue.WorkQueueRepository;
 import org.visallo.core.status.JmxMetricsManager;
 import org.visallo.core.util.VisalloLogger;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
 import static junit.framework.TestCase.fail;
 import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.when;
 
@@ -64,6 +77,191 @@ public class WorkerBaseTest {
         assertEquals(1, nextTupleExceptionCount);
     }
 
+    @Test
+    public void testAcksInFetchOrderWithMultipleProcessThreads() throws Exception {
+        int tupleCount = 50;
+        when(configuration.getInt(eq(OrderedAckTestWorker.class.getName() + ".processThreadCount"), anyInt())).thenReturn(4);
+        when(configuration.getInt(eq(OrderedAckTestWorker.class.getName() + ".tupleQueueSize"), anyInt())).thenReturn(8);
+        List<Object> ackedMessageIds = Collections.synchronizedList(new ArrayList<>());
+        OrderedAckTestWorker testWorker = new OrderedAckTestWorker(workQueueRepository, configuration);
+        WorkerSpout spout = new WorkerSpout() {
+            private int nextMessageId;
+
+            @Override
+            public WorkerTuple nextTuple() throws Exception {
+                if (nextMessageId >= tupleCount) {
+                    Thread.sleep(10);
+                    return null;
+                }
+                int messageId = nextMessageId++;
+                return new WorkerTuple(messageId, new byte[]{(byte) messageId});
+            }
+
+            @Override
+            public void ack(WorkerTuple workerTuple) {
+                ackedMessageIds.add(workerTuple.getMessageId());
+                if (ackedMessageIds.size() == tupleCount) {
+                    testWorker.stop();
+                }
+            }
+        };
+        when(workQueueRepository.createWorkerSpout(eq("test"))).thenReturn(spout);
+
+        testWorker.run();
+
+        assertEquals(tupleCount, ackedMessageIds.size());
+        for (int i = 0; i < tupleCount; i++) {
+            assertEquals(i, ackedMessageIds.get(i));
+        }
+        assertTrue("expected more than one process thread", testWorker.processThreadNames.size() > 1);
+    }
+
+    @Test
+    public void testBatchedFetchAndAck() throws Exception {
+        int tupleCount = 25;
+        when(configuration.getInt(eq(OrderedAckTestWorker.class.getName() + ".tupleBatchSize"), anyInt())).thenReturn(10);
+        when(configuration.getInt(eq(OrderedAckTestWorker.class.getName() + ".tupleQueueSize"), anyInt())).thenReturn(10);
+        List<Integer> fetchSizes = Collections.synchronizedList(new ArrayList<>());
+        List<Object> ackedMessageIds = Collections.synchronizedList(new ArrayList<>());
+        OrderedAckTestWorker testWorker = new OrderedAckTestWorker(workQueueRepository, configuration);
+        WorkerSpout spout = new WorkerSpout() {
+            private int nextMessageId;
+
+            @Override
+            public WorkerTuple nextTuple() throws Exception {
+                throw new VisalloException("batch spout should not be called for single tuples");
+            }
+
+            @Override
+            public List<WorkerTuple> nextTuples(int maxCount, long maxWaitMillis) throws Exception {
+                List<WorkerTuple> tuples = new ArrayList<>();
+                while (tuples.size() < maxCount && nextMessageId < tupleCount) {
+                    int messageId = nextMessageId++;
+                    tuples.add(new WorkerTuple(messageId, new byte[]{(byte) messageId}));
+                }
+                if (tuples.isEmpty()) {
+                    Thread.sleep(10);
+                } else {
+                    fetchSizes.add(tuples.size());
+                }
+                return tuples;
+            }
+
+            @Override
+            public void ack(Collection<WorkerTuple> workerTuples) {
+                for (WorkerTuple workerTuple : workerTuples) {
+                    ackedMessageIds.add(workerTuple.getMessageId());
+                }
+                if (ackedMessageIds.size() == tupleCount) {
+                    testWorker.stop();
+                }
+            }
+
+            @Override
+            public boolean isBatchSupported() {
+                return true;
+            }
+        };
+        when(workQueueRepository.createWorkerSpout(eq("test"))).thenReturn(spout);
+
+        testWorker.run();
+
+        assertEquals(Arrays.asList(10, 10, 5), fetchSizes);
+        assertEquals(tupleCount, ackedMessageIds.size());
+        for (int i = 0; i < tupleCount; i++) {
+            assertEquals(i, ackedMessageIds.get(i));
+        }
+    }
+
+    @Test
+    public void testStopFailsFetchedTuplesThatWereNotProcessed() throws Exception {
+        int tupleCount = 5;
+        when(configuration.getInt(eq(TestWorker.class.getName() + ".tupleQueueSize"), anyInt())).thenReturn(1);
+        List<Object> ackedMessageIds = Collections.synchronizedList(new ArrayList<>());
+        List<Object> failedMessageIds = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch allCompleted = new CountDownLatch(tupleCount);
+        TestWorker testWorker = new TestWorker(workQueueRepository, configuration);
+        WorkerSpout spout = new WorkerSpout() {
+            private boolean fetched;
+
+            @Override
+            public WorkerTuple nextTuple() throws Exception {
+                throw new VisalloException("batch spout should not be called for single tuples");
+            }
+
+            @Override
+            public List<WorkerTuple> nextTuples(int maxCount, long maxWaitMillis) throws Exception {
+                List<WorkerTuple> tuples = new ArrayList<>();
+                if (!fetched) {
+                    fetched = true;
+                    for (int i = 0; i < tupleCount; i++) {
+                        tuples.add(new WorkerTuple(i, new byte[]{(byte) i}));
+                    }
+                } else {
+                    Thread.sleep(10);
+                }
+                return tuples;
+            }
+
+            @Override
+            public void ack(Collection<WorkerTuple> workerTuples) {
+                for (WorkerTuple workerTuple : workerTuples) {
+                    ackedMessageIds.add(workerTuple.getMessageId());
+                    allCompleted.countDown();
+                }
+            }
+
+            @Override
+            public void fail(Collection<WorkerTuple> workerTuples) {
+                for (WorkerTuple workerTuple : workerTuples) {
+                    failedMessageIds.add(workerTuple.getMessageId());
+                    allCompleted.countDown();
+                }
+            }
+
+            @Override
+            public boolean isBatchSupported() {
+                return true;
+            }
+        };
+        when(workQueueRepository.createWorkerSpout(eq("test"))).thenReturn(spout);
+
+        // the first tuple stops the worker while the rest of the batch is queued or waiting to be queued
+        testWorker.run();
+
+        assertTrue("tuples were lost", allCompleted.await(10, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList(0), ackedMessageIds);
+        assertEquals(Arrays.asList(1, 2, 3, 4), failedMessageIds);
+    }
+
+    private class OrderedAckTestWorker extends WorkerBase<TestWorkerItem> {
+        private final Set<String> processThreadNames = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        private final CountDownLatch allThreadsStarted = new CountDownLatch(2);
+
+        protected OrderedAckTestWorker(WorkQueueRepository workQueueRepository, Configuration configuration) {
+            super(workQueueRepository, configuration, new JmxMetricsManager());
+        }
+
+        @Override
+        public TestWorkerItem tupleDataToWorkerItem(byte[] data) {
+            return new TestWorkerItem(data);
+        }
+
+        @Override
+        protected void process(TestWorkerItem workerItem) throws Exception {
+            processThreadNames.add(Thread.currentThread().getName());
+            allThreadsStarted.countDown();
+            allThreadsStarted.await(1, TimeUnit.SECONDS);
+            // later tuples finish before earlier ones so acks must be reordered
+            Thread.sleep(workerItem.data[0] % 2 == 0 ? 5 : 1);
+        }
+
+        @Override
+        protected String getQueueName() {
+            return "test";
+        }
+    }
+
     private class TestWorker extends WorkerBase<TestWorkerItem> {
         protected TestWorker(WorkQueueRepository workQueueRepository, Configuration configuration) {
             super(workQueueRepository, configuration, new JmxMetricsManager());
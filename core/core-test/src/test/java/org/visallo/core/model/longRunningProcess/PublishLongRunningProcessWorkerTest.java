@@ -0,0 +1,156 @@
+package org.visallo.core.model.longRunningProcess;
+
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.vertexium.Authorizations;
+import org.vertexium.inmemory.InMemoryGraph;
+import org.visallo.core.model.user.UserRepository;
+import org.visallo.core.model.workspace.WorkspaceRepository;
+import org.visallo.core.user.User;
+import org.visallo.core.util.ClientApiConverter;
+import org.visallo.web.clientapi.model.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyDouble;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PublishLongRunningProcessWorkerTest {
+    private static final String WORKSPACE_ID = "ws1";
+    private PublishLongRunningProcessWorker worker;
+    private List<List<String>> publishedChunks;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private WorkspaceRepository workspaceRepository;
+
+    @Mock
+    private LongRunningProcessRepository longRunningProcessRepository;
+
+    @Mock
+    private User user;
+
+    @Before
+    public void before() {
+        when(userRepository.findById("user1")).thenReturn(user);
+        worker = new PublishLongRunningProcessWorker(InMemoryGraph.create(), userRepository, workspaceRepository, longRunningProcessRepository);
+
+        publishedChunks = new ArrayList<>();
+        when(workspaceRepository.publish(any(ClientApiPublishItem[].class), eq(user), eq(WORKSPACE_ID), any(Authorizations.class))).thenAnswer(invocation -> {
+            ClientApiWorkspacePublishResponse response = new ClientApiWorkspacePublishResponse();
+            List<String> ids = new ArrayList<>();
+            for (ClientApiPublishItem item : (ClientApiPublishItem[]) invocation.getArguments()[0]) {
+                String id = getId(item);
+                ids.add(id);
+                if (id.equals("v3")) {
+                    item.setErrorMessage("failed " + id);
+                    response.addFailure(item);
+                }
+            }
+            publishedChunks.add(ids);
+            return response;
+        });
+    }
+
+    @Test
+    public void testPublishInChunksInPublishOrder() {
+        JSONObject queueItem = createQueueItem(
+                createEdgeItem("e1", ClientApiPublishItem.Action.ADD_OR_UPDATE),
+                createVertexItem("v1", ClientApiPublishItem.Action.DELETE),
+                createVertexItem("v2", ClientApiPublishItem.Action.ADD_OR_UPDATE),
+                createVertexItem("v3", ClientApiPublishItem.Action.ADD_OR_UPDATE),
+                createEdgeItem("e2", ClientApiPublishItem.Action.DELETE)
+        );
+
+        worker.processInternal(queueItem);
+
+        assertEquals(3, publishedChunks.size());
+        assertEquals("[v2, v3]", publishedChunks.get(0).toString());
+        assertEquals("[e1, e2]", publishedChunks.get(1).toString());
+        assertEquals("[v1]", publishedChunks.get(2).toString());
+        verify(longRunningProcessRepository, times(3)).reportProgress(any(JSONObject.class), anyDouble(), anyString());
+
+        ArgumentCaptor<JSONObject> checkpoint = ArgumentCaptor.forClass(JSONObject.class);
+        verify(longRunningProcessRepository, times(3)).saveCheckpoint(any(JSONObject.class), checkpoint.capture());
+        assertEquals(3, checkpoint.getValue().getInt("completedChunkCount"));
+
+        ClientApiWorkspacePublishResponse results = ClientApiConverter.toClientApi(
+                queueItem.getJSONObject("results").toString(),
+                ClientApiWorkspacePublishResponse.class
+        );
+        assertEquals(1, results.getFailures().size());
+        assertEquals("failed v3", results.getFailures().get(0).getErrorMessage());
+    }
+
+    @Test
+    public void testResumeFromCheckpoint() {
+        ClientApiWorkspacePublishResponse checkpointResults = new ClientApiWorkspacePublishResponse();
+        ClientApiVertexPublishItem failure = createVertexItem("v3", ClientApiPublishItem.Action.ADD_OR_UPDATE);
+        failure.setErrorMessage("failed v3");
+        checkpointResults.addFailure(failure);
+        JSONObject checkpoint = new JSONObject();
+        checkpoint.put("itemCount", 3);
+        checkpoint.put("chunkCount", 2);
+        checkpoint.put("completedChunkCount", 1);
+        checkpoint.put("results", new JSONObject(ClientApiConverter.clientApiToString(checkpointResults)));
+        when(longRunningProcessRepository.getCheckpoint(any(JSONObject.class))).thenReturn(checkpoint);
+
+        JSONObject queueItem = createQueueItem(
+                createVertexItem("v2", ClientApiPublishItem.Action.ADD_OR_UPDATE),
+                createVertexItem("v3", ClientApiPublishItem.Action.ADD_OR_UPDATE),
+                createEdgeItem("e1", ClientApiPublishItem.Action.ADD_OR_UPDATE)
+        );
+
+        worker.processInternal(queueItem);
+
+        assertEquals(1, publishedChunks.size());
+        assertEquals("[e1]", publishedChunks.get(0).toString());
+        assertEquals(1, queueItem.getInt("resultsCount"));
+    }
+
+    private JSONObject createQueueItem(ClientApiPublishItem... publishData) {
+        PublishLongRunningProcessQueueItem queueItem = new PublishLongRunningProcessQueueItem(
+                WORKSPACE_ID,
+                publishData,
+                2,
+                new String[]{WORKSPACE_ID}
+        );
+        JSONObject json = new JSONObject(ClientApiConverter.clientApiToString(queueItem));
+        json.put("userId", "user1");
+        return json;
+    }
+
+    private ClientApiVertexPublishItem createVertexItem(String vertexId, ClientApiPublishItem.Action action) {
+        ClientApiVertexPublishItem item = new ClientApiVertexPublishItem();
+        item.setVertexId(vertexId);
+        item.setAction(action);
+        return item;
+    }
+
+    private ClientApiRelationshipPublishItem createEdgeItem(String edgeId, ClientApiPublishItem.Action action) {
+        ClientApiRelationshipPublishItem item = new ClientApiRelationshipPublishItem();
+        item.setEdgeId(edgeId);
+        item.setAction(action);
+        return item;
+    }
+
+    private String getId(ClientApiPublishItem item) {
+        if (item instanceof ClientApiVertexPublishItem) {
+            return ((ClientApiVertexPublishItem) item).getVertexId();
+        }
+        return ((ClientApiRelationshipPublishItem) item).getEdgeId();
+    }
+}
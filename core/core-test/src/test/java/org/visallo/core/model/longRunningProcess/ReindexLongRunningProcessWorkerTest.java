@@ -0,0 +1,164 @@
+package org.visallo.core.model.longRunningProcess;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.vertexium.*;
+import org.vertexium.search.SearchIndex;
+import org.visallo.core.config.Configuration;
+import org.visallo.core.model.user.AuthorizationRepository;
+import org.visallo.core.model.user.UserRepository;
+import org.visallo.core.util.ClientApiConverter;
+import org.visallo.core.util.ShutdownService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReindexLongRunningProcessWorkerTest {
+    private Graph graph;
+    private SearchIndex searchIndex;
+    private ReindexLongRunningProcessWorker worker;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private AuthorizationRepository authorizationRepository;
+
+    @Mock
+    private LongRunningProcessRepository longRunningProcessRepository;
+
+    @Mock
+    private Configuration configuration;
+
+    @Mock
+    private ShutdownService shutdownService;
+
+    @Before
+    public void before() {
+        graph = mock(Graph.class, withSettings().extraInterfaces(GraphWithSearchIndex.class));
+        searchIndex = mock(SearchIndex.class);
+        when(((GraphWithSearchIndex) graph).getSearchIndex()).thenReturn(searchIndex);
+        when(configuration.getInt(eq(ReindexLongRunningProcessWorker.CONFIG_THREAD_COUNT), anyInt())).thenReturn(4);
+        when(configuration.get(eq(ReindexLongRunningProcessWorker.CONFIG_SPLIT_CHARACTERS), anyString()))
+                .thenReturn(ReindexLongRunningProcessWorker.DEFAULT_SPLIT_CHARACTERS);
+        worker = new ReindexLongRunningProcessWorker(graph, userRepository, authorizationRepository, longRunningProcessRepository, configuration, shutdownService);
+        verify(shutdownService).register(worker);
+    }
+
+    @After
+    public void after() {
+        worker.shutdown();
+    }
+
+    @Test
+    public void testSplitRange() {
+        char[] splitCharacters = ReindexLongRunningProcessWorker.toSplitCharacters(ReindexLongRunningProcessWorker.DEFAULT_SPLIT_CHARACTERS);
+        List<Range> ranges = ReindexLongRunningProcessWorker.splitRange(null, null, splitCharacters);
+        assertEquals(17, ranges.size());
+        assertEquals(null, ranges.get(0).getInclusiveStart());
+        assertEquals("0", ranges.get(1).getInclusiveStart());
+        assertEquals("f", ranges.get(16).getInclusiveStart());
+
+        ranges = ReindexLongRunningProcessWorker.splitRange("a", "b", splitCharacters);
+        assertEquals(17, ranges.size());
+        assertEquals("a", ranges.get(0).getInclusiveStart());
+        assertEquals("a0", ranges.get(1).getInclusiveStart());
+
+        ranges = ReindexLongRunningProcessWorker.splitRange("a", "a1", splitCharacters);
+        assertEquals(2, ranges.size());
+        assertEquals("a0", ranges.get(1).getInclusiveStart());
+    }
+
+    @Test
+    public void testSplitCharactersAreSorted() {
+        char[] splitCharacters = ReindexLongRunningProcessWorker.toSplitCharacters("ba0a");
+        assertEquals("0ab", new String(splitCharacters));
+
+        List<Range> ranges = ReindexLongRunningProcessWorker.splitRange(null, null, splitCharacters);
+        assertEquals(4, ranges.size());
+        assertEquals("b", ranges.get(3).getInclusiveStart());
+    }
+
+    @Test
+    public void testReindexAllSubRangesAndSaveCheckpoint() {
+        List<Vertex> vertices = createVertices(250);
+        AtomicBoolean returnedVertices = new AtomicBoolean();
+        when(graph.getVerticesInRange(any(Range.class), any(EnumSet.class), any(Authorizations.class))).thenAnswer(invocation ->
+                returnedVertices.compareAndSet(false, true) ? vertices : Collections.emptyList()
+        );
+        AtomicInteger indexedCount = countIndexedElements();
+
+        worker.processInternal(createQueueItem());
+
+        assertEquals(250, indexedCount.get());
+        ArgumentCaptor<JSONObject> checkpoint = ArgumentCaptor.forClass(JSONObject.class);
+        verify(longRunningProcessRepository, atLeastOnce()).saveCheckpoint(any(JSONObject.class), checkpoint.capture());
+        JSONObject lastCheckpoint = checkpoint.getValue();
+        assertEquals(lastCheckpoint.getInt("rangeCount"), lastCheckpoint.getJSONArray("completedRanges").length());
+    }
+
+    @Test
+    public void testResumeFromCheckpoint() {
+        char[] splitCharacters = ReindexLongRunningProcessWorker.toSplitCharacters(ReindexLongRunningProcessWorker.DEFAULT_SPLIT_CHARACTERS);
+        int rangeCount = ReindexLongRunningProcessWorker.splitRange(null, null, splitCharacters).size();
+        JSONArray completedRanges = new JSONArray();
+        for (int i = 1; i < rangeCount; i++) {
+            completedRanges.put(i);
+        }
+        JSONObject checkpoint = new JSONObject();
+        checkpoint.put("elementType", ElementType.VERTEX.name());
+        checkpoint.put("rangeCount", rangeCount);
+        checkpoint.put("completedRanges", completedRanges);
+        when(longRunningProcessRepository.getCheckpoint(any(JSONObject.class))).thenReturn(checkpoint);
+        when(graph.getVerticesInRange(any(Range.class), any(EnumSet.class), any(Authorizations.class))).thenReturn(createVertices(10));
+        AtomicInteger indexedCount = countIndexedElements();
+
+        worker.processInternal(createQueueItem());
+
+        assertEquals(10, indexedCount.get());
+        verify(graph, times(1)).getVerticesInRange(any(Range.class), any(EnumSet.class), any(Authorizations.class));
+    }
+
+    private JSONObject createQueueItem() {
+        ReindexLongRunningProcessQueueItem queueItem = new ReindexLongRunningProcessQueueItem(ElementType.VERTEX, 100, null, null);
+        return new JSONObject(ClientApiConverter.clientApiToString(queueItem));
+    }
+
+    private List<Vertex> createVertices(int count) {
+        List<Vertex> vertices = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            vertices.add(mock(Vertex.class));
+        }
+        return vertices;
+    }
+
+    private AtomicInteger countIndexedElements() {
+        AtomicInteger indexedCount = new AtomicInteger();
+        doAnswer(invocation -> {
+            for (Object ignored : (Iterable<?>) invocation.getArguments()[1]) {
+                indexedCount.incrementAndGet();
+            }
+            return null;
+        }).when(searchIndex).addElements(any(Graph.class), any(Iterable.class), any(Authorizations.class));
+        return indexedCount;
+    }
+}
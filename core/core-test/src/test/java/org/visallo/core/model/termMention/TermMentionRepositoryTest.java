@@ -8,15 +8,19 @@ import org.mockito.runners.MockitoJUnitRunner;
 import org.vertexium.*;
 import org.vertexium.inmemory.InMemoryGraph;
 import org.visallo.core.model.properties.VisalloProperties;
+import org.visallo.core.model.textHighlighting.OffsetItem;
+import org.visallo.core.model.textHighlighting.TermMentionIndexOffsetItem;
+import org.visallo.core.model.textHighlighting.VertexOffsetItem;
 import org.visallo.core.model.user.GraphAuthorizationRepository;
+import org.visallo.core.user.User;
 import org.visallo.core.util.VisalloInMemoryTestBase;
 import org.visallo.web.clientapi.model.VisibilityJson;
 
 import java.util.List;
 import java.util.stream.Collectors;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNull;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
 public class TermMentionRepositoryTest extends VisalloInMemoryTestBase {
@@ -26,6 +30,9 @@ public class TermMentionRepositoryTest extends VisalloInMemoryTestBase {
     private Authorizations authorizations;
     private TermMentionRepository termMentionRepository;
 
+    @Mock
+    private User user;
+
     @Before
     public void setUp() {
         visibility = new Visibility("");
@@ -33,6 +40,7 @@ public class TermMentionRepositoryTest extends VisalloInMemoryTestBase {
         authorizations = getGraph().createAuthorizations(TermMentionRepository.VISIBILITY_STRING);
 
         termMentionRepository = getTermMentionRepository();
+        when(user.getUserId()).thenReturn("USER123");
     }
 
     @Test
@@ -83,4 +91,105 @@ public class TermMentionRepositoryTest extends VisalloInMemoryTestBase {
         assertEquals(1, results.size());
         assertEquals("tm", results.get(0).getId());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testFindOffsetItemsByOutVertexAndPropertyFromIndex() {
+        TermMentionIndex.setIndexed(getGraph());
+        Vertex v1 = getGraph().addVertex("v1", visibility, authorizations);
+        Vertex tm1 = saveTermMention(v1, "key", 10, 15, "Joe");
+        Vertex tm2 = saveTermMention(v1, "key", 0, 5, "Sam");
+        saveTermMention(v1, "otherKey", 0, 5, "Other");
+        getGraph().flush();
+
+        List<OffsetItem> results = termMentionRepository.findOffsetItemsByOutVertexAndProperty(
+                v1.getId(), "key", VisalloProperties.TEXT.getPropertyName(), WORKSPACE_ID, authorizations);
+        assertEquals(2, results.size());
+        assertTrue(results.get(0) instanceof TermMentionIndexOffsetItem);
+        assertEquals(tm2.getId(), results.get(0).getId());
+        assertEquals(0, results.get(0).getStart());
+        assertEquals(5, results.get(0).getEnd());
+        assertEquals("Sam", results.get(0).getTitle());
+        assertEquals("v1", results.get(0).getOutVertexId());
+        assertEquals(tm1.getId(), results.get(1).getId());
+        assertEquals("Joe", results.get(1).getTitle());
+    }
+
+    @Test
+    public void testFindOffsetItemsByOutVertexAndPropertyWithResolvedTermMention() {
+        TermMentionIndex.setIndexed(getGraph());
+        Vertex v1 = getGraph().addVertex("v1", visibility, authorizations);
+        Vertex joe = getGraph().addVertex("joe", visibility, authorizations);
+        Edge edge = getGraph().addEdge("v1_to_joe", v1, joe, "link", visibility, authorizations);
+        Vertex tm1 = saveTermMention(v1, "key", 0, 5, "Joe");
+        Vertex tm2 = new TermMentionBuilder(tm1, v1)
+                .resolvedTo(joe, edge)
+                .visibilityJson("")
+                .process("resolve")
+                .save(getGraph(), getVisibilityTranslator(), user, authorizations);
+        getGraph().flush();
+
+        List<OffsetItem> results = termMentionRepository.findOffsetItemsByOutVertexAndProperty(
+                v1.getId(), "key", VisalloProperties.TEXT.getPropertyName(), WORKSPACE_ID, authorizations);
+        assertEquals(2, results.size());
+        OffsetItem unresolved = results.stream().filter(item -> item.getId().equals(tm1.getId())).findFirst().get();
+        OffsetItem resolved = results.stream().filter(item -> item.getId().equals(tm2.getId())).findFirst().get();
+        assertEquals(tm2.getId(), unresolved.getResolvedToTermMentionId());
+        assertFalse(unresolved.shouldHighlight());
+        assertEquals("joe", resolved.getResolvedToVertexId());
+        assertEquals("v1_to_joe", resolved.getResolvedToEdgeId());
+        assertEquals(tm1.getId(), resolved.getResolvedFromTermMentionId());
+        assertEquals(TermMentionFor.VERTEX, resolved.getTermMentionFor());
+        assertTrue(resolved.shouldHighlight());
+    }
+
+    @Test
+    public void testFindOffsetItemsByOutVertexAndPropertyAfterDeleteAndHide() {
+        TermMentionIndex.setIndexed(getGraph());
+        Vertex v1 = getGraph().addVertex("v1", visibility, authorizations);
+        Vertex tm1 = saveTermMention(v1, "key", 0, 5, "Joe");
+        Vertex tm2 = saveTermMention(v1, "key", 10, 15, "Sam");
+        saveTermMention(v1, "key", 20, 25, "Bob");
+        getGraph().flush();
+
+        termMentionRepository.delete(tm1, authorizations);
+        termMentionRepository.markHidden(tm2, new Visibility(WORKSPACE_ID), authorizations);
+        getGraph().flush();
+
+        Authorizations workspaceAuthorizations = getGraph().createAuthorizations(authorizations, WORKSPACE_ID);
+        List<OffsetItem> results = termMentionRepository.findOffsetItemsByOutVertexAndProperty(
+                v1.getId(), "key", VisalloProperties.TEXT.getPropertyName(), WORKSPACE_ID, workspaceAuthorizations);
+        assertEquals(1, results.size());
+        assertEquals("Bob", results.get(0).getTitle());
+
+        results = termMentionRepository.findOffsetItemsByOutVertexAndProperty(
+                v1.getId(), "key", VisalloProperties.TEXT.getPropertyName(), null, authorizations);
+        assertEquals(2, results.size());
+    }
+
+    @Test
+    public void testFindOffsetItemsByOutVertexAndPropertyWithoutIndex() {
+        Vertex v1 = getGraph().addVertex("v1", visibility, authorizations);
+        Vertex tm1 = saveTermMention(v1, "key", 0, 5, "Joe");
+        getGraph().flush();
+
+        List<OffsetItem> results = termMentionRepository.findOffsetItemsByOutVertexAndProperty(
+                v1.getId(), "key", VisalloProperties.TEXT.getPropertyName(), WORKSPACE_ID, authorizations);
+        assertEquals(1, results.size());
+        assertTrue(results.get(0) instanceof VertexOffsetItem);
+        assertEquals(tm1.getId(), results.get(0).getId());
+    }
+
+    private Vertex saveTermMention(Vertex outVertex, String propertyKey, long start, long end, String title) {
+        return new TermMentionBuilder()
+                .outVertex(outVertex)
+                .propertyKey(propertyKey)
+                .propertyName(VisalloProperties.TEXT.getPropertyName())
+                .conceptIri("http://visallo.org/test/person")
+                .start(start)
+                .end(end)
+                .title(title)
+                .visibilityJson("")
+                .process(getClass().getSimpleName())
+                .save(getGraph(), getVisibilityTranslator(), user, authorizations);
+    }
+}
@@ -0,0 +1,112 @@
+package org.visallo.core.model.thumbnails;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.vertexium.Vertex;
+import org.vertexium.property.StreamingPropertyValue;
+import org.visallo.core.config.Configuration;
+import org.visallo.core.user.User;
+import org.visallo.core.util.ShutdownService;
+
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AsyncThumbnailGeneratorTest {
+    private static final int[] BOUNDARY_DIMS = new int[]{200, 200};
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private AsyncThumbnailGenerator asyncThumbnailGenerator;
+
+    @Mock
+    private ThumbnailRepository thumbnailRepository;
+    @Mock
+    private Configuration configuration;
+    @Mock
+    private StreamingPropertyValue value;
+    @Mock
+    private User user;
+    @Mock
+    private Thumbnail thumbnail;
+
+    @Before
+    public void before() throws Exception {
+        when(configuration.getInt(eq(AsyncThumbnailGenerator.CONFIG_THREAD_COUNT), anyInt())).thenReturn(1);
+        when(configuration.getInt(eq(AsyncThumbnailGenerator.CONFIG_QUEUE_SIZE), anyInt())).thenReturn(1);
+        when(thumbnailRepository.createThumbnail(any(Vertex.class), anyString(), anyString(), any(InputStream.class), any(int[].class), any(User.class)))
+                .thenAnswer(invocation -> {
+                    started.countDown();
+                    release.await();
+                    return thumbnail;
+                });
+        asyncThumbnailGenerator = new AsyncThumbnailGenerator(thumbnailRepository, configuration, new ShutdownService());
+    }
+
+    @After
+    public void after() {
+        asyncThumbnailGenerator.shutdown();
+    }
+
+    @Test
+    public void testConcurrentRequestsShareGeneration() throws Exception {
+        Vertex vertex = createVertex("v1");
+
+        CompletableFuture<Thumbnail> generation = generateThumbnail(vertex);
+        assertNotNull(generation);
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        assertSame(generation, generateThumbnail(vertex));
+
+        release.countDown();
+        assertSame(thumbnail, generation.get(10, TimeUnit.SECONDS));
+        verify(thumbnailRepository, times(1)).createThumbnail(eq(vertex), anyString(), anyString(), any(InputStream.class), any(int[].class), any(User.class));
+    }
+
+    @Test
+    public void testRequestsRejectedWhenQueueIsFull() throws Exception {
+        Vertex v1 = createVertex("v1");
+        Vertex v2 = createVertex("v2");
+        Vertex v3 = createVertex("v3");
+
+        CompletableFuture<Thumbnail> generation1 = generateThumbnail(v1);
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        CompletableFuture<Thumbnail> generation2 = generateThumbnail(v2);
+        assertNotNull(generation2);
+
+        assertNull("the only thread is busy and the queue is full", generateThumbnail(v3));
+        assertSame("queued generations are still joined", generation2, generateThumbnail(v2));
+
+        release.countDown();
+        assertSame(thumbnail, generation1.get(10, TimeUnit.SECONDS));
+        assertSame(thumbnail, generation2.get(10, TimeUnit.SECONDS));
+
+        CompletableFuture<Thumbnail> generation3 = generateThumbnail(v3);
+        assertNotNull("accepted again once the queue drains", generation3);
+        assertSame(thumbnail, generation3.get(10, TimeUnit.SECONDS));
+    }
+
+    private CompletableFuture<Thumbnail> generateThumbnail(Vertex vertex) {
+        return asyncThumbnailGenerator.generateThumbnail(vertex, "key1", "raw", value, BOUNDARY_DIMS, user);
+    }
+
+    private Vertex createVertex(String vertexId) {
+        Vertex vertex = mock(Vertex.class);
+        when(vertex.getId()).thenReturn(vertexId);
+        return vertex;
+    }
+}
@@ -318,6 +318,26 @@ public class ACLProviderTest {
         assertThat(apiElement.getAcl().isDeleteable(), equalTo(false));
     }
 
+    @Test
+    public void appendAclOnMultipleVerticesShouldReadPrivilegesAndConceptsOnce() {
+        when(vertexConcept.getIRI()).thenReturn("vertex");
+        ClientApiVertexMultipleResponse response = new ClientApiVertexMultipleResponse();
+        response.getVertices().add(ClientApiConverter.toClientApiVertex(vertex, null, null));
+        response.getVertices().add(ClientApiConverter.toClientApiVertex(vertex, null, null));
+        response.getVertices().add(ClientApiConverter.toClientApiVertex(vertex, null, null));
+
+        aclProvider.appendACL(response, user1, "workspace1");
+
+        for (ClientApiVertex apiVertex : response.getVertices()) {
+            assertThat(apiVertex.getUpdateable(), equalTo(false));
+            assertThat(apiVertex.getAcl().isAddable(), equalTo(true));
+            assertThat(apiVertex.getAcl().getPropertyAcls().size(), equalTo(0));
+        }
+        verify(privilegeRepository, times(1)).getPrivileges(user1);
+        verify(ontologyRepository, times(1)).getConceptByIRI("vertex", "workspace1");
+        verify(ontologyRepository, times(1)).getConceptByIRI("parent", "workspace1");
+    }
+
     private void appendAclShouldPopulateClientApiElementAcl(Element element) {
         ClientApiElement apiElement = null;
         if (element instanceof Vertex) {
@@ -0,0 +1,142 @@
+package org.visallo.core.util;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SharedFileBufferTest {
+    private File file;
+
+    @Before
+    public void before() throws IOException {
+        file = File.createTempFile("sharedFileBufferTest", ".data");
+    }
+
+    @After
+    public void after() {
+        file.delete();
+    }
+
+    @Test
+    public void testReadAfterWrite() throws Exception {
+        byte[] data = createMockData(1000);
+        try (SharedFileBuffer buffer = new SharedFileBuffer(file)) {
+            assertEquals(1000, buffer.writeFrom(new ByteArrayInputStream(data)));
+            assertTrue(buffer.isComplete());
+
+            try (InputStream reader = buffer.newReader()) {
+                assertArrayEquals(data, IOUtils.toByteArray(reader));
+            }
+            try (InputStream reader = buffer.newReader()) {
+                assertEquals(100, reader.skip(100));
+                assertEquals(data[100] & 0xff, reader.read());
+            }
+            assertArrayEquals(data, FileUtils.readFileToByteArray(file));
+        }
+    }
+
+    @Test
+    public void testConcurrentReadersWhileWriting() throws Exception {
+        byte[] data = createMockData(100000);
+        int readerCount = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(readerCount);
+        try (SharedFileBuffer buffer = new SharedFileBuffer(file)) {
+            List<Future<byte[]>> results = new ArrayList<>();
+            for (int i = 0; i < readerCount; i++) {
+                InputStream reader = buffer.newReader();
+                results.add(executor.submit(() -> {
+                    try (InputStream in = reader) {
+                        return IOUtils.toByteArray(in);
+                    }
+                }));
+            }
+
+            buffer.writeFrom(new SlowInputStream(data, 7919));
+
+            for (Future<byte[]> result : results) {
+                assertArrayEquals(data, result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testClosedReaderDoesNotBlockOthers() throws Exception {
+        byte[] data = createMockData(10000);
+        try (SharedFileBuffer buffer = new SharedFileBuffer(file)) {
+            InputStream closedReader = buffer.newReader();
+            InputStream reader = buffer.newReader();
+            closedReader.close();
+
+            buffer.writeFrom(new ByteArrayInputStream(data));
+
+            assertEquals(-1, closedReader.read());
+            assertArrayEquals(data, IOUtils.toByteArray(reader));
+        }
+    }
+
+    @Test
+    public void testSourceFailureIsReportedToReaders() throws Exception {
+        try (SharedFileBuffer buffer = new SharedFileBuffer(file)) {
+            InputStream reader = buffer.newReader();
+            InputStream source = new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    throw new IOException("source failure");
+                }
+            };
+            try {
+                buffer.writeFrom(source);
+                fail("expected exception");
+            } catch (IOException ex) {
+                assertEquals("source failure", ex.getMessage());
+            }
+
+            try {
+                reader.read();
+                fail("expected exception");
+            } catch (IOException ex) {
+                assertEquals("source failure", ex.getCause().getMessage());
+            }
+        }
+    }
+
+    private static byte[] createMockData(int len) {
+        byte[] data = new byte[len];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+
+    private static class SlowInputStream extends ByteArrayInputStream {
+        private final int maxReadLength;
+
+        SlowInputStream(byte[] data, int maxReadLength) {
+            super(data);
+            this.maxReadLength = maxReadLength;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            Thread.yield();
+            return super.read(b, off, Math.min(len, maxReadLength));
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.visallo.core.util;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import org.visallo.core.exception.VisalloException;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+public class StreamingPropertyValueRangeReaderTest {
+    @Test
+    public void testSeekWhenSkipIsShort() throws IOException {
+        InputStream in = new ShortSkipInputStream(new ByteArrayInputStream("0123456789".getBytes(StandardCharsets.UTF_8)));
+        StreamingPropertyValueRangeReader.seek(in, 7);
+        assertEquals("789", IOUtils.toString(in, StandardCharsets.UTF_8));
+    }
+
+    @Test(expected = VisalloException.class)
+    public void testSeekPastEnd() throws IOException {
+        InputStream in = new ShortSkipInputStream(new ByteArrayInputStream("0123".getBytes(StandardCharsets.UTF_8)));
+        StreamingPropertyValueRangeReader.seek(in, 10);
+    }
+
+    private static class ShortSkipInputStream extends FilterInputStream {
+        ShortSkipInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            return super.skip(Math.min(n, 2));
+        }
+    }
+}
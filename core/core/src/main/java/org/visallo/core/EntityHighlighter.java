@@ -19,7 +19,6 @@ import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 public class EntityHighlighter {
     private static final int KB = 1024;
@@ -62,117 +61,94 @@ public class EntityHighlighter {
     }
 
     public static void transformToHighlightedText(InputStream text, OutputStream output, List<OffsetItem> offsetItems, long maxTextLength, EnumSet<Options> options) {
+        transformToHighlightedText(text, output, offsetItems, 0, -1, maxTextLength, options);
+    }
+
+    /**
+     * Highlights a window of the text. Offsets of the items are relative to the start of the text, items crossing the
+     * edges of the window are cut at the edges.
+     * <p/>
+     * The items are sorted once by start offset and opened as the text is copied to the output, open items are kept
+     * ordered by end offset so the next item to close is always the first one.
+     *
+     * @param windowStart   the offset of the first character to highlight
+     * @param windowLength  the number of characters to highlight, or -1 for the rest of the text
+     * @param maxTextLength the number of characters after which the text is truncated once no items are open, or -1
+     */
+    public static void transformToHighlightedText(
+            InputStream text,
+            OutputStream output,
+            List<OffsetItem> offsetItems,
+            long windowStart,
+            long windowLength,
+            long maxTextLength,
+            EnumSet<Options> options
+    ) {
         try (
             InputStreamReader in = new InputStreamReader(text);
             OutputStream filteredSpaces = new NonBreakingSpaceFilteredOutputStream(output);
             OutputStreamWriter out = new OutputStreamWriter(filteredSpaces);
         ) {
-            if (offsetItems == null) {
-                offsetItems = new ArrayList<>();
-            }
-            List<OffsetItem> started = new ArrayList<>();
-            List<OffsetItem> items = offsetItems.stream()
-                    .filter(offsetItem -> offsetItem.shouldHighlight())
-                    .sorted((o1, o2) -> {
-                        long c;
-                        c = o1.getStart() - o2.getStart();
-                        if (c == 0)
-                            c = o2.getEnd() - o1.getEnd();
-                        return c > 0 ? 1 : c < 0 ? -1 : 0;
-                    })
-                    .collect(Collectors.toList());
-
             if (options == null) {
                 options = DefaultOptions;
             }
-
-            char buffer[] = new char[BUFFER_SIZE];
-            int offset = 0;
-            int maxDepth = 0;
-            boolean closeWhenAvailable = false;
-
-            do {
-                int len = in.read(buffer, 0, BUFFER_SIZE);
-                if (len == -1) {
+            long windowEnd = windowLength < 0 ? Long.MAX_VALUE : windowStart + windowLength;
+            long limit = maxTextLength < 0 ? Long.MAX_VALUE : windowStart + maxTextLength;
+
+            HighlightedTextWriter writer = new HighlightedTextWriter(in, out);
+            writer.skipTo(windowStart);
+            for (OffsetItemInterval interval : toIntervals(offsetItems, windowStart, windowEnd)) {
+                writer.closeEndingBefore(interval.start);
+                if (interval.start > limit && !writer.hasOpen()) {
+                    break;
+                }
+                if (!writer.copyTo(interval.start)) {
                     break;
-                } else {
-                    int innerOffset = 0;
-
-                    Iterator<OffsetItem> itemsIterator = items.iterator();
-                    List<OffsetItem> toRemove = new ArrayList<>();
-
-                    // Open tags in buffer
-                    while (itemsIterator.hasNext()) {
-                        OffsetItem item = itemsIterator.next();
-
-                        long start = item.getStart();
-                        if (indexInsideCurrentBuffer(start, offset, innerOffset, len)) {
-
-                            // Close
-                            started.sort((o1, o2) -> {
-                                long c = o1.getEnd() - o2.getEnd();
-                                return c > 0 ? 1 : c < 0 ? -1 : 0;
-                            });
-                            Iterator<OffsetItem> others = started.iterator();
-                            while (others.hasNext()) {
-                                OffsetItem otherItem = others.next();
-                                if (otherItem != item) {
-                                    long end = otherItem.getEnd();
-                                    if (end < start) {
-                                        innerOffset = getInnerOffset(out, started, items, toRemove, buffer, offset, innerOffset, others, otherItem, (int) end);
-                                    }
-                                }
-                            }
-
-                            innerOffset = writePrefixToIndex(started, items, out, (int) start, offset, innerOffset, buffer);
-                            addOffsetItemSpan(out, started, items, item, true);
-                            started.add(item);
-                            maxDepth = Math.max(maxDepth, started.size());
-                        }
-                    }
-
-                    items.removeAll(toRemove);
-
-                    // Close tags in buffer
-                    started.sort((o1, o2) -> {
-                        long c = o1.getEnd() - o2.getEnd();
-                        if (c == 0)
-                            c = o2.getStart() - o1.getStart();
-                        return c > 0 ? 1 : c < 0 ? -1 : 0;
-                    });
-                    Iterator<OffsetItem> openedIterator = started.iterator();
-                    while (openedIterator.hasNext()) {
-                        OffsetItem opened = openedIterator.next();
-                        long end = opened.getEnd();
-                        if (indexInsideCurrentBuffer(end, offset, innerOffset, len)) {
-                            innerOffset = getInnerOffset(out, started, items, items, buffer, offset, innerOffset, openedIterator, opened, (int) end);
-                        }
-                    }
-
-                    if (closeWhenAvailable && started.size() == 0) {
-                        break;
-                    }
-
-                    if (innerOffset < len) {
-                        writeBuffer(started, items, out, buffer, innerOffset, len - innerOffset);
-                    }
-                    offset += len;
-                    if (maxTextLength != -1 && offset > maxTextLength) closeWhenAvailable = true;
                 }
-            } while (true);
+                writer.open(interval);
+            }
+            writer.closeEndingBefore(Long.MAX_VALUE);
+
+            long end = Math.min(windowEnd, Math.max(limit, writer.getPosition()));
+            writer.copyTo(end);
 
             if (options.contains(Options.IncludeStyle)) {
-                writeStyle(out, maxDepth);
+                writeStyle(out, writer.getMaxDepth());
             }
-            if (closeWhenAvailable) {
+            if (end < windowEnd && writer.hasMoreText()) {
                 writeTruncated(out);
             }
-
         } catch (IOException e) {
             throw new VisalloException("Unable to transform to highlighted text", e);
         }
     }
 
+    private static List<OffsetItemInterval> toIntervals(List<OffsetItem> offsetItems, long windowStart, long windowEnd) {
+        List<OffsetItemInterval> intervals = new ArrayList<>();
+        if (offsetItems == null) {
+            return intervals;
+        }
+        for (OffsetItem offsetItem : offsetItems) {
+            if (!offsetItem.shouldHighlight()) {
+                continue;
+            }
+            long start = offsetItem.getStart();
+            long end = offsetItem.getEnd();
+            if (start >= windowEnd || end < windowStart || (end == windowStart && start < windowStart)) {
+                continue;
+            }
+            intervals.add(new OffsetItemInterval(offsetItem, Math.max(start, windowStart), Math.min(end, windowEnd)));
+        }
+        intervals.sort((o1, o2) -> {
+            int c = Long.compare(o1.start, o2.start);
+            if (c == 0) {
+                c = Long.compare(o2.end, o1.end);
+            }
+            return c;
+        });
+        return intervals;
+    }
+
     private static void writeTruncated(OutputStreamWriter out) throws IOException {
         out.write("<div class=\"truncated\">This text has exceeded the configured maximum length, and has been truncated.</div>");
     }
@@ -213,99 +189,33 @@ public class EntityHighlighter {
         out.write("</style>");
     }
 
-    private static int getInnerOffset(OutputStreamWriter out, List<OffsetItem> started, List<OffsetItem> all, List<OffsetItem> toRemove, char[] buffer, int offset, int innerOffset, Iterator<OffsetItem> removeIterator, OffsetItem opened, int end) throws IOException {
-        innerOffset = writePrefixToIndex(started, all, out, end, offset, innerOffset, buffer);
-
-        removeIterator.remove();
-        toRemove.remove(opened);
-
-        // Close other tags that are opened
-        List toClose = started.stream().filter(offsetItem -> {
-            return offsetItem.getStart() > opened.getStart() || offsetItem.getEnd() < opened.getStart();
-        }).collect(Collectors.toList());
-        addClosingOffsetItems(out, toClose);
-
-        // Close this tag
-        addClosingOffsetItemSpan(out, opened);
-
-        // Re-open other tags
-        addOffsetItems(out, started, all, toClose);
-        return innerOffset;
-    }
-
-    private static int writePrefixToIndex(List<OffsetItem> opened, List<OffsetItem> all, OutputStreamWriter out, int index, int offset, int innerOffset, char[] buffer) throws IOException {
-        int preLength = index - innerOffset - offset;
-        if (preLength > 0) {
-            writeBuffer(opened, all, out, buffer, innerOffset, preLength);
-            innerOffset += preLength;
-        }
-        return innerOffset;
-    }
-
-    private static void writeBuffer(List<OffsetItem> started, List<OffsetItem> all, OutputStreamWriter out, char[] buffer, int offset, int len) throws IOException {
-        String strBuffer = new String(buffer, offset, len);
-        out.write(StringEscapeUtils.escapeXml11(strBuffer));
-    }
-
-    private static boolean indexInsideCurrentBuffer(long index, int offset, int innerOffset, int len) {
-        return index >= offset && (index - offset) < BUFFER_SIZE;
-    }
-
-    private static void addOffsetItems(OutputStreamWriter out, List<OffsetItem> opened, List<OffsetItem> all, Collection<OffsetItem> items) throws IOException {
-        for (OffsetItem otherOpened : items) {
-            addOffsetItemSpan(out, opened, all, otherOpened);
-        }
-    }
+    private static void writeOffsetItemSpan(OutputStreamWriter out, OffsetItem item, boolean fullInfo) throws IOException {
+        JSONObject infoJson = item.getInfoJson();
 
-    private static void addClosingOffsetItems(OutputStreamWriter out, Collection<OffsetItem> items) throws IOException {
-        for (OffsetItem otherOpened : items) {
-            addClosingOffsetItemSpan(out, otherOpened);
+        out.write("<span");
+        out.write(" class=\"");
+        out.write(StringUtils.join(item.getCssClasses(), " "));
+        out.write("\"");
+        if (item.getTitle() != null) {
+            out.write(" title=\"");
+            out.write(StringEscapeUtils.escapeXml11(item.getTitle()));
+            out.write("\"");
         }
-    }
-
-    private static void addOffsetItemSpan(OutputStreamWriter out, List<OffsetItem> opened, List<OffsetItem> all, OffsetItem item) throws IOException {
-        addOffsetItemSpan(out, opened, all, item, false, false);
-    }
 
-    private static void addOffsetItemSpan(OutputStreamWriter out, List<OffsetItem> opened, List<OffsetItem> all, OffsetItem item, boolean fullInfo) throws IOException {
-        addOffsetItemSpan(out, opened, all, item, fullInfo, false);
-    }
-
-    private static void addClosingOffsetItemSpan(OutputStreamWriter out, OffsetItem item) throws IOException {
-        addOffsetItemSpan(out, null, null, item, false, true);
-    }
-
-    private static void addOffsetItemSpan(OutputStreamWriter out, List<OffsetItem> opened, List<OffsetItem> all, OffsetItem item, boolean fullInfo, boolean closing) throws IOException {
-        if (!closing) {
-            JSONObject infoJson = item.getInfoJson();
-
-            out.write("<span");
-            out.write(" class=\"");
-            out.write(StringUtils.join(item.getCssClasses(), " "));
-            out.write("\"");
-            if (item.getTitle() != null) {
-                out.write(" title=\"");
-                out.write(StringEscapeUtils.escapeXml11(item.getTitle()));
+        String classIdentifier = item.getClassIdentifier();
+        if (fullInfo) {
+            if (infoJson != null) {
+                out.write(" data-info=\"");
+                out.write(StringEscapeUtils.escapeXml11(infoJson.toString()));
                 out.write("\"");
             }
-
-            String classIdentifier = item.getClassIdentifier();
-            if (fullInfo) {
-                if (infoJson != null) {
-                    out.write(" data-info=\"");
-                    out.write(StringEscapeUtils.escapeXml11(infoJson.toString()));
-                    out.write("\"");
-                }
-                if (classIdentifier != null) {
-                    out.write(" data-ref-id=\"" + classIdentifier + "\"");
-                }
-            } else if (classIdentifier != null) {
-                out.write(" data-ref=\"" + classIdentifier + "\"");
+            if (classIdentifier != null) {
+                out.write(" data-ref-id=\"" + classIdentifier + "\"");
             }
-            out.write(">");
-        } else {
-            out.write("</span>");
+        } else if (classIdentifier != null) {
+            out.write(" data-ref=\"" + classIdentifier + "\"");
         }
+        out.write(">");
     }
 
     public VideoTranscript getHighlightedVideoTranscript(VideoTranscript videoTranscript, Iterable<Vertex> termMentions, String workspaceId, Authorizations authorizations) {
@@ -313,7 +223,7 @@ public class EntityHighlighter {
         return getHighlightedVideoTranscript(videoTranscript, offsetItems);
     }
 
-    private VideoTranscript getHighlightedVideoTranscript(VideoTranscript videoTranscript, List<OffsetItem> offsetItems) {
+    public VideoTranscript getHighlightedVideoTranscript(VideoTranscript videoTranscript, List<OffsetItem> offsetItems) {
         Map<Integer, List<OffsetItem>> videoTranscriptOffsetItems = convertOffsetItemsToVideoTranscriptOffsetItems(videoTranscript, offsetItems);
         return getHighlightedVideoTranscript(videoTranscript, videoTranscriptOffsetItems);
     }
@@ -371,6 +281,142 @@ public class EntityHighlighter {
     }
 
 
+    private static class OffsetItemInterval {
+        private final OffsetItem item;
+        private final long start;
+        private final long end;
+
+        OffsetItemInterval(OffsetItem item, long start, long end) {
+            this.item = item;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Copies the text to the output escaping it, writing the spans of the items opened and closed along the way.
+     */
+    private static class HighlightedTextWriter {
+        private static final Comparator<OffsetItemInterval> BY_END = (o1, o2) -> {
+            int c = Long.compare(o1.end, o2.end);
+            if (c == 0) {
+                c = Long.compare(o2.start, o1.start);
+            }
+            return c;
+        };
+        private final Reader in;
+        private final OutputStreamWriter out;
+        private final char[] buffer = new char[BUFFER_SIZE + 1];
+        private final List<OffsetItemInterval> started = new ArrayList<>();
+        private int bufferOffset;
+        private int bufferLength;
+        private long position;
+        private int maxDepth;
+
+        HighlightedTextWriter(Reader in, OutputStreamWriter out) {
+            this.in = in;
+            this.out = out;
+        }
+
+        long getPosition() {
+            return position;
+        }
+
+        int getMaxDepth() {
+            return maxDepth;
+        }
+
+        boolean hasOpen() {
+            return !started.isEmpty();
+        }
+
+        void open(OffsetItemInterval interval) throws IOException {
+            writeOffsetItemSpan(out, interval.item, true);
+            int index = Collections.binarySearch(started, interval, BY_END);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            while (index < started.size() && BY_END.compare(started.get(index), interval) == 0) {
+                index++;
+            }
+            started.add(index, interval);
+            maxDepth = Math.max(maxDepth, started.size());
+        }
+
+        /**
+         * Closes the items ending before the position. Items opened after an item being closed are closed with it
+         * and opened again, without their info, after it.
+         */
+        void closeEndingBefore(long index) throws IOException {
+            while (!started.isEmpty() && started.get(0).end < index) {
+                OffsetItemInterval closing = started.remove(0);
+                copyTo(closing.end);
+
+                List<OffsetItemInterval> toClose = new ArrayList<>();
+                for (OffsetItemInterval interval : started) {
+                    if (interval.start > closing.start || interval.end < closing.start) {
+                        toClose.add(interval);
+                    }
+                }
+                for (int i = 0; i <= toClose.size(); i++) {
+                    out.write("</span>");
+                }
+                for (OffsetItemInterval interval : toClose) {
+                    writeOffsetItemSpan(out, interval.item, false);
+                }
+            }
+        }
+
+        void skipTo(long index) throws IOException {
+            while (position < index) {
+                if (bufferOffset == bufferLength && !fill()) {
+                    return;
+                }
+                int count = (int) Math.min(index - position, bufferLength - bufferOffset);
+                bufferOffset += count;
+                position += count;
+            }
+        }
+
+        /**
+         * @return false if the text ended before the position
+         */
+        boolean copyTo(long index) throws IOException {
+            while (position < index) {
+                if (bufferOffset == bufferLength && !fill()) {
+                    return false;
+                }
+                int count = (int) Math.min(index - position, bufferLength - bufferOffset);
+                out.write(StringEscapeUtils.escapeXml11(new String(buffer, bufferOffset, count)));
+                bufferOffset += count;
+                position += count;
+            }
+            return true;
+        }
+
+        boolean hasMoreText() throws IOException {
+            return bufferOffset < bufferLength || fill();
+        }
+
+        private boolean fill() throws IOException {
+            int length = in.read(buffer, 0, BUFFER_SIZE);
+            if (length == -1) {
+                return false;
+            }
+            // keep surrogate pairs in one buffer so they are not dropped when escaped
+            if (length > 0 && Character.isHighSurrogate(buffer[length - 1])) {
+                int next = in.read();
+                if (next != -1) {
+                    buffer[length++] = (char) next;
+                }
+            }
+            bufferOffset = 0;
+            bufferLength = length;
+            return true;
+        }
+    }
+
+
     private static class NonBreakingSpaceFilteredOutputStream extends FilterOutputStream {
         private static Pattern NonBreakingSpacePattern = Pattern.compile("(&amp;nbsp;)", Pattern.CASE_INSENSITIVE);
         private static String Replacement = " ";
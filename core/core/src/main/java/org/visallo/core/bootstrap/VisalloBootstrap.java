@@ -21,6 +21,7 @@ import org.visallo.core.model.notification.SystemNotificationRepository;
 import org.visallo.core.model.notification.UserNotificationRepository;
 import org.visallo.core.model.ontology.OntologyRepository;
 import org.visallo.core.model.search.SearchRepository;
+import org.visallo.core.model.termMention.TermMentionIndex;
 import org.visallo.core.model.user.*;
 import org.visallo.core.model.workQueue.WorkQueueRepository;
 import org.visallo.core.model.workspace.WorkspaceRepository;
@@ -246,6 +247,8 @@ public class VisalloBootstrap extends AbstractModule {
         Object visalloGraphVersionObj = g.getMetadata(GRAPH_METADATA_VISALLO_GRAPH_VERSION_KEY);
         if (visalloGraphVersionObj == null) {
             g.setMetadata(GRAPH_METADATA_VISALLO_GRAPH_VERSION_KEY, GRAPH_METADATA_VISALLO_GRAPH_VERSION);
+            // new graphs have no term mentions to index
+            TermMentionIndex.setIndexed(g);
         } else if (visalloGraphVersionObj instanceof Integer) {
             Integer visalloGraphVersion = (Integer) visalloGraphVersionObj;
             if (!GRAPH_METADATA_VISALLO_GRAPH_VERSION.equals(visalloGraphVersion)) {
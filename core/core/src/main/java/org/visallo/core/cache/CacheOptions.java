@@ -1,7 +1,14 @@
 package org.visallo.core.cache;
 
+/**
+ * Options used when a cache is first created. Options passed for a cache which already exists are ignored.
+ */
 public class CacheOptions {
     private Long maximumSize;
+    private Long maximumWeight;
+    private Weigher weigher;
+    private Long expireAfterWriteSeconds;
+    private Long expireAfterAccessSeconds;
 
     public Long getMaximumSize() {
         return maximumSize;
@@ -11,4 +18,43 @@ public class CacheOptions {
         this.maximumSize = maximumSize;
         return this;
     }
+
+    public Long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    /**
+     * Limits the total weight of the entries as computed by the weigher. Can not be combined with a maximum size.
+     */
+    public CacheOptions setMaximumWeight(Long maximumWeight, Weigher weigher) {
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+        return this;
+    }
+
+    public Weigher getWeigher() {
+        return weigher;
+    }
+
+    public Long getExpireAfterWriteSeconds() {
+        return expireAfterWriteSeconds;
+    }
+
+    public CacheOptions setExpireAfterWriteSeconds(Long expireAfterWriteSeconds) {
+        this.expireAfterWriteSeconds = expireAfterWriteSeconds;
+        return this;
+    }
+
+    public Long getExpireAfterAccessSeconds() {
+        return expireAfterAccessSeconds;
+    }
+
+    public CacheOptions setExpireAfterAccessSeconds(Long expireAfterAccessSeconds) {
+        this.expireAfterAccessSeconds = expireAfterAccessSeconds;
+        return this;
+    }
+
+    public interface Weigher {
+        int weigh(String key, Object value);
+    }
 }
@@ -0,0 +1,112 @@
+package org.visallo.core.cache;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.visallo.core.bootstrap.InjectHelper;
+import org.visallo.core.config.Configuration;
+import org.visallo.core.model.workQueue.LazyBroadcastSubscription;
+import org.visallo.core.model.workQueue.WorkQueueRepository;
+import org.visallo.core.util.VisalloLogger;
+import org.visallo.core.util.VisalloLoggerFactory;
+
+import java.util.UUID;
+
+/**
+ * Wraps a per-JVM {@link CacheService} and publishes every invalidation over
+ * {@link WorkQueueRepository#broadcast(String, JSONObject, JSONObject)} so the other nodes evict the same entry.
+ * Invalidations received from other nodes are applied to the local cache only and are not published again.
+ *
+ * To use, set service.cache to this class and set
+ * org.visallo.core.cache.DistributedCacheService.delegate to the local cache implementation.
+ */
+@Singleton
+public class DistributedCacheService implements CacheService {
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(DistributedCacheService.class);
+    public static final String CONFIG_DELEGATE = DistributedCacheService.class.getName() + ".delegate";
+    public static final String BROADCAST_TYPE = "cacheInvalidate";
+    private final String sourceId = UUID.randomUUID().toString();
+    private final CacheService delegate;
+    private WorkQueueRepository workQueueRepository;
+    private final LazyBroadcastSubscription broadcastSubscription = new LazyBroadcastSubscription(
+            this::getWorkQueueRepository,
+            this::handleBroadcast
+    );
+
+    @Inject
+    public DistributedCacheService(Configuration configuration) {
+        this(InjectHelper.getInstance(configuration.<CacheService>getClass(CONFIG_DELEGATE, InMemoryCacheService.class)), null);
+    }
+
+    public DistributedCacheService(CacheService delegate, WorkQueueRepository workQueueRepository) {
+        this.delegate = delegate;
+        this.workQueueRepository = workQueueRepository;
+    }
+
+    @Override
+    public <T> T put(String cacheName, String key, T t, CacheOptions cacheOptions) {
+        // nothing needs invalidating before this node has cached something, so subscribing can wait until now
+        broadcastSubscription.ensureSubscribed();
+        return delegate.put(cacheName, key, t, cacheOptions);
+    }
+
+    @Override
+    public <T> T getIfPresent(String cacheName, String key) {
+        return delegate.getIfPresent(cacheName, key);
+    }
+
+    @Override
+    public void invalidate(String cacheName) {
+        delegate.invalidate(cacheName);
+        broadcastInvalidate(cacheName, null);
+    }
+
+    @Override
+    public void invalidate(String cacheName, String key) {
+        delegate.invalidate(cacheName, key);
+        broadcastInvalidate(cacheName, key);
+    }
+
+    private void broadcastInvalidate(String cacheName, String key) {
+        JSONObject data = new JSONObject();
+        data.put("sourceId", sourceId);
+        data.put("cacheName", cacheName);
+        data.putOpt("key", key);
+
+        // an empty user list keeps the message from being sent on to browsers
+        JSONObject permissions = new JSONObject();
+        permissions.put("users", new JSONArray());
+
+        getWorkQueueRepository().broadcast(BROADCAST_TYPE, data, permissions);
+    }
+
+    private void handleBroadcast(JSONObject json) {
+        if (!BROADCAST_TYPE.equals(json.optString("type", null))) {
+            return;
+        }
+        JSONObject data = json.optJSONObject("data");
+        if (data == null || sourceId.equals(data.optString("sourceId", null))) {
+            return;
+        }
+        String cacheName = data.getString("cacheName");
+        String key = data.optString("key", null);
+        LOGGER.debug("received invalidation of cache %s (key: %s)", cacheName, key);
+        if (key == null) {
+            delegate.invalidate(cacheName);
+        } else {
+            delegate.invalidate(cacheName, key);
+        }
+    }
+
+    protected WorkQueueRepository getWorkQueueRepository() {
+        if (workQueueRepository == null) {
+            workQueueRepository = InjectHelper.getInstance(WorkQueueRepository.class);
+        }
+        return workQueueRepository;
+    }
+
+    public CacheService getDelegate() {
+        return delegate;
+    }
+}
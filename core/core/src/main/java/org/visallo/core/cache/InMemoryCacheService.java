@@ -1,98 +1,118 @@
 package org.visallo.core.cache;
 
+import com.codahale.metrics.Counter;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
-import com.google.inject.Provider;
+import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import org.visallo.core.exception.VisalloException;
+import org.visallo.core.status.MetricsManager;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Caches are kept in a concurrent registry and the underlying Guava caches are thread safe, so reads and writes
+ * of different caches, or of different keys in the same cache, never wait on each other.
+ */
 @Singleton
 public class InMemoryCacheService implements CacheService {
-    private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
-    private final Map<String, Cache> caches = new HashMap<>();
+    private final MetricsManager metricsManager;
+    private final ConcurrentMap<String, NamedCache> caches = new ConcurrentHashMap<>();
+
+    @Inject
+    public InMemoryCacheService(MetricsManager metricsManager) {
+        this.metricsManager = metricsManager;
+    }
 
     @Override
     public <T> T put(String cacheName, String key, T t, CacheOptions cacheOptions) {
-        return write(() -> {
-            Cache<String, T> cache = getOrCreateCache(cacheName, cacheOptions);
-            cache.put(key, t);
-            return t;
-        });
+        getOrCreateCache(cacheName, cacheOptions).cache.put(key, t);
+        return t;
     }
 
     @Override
     public <T> T getIfPresent(String cacheName, String key) {
-        return read(() -> {
-            Cache<String, T> cache = getCache(cacheName);
-            if (cache == null) {
-                return null;
-            }
-            return cache.getIfPresent(key);
-        });
+        NamedCache namedCache = caches.get(cacheName);
+        if (namedCache == null) {
+            return null;
+        }
+        Object value = namedCache.cache.getIfPresent(key);
+        if (value == null) {
+            namedCache.missCounter.inc();
+            return null;
+        }
+        namedCache.hitCounter.inc();
+        //noinspection unchecked
+        return (T) value;
     }
 
     @Override
     public void invalidate(String cacheName) {
-        write(() -> {
-            Cache<String, ?> cache = getCache(cacheName);
-            if (cache == null) {
-                return null;
-            }
-            cache.invalidateAll();
-            return null;
-        });
+        NamedCache namedCache = caches.get(cacheName);
+        if (namedCache != null) {
+            namedCache.cache.invalidateAll();
+        }
     }
 
     @Override
     public void invalidate(String cacheName, String key) {
-        write(() -> {
-            Cache<String, ?> cache = getCache(cacheName);
-            if (cache == null) {
-                return null;
-            }
-            cache.invalidate(key);
-            return null;
-        });
-    }
-
-    private <T> Cache<String, T> getCache(String cacheName) {
-        //noinspection unchecked
-        return caches.get(cacheName);
+        NamedCache namedCache = caches.get(cacheName);
+        if (namedCache != null) {
+            namedCache.cache.invalidate(key);
+        }
     }
 
-    private <T> Cache<String, T> getOrCreateCache(String cacheName, CacheOptions cacheOptions) {
-        Cache<String, T> cache = getCache(cacheName);
-        if (cache != null) {
-            return cache;
-        }
-        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder();
-        if (cacheOptions.getMaximumSize() != null) {
-            builder.maximumSize(cacheOptions.getMaximumSize());
+    private NamedCache getOrCreateCache(String cacheName, CacheOptions cacheOptions) {
+        NamedCache namedCache = caches.get(cacheName);
+        if (namedCache != null) {
+            return namedCache;
         }
-        cache = builder.build();
-        caches.put(cacheName, cache);
-        return cache;
+        return caches.computeIfAbsent(cacheName, name -> new NamedCache(name, cacheOptions));
     }
 
-    private <T> T write(Provider<T> provider) {
-        readWriteLock.writeLock().lock();
-        try {
-            return provider.get();
-        } finally {
-            readWriteLock.writeLock().unlock();
+    private class NamedCache {
+        private final Cache<String, Object> cache;
+        private final Counter hitCounter;
+        private final Counter missCounter;
+        private final Counter evictionCounter;
+
+        NamedCache(String cacheName, CacheOptions cacheOptions) {
+            hitCounter = metricsManager.counter(InMemoryCacheService.this, cacheName + "-hits");
+            missCounter = metricsManager.counter(InMemoryCacheService.this, cacheName + "-misses");
+            evictionCounter = metricsManager.counter(InMemoryCacheService.this, cacheName + "-evictions");
+            cache = createCache(cacheName, cacheOptions);
         }
-    }
 
-    private <T> T read(Provider<T> provider) {
-        readWriteLock.readLock().lock();
-        try {
-            return provider.get();
-        } finally {
-            readWriteLock.readLock().unlock();
+        private Cache<String, Object> createCache(String cacheName, CacheOptions cacheOptions) {
+            CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder();
+            if (cacheOptions.getMaximumSize() != null && cacheOptions.getMaximumWeight() != null) {
+                throw new VisalloException("Cache " + cacheName + " can not have both a maximum size and a maximum weight");
+            }
+            if (cacheOptions.getMaximumSize() != null) {
+                builder.maximumSize(cacheOptions.getMaximumSize());
+            }
+            if (cacheOptions.getMaximumWeight() != null) {
+                CacheOptions.Weigher weigher = cacheOptions.getWeigher();
+                if (weigher == null) {
+                    throw new VisalloException("Cache " + cacheName + " has a maximum weight but no weigher");
+                }
+                builder.maximumWeight(cacheOptions.getMaximumWeight())
+                        .weigher((Object key, Object value) -> weigher.weigh((String) key, value));
+            }
+            if (cacheOptions.getExpireAfterWriteSeconds() != null) {
+                builder.expireAfterWrite(cacheOptions.getExpireAfterWriteSeconds(), TimeUnit.SECONDS);
+            }
+            if (cacheOptions.getExpireAfterAccessSeconds() != null) {
+                builder.expireAfterAccess(cacheOptions.getExpireAfterAccessSeconds(), TimeUnit.SECONDS);
+            }
+            builder.removalListener(notification -> {
+                if (notification.wasEvicted()) {
+                    evictionCounter.inc();
+                }
+            });
+            return builder.build();
         }
     }
 }
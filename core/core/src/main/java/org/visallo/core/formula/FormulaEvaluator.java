@@ -1,14 +1,16 @@
 package org.visallo.core.formula;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
-import org.apache.commons.io.IOUtils;
 import org.mozilla.javascript.*;
 import org.vertexium.Authorizations;
 import org.vertexium.VertexiumObject;
 import org.visallo.core.config.Configuration;
 import org.visallo.core.exception.VisalloException;
+import org.visallo.core.model.ontology.Ontology;
 import org.visallo.core.model.ontology.OntologyRepository;
 import org.visallo.core.util.ClientApiConverter;
 import org.visallo.core.util.VisalloLogger;
@@ -17,9 +19,9 @@ import org.visallo.web.clientapi.model.ClientApiOntology;
 import org.visallo.web.clientapi.model.ClientApiVertexiumObject;
 import org.visallo.web.clientapi.util.ObjectMapperFactory;
 
-import java.io.IOException;
-import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.ResourceBundle;
@@ -27,20 +29,26 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Evaluates JavaScript formulas (title, subtitle, etc) using Java's Rhino JavaScript interpreter.
+ *
+ * Evaluations run concurrently on a pool of threads, each with its own scopes. The JavaScript is compiled once
+ * and shared by all scopes, the ontology is only serialized once per ontology snapshot and only rebound to a scope
+ * when it differs from the ontology the scope last used.
  */
 @Singleton
 public class FormulaEvaluator {
     private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(FormulaEvaluator.class);
     private static final String CONFIGURATION_PARAMETER_MAX_THREADS = FormulaEvaluator.class.getName() + ".max.threads";
-    private static final int CONFIGURATION_DEFAULT_MAX_THREADS = 1;
+    private static final int CONFIGURATION_DEFAULT_MAX_THREADS = Runtime.getRuntime().availableProcessors();
     private Configuration configuration;
     private OntologyRepository ontologyRepository;
     private ExecutorService executorService;
+    private final Cache<Ontology, String> ontologyJsonCache = CacheBuilder.newBuilder().weakKeys().build();
 
-    private static final ThreadLocal<Map<String, Scriptable>> threadLocalScope = ThreadLocal.withInitial(HashMap::new);
+    private static final ThreadLocal<Map<String, FormulaScope>> threadLocalScope = ThreadLocal.withInitial(HashMap::new);
 
     @Inject
     public FormulaEvaluator(Configuration configuration, OntologyRepository ontologyRepository) {
@@ -79,6 +87,33 @@ public class FormulaEvaluator {
         return evaluateFormula("Property", vertexiumObject, propertyKey, propertyName, userContext, authorizations);
     }
 
+    /**
+     * Evaluates the title, subtitle and time formulas of many objects in one call. The objects are evaluated
+     * concurrently and each object is only converted to JSON once.
+     *
+     * @return the results in the same order as the objects.
+     */
+    public List<FormulaResults> evaluateFormulas(
+            List<? extends VertexiumObject> vertexiumObjects,
+            UserContext userContext,
+            Authorizations authorizations
+    ) {
+        List<Future<FormulaResults>> futures = new ArrayList<>(vertexiumObjects.size());
+        for (VertexiumObject vertexiumObject : vertexiumObjects) {
+            futures.add(executorService.submit(new FormulaResultsCallable(vertexiumObject, userContext, authorizations)));
+        }
+
+        List<FormulaResults> results = new ArrayList<>(futures.size());
+        for (Future<FormulaResults> future : futures) {
+            FormulaResults result = getResult("Title, Subtitle and Time", future);
+            if (result == null) {
+                result = new FormulaResults("Unable to Evaluate Title", "Unable to Evaluate Subtitle", "Unable to Evaluate Time");
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
     private String evaluateFormula(
             String type,
             VertexiumObject vertexiumObject,
@@ -96,29 +131,60 @@ public class FormulaEvaluator {
                 authorizations
         );
 
+        String result = getResult(type, executorService.submit(evaluationCallable));
+        return result == null ? "Unable to Evaluate " + type : result;
+    }
+
+    private <T> T getResult(String type, Future<T> future) {
         try {
-            return executorService.submit(evaluationCallable).get();
+            return future.get();
         } catch (InterruptedException e) {
             LOGGER.error(type + " evaluation interrupted", e);
         } catch (ExecutionException e) {
             LOGGER.error("Error encountered during " + type + " evaluation", e);
         }
-
-        return "Unable to Evaluate " + type;
+        return null;
     }
 
     public Scriptable getScriptable(UserContext userContext) {
-        Map<String, Scriptable> scopes = threadLocalScope.get();
+        Map<String, FormulaScope> scopes = threadLocalScope.get();
 
+        String ontologyJson = getCachedOntologyJson(userContext.getWorkspaceId());
         String mapKey = userContext.locale.toString() + userContext.timeZone;
-        Scriptable scope = scopes.get(mapKey);
-        if (scope == null) {
-            scope = setupContext(getOntologyJson(userContext.getWorkspaceId()), getConfigurationJson(userContext.locale, userContext.getWorkspaceId()), userContext.timeZone);
-            scopes.put(mapKey, scope);
-        } else {
-            scope.put("ONTOLOGY_JSON", scope, Context.toObject(getOntologyJson(userContext.getWorkspaceId()), scope));
+        FormulaScope formulaScope = scopes.get(mapKey);
+        if (formulaScope == null) {
+            Scriptable scope = setupContext(ontologyJson, getConfigurationJson(userContext.locale, userContext.getWorkspaceId()), userContext.timeZone);
+            formulaScope = new FormulaScope(scope, ontologyJson);
+            scopes.put(mapKey, formulaScope);
+        } else if (!ontologyJson.equals(formulaScope.ontologyJson)) {
+            bindOntologyJson(formulaScope.scope, ontologyJson);
+            formulaScope.ontologyJson = ontologyJson;
+        }
+        return formulaScope.scope;
+    }
+
+    private void bindOntologyJson(Scriptable scope, String ontologyJson) {
+        scope.put("ONTOLOGY_JSON", scope, Context.toObject(ontologyJson, scope));
+        Object updateFunction = scope.get("updateOntologyJson", scope);
+        if (updateFunction instanceof Function) {
+            ((Function) updateFunction).call(Context.getCurrentContext(), scope, scope, new Object[]{ontologyJson});
+        }
+    }
+
+    /**
+     * Ontology snapshots are replaced when the ontology changes so the JSON is cached by snapshot and dropped
+     * along with it.
+     */
+    private String getCachedOntologyJson(String workspaceId) {
+        Ontology ontology = ontologyRepository.getOntology(workspaceId);
+        if (ontology == null) {
+            return getOntologyJson(workspaceId);
+        }
+        try {
+            return ontologyJsonCache.get(ontology, () -> getOntologyJson(workspaceId));
+        } catch (ExecutionException ex) {
+            throw new VisalloException("Could not get ontology JSON for workspace: " + workspaceId, ex.getCause());
         }
-        return scope;
     }
 
     private Scriptable setupContext(String ontologyJson, String configurationJson, String timeZone) {
@@ -170,19 +236,41 @@ public class FormulaEvaluator {
     }
 
     private void evaluateFile(ScriptableObject scope, String filename) {
-        String transformed = RequireJsSupport.transformFilePath(filename);
+        Context context = Context.getCurrentContext();
+        try {
+            RequireJsSupport.getCompiledScript(context, filename, 0).exec(context, scope);
+        } catch (JavaScriptException ex) {
+            throw new VisalloException("JavaScript error in " + RequireJsSupport.transformFilePath(filename), ex);
+        }
+    }
 
-        try (InputStream is = FormulaEvaluator.class.getResourceAsStream(transformed)) {
-            if (is == null) {
-                throw new VisalloException("File not found " + transformed);
-            }
+    private String evaluateFormulaJson(
+            Scriptable scope,
+            String fieldName,
+            String json,
+            String propertyKey,
+            String propertyName
+    ) {
+        Context context = Context.getCurrentContext();
+        Object func = scope.get("evaluate" + fieldName + "FormulaJson", scope);
 
-            Context.getCurrentContext().evaluateString(scope, IOUtils.toString(is), transformed, 0, null);
-        } catch (JavaScriptException ex) {
-            throw new VisalloException("JavaScript error in " + transformed, ex);
-        } catch (IOException ex) {
-            throw new VisalloException("Could not read file: " + transformed, ex);
+        if (func.equals(Scriptable.NOT_FOUND)) {
+            throw new VisalloException("formula function not found");
         }
+
+        if (func instanceof Function) {
+            Function function = (Function) func;
+            Object result = function.call(
+                    context,
+                    scope,
+                    scope,
+                    new Object[]{json, propertyKey, propertyName}
+            );
+
+            return (String) context.jsToJava(result, String.class);
+        }
+
+        throw new VisalloException("Unknown result from formula");
     }
 
     protected String toJson(VertexiumObject vertexiumObject, String workspaceId, Authorizations authorizations) {
@@ -247,27 +335,65 @@ public class FormulaEvaluator {
         @Override
         public String call() throws Exception {
             Scriptable scope = getScriptable(userContext);
-            Context context = Context.getCurrentContext();
             String json = toJson(vertexiumObject, userContext.getWorkspaceId(), authorizations);
-            Object func = scope.get("evaluate" + fieldName + "FormulaJson", scope);
+            return evaluateFormulaJson(scope, fieldName, json, propertyKey, propertyName);
+        }
+    }
 
-            if (func.equals(Scriptable.NOT_FOUND)) {
-                throw new VisalloException("formula function not found");
-            }
+    private class FormulaResultsCallable implements Callable<FormulaResults> {
+        private final VertexiumObject vertexiumObject;
+        private final UserContext userContext;
+        private final Authorizations authorizations;
 
-            if (func instanceof Function) {
-                Function function = (Function) func;
-                Object result = function.call(
-                        context,
-                        scope,
-                        scope,
-                        new Object[]{json, propertyKey, propertyName}
-                );
+        public FormulaResultsCallable(VertexiumObject vertexiumObject, UserContext userContext, Authorizations authorizations) {
+            this.vertexiumObject = vertexiumObject;
+            this.userContext = userContext;
+            this.authorizations = authorizations;
+        }
 
-                return (String) context.jsToJava(result, String.class);
-            }
+        @Override
+        public FormulaResults call() throws Exception {
+            Scriptable scope = getScriptable(userContext);
+            String json = toJson(vertexiumObject, userContext.getWorkspaceId(), authorizations);
+            return new FormulaResults(
+                    evaluateFormulaJson(scope, "Title", json, null, null),
+                    evaluateFormulaJson(scope, "Subtitle", json, null, null),
+                    evaluateFormulaJson(scope, "Time", json, null, null)
+            );
+        }
+    }
+
+    private static class FormulaScope {
+        private final Scriptable scope;
+        private String ontologyJson;
+
+        public FormulaScope(Scriptable scope, String ontologyJson) {
+            this.scope = scope;
+            this.ontologyJson = ontologyJson;
+        }
+    }
+
+    public static class FormulaResults {
+        private final String title;
+        private final String subtitle;
+        private final String time;
+
+        public FormulaResults(String title, String subtitle, String time) {
+            this.title = title;
+            this.subtitle = subtitle;
+            this.time = time;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public String getSubtitle() {
+            return subtitle;
+        }
 
-            throw new VisalloException("Unknown result from formula");
+        public String getTime() {
+            return time;
         }
     }
 }
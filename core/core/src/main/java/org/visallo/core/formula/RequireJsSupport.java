@@ -3,6 +3,7 @@ package org.visallo.core.formula;
 import org.apache.commons.io.IOUtils;
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.Function;
+import org.mozilla.javascript.Script;
 import org.mozilla.javascript.Scriptable;
 import org.mozilla.javascript.ScriptableObject;
 import org.visallo.core.exception.VisalloException;
@@ -12,11 +13,14 @@ import org.visallo.core.util.VisalloLoggerFactory;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @SuppressWarnings("unused")
 public class RequireJsSupport extends ScriptableObject {
     private static final long serialVersionUID = 1L;
     private static VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(RequireJsSupport.class);
+    private static final Map<String, Script> compiledScripts = new ConcurrentHashMap<>();
 
     @Override
     public String getClassName() {
@@ -49,9 +53,8 @@ public class RequireJsSupport extends ScriptableObject {
     }
 
     public static String readFully(Context cx, Scriptable thisObj, Object[] args, Function funObj) throws IOException {
-        RequireJsSupport shell = (RequireJsSupport) getTopLevelScope(thisObj);
         if (args.length == 1) {
-            return shell.getFileContents(Context.toString(args[0]));
+            return getFileContents(Context.toString(args[0]));
         }
         return null;
     }
@@ -61,11 +64,20 @@ public class RequireJsSupport extends ScriptableObject {
     }
 
     private void processSource(Context cx, String filename) throws IOException {
-        String fileContents = getFileContents(filename);
-        cx.evaluateString(this, fileContents, filename, 1, null);
+        getCompiledScript(cx, filename, 1).exec(cx, this);
+    }
+
+    /**
+     * Scripts are compiled once and shared by every scope, each scope only has to execute them.
+     */
+    public static Script getCompiledScript(Context cx, String filename, int lineNumber) {
+        return compiledScripts.computeIfAbsent(
+                filename,
+                f -> cx.compileString(getFileContents(f), transformFilePath(f), lineNumber, null)
+        );
     }
 
-    private String getFileContents(String file) {
+    private static String getFileContents(String file) {
         String transformed = transformFilePath(file);
         try (InputStream is = RequireJsSupport.class.getResourceAsStream(transformed)) {
             if (is == null) {
@@ -1,5 +1,7 @@
 package org.visallo.core.ingest;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
 import com.google.common.base.Strings;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -7,7 +9,9 @@ import org.apache.commons.io.IOUtils;
 import org.json.JSONObject;
 import org.vertexium.*;
 import org.vertexium.property.StreamingPropertyValue;
+import org.vertexium.query.Contains;
 import org.visallo.core.config.Configuration;
+import org.visallo.core.exception.VisalloException;
 import org.visallo.core.model.WorkQueueNames;
 import org.visallo.core.model.ontology.OntologyProperty;
 import org.visallo.core.model.ontology.OntologyRepository;
@@ -21,6 +25,7 @@ import org.visallo.core.model.workspace.Workspace;
 import org.visallo.core.model.workspace.WorkspaceRepository;
 import org.visallo.core.security.VisalloVisibility;
 import org.visallo.core.security.VisibilityTranslator;
+import org.visallo.core.status.MetricsManager;
 import org.visallo.core.user.User;
 import org.visallo.core.util.RowKeyHelper;
 import org.visallo.core.util.ServiceLoaderUtil;
@@ -34,6 +39,11 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.text.ParseException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.vertexium.util.IterableUtils.toList;
 
@@ -41,6 +51,9 @@ import static org.vertexium.util.IterableUtils.toList;
 public class FileImport {
     private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(FileImport.class);
     public static final String MULTI_VALUE_KEY = FileImport.class.getName();
+    public static final String CONFIG_IMPORT_DIRECTORY_THREAD_COUNT = FileImport.class.getName() + ".importDirectory.threadCount";
+    public static final int DEFAULT_IMPORT_DIRECTORY_THREAD_COUNT = 4;
+    private static final int IMPORT_DIRECTORY_BATCH_SIZE = 100;
     private final VisibilityTranslator visibilityTranslator;
     private final Graph graph;
     private final WorkQueueRepository workQueueRepository;
@@ -50,6 +63,7 @@ public class FileImport {
     private final Configuration configuration;
     private List<FileImportSupportingFileHandler> fileImportSupportingFileHandlers;
     private List<PostFileImportHandler> postFileImportHandlers;
+    private ImportDirectoryMetrics importDirectoryMetrics;
 
     @Inject
     public FileImport(
@@ -70,6 +84,16 @@ public class FileImport {
         this.configuration = configuration;
     }
 
+    @Inject
+    public void setMetricsManager(MetricsManager metricsManager) {
+        this.importDirectoryMetrics = new ImportDirectoryMetrics(metricsManager);
+    }
+
+    /**
+     * Imports the files of the directory in batches. The files of a batch are hashed in parallel, the hashes of the
+     * whole batch are looked up with a single query, and the files are then saved in parallel. Files of the batch
+     * with the same hash are imported one after another so only the first one creates a vertex.
+     */
     public void importDirectory(
             File dataDir,
             boolean queueDuplicates,
@@ -88,44 +112,129 @@ public class FileImport {
             return;
         }
 
+        List<File> filesToImport = new ArrayList<>();
+        for (File f : files) {
+            if (f.getName().startsWith(".") || f.length() == 0) {
+                continue;
+            }
+            if (isSupportingFile(f)) {
+                continue;
+            }
+            filesToImport.add(f);
+        }
+
         int totalFileCount = files.length;
-        int fileCount = 0;
-        int importedFileCount = 0;
+        int threadCount = configuration.getInt(CONFIG_IMPORT_DIRECTORY_THREAD_COUNT, DEFAULT_IMPORT_DIRECTORY_THREAD_COUNT);
+        AtomicInteger fileCount = new AtomicInteger();
+        AtomicInteger importedFileCount = new AtomicInteger();
+        ExecutorService executorService = createImportExecutorService(threadCount);
         try {
-            for (File f : files) {
-                if (f.getName().startsWith(".") || f.length() == 0) {
-                    continue;
-                }
-                if (isSupportingFile(f)) {
-                    continue;
+            for (int batchStart = 0; batchStart < filesToImport.size(); batchStart += IMPORT_DIRECTORY_BATCH_SIZE) {
+                List<File> batch = filesToImport.subList(batchStart, Math.min(batchStart + IMPORT_DIRECTORY_BATCH_SIZE, filesToImport.size()));
+
+                Map<String, List<File>> filesByHash = hashFiles(batch, executorService);
+                fileCount.addAndGet(batch.size() - countFiles(filesByHash));
+
+                Map<String, Vertex> existingVerticesByHash;
+                try (Timer.Context ignored = importDirectoryMetrics.findExistingTime.time()) {
+                    existingVerticesByHash = findExistingVerticesWithHashes(filesByHash.keySet(), authorizations);
                 }
 
-                LOGGER.debug("Importing file (%d/%d): %s", fileCount + 1, totalFileCount, f.getAbsolutePath());
-                try {
-                    importFile(
-                            f,
-                            f.getName(),
-                            queueDuplicates,
-                            conceptTypeIRI,
-                            null,
-                            visibilitySource,
-                            workspace,
-                            true,
-                            priority,
-                            user,
-                            authorizations
-                    );
-                    importedFileCount++;
-                } catch (Exception ex) {
-                    LOGGER.error("Could not import %s", f.getAbsolutePath(), ex);
+                List<Future<?>> futures = new ArrayList<>();
+                for (Map.Entry<String, List<File>> entry : filesByHash.entrySet()) {
+                    String hash = entry.getKey();
+                    futures.add(executorService.submit(() -> {
+                        Vertex existingVertex = existingVerticesByHash.get(hash);
+                        for (File f : entry.getValue()) {
+                            LOGGER.debug("Importing file (%d/%d): %s", fileCount.incrementAndGet(), totalFileCount, f.getAbsolutePath());
+                            try (Timer.Context ignored = importDirectoryMetrics.importTime.time()) {
+                                existingVertex = importFile(
+                                        f,
+                                        hash,
+                                        existingVertex,
+                                        f.getName(),
+                                        queueDuplicates,
+                                        conceptTypeIRI,
+                                        null,
+                                        visibilitySource,
+                                        workspace,
+                                        priority,
+                                        user,
+                                        authorizations
+                                );
+                                importedFileCount.incrementAndGet();
+                                importDirectoryMetrics.imported.inc();
+                            } catch (Exception ex) {
+                                LOGGER.error("Could not import %s", f.getAbsolutePath(), ex);
+                                importDirectoryMetrics.errors.inc();
+                            }
+                        }
+                    }));
                 }
-                fileCount++;
+                waitForAll(futures);
             }
         } finally {
+            executorService.shutdownNow();
             graph.flush();
         }
 
-        LOGGER.debug(String.format("Imported %d, skipped %d files from %s", importedFileCount, fileCount - importedFileCount, dataDir));
+        LOGGER.debug(String.format("Imported %d, skipped %d files from %s", importedFileCount.get(), fileCount.get() - importedFileCount.get(), dataDir));
+    }
+
+    private Map<String, List<File>> hashFiles(List<File> files, ExecutorService executorService) {
+        List<Future<String>> hashFutures = new ArrayList<>();
+        for (File f : files) {
+            hashFutures.add(executorService.submit(() -> {
+                try (Timer.Context ignored = importDirectoryMetrics.hashTime.time()) {
+                    return calculateFileHash(f);
+                }
+            }));
+        }
+
+        Map<String, List<File>> filesByHash = new LinkedHashMap<>();
+        for (int i = 0; i < files.size(); i++) {
+            File f = files.get(i);
+            try {
+                filesByHash.computeIfAbsent(hashFutures.get(i).get(), hash -> new ArrayList<>()).add(f);
+            } catch (ExecutionException ex) {
+                LOGGER.error("Could not import %s", f.getAbsolutePath(), ex.getCause());
+                importDirectoryMetrics.errors.inc();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new VisalloException("Interrupted while hashing files", ex);
+            }
+        }
+        return filesByHash;
+    }
+
+    private static int countFiles(Map<String, List<File>> filesByHash) {
+        int count = 0;
+        for (List<File> files : filesByHash.values()) {
+            count += files.size();
+        }
+        return count;
+    }
+
+    private static void waitForAll(List<Future<?>> futures) {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException ex) {
+                throw new VisalloException("Could not import files", ex.getCause());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new VisalloException("Interrupted while importing files", ex);
+            }
+        }
+    }
+
+    private static ExecutorService createImportExecutorService(int threadCount) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, threadCount), runnable -> {
+            Thread thread = new Thread(runnable, "file-import-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     private boolean isSupportingFile(File f) {
@@ -174,49 +283,76 @@ public class FileImport {
             User user,
             Authorizations authorizations
     ) throws Exception {
-        Vertex vertex;
         ensureInitialized();
 
         String hash = calculateFileHash(f);
+        Vertex existingVertex = findExistingByFileHash ? findExistingVertexWithHash(hash, authorizations) : null;
+        return importFile(
+                f,
+                hash,
+                existingVertex,
+                originalFilename,
+                queueDuplicates,
+                conceptId,
+                properties,
+                visibilitySource,
+                workspace,
+                priority,
+                user,
+                authorizations
+        );
+    }
 
-        if (findExistingByFileHash) {
-            vertex = findExistingVertexWithHash(hash, authorizations);
-            if (vertex != null) {
-                LOGGER.debug("vertex already exists with hash %s", hash);
-                if (queueDuplicates) {
-                    LOGGER.debug(
-                            "pushing %s on to %s queue",
-                            vertex.getId(),
-                            workQueueNames.getGraphPropertyQueueName()
+    private Vertex importFile(
+            File f,
+            String hash,
+            Vertex existingVertex,
+            String originalFilename,
+            boolean queueDuplicates,
+            String conceptId,
+            ClientApiImportProperty[] properties,
+            String visibilitySource,
+            Workspace workspace,
+            Priority priority,
+            User user,
+            Authorizations authorizations
+    ) throws Exception {
+        if (existingVertex != null) {
+            LOGGER.debug("vertex already exists with hash %s", hash);
+            if (queueDuplicates) {
+                LOGGER.debug(
+                        "pushing %s on to %s queue",
+                        existingVertex.getId(),
+                        workQueueNames.getGraphPropertyQueueName()
+                );
+                if (workspace != null) {
+                    workspaceRepository.updateEntityOnWorkspace(
+                            workspace,
+                            existingVertex.getId(),
+                            user
+                    );
+                    workQueueRepository.broadcastElement(existingVertex, workspace.getWorkspaceId());
+                    workQueueRepository.pushGraphPropertyQueue(
+                            existingVertex,
+                            MULTI_VALUE_KEY,
+                            VisalloProperties.RAW.getPropertyName(),
+                            workspace.getWorkspaceId(),
+                            visibilitySource,
+                            priority
+                    );
+                } else {
+                    workQueueRepository.pushGraphPropertyQueue(
+                            existingVertex,
+                            MULTI_VALUE_KEY,
+                            VisalloProperties.RAW.getPropertyName(),
+                            priority
                     );
-                    if (workspace != null) {
-                        workspaceRepository.updateEntityOnWorkspace(
-                                workspace,
-                                vertex.getId(),
-                                user
-                        );
-                        workQueueRepository.broadcastElement(vertex, workspace.getWorkspaceId());
-                        workQueueRepository.pushGraphPropertyQueue(
-                                vertex,
-                                MULTI_VALUE_KEY,
-                                VisalloProperties.RAW.getPropertyName(),
-                                workspace.getWorkspaceId(),
-                                visibilitySource,
-                                priority
-                        );
-                    } else {
-                        workQueueRepository.pushGraphPropertyQueue(
-                                vertex,
-                                MULTI_VALUE_KEY,
-                                VisalloProperties.RAW.getPropertyName(),
-                                priority
-                        );
-                    }
                 }
-                return vertex;
             }
+            return existingVertex;
         }
 
+        Vertex vertex;
         List<FileImportSupportingFileHandler.AddSupportingFilesResult> addSupportingFilesResults = new ArrayList<>();
 
         try (FileInputStream fileInputStream = new FileInputStream(f)) {
@@ -362,26 +498,45 @@ public class FileImport {
     ) throws Exception {
         ensureInitialized();
 
-        List<Vertex> vertices = new ArrayList<>();
+        List<FileOptions> filesToImport = new ArrayList<>();
         for (FileOptions file : files) {
             if (isSupportingFile(file.getFile())) {
                 LOGGER.debug("Skipping file: %s (supporting file)", file.getFile().getAbsolutePath());
                 continue;
             }
+            filesToImport.add(file);
+        }
+
+        List<String> hashes = new ArrayList<>();
+        for (FileOptions file : filesToImport) {
+            hashes.add(calculateFileHash(file.getFile()));
+        }
+        Map<String, Vertex> existingVerticesByHash = findExistingByFileHash
+                ? findExistingVerticesWithHashes(hashes, authorizations)
+                : new HashMap<>();
+
+        List<Vertex> vertices = new ArrayList<>();
+        for (int i = 0; i < filesToImport.size(); i++) {
+            FileOptions file = filesToImport.get(i);
+            String hash = hashes.get(i);
             LOGGER.debug("Processing file: %s", file.getFile().getAbsolutePath());
             Vertex vertex = importFile(
                     file.getFile(),
+                    hash,
+                    existingVerticesByHash.get(hash),
                     file.getOriginalFilename(),
                     true,
                     file.getConceptId(),
                     file.getProperties(),
                     file.getVisibilitySource(),
                     workspace,
-                    findExistingByFileHash,
                     priority,
                     user,
                     authorizations
             );
+            if (findExistingByFileHash) {
+                existingVerticesByHash.putIfAbsent(hash, vertex);
+            }
             vertices.add(vertex);
         }
         return vertices;
@@ -417,14 +572,31 @@ public class FileImport {
     }
 
     private Vertex findExistingVertexWithHash(String hash, Authorizations authorizations) {
-        Iterator<Vertex> existingVertices = this.graph.query(authorizations)
-                .has(VisalloProperties.CONTENT_HASH.getPropertyName(), hash)
-                .vertices()
-                .iterator();
-        if (existingVertices.hasNext()) {
-            return existingVertices.next();
+        return findExistingVerticesWithHashes(Collections.singletonList(hash), authorizations).get(hash);
+    }
+
+    /**
+     * Finds the vertices of already imported files with a single query.
+     *
+     * @return the first vertex found for each hash, hashes without a vertex are missing from the map
+     */
+    private Map<String, Vertex> findExistingVerticesWithHashes(Collection<String> hashes, Authorizations authorizations) {
+        Map<String, Vertex> verticesByHash = new HashMap<>();
+        if (hashes.isEmpty()) {
+            return verticesByHash;
         }
-        return null;
+        Set<String> uniqueHashes = new HashSet<>(hashes);
+        Iterable<Vertex> existingVertices = this.graph.query(authorizations)
+                .has(VisalloProperties.CONTENT_HASH.getPropertyName(), Contains.IN, new ArrayList<>(uniqueHashes))
+                .vertices();
+        for (Vertex existingVertex : existingVertices) {
+            for (String hash : VisalloProperties.CONTENT_HASH.getPropertyValues(existingVertex)) {
+                if (uniqueHashes.contains(hash)) {
+                    verticesByHash.putIfAbsent(hash, existingVertex);
+                }
+            }
+        }
+        return verticesByHash;
     }
 
     private String calculateFileHash(File f) throws IOException {
@@ -433,6 +605,22 @@ public class FileImport {
         }
     }
 
+    private class ImportDirectoryMetrics {
+        private final Timer hashTime;
+        private final Timer findExistingTime;
+        private final Timer importTime;
+        private final Counter imported;
+        private final Counter errors;
+
+        ImportDirectoryMetrics(MetricsManager metricsManager) {
+            hashTime = metricsManager.timer(FileImport.this, "import-directory-hash-time");
+            findExistingTime = metricsManager.timer(FileImport.this, "import-directory-find-existing-time");
+            importTime = metricsManager.timer(FileImport.this, "import-directory-import-time");
+            imported = metricsManager.counter(FileImport.this, "import-directory-imported");
+            errors = metricsManager.counter(FileImport.this, "import-directory-errors");
+        }
+    }
+
     public static class FileOptions {
         private File file;
         private String originalFilename;
@@ -1,5 +1,9 @@
 package org.visallo.core.ingest;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
 public abstract class WorkerSpout {
     public void open() {
     }
@@ -16,6 +20,26 @@ public abstract class WorkerSpout {
 
     }
 
+    /**
+     * Acks multiple tuples at once. Spouts which can acknowledge in a single round trip should override this
+     * method and {@link #isBatchSupported()}.
+     */
+    public void ack(Collection<WorkerTuple> workerTuples) {
+        for (WorkerTuple workerTuple : workerTuples) {
+            ack(workerTuple);
+        }
+    }
+
+    /**
+     * Fails multiple tuples at once. Spouts which can fail in a single round trip should override this
+     * method and {@link #isBatchSupported()}.
+     */
+    public void fail(Collection<WorkerTuple> workerTuples) {
+        for (WorkerTuple workerTuple : workerTuples) {
+            fail(workerTuple);
+        }
+    }
+
     /**
      * Get the next tuple from the queue. This method should poll and wait for a time period to
      * prevent spinning and causing high cpu load as the method calling this method will not sleep
@@ -25,4 +49,27 @@ public abstract class WorkerSpout {
      * @return null, if no tuple is available in the polling period.
      */
     public abstract WorkerTuple nextTuple() throws Exception;
+
+    /**
+     * Get up to maxCount tuples from the queue. Implementations should return as soon as at least one tuple
+     * is available and no more tuples can be retrieved without waiting, or when maxWaitMillis has elapsed.
+     * The default implementation falls back to {@link #nextTuple()}.
+     *
+     * @return an empty list, if no tuples are available in the polling period.
+     */
+    public List<WorkerTuple> nextTuples(int maxCount, long maxWaitMillis) throws Exception {
+        WorkerTuple tuple = nextTuple();
+        if (tuple == null) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(tuple);
+    }
+
+    /**
+     * @return true, if this spout implements {@link #nextTuples(int, long)}, {@link #ack(Collection)} and
+     * {@link #fail(Collection)} more efficiently than one tuple at a time.
+     */
+    public boolean isBatchSupported() {
+        return false;
+    }
 }
@@ -1,5 +1,7 @@
 package org.visallo.core.ingest.graphProperty;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.inject.Inject;
@@ -12,6 +14,7 @@ import org.vertexium.util.IterableUtils;
 import org.visallo.core.bootstrap.InjectHelper;
 import org.visallo.core.config.Configuration;
 import org.visallo.core.exception.VisalloException;
+import org.visallo.core.ingest.WorkerTuple;
 import org.visallo.core.model.WorkQueueNames;
 import org.visallo.core.model.WorkerBase;
 import org.visallo.core.model.properties.VisalloProperties;
@@ -25,21 +28,22 @@ import org.visallo.core.user.User;
 import org.visallo.core.util.*;
 
 import java.io.*;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 import static org.vertexium.util.IterableUtils.toList;
 
 // Unlike many other injected classes, this is not a singleton
 public class GraphPropertyRunner extends WorkerBase<GraphPropertyWorkerItem> {
     private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(GraphPropertyRunner.class);
+    private static final long IN_MEMORY_STREAMING_PROPERTY_VALUE_MAX_LENGTH = 1024 * 1024;
     private final AuthorizationRepository authorizationRepository;
     private Graph graph;
     private Authorizations authorizations;
     private List<GraphPropertyThreadedWrapper> workerWrappers = Lists.newArrayList();
+    private volatile GraphPropertyWorkerIndex<GraphPropertyThreadedWrapper> workerWrapperIndex = createWorkerWrapperIndex(workerWrappers);
+    private volatile GraphPropertyWorkerIndex<GraphPropertyWorker> workerIndex = new GraphPropertyWorkerIndex<>(Collections.emptyList(), worker -> worker);
     private User user;
     private UserRepository userRepository;
     private WorkQueueNames workQueueNames;
@@ -48,6 +52,12 @@ public class GraphPropertyRunner extends WorkerBase<GraphPropertyWorkerItem> {
     private AtomicLong lastProcessedPropertyTime = new AtomicLong(0);
     private List<GraphPropertyWorker> graphPropertyWorkers = Lists.newArrayList();
     private boolean prepareWorkersCalled;
+    private EnumSet<FetchHint> fetchHints = FetchHint.ALL;
+    private final Map<String, Vertex> prefetchedVertices = new HashMap<>();
+    private final Map<String, Edge> prefetchedEdges = new HashMap<>();
+    private final Counter prefetchHitMetric;
+    private final Counter prefetchMissMetric;
+    private final Timer prefetchTimeMetric;
 
     @Inject
     protected GraphPropertyRunner(
@@ -58,6 +68,9 @@ public class GraphPropertyRunner extends WorkerBase<GraphPropertyWorkerItem> {
     ) {
         super(workQueueRepository, configuration, metricsManager);
         this.authorizationRepository = authorizationRepository;
+        this.prefetchHitMetric = metricsManager.counter(this, "prefetch-hits");
+        this.prefetchMissMetric = metricsManager.counter(this, "prefetch-misses");
+        this.prefetchTimeMetric = metricsManager.timer(this, "prefetch-time");
     }
 
     @Override
@@ -149,6 +162,8 @@ public class GraphPropertyRunner extends WorkerBase<GraphPropertyWorkerItem> {
 
         this.addGraphPropertyThreadedWrappers(wrappers);
         this.graphPropertyWorkers.addAll(workers);
+        this.workerIndex = new GraphPropertyWorkerIndex<>(this.graphPropertyWorkers, worker -> worker);
+        this.fetchHints = getFetchHints(workers);
 
         if (failedToPrepareAtLeastOneGraphPropertyWorker) {
             throw new VisalloException(
@@ -156,12 +171,27 @@ public class GraphPropertyRunner extends WorkerBase<GraphPropertyWorkerItem> {
         }
     }
 
+    private static EnumSet<FetchHint> getFetchHints(Collection<GraphPropertyWorker> workers) {
+        // properties are always needed to find the property being processed and the interested workers
+        EnumSet<FetchHint> fetchHints = EnumSet.of(FetchHint.PROPERTIES);
+        for (GraphPropertyWorker worker : workers) {
+            fetchHints.addAll(worker.getFetchHints());
+        }
+        LOGGER.debug("graph property worker fetch hints: %s", fetchHints);
+        return fetchHints;
+    }
+
     public void addGraphPropertyThreadedWrappers(List<GraphPropertyThreadedWrapper> wrappers) {
         this.workerWrappers.addAll(wrappers);
+        this.workerWrapperIndex = createWorkerWrapperIndex(this.workerWrappers);
     }
 
     public void addGraphPropertyThreadedWrappers(GraphPropertyThreadedWrapper... wrappers) {
-        this.workerWrappers.addAll(Lists.newArrayList(wrappers));
+        addGraphPropertyThreadedWrappers(Lists.newArrayList(wrappers));
+    }
+
+    private static GraphPropertyWorkerIndex<GraphPropertyThreadedWrapper> createWorkerWrapperIndex(List<GraphPropertyThreadedWrapper> wrappers) {
+        return new GraphPropertyWorkerIndex<>(wrappers, GraphPropertyThreadedWrapper::getWorker);
     }
 
     private List<TermMentionFilter> loadTermMentionFilters() {
@@ -202,12 +232,110 @@ public class GraphPropertyRunner extends WorkerBase<GraphPropertyWorkerItem> {
         }
     }
 
+    @Override
+    protected void prefetchTupleData(List<WorkerTuple> tuples) {
+        prefetchedVertices.clear();
+        prefetchedEdges.clear();
+
+        Set<String> vertexIds = new LinkedHashSet<>();
+        Set<String> edgeIds = new LinkedHashSet<>();
+        for (WorkerTuple tuple : tuples) {
+            GraphPropertyMessage message;
+            try {
+                message = GraphPropertyMessage.create(tuple.getData());
+            } catch (Exception ex) {
+                // reported when the tuple is converted to a worker item
+                continue;
+            }
+            if (isPrefetchable(message)) {
+                if (message.getGraphVertexId() != null) {
+                    Collections.addAll(vertexIds, message.getGraphVertexId());
+                }
+                if (message.getGraphEdgeId() != null) {
+                    Collections.addAll(edgeIds, message.getGraphEdgeId());
+                }
+            }
+        }
+
+        try {
+            if (vertexIds.size() > 0) {
+                prefetchedVertices.putAll(loadVertices(vertexIds));
+            }
+            if (edgeIds.size() > 0) {
+                prefetchedEdges.putAll(loadEdges(edgeIds));
+            }
+        } catch (Exception ex) {
+            LOGGER.warn("Could not prefetch elements, elements will be loaded per message", ex);
+            prefetchedVertices.clear();
+            prefetchedEdges.clear();
+        }
+    }
+
+    /**
+     * Deleted and hidden elements are loaded as of the time before the action so they can't share a batch load.
+     */
+    private boolean isPrefetchable(GraphPropertyMessage message) {
+        return message.getStatus() != ElementOrPropertyStatus.DELETION && message.getStatus() != ElementOrPropertyStatus.HIDDEN;
+    }
+
+    private Map<String, Vertex> loadVertices(Collection<String> vertexIds) {
+        Map<String, Vertex> results = new HashMap<>();
+        try (Timer.Context ignored = prefetchTimeMetric.time()) {
+            for (Vertex vertex : graph.getVertices(vertexIds, fetchHints, this.authorizations)) {
+                results.put(vertex.getId(), vertex);
+            }
+        }
+        return results;
+    }
+
+    private Map<String, Edge> loadEdges(Collection<String> edgeIds) {
+        Map<String, Edge> results = new HashMap<>();
+        try (Timer.Context ignored = prefetchTimeMetric.time()) {
+            for (Edge edge : graph.getEdges(edgeIds, fetchHints, this.authorizations)) {
+                results.put(edge.getId(), edge);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Takes the prefetched elements for the given ids, loading any that were not prefetched in a single call.
+     * Prefetched elements are removed once used so each message gets its own element instance.
+     */
+    private <T extends Element> Map<String, T> getPrefetchedOrLoad(
+            String[] ids,
+            Map<String, T> prefetched,
+            Function<Collection<String>, Map<String, T>> load
+    ) {
+        Map<String, T> results = new HashMap<>();
+        List<String> missingIds = new ArrayList<>();
+        for (String id : ids) {
+            T element = prefetched.remove(id);
+            if (element == null) {
+                missingIds.add(id);
+            } else {
+                results.put(id, element);
+            }
+        }
+        prefetchHitMetric.inc(results.size());
+        if (missingIds.size() > 0) {
+            prefetchMissMetric.inc(missingIds.size());
+            results.putAll(load.apply(missingIds));
+        }
+        return results;
+    }
+
     private ImmutableList<Element> getVerticesFromMessage(GraphPropertyMessage message) {
         ImmutableList.Builder<Element> vertices = ImmutableList.builder();
 
+        Map<String, Vertex> loadedVertices = null;
+        if (isPrefetchable(message)) {
+            loadedVertices = getPrefetchedOrLoad(message.getGraphVertexId(), prefetchedVertices, this::loadVertices);
+        }
+
         for (String vertexId : message.getGraphVertexId()) {
             Vertex vertex;
-            if (message.getStatus() == ElementOrPropertyStatus.DELETION || message.getStatus() == ElementOrPropertyStatus.HIDDEN) {
+            if (loadedVertices == null) {
                 vertex = graph.getVertex(
                         vertexId,
                         FetchHint.ALL,
@@ -215,7 +343,7 @@ public class GraphPropertyRunner extends WorkerBase<GraphPropertyWorkerItem> {
                         this.authorizations
                 );
             } else {
-                vertex = graph.getVertex(vertexId, this.authorizations);
+                vertex = loadedVertices.get(vertexId);
             }
             if (doesExist(vertex)) {
                 vertices.add(vertex);
@@ -229,12 +357,17 @@ public class GraphPropertyRunner extends WorkerBase<GraphPropertyWorkerItem> {
     private ImmutableList<Element> getEdgesFromMessage(GraphPropertyMessage message) {
         ImmutableList.Builder<Element> edges = ImmutableList.builder();
 
+        Map<String, Edge> loadedEdges = null;
+        if (isPrefetchable(message)) {
+            loadedEdges = getPrefetchedOrLoad(message.getGraphEdgeId(), prefetchedEdges, this::loadEdges);
+        }
+
         for (String edgeId : message.getGraphEdgeId()) {
             Edge edge;
-            if (message.getStatus() == ElementOrPropertyStatus.DELETION || message.getStatus() == ElementOrPropertyStatus.HIDDEN) {
+            if (loadedEdges == null) {
                 edge = graph.getEdge(edgeId, FetchHint.ALL, message.getBeforeActionTimestamp(), this.authorizations);
             } else {
-                edge = graph.getEdge(edgeId, this.authorizations);
+                edge = loadedEdges.get(edgeId);
             }
             if (doesExist(edge)) {
                 edges.add(edge);
@@ -418,50 +551,73 @@ public class GraphPropertyRunner extends WorkerBase<GraphPropertyWorkerItem> {
             List<GraphPropertyThreadedWrapper> interestedWorkerWrappers,
             GraphPropertyWorkData workData
     ) throws Exception {
+        List<GraphPropertyThreadedWrapper.Work> works = new ArrayList<>(interestedWorkerWrappers.size());
         for (GraphPropertyThreadedWrapper interestedWorkerWrapper1 : interestedWorkerWrappers) {
-            interestedWorkerWrapper1.enqueueWork(null, workData);
+            works.add(interestedWorkerWrapper1.enqueueWork(null, workData));
         }
 
-        for (GraphPropertyThreadedWrapper interestedWorkerWrapper : interestedWorkerWrappers) {
-            interestedWorkerWrapper.dequeueResult(true);
+        for (int i = 0; i < interestedWorkerWrappers.size(); i++) {
+            interestedWorkerWrappers.get(i).dequeueResult(works.get(i), true);
         }
     }
 
+    /**
+     * Small values are read into memory and shared by the workers. Larger values are copied to a temp file
+     * which the workers read concurrently, each at its own pace, while it is being written. If any worker
+     * requires a local file the copy is completed first and the same file is given to the workers.
+     */
     private void safeExecuteStreamingPropertyValue(
             List<GraphPropertyThreadedWrapper> interestedWorkerWrappers,
             GraphPropertyWorkData workData,
             StreamingPropertyValue streamingPropertyValue
     ) throws Exception {
-        String[] workerNames = graphPropertyThreadedWrapperToNames(interestedWorkerWrappers);
-        InputStream in = streamingPropertyValue.getInputStream();
-        File tempFile = null;
-        try {
-            boolean requiresLocalFile = isLocalFileRequired(interestedWorkerWrappers);
+        boolean requiresLocalFile = isLocalFileRequired(interestedWorkerWrappers);
+        Long length = streamingPropertyValue.getLength();
+        if (!requiresLocalFile && length != null && length <= IN_MEMORY_STREAMING_PROPERTY_VALUE_MAX_LENGTH) {
+            byte[] data;
+            try (InputStream in = streamingPropertyValue.getInputStream()) {
+                data = IOUtils.toByteArray(in);
+            }
+            List<GraphPropertyThreadedWrapper.Work> works = new ArrayList<>(interestedWorkerWrappers.size());
+            for (GraphPropertyThreadedWrapper interestedWorkerWrapper : interestedWorkerWrappers) {
+                works.add(interestedWorkerWrapper.enqueueWork(new ByteArrayInputStream(data), workData));
+            }
+            for (int i = 0; i < interestedWorkerWrappers.size(); i++) {
+                interestedWorkerWrappers.get(i).dequeueResult(works.get(i), true);
+            }
+            return;
+        }
+
+        File tempFile = createTempFile(workData);
+        try (SharedFileBuffer sharedFileBuffer = new SharedFileBuffer(tempFile);
+             InputStream in = streamingPropertyValue.getInputStream()) {
             if (requiresLocalFile) {
-                tempFile = copyToTempFile(in, workData);
-                in = new FileInputStream(tempFile);
+                sharedFileBuffer.writeFrom(in);
+                workData.setLocalFile(tempFile);
             }
 
-            try (TeeInputStream teeInputStream = new TeeInputStream(in, workerNames)) {
-                for (int i = 0; i < interestedWorkerWrappers.size(); i++) {
-                    interestedWorkerWrappers.get(i).enqueueWork(teeInputStream.getTees()[i], workData);
+            List<GraphPropertyThreadedWrapper.Work> works = new ArrayList<>(interestedWorkerWrappers.size());
+            for (GraphPropertyThreadedWrapper interestedWorkerWrapper : interestedWorkerWrappers) {
+                works.add(interestedWorkerWrapper.enqueueWork(sharedFileBuffer.newReader(), workData));
+            }
+            try {
+                if (!requiresLocalFile) {
+                    sharedFileBuffer.writeFrom(in);
                 }
-                teeInputStream.loopUntilTeesAreClosed();
-                for (GraphPropertyThreadedWrapper interestedWorkerWrapper : interestedWorkerWrappers) {
-                    interestedWorkerWrapper.dequeueResult(false);
+            } finally {
+                // workers read at their own pace so wait for all of them before the file is removed
+                for (int i = 0; i < interestedWorkerWrappers.size(); i++) {
+                    interestedWorkerWrappers.get(i).dequeueResult(works.get(i), true);
                 }
             }
         } finally {
-            if (tempFile != null) {
-                if (!tempFile.delete()) {
-                    LOGGER.warn("Could not delete temp file %s", tempFile.getAbsolutePath());
-                }
+            if (!tempFile.delete()) {
+                LOGGER.warn("Could not delete temp file %s", tempFile.getAbsolutePath());
             }
-            in.close();
         }
     }
 
-    private File copyToTempFile(InputStream in, GraphPropertyWorkData workData) throws IOException {
+    private File createTempFile(GraphPropertyWorkData workData) throws IOException {
         String fileExt = null;
         String fileName = VisalloProperties.FILE_NAME.getOnlyPropertyValue(workData.getElement());
         if (fileName != null) {
@@ -470,15 +626,7 @@ public class GraphPropertyRunner extends WorkerBase<GraphPropertyWorkerItem> {
         if (fileExt == null) {
             fileExt = "data";
         }
-        File tempFile = File.createTempFile("graphPropertyBolt", fileExt);
-        workData.setLocalFile(tempFile);
-        try (OutputStream tempFileOut = new FileOutputStream(tempFile)) {
-            IOUtils.copy(in, tempFileOut);
-        } finally {
-            in.close();
-
-        }
-        return tempFile;
+        return File.createTempFile("graphPropertyBolt", fileExt);
     }
 
     private boolean isLocalFileRequired(List<GraphPropertyThreadedWrapper> interestedWorkerWrappers) {
@@ -501,7 +649,7 @@ public class GraphPropertyRunner extends WorkerBase<GraphPropertyWorkerItem> {
                 element));
 
         List<GraphPropertyThreadedWrapper> interestedWorkers = new ArrayList<>();
-        for (GraphPropertyThreadedWrapper wrapper : workerWrappers) {
+        for (GraphPropertyThreadedWrapper wrapper : workerWrapperIndex.getCandidates(element, property, status)) {
             String graphPropertyWorkerName = wrapper.getWorker().getClass().getName();
             if (graphPropertyWorkerWhiteList.size() > 0 && !graphPropertyWorkerWhiteList.contains(
                     graphPropertyWorkerName)) {
@@ -561,14 +709,6 @@ public class GraphPropertyRunner extends WorkerBase<GraphPropertyWorkerItem> {
         }
     }
 
-    private String[] graphPropertyThreadedWrapperToNames(List<GraphPropertyThreadedWrapper> interestedWorkerWrappers) {
-        String[] names = new String[interestedWorkerWrappers.size()];
-        for (int i = 0; i < names.length; i++) {
-            names[i] = interestedWorkerWrappers.get(i).getWorker().getClass().getName();
-        }
-        return names;
-    }
-
     private ImmutableList<Element> getElements(GraphPropertyMessage message) {
         ImmutableList.Builder<Element> results = ImmutableList.builder();
         if (message.getGraphVertexId() != null && message.getGraphVertexId().length > 0) {
@@ -649,7 +789,7 @@ public class GraphPropertyRunner extends WorkerBase<GraphPropertyWorkerItem> {
             return true;
         }
 
-        for (GraphPropertyWorker worker : this.getAllGraphPropertyWorkers()) {
+        for (GraphPropertyWorker worker : workerIndex.getCandidates(element, property, status)) {
             try {
                 if (status == ElementOrPropertyStatus.DELETION && worker.isDeleteHandled(element, property)) {
                     return true;
@@ -697,10 +837,6 @@ public class GraphPropertyRunner extends WorkerBase<GraphPropertyWorkerItem> {
         return canHandle(element, property, status);
     }
 
-    private Collection<GraphPropertyWorker> getAllGraphPropertyWorkers() {
-        return Lists.newArrayList(this.graphPropertyWorkers);
-    }
-
     public static List<StoppableRunnable> startThreaded(int threadCount, User user) {
         List<StoppableRunnable> stoppables = new ArrayList<>();
 
@@ -34,7 +34,6 @@ public class GraphPropertyThreadedWrapper implements Runnable {
     private Timer processingTimeTimer;
     private boolean stopped;
     private final Queue<Work> workItems = new LinkedList<>();
-    private final Queue<WorkResult> workResults = new LinkedList<>();
     private MetricsManager metricsManager;
 
     @Override
@@ -76,27 +75,18 @@ public class GraphPropertyThreadedWrapper implements Runnable {
                         totalProcessedCounter.inc();
                         timerContext.stop();
                     }
-                    synchronized (workResults) {
-                        workResults.add(new WorkResult(null));
-                        workResults.notifyAll();
-                    }
+                    work.setResult(new WorkResult(null));
                 } catch (Throwable ex) {
                     LOGGER.error("failed to complete work (%s): %s", workerClassName, elementId, ex);
                     totalErrorCounter.inc();
-                    synchronized (workResults) {
-                        workResults.add(new WorkResult(ex));
-                        workResults.notifyAll();
-                    }
+                    work.setResult(new WorkResult(ex));
                 } finally {
                     try {
                         if (in != null) {
                             in.close();
                         }
                     } catch (IOException ex) {
-                        synchronized (workResults) {
-                            workResults.add(new WorkResult(ex));
-                            workResults.notifyAll();
-                        }
+                        work.setResult(new WorkResult(ex));
                     }
                 }
             }
@@ -133,43 +123,21 @@ public class GraphPropertyThreadedWrapper implements Runnable {
         }
     }
 
-    public void enqueueWork(InputStream in, GraphPropertyWorkData data) {
+    /**
+     * Queues work to be executed by this worker's thread. The returned {@link Work} can be used to wait for
+     * the result of this specific piece of work, which allows multiple callers to share the same wrapper.
+     */
+    public Work enqueueWork(InputStream in, GraphPropertyWorkData data) {
+        Work work = new Work(in, data);
         synchronized (workItems) {
-            workItems.add(new Work(in, data));
+            workItems.add(work);
             workItems.notifyAll();
         }
+        return work;
     }
 
-    public WorkResult dequeueResult(boolean waitForever) {
-        synchronized (workResults) {
-            if (workResults.size() == 0) {
-                Date startTime = new Date();
-                Date lastMessageTime = new Date();
-                while (workResults.size() == 0 && (waitForever || (getElapsedTime(startTime) < DEQUEUE_TIMEOUT_MS))) {
-                    try {
-                        if (getElapsedTime(lastMessageTime) > DEQUEUE_LOG_MESSAGE_FREQUENCY_MS) {
-                            String message = String.format(
-                                    "Worker \"%s\" has zero results. Waiting for results. (startTime: %s, elapsedTime: %ds, thread: %s)",
-                                    worker.getClass().getName(),
-                                    startTime,
-                                    getElapsedTime(startTime) / 1000,
-                                    Thread.currentThread().getName()
-                            );
-                            if (getElapsedTime(startTime) > DEQUEUE_WARN_THRESHOLD_MS) {
-                                LOGGER.warn("%s", message);
-                            } else {
-                                LOGGER.debug("%s", message);
-                            }
-                            lastMessageTime = new Date();
-                        }
-                        workResults.wait(1000);
-                    } catch (InterruptedException ex) {
-                        throw new VisalloException("Failed to wait for worker " + worker.getClass().getName(), ex);
-                    }
-                }
-            }
-            return workResults.remove();
-        }
+    public WorkResult dequeueResult(Work work, boolean waitForever) {
+        return work.waitForResult(waitForever);
     }
 
     private long getElapsedTime(Date date) {
@@ -184,11 +152,12 @@ public class GraphPropertyThreadedWrapper implements Runnable {
         return worker;
     }
 
-    private class Work {
+    public class Work {
         private final InputStream in;
         private final GraphPropertyWorkData data;
+        private WorkResult result;
 
-        public Work(InputStream in, GraphPropertyWorkData data) {
+        private Work(InputStream in, GraphPropertyWorkData data) {
             this.in = in;
             this.data = data;
         }
@@ -200,6 +169,43 @@ public class GraphPropertyThreadedWrapper implements Runnable {
         private GraphPropertyWorkData getData() {
             return data;
         }
+
+        private synchronized void setResult(WorkResult result) {
+            if (this.result == null) {
+                this.result = result;
+            }
+            notifyAll();
+        }
+
+        private synchronized WorkResult waitForResult(boolean waitForever) {
+            if (result == null) {
+                Date startTime = new Date();
+                Date lastMessageTime = new Date();
+                while (result == null && (waitForever || (getElapsedTime(startTime) < DEQUEUE_TIMEOUT_MS))) {
+                    try {
+                        if (getElapsedTime(lastMessageTime) > DEQUEUE_LOG_MESSAGE_FREQUENCY_MS) {
+                            String message = String.format(
+                                    "Worker \"%s\" has zero results. Waiting for results. (startTime: %s, elapsedTime: %ds, thread: %s)",
+                                    worker.getClass().getName(),
+                                    startTime,
+                                    getElapsedTime(startTime) / 1000,
+                                    Thread.currentThread().getName()
+                            );
+                            if (getElapsedTime(startTime) > DEQUEUE_WARN_THRESHOLD_MS) {
+                                LOGGER.warn("%s", message);
+                            } else {
+                                LOGGER.debug("%s", message);
+                            }
+                            lastMessageTime = new Date();
+                        }
+                        wait(1000);
+                    } catch (InterruptedException ex) {
+                        throw new VisalloException("Failed to wait for worker " + worker.getClass().getName(), ex);
+                    }
+                }
+            }
+            return result;
+        }
     }
 
     public static class WorkResult {
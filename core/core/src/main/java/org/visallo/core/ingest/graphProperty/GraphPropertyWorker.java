@@ -23,7 +23,9 @@ import org.visallo.core.util.VisalloLoggerFactory;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 public abstract class GraphPropertyWorker {
     private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(GraphPropertyWorker.class);
@@ -77,12 +79,39 @@ public abstract class GraphPropertyWorker {
         return false;
     }
 
+    /**
+     * The names of the properties this worker could handle for the given status, or null if this worker
+     * can't declare them up front. Workers which declare their property names are only asked about those
+     * properties, which avoids calling {@link #isHandled(Element, Property)} and friends for every property of
+     * every element.
+     */
+    public Set<String> getHandledPropertyNames(ElementOrPropertyStatus status) {
+        return null;
+    }
+
+    /**
+     * The concept types of the elements this worker could handle, or null if this worker handles elements of any
+     * concept type. Workers which declare concept types are not asked about edges or vertices of other concept types.
+     */
+    public Set<String> getHandledConceptTypes() {
+        return null;
+    }
+
     public abstract void execute(InputStream in, GraphPropertyWorkData data) throws Exception;
 
     public boolean isLocalFileRequired() {
         return false;
     }
 
+    /**
+     * The fetch hints required by {@link #isHandled(Element, Property)} and
+     * {@link #execute(InputStream, GraphPropertyWorkData)}. Elements are loaded using the union of the fetch hints
+     * of all workers, so workers which only need properties can override this to avoid loading edge information.
+     */
+    public EnumSet<FetchHint> getFetchHints() {
+        return FetchHint.ALL;
+    }
+
     protected User getUser() {
         return this.workerPrepareData.getUser();
     }
@@ -0,0 +1,97 @@
+package org.visallo.core.ingest.graphProperty;
+
+import com.google.common.collect.ImmutableList;
+import org.vertexium.Element;
+import org.vertexium.Property;
+import org.vertexium.Vertex;
+import org.visallo.core.model.properties.VisalloProperties;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Precomputed lookup of the graph property workers that could be interested in a property, keyed by property name
+ * and {@link ElementOrPropertyStatus}. Workers which declare their handled property names using
+ * {@link GraphPropertyWorker#getHandledPropertyNames(ElementOrPropertyStatus)} are only returned for those names,
+ * workers which don't declare anything are always returned. Candidates are returned in the order they were given
+ * and still need to be checked using the worker's isHandled methods.
+ */
+public class GraphPropertyWorkerIndex<T> {
+    private final List<T> items;
+    private final Map<ElementOrPropertyStatus, List<T>> undeclaredItemsByStatus = new EnumMap<>(ElementOrPropertyStatus.class);
+    private final Map<ElementOrPropertyStatus, Map<String, List<T>>> itemsByStatusAndPropertyName = new EnumMap<>(ElementOrPropertyStatus.class);
+    private final Map<T, Set<String>> conceptTypesByItem = new IdentityHashMap<>();
+
+    public GraphPropertyWorkerIndex(List<T> items, Function<T, GraphPropertyWorker> getWorker) {
+        this.items = ImmutableList.copyOf(items);
+
+        for (T item : this.items) {
+            Set<String> conceptTypes = getWorker.apply(item).getHandledConceptTypes();
+            if (conceptTypes != null) {
+                conceptTypesByItem.put(item, conceptTypes);
+            }
+        }
+
+        for (ElementOrPropertyStatus status : ElementOrPropertyStatus.values()) {
+            Map<T, Set<String>> propertyNamesByItem = new IdentityHashMap<>();
+            Set<String> allPropertyNames = new HashSet<>();
+            for (T item : this.items) {
+                Set<String> propertyNames = getWorker.apply(item).getHandledPropertyNames(status);
+                if (propertyNames != null) {
+                    propertyNamesByItem.put(item, propertyNames);
+                    allPropertyNames.addAll(propertyNames);
+                }
+            }
+
+            List<T> undeclaredItems = new ArrayList<>();
+            for (T item : this.items) {
+                if (!propertyNamesByItem.containsKey(item)) {
+                    undeclaredItems.add(item);
+                }
+            }
+            undeclaredItemsByStatus.put(status, ImmutableList.copyOf(undeclaredItems));
+
+            Map<String, List<T>> itemsByPropertyName = new HashMap<>();
+            for (String propertyName : allPropertyNames) {
+                List<T> propertyItems = new ArrayList<>();
+                for (T item : this.items) {
+                    Set<String> propertyNames = propertyNamesByItem.get(item);
+                    if (propertyNames == null || propertyNames.contains(propertyName)) {
+                        propertyItems.add(item);
+                    }
+                }
+                itemsByPropertyName.put(propertyName, ImmutableList.copyOf(propertyItems));
+            }
+            itemsByStatusAndPropertyName.put(status, itemsByPropertyName);
+        }
+    }
+
+    public List<T> getCandidates(Element element, Property property, ElementOrPropertyStatus status) {
+        if (status == null) {
+            status = ElementOrPropertyStatus.UPDATE;
+        }
+
+        List<T> candidates;
+        if (property == null) {
+            candidates = items;
+        } else {
+            candidates = itemsByStatusAndPropertyName.get(status).get(property.getName());
+            if (candidates == null) {
+                candidates = undeclaredItemsByStatus.get(status);
+            }
+        }
+
+        if (conceptTypesByItem.size() == 0) {
+            return candidates;
+        }
+        String conceptType = element instanceof Vertex ? VisalloProperties.CONCEPT_TYPE.getPropertyValue(element) : null;
+        List<T> results = new ArrayList<>(candidates.size());
+        for (T candidate : candidates) {
+            Set<String> conceptTypes = conceptTypesByItem.get(candidate);
+            if (conceptTypes == null || (conceptType != null && conceptTypes.contains(conceptType))) {
+                results.add(candidate);
+            }
+        }
+        return results;
+    }
+}
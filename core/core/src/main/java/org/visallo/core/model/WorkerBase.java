@@ -1,6 +1,7 @@
 package org.visallo.core.model;
 
 import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
 import org.visallo.core.config.Configuration;
 import org.visallo.core.exception.VisalloException;
 import org.visallo.core.ingest.WorkerSpout;
@@ -11,19 +12,43 @@ import org.visallo.core.status.MetricsManager;
 import org.visallo.core.util.VisalloLogger;
 import org.visallo.core.util.VisalloLoggerFactory;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Fetches tuples from a {@link WorkerSpout} on the calling thread and hands them off to a pool of process
+ * threads. The pool size is configured using <code>[class name].processThreadCount</code> (default 1), if
+ * more than one process thread is configured {@link #process(WorkerItem)} must be thread safe. Tuples are
+ * acked/failed in the order they were fetched from the spout regardless of the order processing completes.
+ * If the spout supports batching, up to <code>[class name].tupleBatchSize</code> tuples (default
+ * <code>[class name].tupleQueueSize</code>) are fetched per call and consecutive completed tuples are acked/failed
+ * together.
+ */
 public abstract class WorkerBase<TWorkerItem extends WorkerItem> {
+    private static final long QUEUE_POLL_TIMEOUT_MS = 1000;
     private final boolean exitOnNextTupleFailure;
     private final Counter queueSizeMetric;
     private final MetricsManager metricsManager;
     private final String queueSizeMetricName;
+    private final List<String> processMetricNames = new ArrayList<>();
     private WorkQueueRepository workQueueRepository;
     private volatile boolean shouldRun;
-    private final Queue<WorkerItemWrapper> tupleQueue = new LinkedList<>();
+    private final Queue<WorkerItemWrapper> tupleQueue = new ConcurrentLinkedQueue<>();
+    private final Semaphore tupleQueueAvailable;
+    private final Semaphore tupleQueueItems = new Semaphore(0);
+    private final Queue<WorkerItemWrapper> pendingAcks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean ackInProgress = new AtomicBoolean(false);
     private final int tupleQueueSize;
-    private Thread processThread;
+    private final int processThreadCount;
+    private final int tupleBatchSize;
+    private final long tupleBatchMaxWaitMillis;
+    private final List<Thread> processThreads = new ArrayList<>();
 
     protected WorkerBase(
             WorkQueueRepository workQueueRepository,
@@ -33,7 +58,11 @@ public abstract class WorkerBase<TWorkerItem extends WorkerItem> {
         this.workQueueRepository = workQueueRepository;
         this.metricsManager = metricsManager;
         this.exitOnNextTupleFailure = configuration.getBoolean(getClass().getName() + ".exitOnNextTupleFailure", true);
-        this.tupleQueueSize = configuration.getInt(getClass().getName() + ".tupleQueueSize", 10);
+        this.tupleQueueSize = Math.max(1, configuration.getInt(getClass().getName() + ".tupleQueueSize", 10));
+        this.processThreadCount = Math.max(1, configuration.getInt(getClass().getName() + ".processThreadCount", 1));
+        this.tupleBatchSize = Math.max(1, configuration.getInt(getClass().getName() + ".tupleBatchSize", tupleQueueSize));
+        this.tupleBatchMaxWaitMillis = configuration.getInt(getClass().getName() + ".tupleBatchMaxWaitMillis", 100);
+        this.tupleQueueAvailable = new Semaphore(tupleQueueSize);
         this.queueSizeMetricName = metricsManager.createMetricName(this, "counter", "queue-size-" + Thread.currentThread().getId());
         this.queueSizeMetric = metricsManager.counter(queueSizeMetricName);
     }
@@ -41,6 +70,11 @@ public abstract class WorkerBase<TWorkerItem extends WorkerItem> {
     @Override
     protected void finalize() throws Throwable {
         metricsManager.removeMetric(queueSizeMetricName);
+        synchronized (processMetricNames) {
+            for (String processMetricName : processMetricNames) {
+                metricsManager.removeMetric(processMetricName);
+            }
+        }
         super.finalize();
     }
 
@@ -50,89 +84,234 @@ public abstract class WorkerBase<TWorkerItem extends WorkerItem> {
         logger.debug("begin runner");
         WorkerSpout workerSpout = prepareWorkerSpout();
         shouldRun = true;
-        startProcessThread(logger, workerSpout);
+        startProcessThreads(logger, workerSpout);
         pollWorkerSpout(logger, workerSpout);
     }
 
-    private void startProcessThread(VisalloLogger logger, WorkerSpout workerSpout) {
-        processThread = new Thread(() -> {
-            while (shouldRun) {
-                WorkerItemWrapper workerItemWrapper = null;
-                try {
-                    synchronized (tupleQueue) {
-                        do {
-                            while (shouldRun && tupleQueue.size() == 0) {
-                                tupleQueue.wait();
-                            }
-                            if (!shouldRun) {
-                                return;
-                            }
-                            if (tupleQueue.size() > 0) {
-                                workerItemWrapper = tupleQueue.remove();
-                                queueSizeMetric.dec();
-                                tupleQueue.notifyAll();
-                            }
-                        } while (shouldRun && workerItemWrapper == null);
-                    }
-                } catch (Exception ex) {
-                    throw new VisalloException("Could not get next workerItem", ex);
-                }
-                if (!shouldRun) {
-                    return;
-                }
-                try {
-                    logger.debug("start processing");
-                    long startTime = System.currentTimeMillis();
+    private void startProcessThreads(VisalloLogger logger, WorkerSpout workerSpout) {
+        String threadNamePrefix = Thread.currentThread().getName() + "-process";
+        synchronized (processThreads) {
+            for (int i = 0; i < processThreadCount; i++) {
+                String threadName = processThreadCount == 1 ? threadNamePrefix : threadNamePrefix + "-" + i;
+                Timer processTimeMetric = createProcessTimer("process-time-" + threadName);
+                Timer queueWaitTimeMetric = createProcessTimer("queue-wait-time-" + threadName);
+                Thread processThread = new Thread(() -> runProcessThread(logger, workerSpout, processTimeMetric, queueWaitTimeMetric));
+                processThread.setName(threadName);
+                processThreads.add(processThread);
+                processThread.start();
+            }
+        }
+    }
+
+    private Timer createProcessTimer(String name) {
+        String metricName = metricsManager.createMetricName(this, "timer", name);
+        synchronized (processMetricNames) {
+            processMetricNames.add(metricName);
+        }
+        return metricsManager.timer(metricName);
+    }
+
+    private void runProcessThread(
+            VisalloLogger logger,
+            WorkerSpout workerSpout,
+            Timer processTimeMetric,
+            Timer queueWaitTimeMetric
+    ) {
+        while (shouldRun) {
+            WorkerItemWrapper workerItemWrapper;
+            try {
+                workerItemWrapper = takeFromTupleQueue();
+            } catch (InterruptedException ex) {
+                throw new VisalloException("Could not get next workerItem", ex);
+            }
+            if (workerItemWrapper == null) {
+                continue;
+            }
+            if (!shouldRun) {
+                complete(workerSpout, workerItemWrapper, false);
+                continue;
+            }
+            queueWaitTimeMetric.update(System.nanoTime() - workerItemWrapper.getQueuedTime(), TimeUnit.NANOSECONDS);
+            boolean success;
+            try {
+                logger.debug("start processing");
+                long startTime = System.currentTimeMillis();
+                try (Timer.Context ignored = processTimeMetric.time()) {
                     process(workerItemWrapper.getWorkerItem());
-                    long endTime = System.currentTimeMillis();
-                    logger.debug("completed processing in (%dms)", endTime - startTime);
-                    workerSpout.ack(workerItemWrapper.getWorkerTuple());
-                } catch (Throwable ex) {
-                    logger.error("Could not process tuple: %s", workerItemWrapper, ex);
-                    workerSpout.fail(workerItemWrapper.getWorkerTuple());
                 }
+                long endTime = System.currentTimeMillis();
+                logger.debug("completed processing in (%dms)", endTime - startTime);
+                success = true;
+            } catch (Throwable ex) {
+                logger.error("Could not process tuple: %s", workerItemWrapper, ex);
+                success = false;
             }
-        });
-        processThread.setName(Thread.currentThread().getName() + "-process");
-        processThread.start();
+            complete(workerSpout, workerItemWrapper, success);
+        }
+    }
+
+    private WorkerItemWrapper takeFromTupleQueue() throws InterruptedException {
+        if (!tupleQueueItems.tryAcquire(QUEUE_POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            return null;
+        }
+        WorkerItemWrapper workerItemWrapper = tupleQueue.poll();
+        if (workerItemWrapper != null) {
+            queueSizeMetric.dec();
+        }
+        tupleQueueAvailable.release();
+        return workerItemWrapper;
     }
 
     private void pollWorkerSpout(VisalloLogger logger, WorkerSpout workerSpout) throws InterruptedException {
         while (shouldRun) {
-            WorkerItemWrapper workerItemWrapper;
-            WorkerTuple tuple = null;
+            List<WorkerTuple> tuples;
             try {
-                tuple = workerSpout.nextTuple();
-                if (tuple == null) {
-                    workerItemWrapper = null;
-                } else {
-                    TWorkerItem workerItem = tupleDataToWorkerItem(tuple.getData());
-                    workerItemWrapper = new WorkerItemWrapper(workerItem, tuple);
-                }
+                tuples = fetchTuples(workerSpout);
             } catch (InterruptedException ex) {
-                if (tuple != null) {
-                    workerSpout.fail(tuple);
-                }
                 throw ex;
             } catch (Exception ex) {
-                if (tuple != null) {
-                    workerSpout.fail(tuple);
-                }
                 handleNextTupleException(logger, ex);
                 continue;
             }
-            if (workerItemWrapper == null) {
+            if (tuples.isEmpty()) {
                 continue;
             }
-            synchronized (tupleQueue) {
-                tupleQueue.add(workerItemWrapper);
-                queueSizeMetric.inc();
-                tupleQueue.notifyAll();
-                while (shouldRun && tupleQueue.size() >= tupleQueueSize) {
-                    tupleQueue.wait();
+            prefetchTupleData(tuples);
+            for (int i = 0; i < tuples.size(); i++) {
+                WorkerTuple tuple = tuples.get(i);
+                WorkerItemWrapper workerItemWrapper;
+                try {
+                    TWorkerItem workerItem = tupleDataToWorkerItem(tuple.getData());
+                    workerItemWrapper = new WorkerItemWrapper(workerItem, tuple);
+                } catch (Exception ex) {
+                    failWithoutProcessing(workerSpout, tuples.subList(i, i + 1));
+                    try {
+                        if (ex instanceof InterruptedException) {
+                            throw (InterruptedException) ex;
+                        }
+                        handleNextTupleException(logger, ex);
+                    } catch (InterruptedException | RuntimeException rethrowEx) {
+                        failWithoutProcessing(workerSpout, tuples.subList(i + 1, tuples.size()));
+                        throw rethrowEx;
+                    }
+                    continue;
+                }
+                if (!addToTupleQueue(workerItemWrapper)) {
+                    // shutting down, give the rest of the batch back to the spout
+                    failWithoutProcessing(workerSpout, tuples.subList(i, tuples.size()));
+                    break;
                 }
             }
         }
+        failQueuedWithoutProcessing(workerSpout);
+    }
+
+    private List<WorkerTuple> fetchTuples(WorkerSpout workerSpout) throws Exception {
+        if (workerSpout.isBatchSupported()) {
+            return workerSpout.nextTuples(tupleBatchSize, tupleBatchMaxWaitMillis);
+        }
+        WorkerTuple tuple = workerSpout.nextTuple();
+        if (tuple == null) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(tuple);
+    }
+
+    private boolean addToTupleQueue(WorkerItemWrapper workerItemWrapper) throws InterruptedException {
+        while (!tupleQueueAvailable.tryAcquire(QUEUE_POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            if (!shouldRun) {
+                return false;
+            }
+        }
+        pendingAcks.add(workerItemWrapper);
+        workerItemWrapper.setQueuedTime(System.nanoTime());
+        tupleQueue.add(workerItemWrapper);
+        queueSizeMetric.inc();
+        tupleQueueItems.release();
+        return true;
+    }
+
+    private void failWithoutProcessing(WorkerSpout workerSpout, List<WorkerTuple> tuples) {
+        for (WorkerTuple tuple : tuples) {
+            WorkerItemWrapper workerItemWrapper = new WorkerItemWrapper(null, tuple);
+            pendingAcks.add(workerItemWrapper);
+            complete(workerSpout, workerItemWrapper, false);
+        }
+    }
+
+    /**
+     * Fails the items still waiting in the tuple queue once the worker is stopped, so they are redelivered instead
+     * of lost. Items already taken by a process thread are completed by that thread.
+     */
+    private void failQueuedWithoutProcessing(WorkerSpout workerSpout) {
+        WorkerItemWrapper workerItemWrapper;
+        while ((workerItemWrapper = tupleQueue.poll()) != null) {
+            queueSizeMetric.dec();
+            complete(workerSpout, workerItemWrapper, false);
+        }
+    }
+
+    /**
+     * Marks the item as complete and acks/fails every completed item at the head of the pending list. Only one
+     * thread drains the pending list at a time, a thread that loses the race rechecks the head after the
+     * draining thread is done so completions are never missed.
+     */
+    private void complete(WorkerSpout workerSpout, WorkerItemWrapper workerItemWrapper, boolean success) {
+        workerItemWrapper.setCompleted(success);
+        while (isPendingAckHeadCompleted()) {
+            if (!ackInProgress.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                if (workerSpout.isBatchSupported()) {
+                    ackCompletedBatches(workerSpout);
+                } else {
+                    while (isPendingAckHeadCompleted()) {
+                        WorkerItemWrapper completed = pendingAcks.poll();
+                        if (completed.isSuccess()) {
+                            workerSpout.ack(completed.getWorkerTuple());
+                        } else {
+                            workerSpout.fail(completed.getWorkerTuple());
+                        }
+                    }
+                }
+            } finally {
+                ackInProgress.set(false);
+            }
+        }
+    }
+
+    /**
+     * Groups consecutive completed items with the same outcome so order is preserved across ack and fail calls.
+     */
+    private void ackCompletedBatches(WorkerSpout workerSpout) {
+        List<WorkerTuple> batch = new ArrayList<>();
+        boolean batchSuccess = true;
+        while (isPendingAckHeadCompleted()) {
+            WorkerItemWrapper completed = pendingAcks.poll();
+            if (!batch.isEmpty() && completed.isSuccess() != batchSuccess) {
+                ackOrFail(workerSpout, batch, batchSuccess);
+                batch = new ArrayList<>();
+            }
+            batchSuccess = completed.isSuccess();
+            batch.add(completed.getWorkerTuple());
+        }
+        if (!batch.isEmpty()) {
+            ackOrFail(workerSpout, batch, batchSuccess);
+        }
+    }
+
+    private void ackOrFail(WorkerSpout workerSpout, List<WorkerTuple> tuples, boolean success) {
+        if (success) {
+            workerSpout.ack(tuples);
+        } else {
+            workerSpout.fail(tuples);
+        }
+    }
+
+    private boolean isPendingAckHeadCompleted() {
+        WorkerItemWrapper head = pendingAcks.peek();
+        return head != null && head.isCompleted();
     }
 
     protected void handleNextTupleException(VisalloLogger logger, Exception ex) throws InterruptedException {
@@ -152,17 +331,30 @@ public abstract class WorkerBase<TWorkerItem extends WorkerItem> {
      */
     protected abstract TWorkerItem tupleDataToWorkerItem(byte[] data) throws Exception;
 
+    /**
+     * Called on the same thread as {@link #tupleDataToWorkerItem(byte[])} with every tuple fetched from the spout
+     * in one call, before they are converted to worker items. This allows an implementing class to load the data
+     * needed by the whole batch at once. Failures should be handled by the implementing class since each tuple
+     * is still converted individually.
+     */
+    protected void prefetchTupleData(List<WorkerTuple> tuples) {
+    }
+
     public void stop() {
         shouldRun = false;
-        synchronized (tupleQueue) {
-            tupleQueue.notifyAll();
+        List<Thread> threadsToJoin;
+        synchronized (processThreads) {
+            threadsToJoin = new ArrayList<>(processThreads);
         }
-        try {
-            if (processThread != null) {
+        for (Thread processThread : threadsToJoin) {
+            if (processThread == Thread.currentThread()) {
+                continue;
+            }
+            try {
                 processThread.join(10000);
+            } catch (InterruptedException e) {
+                throw new VisalloException("Could not stop process thread: " + processThread.getName());
             }
-        } catch (InterruptedException e) {
-            throw new VisalloException("Could not stop process thread: " + processThread.getName());
         }
     }
 
@@ -185,6 +377,9 @@ public abstract class WorkerBase<TWorkerItem extends WorkerItem> {
     private class WorkerItemWrapper {
         private final TWorkerItem workerItem;
         private final WorkerTuple workerTuple;
+        private long queuedTime;
+        private volatile boolean success;
+        private volatile boolean completed;
 
         public WorkerItemWrapper(TWorkerItem workerItem, WorkerTuple workerTuple) {
             this.workerItem = workerItem;
@@ -203,6 +398,27 @@ public abstract class WorkerBase<TWorkerItem extends WorkerItem> {
             return workerItem;
         }
 
+        public long getQueuedTime() {
+            return queuedTime;
+        }
+
+        public void setQueuedTime(long queuedTime) {
+            this.queuedTime = queuedTime;
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public boolean isCompleted() {
+            return completed;
+        }
+
+        public void setCompleted(boolean success) {
+            this.success = success;
+            this.completed = true;
+        }
+
         @Override
         public String toString() {
             return "WorkerItemWrapper{" +
@@ -43,5 +43,19 @@ public abstract class LongRunningProcessRepository {
 
     public abstract void reportProgress(String longRunningProcessId, double progressPercent, String message);
 
+    /**
+     * Stores data a worker can use to resume the process if it is restarted. The checkpoint is kept separate
+     * from the queue item so it is not overwritten when the process begins again.
+     */
+    public void saveCheckpoint(JSONObject longRunningProcessQueueItem, JSONObject checkpoint) {
+    }
+
+    /**
+     * @return the last checkpoint saved for the process, or null if there is none.
+     */
+    public JSONObject getCheckpoint(JSONObject longRunningProcessQueueItem) {
+        return null;
+    }
+
     public abstract void delete(String longRunningProcessId, User authUser);
 }
@@ -0,0 +1,55 @@
+package org.visallo.core.model.longRunningProcess;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.json.JSONObject;
+import org.vertexium.Authorizations;
+import org.visallo.web.clientapi.model.ClientApiPublishItem;
+
+public class PublishLongRunningProcessQueueItem extends LongRunningProcessQueueItemBase {
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+    private final String workspaceId;
+    private final ClientApiPublishItem[] publishData;
+    private final int chunkSize;
+    private final String[] authorizations;
+
+    public PublishLongRunningProcessQueueItem(
+            String workspaceId,
+            ClientApiPublishItem[] publishData,
+            Integer chunkSize,
+            Authorizations authorizations
+    ) {
+        this(workspaceId, publishData, chunkSize, authorizations.getAuthorizations());
+    }
+
+    public PublishLongRunningProcessQueueItem(
+            @JsonProperty("workspaceId") String workspaceId,
+            @JsonProperty("publishData") ClientApiPublishItem[] publishData,
+            @JsonProperty("chunkSize") Integer chunkSize,
+            @JsonProperty("authorizations") String[] authorizations
+    ) {
+        this.workspaceId = workspaceId;
+        this.publishData = publishData;
+        this.chunkSize = chunkSize == null || chunkSize < 1 ? DEFAULT_CHUNK_SIZE : chunkSize;
+        this.authorizations = authorizations;
+    }
+
+    public static boolean isHandled(JSONObject jsonObject) {
+        return isA(jsonObject, PublishLongRunningProcessQueueItem.class);
+    }
+
+    public String getWorkspaceId() {
+        return workspaceId;
+    }
+
+    public ClientApiPublishItem[] getPublishData() {
+        return publishData;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public String[] getAuthorizations() {
+        return authorizations;
+    }
+}
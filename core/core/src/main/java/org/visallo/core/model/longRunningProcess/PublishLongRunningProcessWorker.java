@@ -0,0 +1,160 @@
+package org.visallo.core.model.longRunningProcess;
+
+import com.google.common.collect.Lists;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.json.JSONObject;
+import org.vertexium.Authorizations;
+import org.vertexium.Graph;
+import org.visallo.core.exception.VisalloException;
+import org.visallo.core.model.Description;
+import org.visallo.core.model.Name;
+import org.visallo.core.model.user.UserRepository;
+import org.visallo.core.model.workspace.WorkspaceRepository;
+import org.visallo.core.user.User;
+import org.visallo.core.util.ClientApiConverter;
+import org.visallo.core.util.VisalloLogger;
+import org.visallo.core.util.VisalloLoggerFactory;
+import org.visallo.web.clientapi.model.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Publishes workspace changes in chunks so large publishes don't have to finish within a web request. Items are
+ * ordered the way {@link WorkspaceRepository#publish} orders them, vertices before the edges between them and
+ * deletions last, so each chunk only depends on chunks before it. The number of published chunks and their
+ * failures are saved as a checkpoint after each chunk so a restarted process continues with the next chunk.
+ */
+@Name("Publish")
+@Description("Publishes workspace changes")
+@Singleton
+public class PublishLongRunningProcessWorker extends LongRunningProcessWorker {
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(PublishLongRunningProcessWorker.class);
+    private final Graph graph;
+    private final UserRepository userRepository;
+    private final WorkspaceRepository workspaceRepository;
+    private final LongRunningProcessRepository longRunningProcessRepository;
+
+    @Inject
+    public PublishLongRunningProcessWorker(
+            Graph graph,
+            UserRepository userRepository,
+            WorkspaceRepository workspaceRepository,
+            LongRunningProcessRepository longRunningProcessRepository
+    ) {
+        this.graph = graph;
+        this.userRepository = userRepository;
+        this.workspaceRepository = workspaceRepository;
+        this.longRunningProcessRepository = longRunningProcessRepository;
+    }
+
+    @Override
+    public boolean isHandled(JSONObject longRunningProcessQueueItem) {
+        return PublishLongRunningProcessQueueItem.isHandled(longRunningProcessQueueItem);
+    }
+
+    @Override
+    protected void processInternal(JSONObject longRunningProcessQueueItem) {
+        PublishLongRunningProcessQueueItem queueItem = ClientApiConverter.toClientApi(
+                longRunningProcessQueueItem.toString(),
+                PublishLongRunningProcessQueueItem.class
+        );
+        String userId = longRunningProcessQueueItem.getString("userId");
+        User user = userRepository.findById(userId);
+        if (user == null) {
+            throw new VisalloException("Could not find user: " + userId);
+        }
+        Authorizations authorizations = graph.createAuthorizations(queueItem.getAuthorizations());
+
+        List<ClientApiPublishItem> publishData = sortForPublish(queueItem.getPublishData());
+        List<List<ClientApiPublishItem>> chunks = Lists.partition(publishData, queueItem.getChunkSize());
+        ClientApiWorkspacePublishResponse results = new ClientApiWorkspacePublishResponse();
+        int completedChunkCount = loadCheckpoint(longRunningProcessQueueItem, publishData.size(), chunks.size(), results);
+        if (completedChunkCount > 0) {
+            LOGGER.info("resuming publish of workspace %s with %d of %d chunks already published", queueItem.getWorkspaceId(), completedChunkCount, chunks.size());
+        }
+
+        for (int i = completedChunkCount; i < chunks.size(); i++) {
+            List<ClientApiPublishItem> chunk = chunks.get(i);
+            ClientApiWorkspacePublishResponse chunkResults = workspaceRepository.publish(
+                    chunk.toArray(new ClientApiPublishItem[chunk.size()]),
+                    user,
+                    queueItem.getWorkspaceId(),
+                    authorizations
+            );
+            for (ClientApiPublishItem failure : chunkResults.getFailures()) {
+                results.addFailure(failure);
+            }
+            saveCheckpoint(longRunningProcessQueueItem, publishData.size(), chunks.size(), i + 1, results);
+
+            int publishedCount = Math.min(publishData.size(), (i + 1) * queueItem.getChunkSize());
+            String message = String.format("%d of %d items published, %d failed", publishedCount, publishData.size(), results.getFailures().size());
+            LOGGER.debug("publish progress: %s", message);
+            // reporting progress fails if the process was canceled, which stops the publish after this chunk
+            longRunningProcessRepository.reportProgress(longRunningProcessQueueItem, (double) (i + 1) / chunks.size(), message);
+        }
+
+        longRunningProcessQueueItem.put("results", new JSONObject(ClientApiConverter.clientApiToString(results)));
+        longRunningProcessQueueItem.put("resultsCount", results.getFailures().size());
+    }
+
+    static List<ClientApiPublishItem> sortForPublish(ClientApiPublishItem[] publishData) {
+        List<ClientApiPublishItem> results = new ArrayList<>(Arrays.asList(publishData));
+        results.sort(Comparator.comparingInt(PublishLongRunningProcessWorker::getPublishOrder));
+        return results;
+    }
+
+    /**
+     * The order {@link WorkspaceRepository#publish} handles items in: added vertices, added edges, properties,
+     * deleted edges and then deleted vertices.
+     */
+    private static int getPublishOrder(ClientApiPublishItem item) {
+        boolean delete = item.getAction() == ClientApiPublishItem.Action.DELETE;
+        if (item instanceof ClientApiVertexPublishItem) {
+            return delete ? 4 : 0;
+        } else if (item instanceof ClientApiRelationshipPublishItem) {
+            return delete ? 3 : 1;
+        }
+        return 2;
+    }
+
+    private void saveCheckpoint(
+            JSONObject longRunningProcessQueueItem,
+            int itemCount,
+            int chunkCount,
+            int completedChunkCount,
+            ClientApiWorkspacePublishResponse results
+    ) {
+        JSONObject checkpoint = new JSONObject();
+        checkpoint.put("itemCount", itemCount);
+        checkpoint.put("chunkCount", chunkCount);
+        checkpoint.put("completedChunkCount", completedChunkCount);
+        checkpoint.put("results", new JSONObject(ClientApiConverter.clientApiToString(results)));
+        longRunningProcessRepository.saveCheckpoint(longRunningProcessQueueItem, checkpoint);
+    }
+
+    private int loadCheckpoint(
+            JSONObject longRunningProcessQueueItem,
+            int itemCount,
+            int chunkCount,
+            ClientApiWorkspacePublishResponse results
+    ) {
+        JSONObject checkpoint = longRunningProcessRepository.getCheckpoint(longRunningProcessQueueItem);
+        if (checkpoint == null
+                || checkpoint.optInt("itemCount") != itemCount
+                || checkpoint.optInt("chunkCount") != chunkCount) {
+            return 0;
+        }
+        ClientApiWorkspacePublishResponse checkpointResults = ClientApiConverter.toClientApi(
+                checkpoint.getJSONObject("results").toString(),
+                ClientApiWorkspacePublishResponse.class
+        );
+        for (ClientApiPublishItem failure : checkpointResults.getFailures()) {
+            results.addFailure(failure);
+        }
+        return checkpoint.getInt("completedChunkCount");
+    }
+}
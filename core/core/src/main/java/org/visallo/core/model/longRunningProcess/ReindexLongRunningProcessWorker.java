@@ -2,38 +2,90 @@ package org.visallo.core.model.longRunningProcess;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import org.json.JSONArray;
 import org.json.JSONObject;
 import org.vertexium.*;
+import org.vertexium.search.SearchIndex;
+import org.visallo.core.config.Configuration;
 import org.visallo.core.exception.VisalloException;
 import org.visallo.core.model.Description;
 import org.visallo.core.model.Name;
 import org.visallo.core.model.user.AuthorizationRepository;
 import org.visallo.core.model.user.UserRepository;
 import org.visallo.core.util.ClientApiConverter;
+import org.visallo.core.util.ShutdownListener;
+import org.visallo.core.util.ShutdownService;
 import org.visallo.core.util.VisalloLogger;
 import org.visallo.core.util.VisalloLoggerFactory;
 
-import java.util.ArrayList;
-import java.util.EnumSet;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Reindexes a range of elements by splitting it into sub-ranges which are read in parallel. Each sub-range is
+ * read one batch ahead of the search index so reading and indexing overlap. Completed sub-ranges are saved as a
+ * checkpoint on the long running process so a restarted process only reindexes the remaining sub-ranges. The
+ * threads reading and indexing are shared by all reindex processes of this worker.
+ */
 @Name("Reindex")
 @Description("Reindexes the specified elements")
 @Singleton
-public class ReindexLongRunningProcessWorker extends LongRunningProcessWorker {
+public class ReindexLongRunningProcessWorker extends LongRunningProcessWorker implements ShutdownListener {
     private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(ReindexLongRunningProcessWorker.class);
+    public static final String CONFIG_THREAD_COUNT = ReindexLongRunningProcessWorker.class.getName() + ".threadCount";
+    public static final int DEFAULT_THREAD_COUNT = 4;
+    public static final String CONFIG_SPLIT_CHARACTERS = ReindexLongRunningProcessWorker.class.getName() + ".splitCharacters";
+    // the characters of the ids created by org.vertexium.id.UUIDIdGenerator
+    public static final String DEFAULT_SPLIT_CHARACTERS = "0123456789abcdef";
     private static final EnumSet<FetchHint> FETCH_HINTS = FetchHint.ALL;
     private final Authorizations authorizations;
     private final Graph graph;
+    private final LongRunningProcessRepository longRunningProcessRepository;
+    private final int threadCount;
+    private final char[] splitCharacters;
+    private final ExecutorService readExecutor;
+    private final ExecutorService indexExecutor;
 
     @Inject
     public ReindexLongRunningProcessWorker(
             Graph graph,
             UserRepository userRepository,
-            AuthorizationRepository authorizationRepository
+            AuthorizationRepository authorizationRepository,
+            LongRunningProcessRepository longRunningProcessRepository,
+            Configuration configuration,
+            ShutdownService shutdownService
     ) {
         this.graph = graph;
+        this.longRunningProcessRepository = longRunningProcessRepository;
         this.authorizations = authorizationRepository.getGraphAuthorizations(userRepository.getSystemUser());
+        this.threadCount = Math.max(1, configuration.getInt(CONFIG_THREAD_COUNT, DEFAULT_THREAD_COUNT));
+        this.splitCharacters = toSplitCharacters(configuration.get(CONFIG_SPLIT_CHARACTERS, DEFAULT_SPLIT_CHARACTERS));
+        this.readExecutor = createExecutor("reindex-read-", threadCount);
+        this.indexExecutor = createExecutor("reindex-index-", threadCount);
+        shutdownService.register(this);
+    }
+
+    private static ExecutorService createExecutor(String threadNamePrefix, int threadCount) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(threadCount, runnable -> {
+            Thread thread = new Thread(runnable, threadNamePrefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    static char[] toSplitCharacters(String splitCharacters) {
+        if (splitCharacters == null || splitCharacters.isEmpty()) {
+            throw new VisalloException("At least one split character is required: " + CONFIG_SPLIT_CHARACTERS);
+        }
+        return splitCharacters.chars()
+                .distinct()
+                .sorted()
+                .collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append)
+                .toString()
+                .toCharArray();
     }
 
     @Override
@@ -47,26 +99,27 @@ public class ReindexLongRunningProcessWorker extends LongRunningProcessWorker {
                 longRunningProcessQueueItem.toString(),
                 ReindexLongRunningProcessQueueItem.class
         );
-        int batchSize = queueItem.getBatchSize();
-        Range range = new Range(queueItem.getStartId(), queueItem.getEndId());
-        LOGGER.info("reindex %s %s", range, queueItem.getElementType());
-        if (queueItem.getElementType() == ElementType.VERTEX) {
-            reindexVertices(range, batchSize, authorizations);
-        } else if (queueItem.getElementType() == ElementType.EDGE) {
-            reindexEdges(range, batchSize, authorizations);
-        } else {
-            throw new VisalloException("Unhandled element type: " + queueItem.getElementType());
+        ElementType elementType = queueItem.getElementType();
+        if (elementType != ElementType.VERTEX && elementType != ElementType.EDGE) {
+            throw new VisalloException("Unhandled element type: " + elementType);
         }
+        List<Range> ranges = splitRange(queueItem.getStartId(), queueItem.getEndId(), splitCharacters);
+        LOGGER.info(
+                "reindex %s %s (sub-ranges: %d, threads: %d)",
+                new Range(queueItem.getStartId(), queueItem.getEndId()),
+                elementType,
+                ranges.size(),
+                threadCount
+        );
+        reindexRanges(longRunningProcessQueueItem, queueItem, ranges);
     }
 
     public void reindexVertices(Range range, int batchSize, Authorizations authorizations) {
-        Iterable<Vertex> vertices = graph.getVerticesInRange(range, FETCH_HINTS, authorizations);
-        reindexElements(vertices, batchSize, authorizations);
+        reindexElements(graph.getVerticesInRange(range, FETCH_HINTS, authorizations), batchSize, authorizations);
     }
 
     public void reindexEdges(Range range, int batchSize, Authorizations authorizations) {
-        Iterable<Edge> edges = graph.getEdgesInRange(range, FETCH_HINTS, authorizations);
-        reindexElements(edges, batchSize, authorizations);
+        reindexElements(graph.getEdgesInRange(range, FETCH_HINTS, authorizations), batchSize, authorizations);
     }
 
     private void reindexElements(
@@ -78,13 +131,200 @@ public class ReindexLongRunningProcessWorker extends LongRunningProcessWorker {
         for (Element element : elements) {
             batch.add(element);
             if (batch.size() == batchSize) {
-                ((GraphWithSearchIndex) graph).getSearchIndex().addElements(graph, batch, authorizations);
+                getSearchIndex().addElements(graph, batch, authorizations);
                 batch.clear();
             }
         }
         if (batch.size() > 0) {
-            ((GraphWithSearchIndex) graph).getSearchIndex().addElements(graph, batch, authorizations);
+            getSearchIndex().addElements(graph, batch, authorizations);
             batch.clear();
         }
     }
+
+    private void reindexRanges(
+            JSONObject longRunningProcessQueueItem,
+            ReindexLongRunningProcessQueueItem queueItem,
+            List<Range> ranges
+    ) {
+        Set<Integer> completedRanges = loadCompletedRanges(longRunningProcessQueueItem, queueItem, ranges.size());
+        if (completedRanges.size() > 0) {
+            LOGGER.info("resuming reindex with %d of %d sub-ranges already completed", completedRanges.size(), ranges.size());
+        }
+
+        AtomicLong indexedCount = new AtomicLong();
+        List<Future<Integer>> submitted = new ArrayList<>();
+        try {
+            CompletionService<Integer> completionService = new ExecutorCompletionService<>(readExecutor);
+            for (int i = 0; i < ranges.size(); i++) {
+                if (completedRanges.contains(i)) {
+                    continue;
+                }
+                int rangeIndex = i;
+                submitted.add(completionService.submit(() -> {
+                    reindexRange(queueItem.getElementType(), ranges.get(rangeIndex), queueItem.getBatchSize(), indexedCount);
+                    return rangeIndex;
+                }));
+            }
+
+            int submittedCount = submitted.size();
+            long startTime = System.currentTimeMillis();
+            for (int completedCount = 1; completedCount <= submittedCount; completedCount++) {
+                completedRanges.add(completionService.take().get());
+                saveCheckpoint(longRunningProcessQueueItem, queueItem, ranges.size(), completedRanges);
+                reportProgress(longRunningProcessQueueItem, ranges.size(), completedRanges.size(), completedCount, submittedCount, indexedCount.get(), startTime);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new VisalloException("Interrupted reindexing " + queueItem.getElementType(), ex);
+        } catch (ExecutionException ex) {
+            throw new VisalloException("Could not reindex " + queueItem.getElementType(), ex.getCause());
+        } finally {
+            // stops the sub-ranges still being read when one failed, without affecting other reindex processes
+            for (Future<Integer> future : submitted) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private void reindexRange(
+            ElementType elementType,
+            Range range,
+            int batchSize,
+            AtomicLong indexedCount
+    ) throws Exception {
+        Iterable<? extends Element> elements;
+        if (elementType == ElementType.VERTEX) {
+            elements = graph.getVerticesInRange(range, FETCH_HINTS, authorizations);
+        } else {
+            elements = graph.getEdgesInRange(range, FETCH_HINTS, authorizations);
+        }
+
+        Future<?> pendingBatch = null;
+        List<Element> batch = new ArrayList<>(batchSize);
+        for (Element element : elements) {
+            batch.add(element);
+            if (batch.size() == batchSize) {
+                pendingBatch = indexBatch(batch, pendingBatch, indexedCount);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (batch.size() > 0) {
+            pendingBatch = indexBatch(batch, pendingBatch, indexedCount);
+        }
+        if (pendingBatch != null) {
+            pendingBatch.get();
+        }
+    }
+
+    /**
+     * Waits for the previous batch of the same sub-range before submitting the next one so reading never gets
+     * more than one batch ahead of indexing.
+     */
+    private Future<?> indexBatch(
+            List<Element> batch,
+            Future<?> previousBatch,
+            AtomicLong indexedCount
+    ) throws Exception {
+        if (previousBatch != null) {
+            previousBatch.get();
+        }
+        return indexExecutor.submit(() -> {
+            getSearchIndex().addElements(graph, batch, authorizations);
+            indexedCount.addAndGet(batch.size());
+        });
+    }
+
+    private SearchIndex getSearchIndex() {
+        return ((GraphWithSearchIndex) graph).getSearchIndex();
+    }
+
+    private void reportProgress(
+            JSONObject longRunningProcessQueueItem,
+            int rangeCount,
+            int completedRangeCount,
+            int completedThisRunCount,
+            int submittedCount,
+            long indexedCount,
+            long startTime
+    ) {
+        long elapsedMillis = Math.max(1, System.currentTimeMillis() - startTime);
+        double elementsPerSecond = indexedCount * 1000.0 / elapsedMillis;
+        long remainingMillis = elapsedMillis * (submittedCount - completedThisRunCount) / completedThisRunCount;
+        String message = String.format(
+                "%d of %d ranges, %d elements indexed (%.0f/s), about %ds remaining",
+                completedRangeCount,
+                rangeCount,
+                indexedCount,
+                elementsPerSecond,
+                TimeUnit.MILLISECONDS.toSeconds(remainingMillis)
+        );
+        LOGGER.debug("reindex progress: %s", message);
+        longRunningProcessRepository.reportProgress(longRunningProcessQueueItem, (double) completedRangeCount / rangeCount, message);
+    }
+
+    private void saveCheckpoint(
+            JSONObject longRunningProcessQueueItem,
+            ReindexLongRunningProcessQueueItem queueItem,
+            int rangeCount,
+            Set<Integer> completedRanges
+    ) {
+        JSONObject checkpoint = new JSONObject();
+        checkpoint.put("elementType", queueItem.getElementType().name());
+        checkpoint.putOpt("startId", queueItem.getStartId());
+        checkpoint.putOpt("endId", queueItem.getEndId());
+        checkpoint.put("rangeCount", rangeCount);
+        checkpoint.put("completedRanges", new JSONArray(completedRanges));
+        longRunningProcessRepository.saveCheckpoint(longRunningProcessQueueItem, checkpoint);
+    }
+
+    private Set<Integer> loadCompletedRanges(
+            JSONObject longRunningProcessQueueItem,
+            ReindexLongRunningProcessQueueItem queueItem,
+            int rangeCount
+    ) {
+        Set<Integer> completedRanges = new HashSet<>();
+        JSONObject checkpoint = longRunningProcessRepository.getCheckpoint(longRunningProcessQueueItem);
+        if (checkpoint == null
+                || !queueItem.getElementType().name().equals(checkpoint.optString("elementType"))
+                || !Objects.equals(queueItem.getStartId(), checkpoint.optString("startId", null))
+                || !Objects.equals(queueItem.getEndId(), checkpoint.optString("endId", null))
+                || checkpoint.optInt("rangeCount") != rangeCount) {
+            return completedRanges;
+        }
+        JSONArray completedRangesJson = checkpoint.getJSONArray("completedRanges");
+        for (int i = 0; i < completedRangesJson.length(); i++) {
+            completedRanges.add(completedRangesJson.getInt(i));
+        }
+        return completedRanges;
+    }
+
+    /**
+     * Splits the range by appending each of the sorted split characters to the start id, keeping the split points
+     * which fall inside the range. Ids using other characters still belong to the sub-range they sort into.
+     */
+    static List<Range> splitRange(String startId, String endId, char[] splitCharacters) {
+        String prefix = startId == null ? "" : startId;
+        List<String> splitPoints = new ArrayList<>();
+        for (char c : splitCharacters) {
+            String splitPoint = prefix + c;
+            if ((startId == null || splitPoint.compareTo(startId) > 0) && (endId == null || splitPoint.compareTo(endId) < 0)) {
+                splitPoints.add(splitPoint);
+            }
+        }
+
+        List<Range> ranges = new ArrayList<>(splitPoints.size() + 1);
+        String rangeStart = startId;
+        for (String splitPoint : splitPoints) {
+            ranges.add(new Range(rangeStart, splitPoint));
+            rangeStart = splitPoint;
+        }
+        ranges.add(new Range(rangeStart, endId));
+        return ranges;
+    }
+
+    @Override
+    public void shutdown() {
+        readExecutor.shutdownNow();
+        indexExecutor.shutdownNow();
+    }
 }
@@ -53,6 +53,71 @@ public class Ontology {
         this.propertiesByIri = Collections.unmodifiableMap(propertyMap);
     }
 
+    private Ontology(
+            String workspaceId,
+            Map<String, Concept> conceptsByIri,
+            Map<String, Relationship> relationshipsByIri,
+            Map<String, ExtendedDataTableProperty> extendedDataTablesByIri,
+            Map<String, OntologyProperty> propertiesByIri
+    ) {
+        this.workspaceId = workspaceId;
+        this.conceptsByIri = Collections.unmodifiableMap(conceptsByIri);
+        this.relationshipsByIri = Collections.unmodifiableMap(relationshipsByIri);
+        this.extendedDataTablesByIri = Collections.unmodifiableMap(extendedDataTablesByIri);
+        this.propertiesByIri = Collections.unmodifiableMap(propertiesByIri);
+    }
+
+    /**
+     * Creates a new ontology with the given concepts, relationships and properties added or replaced. This
+     * ontology is not modified and all unchanged concepts, relationships and properties are shared with it.
+     */
+    public Ontology withChanges(
+            String workspaceId,
+            Iterable<Concept> concepts,
+            Iterable<Relationship> relationships,
+            Iterable<OntologyProperty> properties
+    ) {
+        Map<String, Concept> newConceptsByIri = new HashMap<>(conceptsByIri);
+        Map<String, Relationship> newRelationshipsByIri = new HashMap<>(relationshipsByIri);
+        Map<String, ExtendedDataTableProperty> newExtendedDataTablesByIri = new HashMap<>(extendedDataTablesByIri);
+        Map<String, OntologyProperty> newPropertiesByIri = new HashMap<>(propertiesByIri);
+
+        if (concepts != null) {
+            for (Concept concept : concepts) {
+                newConceptsByIri.put(concept.getIRI(), concept);
+                addProperties(newPropertiesByIri, concept.getProperties());
+            }
+        }
+        if (relationships != null) {
+            for (Relationship relationship : relationships) {
+                newRelationshipsByIri.put(relationship.getIRI(), relationship);
+                addProperties(newPropertiesByIri, relationship.getProperties());
+            }
+        }
+        if (properties != null) {
+            for (OntologyProperty property : properties) {
+                newPropertiesByIri.put(property.getIri(), property);
+                if (property instanceof ExtendedDataTableProperty) {
+                    newExtendedDataTablesByIri.put(property.getIri(), (ExtendedDataTableProperty) property);
+                }
+            }
+        }
+
+        return new Ontology(
+                workspaceId,
+                newConceptsByIri,
+                newRelationshipsByIri,
+                newExtendedDataTablesByIri,
+                newPropertiesByIri
+        );
+    }
+
+    private static void addProperties(Map<String, OntologyProperty> propertiesByIri, Collection<OntologyProperty> properties) {
+        if (properties != null) {
+            properties.forEach(property -> propertiesByIri.put(property.getIri(), property));
+        }
+    }
+
     public String getWorkspaceId() {
         return workspaceId;
     }
@@ -35,6 +35,18 @@ public interface OntologyRepository {
 
     void clearCache(String workspaceId);
 
+    /**
+     * Updates the cached ontology of a sandboxed workspace with the given concepts, relationships and properties
+     * which were created or changed in that workspace, instead of discarding it. Changes to the public ontology
+     * clear the whole cache.
+     */
+    void updateCache(
+            String workspaceId,
+            Iterable<Concept> concepts,
+            Iterable<Relationship> relationships,
+            Iterable<OntologyProperty> properties
+    );
+
     Iterable<Relationship> getRelationships(String workspaceId);
 
     Iterable<Relationship> getRelationships(Iterable<String> ids, String workspaceId);
@@ -61,6 +61,11 @@ import org.visallo.web.clientapi.model.*;
 import java.io.*;
 import java.lang.reflect.Constructor;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -76,7 +81,7 @@ public abstract class OntologyRepositoryBase implements OntologyRepository {
     public static final String TOP_OBJECT_PROPERTY_IRI = "http://www.w3.org/2002/07/owl#topObjectProperty";
     public static final int MAX_DISPLAY_NAME = 50;
     private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(OntologyRepositoryBase.class);
-    private static final String ONTOLOGY_CACHE_NAME = OntologyRepository.class.getName() + ".ontology";
+    static final String ONTOLOGY_CACHE_NAME = OntologyRepository.class.getName() + ".ontology";
     private static final String ONTOLOGY_PROPERTY_CACHE_NAME = OntologyRepository.class.getName() + ".ontologyProperty";
     private static final String CONFIG_ONTOLOGY_CACHE_MAX_SIZE = OntologyRepository.class.getName() + "ontologyCache.maxSize";
     private static final long CONFIG_ONTOLOGY_CACHE_MAX_SIZE_DEFAULT = 100L;
@@ -85,6 +90,8 @@ public abstract class OntologyRepositoryBase implements OntologyRepository {
     private final CacheService cacheService;
     private final CacheOptions ontologyCacheOptions;
     private final CacheOptions ontologyPropertyCacheOptions;
+    private final ConcurrentMap<String, CompletableFuture<Ontology>> ontologyBuilds = new ConcurrentHashMap<>();
+    private final AtomicLong ontologyCacheVersion = new AtomicLong();
     private WorkspaceRepository workspaceRepository;
     private PrivilegeRepository privilegeRepository;
 
@@ -108,7 +115,9 @@ public abstract class OntologyRepositoryBase implements OntologyRepository {
             Concept entityConcept = internalGetOrCreateConcept(rootConcept, ENTITY_CONCEPT_IRI, "thing", null, null, null, false, getSystemUser(), PUBLIC);
             getOrCreateTopObjectPropertyRelationship(authorizations);
 
-            clearCache();
+            // the cached ontologies are cleared by the imports below when a file has changed, so restarting with
+            // unchanged files doesn't clear the ontologies cached by the other nodes
+            getGraph().flush();
             addEntityGlyphIcon(entityConcept, authorizations);
 
             importResourceOwl(OntologyRepositoryBase.class, "base.owl", BASE_OWL_IRI, authorizations);
@@ -290,19 +299,19 @@ public abstract class OntologyRepositoryBase implements OntologyRepository {
 
         long startTime = System.currentTimeMillis();
         importOntologyAnnotationProperties(o, inDir, authorizations);
-        clearCache(); // this is required to cause a new lookup of classes for data and object properties.
+        getGraph().flush(); // this is required to cause a new lookup of classes for data and object properties.
         long endTime = System.currentTimeMillis();
         long importAnnotationPropertiesTime = endTime - startTime;
 
         startTime = System.currentTimeMillis();
         importOntologyClasses(o, inDir, authorizations);
-        clearCache(); // this is required to cause a new lookup of classes for data and object properties.
+        getGraph().flush(); // this is required to cause a new lookup of classes for data and object properties.
         endTime = System.currentTimeMillis();
         long importConceptsTime = endTime - startTime;
 
         startTime = System.currentTimeMillis();
         importObjectProperties(o, authorizations);
-        clearCache(); // needed to find the relationship for inverse of
+        getGraph().flush(); // needed to find the relationship for inverse of
         endTime = System.currentTimeMillis();
         long importObjectPropertiesTime = endTime - startTime;
 
@@ -327,6 +336,7 @@ public abstract class OntologyRepositoryBase implements OntologyRepository {
         // do this last after everything was successful so that isOntologyDefined can be used
         storeOntologyFile(new ByteArrayInputStream(inFileData), documentIRI, authorizations);
 
+        // cleared once the whole file is imported, every sandboxed ontology includes the public ontology
         clearCache();
     }
 
@@ -351,19 +361,22 @@ public abstract class OntologyRepositoryBase implements OntologyRepository {
 
     private void importDataProperties(OWLOntology o, Authorizations authorizations) {
         // find all extended data tables and pre-create them
-        boolean foundExtendedDataTable = false;
+        List<String> extendedDataTableIris = new ArrayList<>();
         for (OWLDataProperty dataTypeProperty : o.getDataPropertiesInSignature()) {
             for (OWLDataRange rangeClassExpr : EntitySearcher.getRanges(dataTypeProperty, o)) {
                 String rangeIri = ((HasIRI) rangeClassExpr).getIRI().toString();
                 if (OWLOntologyUtil.EXTENDED_DATA_TABLE_IRI.equals(rangeIri)) {
                     importDataProperty(o, dataTypeProperty, authorizations);
-                    foundExtendedDataTable = true;
+                    extendedDataTableIris.add(dataTypeProperty.getIRI().toString());
                     break;
                 }
             }
         }
-        if (foundExtendedDataTable) {
-            clearCache();
+        if (extendedDataTableIris.size() > 0) {
+            getGraph().flush();
+            for (String extendedDataTableIri : extendedDataTableIris) {
+                cacheService.invalidate(ONTOLOGY_PROPERTY_CACHE_NAME, getPropertyCacheKey(extendedDataTableIri, PUBLIC));
+            }
         }
         for (OWLDataProperty dataTypeProperty : o.getDataPropertiesInSignature()) {
             importDataProperty(o, dataTypeProperty, authorizations);
@@ -1474,7 +1487,6 @@ public abstract class OntologyRepositoryBase implements OntologyRepository {
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public Ontology getOntology(String workspaceId) {
         if (workspaceId == null) {
             return getOntology(PUBLIC);
@@ -1484,6 +1496,46 @@ public abstract class OntologyRepositoryBase implements OntologyRepository {
         if (ontology != null) {
             return ontology;
         }
+
+        // only one thread builds a workspace's ontology, the others wait for its result
+        CompletableFuture<Ontology> build = new CompletableFuture<>();
+        CompletableFuture<Ontology> existingBuild = ontologyBuilds.putIfAbsent(workspaceId, build);
+        if (existingBuild != null) {
+            return waitForOntologyBuild(existingBuild, workspaceId);
+        }
+        try {
+            long cacheVersion = ontologyCacheVersion.get();
+            ontology = buildOntology(workspaceId);
+            // don't cache an ontology which may have been changed while it was built
+            if (ontologyCacheVersion.get() == cacheVersion) {
+                cacheService.put(ONTOLOGY_CACHE_NAME, workspaceId, ontology, ontologyCacheOptions);
+            }
+            build.complete(ontology);
+            return ontology;
+        } catch (RuntimeException ex) {
+            build.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            ontologyBuilds.remove(workspaceId, build);
+        }
+    }
+
+    private Ontology waitForOntologyBuild(CompletableFuture<Ontology> build, String workspaceId) {
+        try {
+            return build.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new VisalloException("Interrupted waiting for ontology of workspace " + workspaceId, ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new VisalloException("Could not build ontology of workspace " + workspaceId, ex.getCause());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Ontology buildOntology(String workspaceId) {
         Object[] results = ExecutorServiceUtil.runAllAndWait(
                 () -> getConceptsWithProperties(workspaceId),
                 () -> getRelationships(workspaceId),
@@ -1497,7 +1549,7 @@ public abstract class OntologyRepositoryBase implements OntologyRepository {
                 .filter(p -> p instanceof ExtendedDataTableProperty)
                 .map(p -> (ExtendedDataTableProperty) p)
                 .collect(Collectors.toList());
-        ontology = new Ontology(
+        Ontology ontology = new Ontology(
                 concepts,
                 relationships,
                 extendedDataTables,
@@ -1509,8 +1561,6 @@ public abstract class OntologyRepositoryBase implements OntologyRepository {
         if (!PUBLIC.equals(workspaceId) && ontology.getSandboxStatus() == SandboxStatus.PUBLIC) {
             ontology = getOntology(PUBLIC);
         }
-
-        cacheService.put(ONTOLOGY_CACHE_NAME, workspaceId, ontology, ontologyCacheOptions);
         return ontology;
     }
 
@@ -1520,16 +1570,62 @@ public abstract class OntologyRepositoryBase implements OntologyRepository {
 
     @Override
     public void clearCache() {
+        ontologyCacheVersion.incrementAndGet();
         cacheService.invalidate(ONTOLOGY_CACHE_NAME);
         cacheService.invalidate(ONTOLOGY_PROPERTY_CACHE_NAME);
     }
 
     @Override
     public void clearCache(String workspaceId) {
+        ontologyCacheVersion.incrementAndGet();
         cacheService.invalidate(ONTOLOGY_CACHE_NAME, workspaceId);
         cacheService.invalidate(ONTOLOGY_PROPERTY_CACHE_NAME);
     }
 
+    @Override
+    public synchronized void updateCache(
+            String workspaceId,
+            Iterable<Concept> concepts,
+            Iterable<Relationship> relationships,
+            Iterable<OntologyProperty> properties
+    ) {
+        checkNotNull(workspaceId, "Workspace should not be null");
+        // every sandboxed ontology includes the public ontology so public changes affect all of them
+        if (PUBLIC.equals(workspaceId)) {
+            clearCache();
+            return;
+        }
+
+        ontologyCacheVersion.incrementAndGet();
+        Ontology ontology = cacheService.getIfPresent(ONTOLOGY_CACHE_NAME, workspaceId);
+        // invalidate first so other nodes sharing the cache drop their copy
+        cacheService.invalidate(ONTOLOGY_CACHE_NAME, workspaceId);
+        if (ontology != null) {
+            ontology = ontology.withChanges(workspaceId, concepts, relationships, properties);
+            cacheService.put(ONTOLOGY_CACHE_NAME, workspaceId, ontology, ontologyCacheOptions);
+        }
+
+        Set<String> changedPropertyIris = new HashSet<>();
+        if (concepts != null) {
+            concepts.forEach(concept -> addPropertyIris(changedPropertyIris, concept.getProperties()));
+        }
+        if (relationships != null) {
+            relationships.forEach(relationship -> addPropertyIris(changedPropertyIris, relationship.getProperties()));
+        }
+        if (properties != null) {
+            properties.forEach(property -> changedPropertyIris.add(property.getIri()));
+        }
+        for (String propertyIri : changedPropertyIris) {
+            cacheService.invalidate(ONTOLOGY_PROPERTY_CACHE_NAME, getPropertyCacheKey(propertyIri, workspaceId));
+        }
+    }
+
+    private static void addPropertyIris(Set<String> propertyIris, Collection<OntologyProperty> properties) {
+        if (properties != null) {
+            properties.forEach(property -> propertyIris.add(property.getIri()));
+        }
+    }
+
     public final Configuration getConfiguration() {
         return configuration;
     }
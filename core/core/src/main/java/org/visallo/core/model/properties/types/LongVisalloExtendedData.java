@@ -0,0 +1,17 @@
+package org.visallo.core.model.properties.types;
+
+import org.vertexium.ExtendedDataRow;
+
+public class LongVisalloExtendedData extends IdentityVisalloExtendedData<Long> {
+    public LongVisalloExtendedData(String tableName, String propertyName) {
+        super(tableName, propertyName);
+    }
+
+    public long getValue(ExtendedDataRow row, long defaultValue) {
+        Long nullable = getValue(row);
+        if (nullable == null) {
+            return defaultValue;
+        }
+        return nullable;
+    }
+}
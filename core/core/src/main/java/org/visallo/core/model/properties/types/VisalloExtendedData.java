@@ -2,6 +2,7 @@ package org.visallo.core.model.properties.types;
 
 import org.vertexium.Element;
 import org.vertexium.ExtendedDataRow;
+import org.vertexium.Visibility;
 import org.vertexium.mutation.ElementMutation;
 import org.visallo.core.model.graph.ElementUpdateContext;
 
@@ -75,6 +76,16 @@ public abstract class VisalloExtendedData<TRaw, TGraph> {
         m.addExtendedData(tableName, row, columnName, rawToGraph(newValue), timestamp, propertyMetadata.getPropertyVisibility());
     }
 
+    public <T extends Element> void addExtendedData(
+            ElementMutation<T> m,
+            String row,
+            TRaw newValue,
+            Visibility visibility
+    ) {
+        checkNotNull(newValue, "null values are not allowed");
+        m.addExtendedData(tableName, row, columnName, rawToGraph(newValue), visibility);
+    }
+
     public static String rowIdFromDate(Date timestamp) {
         return new SimpleDateFormat(ROW_ID_DATE_FORMAT).format(timestamp);
     }
@@ -266,6 +266,14 @@ public class TermMentionBuilder {
             }
         }
 
+        TermMentionIndex.addTermMention(
+                this.outVertex,
+                termMentionVertex,
+                this.resolvedToVertexId,
+                this.resolvedToVertexId == null ? null : this.resolvedFromTermMention,
+                termMentionAuthorizations
+        );
+
         return termMentionVertex;
     }
 
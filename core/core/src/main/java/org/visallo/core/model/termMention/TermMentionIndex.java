@@ -0,0 +1,203 @@
+package org.visallo.core.model.termMention;
+
+import org.vertexium.*;
+import org.vertexium.mutation.ExistingElementMutation;
+import org.visallo.core.model.properties.VisalloProperties;
+import org.visallo.core.model.properties.types.BooleanVisalloExtendedData;
+import org.visallo.core.model.properties.types.LongVisalloExtendedData;
+import org.visallo.core.model.properties.types.StringVisalloExtendedData;
+import org.visallo.core.model.properties.types.VisalloExtendedData;
+
+import java.util.*;
+
+import static org.vertexium.util.IterableUtils.singleOrDefault;
+
+/**
+ * A compact copy of the term mentions of an element, stored in an extended data table of the element with a row
+ * per term mention. Each row holds what is needed to highlight the term mention, so the term mentions of a
+ * property are found without loading every term mention vertex and its edges.
+ * <p/>
+ * Rows have the visibility of their term mention and are written and removed along with the term mention
+ * vertices. Term mentions hidden in a workspace have a hidden cell with the hidden visibility. A term mention
+ * resolved from another term mention stores the id of that term mention, which is how rows find the term
+ * mentions they were resolved to.
+ * <p/>
+ * Graphs created before the index existed are only read from the index after running the term mention index
+ * migration, which sets {@link #GRAPH_METADATA_INDEXED_KEY}.
+ */
+public class TermMentionIndex {
+    public static final String GRAPH_METADATA_INDEXED_KEY = "visallo.termMention.indexed";
+    public static final String TABLE_NAME = "http://visallo.org/termMention#index";
+    public static final StringVisalloExtendedData PROPERTY_KEY = new StringVisalloExtendedData(TABLE_NAME, VisalloProperties.TERM_MENTION_PROPERTY_KEY.getPropertyName());
+    public static final StringVisalloExtendedData PROPERTY_NAME = new StringVisalloExtendedData(TABLE_NAME, VisalloProperties.TERM_MENTION_PROPERTY_NAME.getPropertyName());
+    public static final LongVisalloExtendedData START_OFFSET = new LongVisalloExtendedData(TABLE_NAME, VisalloProperties.TERM_MENTION_START_OFFSET.getPropertyName());
+    public static final LongVisalloExtendedData END_OFFSET = new LongVisalloExtendedData(TABLE_NAME, VisalloProperties.TERM_MENTION_END_OFFSET.getPropertyName());
+    public static final StringVisalloExtendedData TITLE = new StringVisalloExtendedData(TABLE_NAME, VisalloProperties.TERM_MENTION_TITLE.getPropertyName());
+    public static final StringVisalloExtendedData CONCEPT_TYPE = new StringVisalloExtendedData(TABLE_NAME, VisalloProperties.TERM_MENTION_CONCEPT_TYPE.getPropertyName());
+    public static final StringVisalloExtendedData PROCESS = new StringVisalloExtendedData(TABLE_NAME, VisalloProperties.TERM_MENTION_PROCESS.getPropertyName());
+    public static final StringVisalloExtendedData SNIPPET = new StringVisalloExtendedData(TABLE_NAME, VisalloProperties.TERM_MENTION_SNIPPET.getPropertyName());
+    public static final StringVisalloExtendedData RESOLVED_EDGE_ID = new StringVisalloExtendedData(TABLE_NAME, VisalloProperties.TERM_MENTION_RESOLVED_EDGE_ID.getPropertyName());
+    public static final StringVisalloExtendedData FOR_ELEMENT_ID = new StringVisalloExtendedData(TABLE_NAME, VisalloProperties.TERM_MENTION_FOR_ELEMENT_ID.getPropertyName());
+    public static final StringVisalloExtendedData FOR_TYPE = new StringVisalloExtendedData(TABLE_NAME, VisalloProperties.TERM_MENTION_FOR_TYPE.getPropertyName());
+    public static final StringVisalloExtendedData RESOLVED_TO_VERTEX_ID = new StringVisalloExtendedData(TABLE_NAME, VisalloProperties.TERM_MENTION_LABEL_RESOLVED_TO);
+    public static final StringVisalloExtendedData RESOLVED_FROM_TERM_MENTION_ID = new StringVisalloExtendedData(TABLE_NAME, VisalloProperties.TERM_MENTION_RESOLVED_FROM);
+    public static final BooleanVisalloExtendedData HIDDEN = new BooleanVisalloExtendedData(TABLE_NAME, "http://visallo.org/termMention#hidden");
+    private static final List<VisalloExtendedData<?, ?>> COLUMNS = Arrays.asList(
+            PROPERTY_KEY,
+            PROPERTY_NAME,
+            START_OFFSET,
+            END_OFFSET,
+            TITLE,
+            CONCEPT_TYPE,
+            PROCESS,
+            SNIPPET,
+            RESOLVED_EDGE_ID,
+            FOR_ELEMENT_ID,
+            FOR_TYPE,
+            RESOLVED_TO_VERTEX_ID,
+            RESOLVED_FROM_TERM_MENTION_ID,
+            HIDDEN
+    );
+
+    public static boolean isIndexed(Graph graph) {
+        return Boolean.TRUE.equals(graph.getMetadata(GRAPH_METADATA_INDEXED_KEY));
+    }
+
+    public static void setIndexed(Graph graph) {
+        graph.setMetadata(GRAPH_METADATA_INDEXED_KEY, true);
+    }
+
+    /**
+     * Adds a term mention, finding what it was resolved to and the workspaces it is hidden in from its edges and
+     * hidden visibilities.
+     */
+    public static void addTermMention(Vertex outVertex, Vertex termMention, Authorizations authorizations) {
+        String resolvedToVertexId = singleOrDefault(termMention.getVertexIds(Direction.OUT, VisalloProperties.TERM_MENTION_LABEL_RESOLVED_TO, authorizations), null);
+        String resolvedFromTermMentionId = singleOrDefault(termMention.getVertexIds(Direction.OUT, VisalloProperties.TERM_MENTION_RESOLVED_FROM, authorizations), null);
+        ExistingElementMutation<Vertex> m = outVertex.prepareMutation();
+        addTermMention(m, termMention, resolvedToVertexId, resolvedFromTermMentionId);
+        for (Visibility hiddenVisibility : termMention.getHiddenVisibilities()) {
+            HIDDEN.addExtendedData(m, termMention.getId(), true, hiddenVisibility);
+        }
+        m.save(authorizations);
+    }
+
+    public static void addTermMention(
+            Vertex outVertex,
+            Vertex termMention,
+            String resolvedToVertexId,
+            String resolvedFromTermMentionId,
+            Authorizations authorizations
+    ) {
+        ExistingElementMutation<Vertex> m = outVertex.prepareMutation();
+        addTermMention(m, termMention, resolvedToVertexId, resolvedFromTermMentionId);
+        m.save(authorizations);
+    }
+
+    private static void addTermMention(
+            ExistingElementMutation<Vertex> m,
+            Vertex termMention,
+            String resolvedToVertexId,
+            String resolvedFromTermMentionId
+    ) {
+        String row = termMention.getId();
+        Visibility visibility = termMention.getVisibility();
+        addIfNotNull(m, PROPERTY_KEY, row, VisalloProperties.TERM_MENTION_PROPERTY_KEY.getPropertyValue(termMention), visibility);
+        addIfNotNull(m, PROPERTY_NAME, row, VisalloProperties.TERM_MENTION_PROPERTY_NAME.getPropertyValue(termMention), visibility);
+        START_OFFSET.addExtendedData(m, row, VisalloProperties.TERM_MENTION_START_OFFSET.getPropertyValue(termMention, 0), visibility);
+        END_OFFSET.addExtendedData(m, row, VisalloProperties.TERM_MENTION_END_OFFSET.getPropertyValue(termMention, 0), visibility);
+        addIfNotNull(m, TITLE, row, VisalloProperties.TERM_MENTION_TITLE.getPropertyValue(termMention), visibility);
+        addIfNotNull(m, CONCEPT_TYPE, row, VisalloProperties.TERM_MENTION_CONCEPT_TYPE.getPropertyValue(termMention), visibility);
+        addIfNotNull(m, PROCESS, row, VisalloProperties.TERM_MENTION_PROCESS.getPropertyValue(termMention), visibility);
+        addIfNotNull(m, SNIPPET, row, VisalloProperties.TERM_MENTION_SNIPPET.getPropertyValue(termMention), visibility);
+        addIfNotNull(m, RESOLVED_EDGE_ID, row, VisalloProperties.TERM_MENTION_RESOLVED_EDGE_ID.getPropertyValue(termMention), visibility);
+        addIfNotNull(m, FOR_ELEMENT_ID, row, VisalloProperties.TERM_MENTION_FOR_ELEMENT_ID.getPropertyValue(termMention), visibility);
+        TermMentionFor forType = VisalloProperties.TERM_MENTION_FOR_TYPE.getPropertyValue(termMention);
+        addIfNotNull(m, FOR_TYPE, row, forType == null ? null : forType.name(), visibility);
+        addIfNotNull(m, RESOLVED_TO_VERTEX_ID, row, resolvedToVertexId, visibility);
+        addIfNotNull(m, RESOLVED_FROM_TERM_MENTION_ID, row, resolvedFromTermMentionId, visibility);
+    }
+
+    private static <T> void addIfNotNull(
+            ExistingElementMutation<Vertex> m,
+            VisalloExtendedData<T, ?> column,
+            String row,
+            T value,
+            Visibility visibility
+    ) {
+        if (value != null) {
+            column.addExtendedData(m, row, value, visibility);
+        }
+    }
+
+    public static void markHidden(Vertex outVertex, String termMentionId, Visibility hiddenVisibility, Authorizations authorizations) {
+        ExistingElementMutation<Vertex> m = outVertex.prepareMutation();
+        HIDDEN.addExtendedData(m, termMentionId, true, hiddenVisibility);
+        m.save(authorizations);
+    }
+
+    /**
+     * Removes every cell of the term mention's row which is visible with the given authorizations.
+     */
+    public static void removeTermMention(Graph graph, Vertex outVertex, String termMentionId, Authorizations authorizations) {
+        ExtendedDataRow row = graph.getExtendedData(
+                new ExtendedDataRowId(ElementType.VERTEX, outVertex.getId(), TABLE_NAME, termMentionId),
+                authorizations
+        );
+        if (row == null) {
+            return;
+        }
+        ExistingElementMutation<Vertex> m = outVertex.prepareMutation();
+        for (VisalloExtendedData<?, ?> column : COLUMNS) {
+            for (Property cell : row.getProperties(column.getColumnName())) {
+                m.deleteExtendedData(TABLE_NAME, termMentionId, column.getColumnName(), cell.getVisibility());
+            }
+        }
+        m.save(authorizations);
+    }
+
+    /**
+     * Finds the rows of the term mentions of a property which are not hidden, ordered by start offset. Term
+     * mentions created without a property name are found for the text property.
+     */
+    public static List<ExtendedDataRow> findByProperty(
+            Graph graph,
+            String outVertexId,
+            String propertyKey,
+            String propertyName,
+            Authorizations authorizations
+    ) {
+        boolean includeWithoutPropertyName = VisalloProperties.TEXT.getPropertyName().equals(propertyName);
+        List<ExtendedDataRow> results = new ArrayList<>();
+        for (ExtendedDataRow row : graph.getExtendedData(ElementType.VERTEX, outVertexId, TABLE_NAME, authorizations)) {
+            if (HIDDEN.getValue(row, false) || START_OFFSET.getValue(row) == null) {
+                continue;
+            }
+            if (!propertyKey.equals(PROPERTY_KEY.getValue(row))) {
+                continue;
+            }
+            String rowPropertyName = PROPERTY_NAME.getValue(row);
+            if (rowPropertyName == null ? !includeWithoutPropertyName : !rowPropertyName.equals(propertyName)) {
+                continue;
+            }
+            results.add(row);
+        }
+        results.sort(Comparator.comparingLong(row -> START_OFFSET.getValue(row, 0)));
+        return results;
+    }
+
+    /**
+     * @return the ids of the term mentions resolved from the given rows keyed by the id of the term mention they
+     * were resolved from.
+     */
+    public static Map<String, String> getResolvedToTermMentionIds(Iterable<ExtendedDataRow> rows) {
+        Map<String, String> results = new HashMap<>();
+        for (ExtendedDataRow row : rows) {
+            String resolvedFromTermMentionId = RESOLVED_FROM_TERM_MENTION_ID.getValue(row);
+            if (resolvedFromTermMentionId != null) {
+                results.put(resolvedFromTermMentionId, row.getId().getRowId());
+            }
+        }
+        return results;
+    }
+}
@@ -12,6 +12,9 @@ import org.visallo.core.model.PropertyJustificationMetadata;
 import org.visallo.core.model.graph.GraphRepository;
 import org.visallo.core.model.graph.GraphUpdateContext;
 import org.visallo.core.model.properties.VisalloProperties;
+import org.visallo.core.model.textHighlighting.OffsetItem;
+import org.visallo.core.model.textHighlighting.TermMentionIndexOffsetItem;
+import org.visallo.core.model.textHighlighting.VertexOffsetItem;
 import org.visallo.core.model.user.GraphAuthorizationRepository;
 import org.visallo.core.model.workQueue.Priority;
 import org.visallo.core.model.workQueue.WorkQueueRepository;
@@ -23,7 +26,9 @@ import org.visallo.web.clientapi.model.ClientApiTermMentionsResponse;
 import org.visallo.web.clientapi.model.SandboxStatus;
 import org.visallo.web.clientapi.model.VisibilityJson;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -80,6 +85,38 @@ public class TermMentionRepository {
         };
     }
 
+    /**
+     * Finds the offset items of the term mentions of a property. Graphs with a {@link TermMentionIndex} are read from
+     * the index of the out vertex, other graphs load every term mention vertex of the out vertex.
+     */
+    public List<OffsetItem> findOffsetItemsByOutVertexAndProperty(
+            String outVertexId,
+            String propertyKey,
+            String propertyName,
+            String workspaceId,
+            Authorizations authorizations
+    ) {
+        Authorizations authorizationsWithTermMention = getAuthorizations(authorizations);
+        List<OffsetItem> results = new ArrayList<>();
+        if (!TermMentionIndex.isIndexed(graph)) {
+            for (Vertex termMention : findByOutVertexAndProperty(outVertexId, propertyKey, propertyName, authorizationsWithTermMention)) {
+                SandboxStatus sandboxStatus = SandboxStatus.getFromVisibilityString(termMention.getVisibility().getVisibilityString(), workspaceId);
+                results.add(new VertexOffsetItem(termMention, sandboxStatus, authorizationsWithTermMention));
+            }
+            return results;
+        }
+
+        List<ExtendedDataRow> rows = TermMentionIndex.findByProperty(graph, outVertexId, propertyKey, propertyName, authorizationsWithTermMention);
+        Map<String, String> resolvedToTermMentionIds = TermMentionIndex.getResolvedToTermMentionIds(rows);
+        for (ExtendedDataRow row : rows) {
+            Property startOffset = row.getProperty(TermMentionIndex.START_OFFSET.getColumnName());
+            SandboxStatus sandboxStatus = SandboxStatus.getFromVisibilityString(startOffset.getVisibility().getVisibilityString(), workspaceId);
+            String termMentionId = row.getId().getRowId();
+            results.add(new TermMentionIndexOffsetItem(row, outVertexId, resolvedToTermMentionIds.get(termMentionId), sandboxStatus));
+        }
+        return results;
+    }
+
     public Iterable<Vertex> findByOutVertex(String outVertexId, Authorizations authorizations) {
         Authorizations authorizationsWithTermMention = getAuthorizations(authorizations);
         Vertex outVertex = graph.getVertex(outVertexId, authorizationsWithTermMention);
@@ -305,6 +342,14 @@ public class TermMentionRepository {
             }
             edgeMutation.save(authorizationsWithTermMention);
         }
+
+        Vertex outVertex = findOutVertex(termMention, authorizationsWithTermMention);
+        if (outVertex != null) {
+            graph.flush();
+            TermMentionIndex.removeTermMention(graph, outVertex, termMention.getId(), authorizationsWithTermMention);
+            Vertex updatedTermMention = graph.getVertex(termMention.getId(), FetchHint.ALL_INCLUDING_HIDDEN, authorizationsWithTermMention);
+            TermMentionIndex.addTermMention(outVertex, updatedTermMention, authorizationsWithTermMention);
+        }
     }
 
     public Iterable<Vertex> findResolvedTo(String inVertexId, Authorizations authorizations) {
@@ -360,14 +405,26 @@ public class TermMentionRepository {
 
     public void delete(Vertex termMention, Authorizations authorizations) {
         Authorizations authorizationsWithTermMention = getAuthorizations(authorizations);
+        removeFromIndex(termMention, authorizationsWithTermMention);
         graph.softDeleteVertex(termMention, authorizationsWithTermMention);
     }
 
     public void markHidden(Vertex termMention, Visibility hiddenVisibility, Authorizations authorizations) {
         Authorizations authorizationsWithTermMention = getAuthorizations(authorizations);
+        Vertex outVertex = findOutVertex(termMention, authorizationsWithTermMention);
+        if (outVertex != null) {
+            TermMentionIndex.markHidden(outVertex, termMention.getId(), hiddenVisibility, authorizationsWithTermMention);
+        }
         graph.markVertexHidden(termMention, hiddenVisibility, authorizationsWithTermMention);
     }
 
+    private void removeFromIndex(Vertex termMention, Authorizations authorizationsWithTermMention) {
+        Vertex outVertex = findOutVertex(termMention, authorizationsWithTermMention);
+        if (outVertex != null) {
+            TermMentionIndex.removeTermMention(graph, outVertex, termMention.getId(), authorizationsWithTermMention);
+        }
+    }
+
     public Iterable<Vertex> findByEdgeId(String outVertexId, final String edgeId, Authorizations authorizations) {
         Authorizations authorizationsWithTermMention = getAuthorizations(authorizations);
         Vertex outVertex = graph.getVertex(outVertexId, authorizationsWithTermMention);
@@ -609,6 +666,7 @@ public class TermMentionRepository {
                 visibility,
                 authorizations
         );
+        TermMentionIndex.addTermMention(outVertex, termMention, vertex.getId(), null, getAuthorizations(authorizations));
 
         graph.flush();
         LOGGER.debug("added source info: %s", termMention.getId());
@@ -688,6 +746,7 @@ public class TermMentionRepository {
                 authorizations
         );
         if (termMention != null) {
+            removeFromIndex(termMention, getAuthorizations(authorizations));
             graph.softDeleteVertex(termMention, authorizations);
         }
     }
@@ -3,6 +3,7 @@ package org.visallo.core.model.textHighlighting;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.visallo.core.model.Name;
 import org.visallo.core.model.termMention.TermMentionFor;
 import org.visallo.web.clientapi.model.SandboxStatus;
 
@@ -178,6 +179,26 @@ public abstract class OffsetItem implements Comparable {
         return getResolvedToVertexId().compareTo(other.getResolvedToVertexId());
     }
 
+    /**
+     * @return the name of the class which created a term mention, or the stored process if it is not a class
+     */
+    protected static String getProcessName(String process) {
+        if (process == null) {
+            return null;
+        }
+
+        try {
+            Class cls = Class.forName(process);
+            Name nameAnnotation = (Name) cls.getAnnotation(Name.class);
+            if (nameAnnotation != null) {
+                return nameAnnotation.value();
+            }
+            return cls.getSimpleName();
+        } catch (ClassNotFoundException cnf) {
+            return process;
+        }
+    }
+
     public static long getOffset(long offset) {
         return offset & ((2 << (OffsetItem.VIDEO_TRANSCRIPT_OFFSET_BITS - 1)) - 1L);
     }
@@ -0,0 +1,140 @@
+package org.visallo.core.model.textHighlighting;
+
+import com.google.common.hash.Hashing;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.vertexium.ExtendedDataRow;
+import org.visallo.core.model.termMention.TermMentionFor;
+import org.visallo.core.model.termMention.TermMentionIndex;
+import org.visallo.core.util.SourceInfoSnippetSanitizer;
+import org.visallo.web.clientapi.model.SandboxStatus;
+
+/**
+ * An offset item read from a row of the {@link TermMentionIndex} instead of a term mention vertex.
+ */
+public class TermMentionIndexOffsetItem extends OffsetItem {
+    private final ExtendedDataRow row;
+    private final String outVertexId;
+    private final String resolvedToTermMentionId;
+    private final SandboxStatus sandboxStatus;
+    private final String classIdentifier;
+    private boolean shouldBitShiftOffsetsForVideoTranscript = false;
+
+    public TermMentionIndexOffsetItem(
+            ExtendedDataRow row,
+            String outVertexId,
+            String resolvedToTermMentionId,
+            SandboxStatus sandboxStatus
+    ) {
+        this.row = row;
+        this.outVertexId = outVertexId;
+        this.resolvedToTermMentionId = resolvedToTermMentionId;
+        this.sandboxStatus = sandboxStatus;
+        this.classIdentifier = "tm-" + Hashing.sha1().hashString(getId()).toString();
+    }
+
+    @Override
+    public void setShouldBitShiftOffsetsForVideoTranscript(boolean shouldBitShiftOffsetsForVideoTranscript) {
+        this.shouldBitShiftOffsetsForVideoTranscript = shouldBitShiftOffsetsForVideoTranscript;
+    }
+
+    @Override
+    public long getStart() {
+        long start = TermMentionIndex.START_OFFSET.getValue(row, 0);
+        if (shouldBitShiftOffsetsForVideoTranscript) {
+            return getVideoTranscriptEntryOffset((int) start);
+        }
+        return start;
+    }
+
+    @Override
+    public long getEnd() {
+        long end = TermMentionIndex.END_OFFSET.getValue(row, 0);
+        if (shouldBitShiftOffsetsForVideoTranscript) {
+            return getVideoTranscriptEntryOffset((int) end);
+        }
+        return end;
+    }
+
+    public String getConceptIri() {
+        return TermMentionIndex.CONCEPT_TYPE.getValue(row);
+    }
+
+    public String getSnippet() {
+        return SourceInfoSnippetSanitizer.sanitizeSnippet(TermMentionIndex.SNIPPET.getValue(row));
+    }
+
+    @Override
+    public String getId() {
+        return row.getId().getRowId();
+    }
+
+    @Override
+    public String getProcess() {
+        return getProcessName(TermMentionIndex.PROCESS.getValue(row));
+    }
+
+    @Override
+    public String getOutVertexId() {
+        return outVertexId;
+    }
+
+    @Override
+    public String getResolvedToVertexId() {
+        return TermMentionIndex.RESOLVED_TO_VERTEX_ID.getValue(row);
+    }
+
+    @Override
+    public String getResolvedFromTermMentionId() {
+        return TermMentionIndex.RESOLVED_FROM_TERM_MENTION_ID.getValue(row);
+    }
+
+    @Override
+    public String getResolvedToTermMentionId() {
+        return resolvedToTermMentionId;
+    }
+
+    @Override
+    public String getResolvedToEdgeId() {
+        return TermMentionIndex.RESOLVED_EDGE_ID.getValue(row);
+    }
+
+    @Override
+    public TermMentionFor getTermMentionFor() {
+        String forType = TermMentionIndex.FOR_TYPE.getValue(row);
+        return forType == null ? null : TermMentionFor.valueOf(forType);
+    }
+
+    @Override
+    public String getTermMentionForElementId() {
+        return TermMentionIndex.FOR_ELEMENT_ID.getValue(row);
+    }
+
+    @Override
+    public SandboxStatus getSandboxStatus() {
+        return sandboxStatus;
+    }
+
+    @Override
+    public String getClassIdentifier() {
+        return classIdentifier;
+    }
+
+    @Override
+    public String getTitle() {
+        return TermMentionIndex.TITLE.getValue(row);
+    }
+
+    @Override
+    public JSONObject getInfoJson() {
+        try {
+            JSONObject infoJson = super.getInfoJson();
+            infoJson.put("title", getTitle());
+            infoJson.putOpt("conceptType", getConceptIri());
+            infoJson.putOpt("snippet", getSnippet());
+            return infoJson;
+        } catch (JSONException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
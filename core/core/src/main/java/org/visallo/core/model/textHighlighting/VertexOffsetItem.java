@@ -6,7 +6,6 @@ import org.json.JSONObject;
 import org.vertexium.Authorizations;
 import org.vertexium.Direction;
 import org.vertexium.Vertex;
-import org.visallo.core.model.Name;
 import org.visallo.core.model.properties.VisalloProperties;
 import org.visallo.core.model.termMention.TermMentionFor;
 import org.visallo.core.model.termMention.TermMentionRepository;
@@ -79,21 +78,7 @@ public class VertexOffsetItem extends OffsetItem {
 
     @Override
     public String getProcess() {
-        String process = VisalloProperties.TERM_MENTION_PROCESS.getPropertyValue(termMention);
-        if (process == null) {
-            return null;
-        }
-
-        try {
-            Class cls = Class.forName(process);
-            Name nameAnnotation = (Name) cls.getAnnotation(Name.class);
-            if (nameAnnotation != null) {
-                return nameAnnotation.value();
-            }
-            return cls.getSimpleName();
-        } catch (ClassNotFoundException cnf) {
-            return process;
-        }
+        return getProcessName(VisalloProperties.TERM_MENTION_PROCESS.getPropertyValue(termMention));
     }
 
     @Override
@@ -0,0 +1,102 @@
+package org.visallo.core.model.thumbnails;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.vertexium.Vertex;
+import org.vertexium.property.StreamingPropertyValue;
+import org.visallo.core.config.Configuration;
+import org.visallo.core.user.User;
+import org.visallo.core.util.ShutdownListener;
+import org.visallo.core.util.ShutdownService;
+import org.visallo.core.util.VisalloLogger;
+import org.visallo.core.util.VisalloLoggerFactory;
+
+import java.io.InputStream;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates thumbnails on a bounded pool of background threads so image decoding and scaling doesn't tie up
+ * the threads which requested them. Concurrent requests for the same vertex, thumbnail type and size share a
+ * single generation.
+ */
+@Singleton
+public class AsyncThumbnailGenerator implements ShutdownListener {
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(AsyncThumbnailGenerator.class);
+    public static final String CONFIG_THREAD_COUNT = AsyncThumbnailGenerator.class.getName() + ".threadCount";
+    public static final int DEFAULT_THREAD_COUNT = 2;
+    public static final String CONFIG_QUEUE_SIZE = AsyncThumbnailGenerator.class.getName() + ".queueSize";
+    public static final int DEFAULT_QUEUE_SIZE = 100;
+    private final ThumbnailRepository thumbnailRepository;
+    private final ExecutorService executorService;
+    private final ConcurrentMap<String, CompletableFuture<Thumbnail>> generations = new ConcurrentHashMap<>();
+
+    @Inject
+    public AsyncThumbnailGenerator(
+            ThumbnailRepository thumbnailRepository,
+            Configuration configuration,
+            ShutdownService shutdownService
+    ) {
+        this.thumbnailRepository = thumbnailRepository;
+        int threadCount = Math.max(1, configuration.getInt(CONFIG_THREAD_COUNT, DEFAULT_THREAD_COUNT));
+        int queueSize = Math.max(1, configuration.getInt(CONFIG_QUEUE_SIZE, DEFAULT_QUEUE_SIZE));
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executorService = new ThreadPoolExecutor(
+                threadCount,
+                threadCount,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "thumbnail-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+        shutdownService.register(this);
+    }
+
+    /**
+     * Starts generating the thumbnail or joins the generation already in progress.
+     *
+     * @return the thumbnail being generated, or null if too many thumbnails are waiting to be generated.
+     */
+    public CompletableFuture<Thumbnail> generateThumbnail(
+            Vertex vertex,
+            String propertyKey,
+            String thumbnailType,
+            StreamingPropertyValue value,
+            int[] boundaryDims,
+            User user
+    ) {
+        String key = vertex.getId() + ":" + thumbnailType + ":" + boundaryDims[0] + "x" + boundaryDims[1];
+        CompletableFuture<Thumbnail> generation = new CompletableFuture<>();
+        CompletableFuture<Thumbnail> existingGeneration = generations.putIfAbsent(key, generation);
+        if (existingGeneration != null) {
+            return existingGeneration;
+        }
+
+        try {
+            executorService.execute(() -> {
+                try (InputStream in = value.getInputStream()) {
+                    generation.complete(thumbnailRepository.createThumbnail(vertex, propertyKey, thumbnailType, in, boundaryDims, user));
+                } catch (Throwable ex) {
+                    LOGGER.error("Could not generate thumbnail %s", key, ex);
+                    generation.completeExceptionally(ex);
+                } finally {
+                    generations.remove(key, generation);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            LOGGER.warn("Too many thumbnails waiting to be generated, rejected %s", key);
+            generations.remove(key, generation);
+            return null;
+        }
+        return generation;
+    }
+
+    @Override
+    public void shutdown() {
+        executorService.shutdownNow();
+    }
+}
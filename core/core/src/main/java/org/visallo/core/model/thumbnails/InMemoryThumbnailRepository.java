@@ -7,7 +7,6 @@ import org.vertexium.Vertex;
 import org.visallo.core.model.ontology.OntologyRepository;
 import org.visallo.core.user.User;
 
-import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -26,15 +25,7 @@ public class InMemoryThumbnailRepository extends ThumbnailRepository {
     }
 
     @Override
-    public Thumbnail createThumbnail(
-            Vertex vertex,
-            String propertyKey,
-            String thumbnailType,
-            InputStream in,
-            int[] boundaryDims,
-            User user
-    ) {
-        Thumbnail thumbnail = generateThumbnail(vertex, propertyKey, thumbnailType, in, boundaryDims);
+    protected Thumbnail saveThumbnail(Vertex vertex, String thumbnailType, Thumbnail thumbnail, User user) {
         String id = createId(vertex.getId(), thumbnailType, thumbnail);
         thumbnails.put(id, thumbnail);
         return thumbnails.get(id);
@@ -16,6 +16,8 @@ import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.visallo.core.model.ontology.OntologyRepository.PUBLIC;
@@ -60,26 +62,68 @@ public abstract class ThumbnailRepository {
         return thumbnail.getData();
     }
 
-    public abstract Thumbnail createThumbnail(
+    public Thumbnail createThumbnail(
             Vertex vertex,
             String propertyKey,
             String thumbnailType,
             InputStream in,
             int[] boundaryDims,
             User user
-    );
+    ) {
+        Thumbnail thumbnail = generateThumbnail(vertex, propertyKey, thumbnailType, in, boundaryDims);
+        return saveThumbnail(vertex, thumbnailType, thumbnail, user);
+    }
+
+    /**
+     * Creates a thumbnail for each of the boundary dimensions, decoding the image only once.
+     */
+    public List<Thumbnail> createThumbnails(
+            Vertex vertex,
+            String propertyKey,
+            String thumbnailType,
+            InputStream in,
+            List<int[]> boundaryDims,
+            User user
+    ) {
+        BufferedImage originalImage = readImage(vertex, in);
+        BufferedImage transformedImage = getTransformedImage(originalImage, vertex, propertyKey);
+        List<Thumbnail> thumbnails = new ArrayList<>();
+        for (int[] dims : boundaryDims) {
+            Thumbnail thumbnail = generateThumbnail(vertex, thumbnailType, originalImage, transformedImage, dims);
+            thumbnails.add(saveThumbnail(vertex, thumbnailType, thumbnail, user));
+        }
+        return thumbnails;
+    }
+
+    protected abstract Thumbnail saveThumbnail(Vertex vertex, String thumbnailType, Thumbnail thumbnail, User user);
 
     public Thumbnail generateThumbnail(Vertex vertex, String propertyKey, String thumbnailType, InputStream in, int[] boundaryDims) {
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        String format;
-        int type;
+        BufferedImage originalImage = readImage(vertex, in);
+        BufferedImage transformedImage = getTransformedImage(originalImage, vertex, propertyKey);
+        return generateThumbnail(vertex, thumbnailType, originalImage, transformedImage, boundaryDims);
+    }
+
+    private BufferedImage readImage(Vertex vertex, InputStream in) {
         try {
             BufferedImage originalImage = ImageIO.read(in);
             checkNotNull(originalImage, "Could not generateThumbnail: read original image for vertex " + vertex.getId());
-            type = ImageUtils.thumbnailType(originalImage);
-            format = ImageUtils.thumbnailFormat(originalImage);
+            return originalImage;
+        } catch (IOException e) {
+            throw new VisalloResourceNotFoundException("Error reading InputStream");
+        }
+    }
 
-            BufferedImage transformedImage = getTransformedImage(originalImage, vertex, propertyKey);
+    private Thumbnail generateThumbnail(
+            Vertex vertex,
+            String thumbnailType,
+            BufferedImage originalImage,
+            BufferedImage transformedImage,
+            int[] boundaryDims
+    ) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            int type = ImageUtils.thumbnailType(originalImage);
+            String format = ImageUtils.thumbnailFormat(originalImage);
 
             //Get new image dimensions, which will be used for the icon.
             int[] transformedImageDims = new int[]{transformedImage.getWidth(), transformedImage.getHeight()};
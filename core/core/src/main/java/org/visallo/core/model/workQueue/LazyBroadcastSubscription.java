@@ -0,0 +1,40 @@
+package org.visallo.core.model.workQueue;
+
+import org.json.JSONObject;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Subscribes to broadcast messages the first time {@link #ensureSubscribed()} is called. Used by services which
+ * only need to hear about changes once they have cached something, or which cannot get the work queue
+ * repository while they are being constructed.
+ */
+public class LazyBroadcastSubscription {
+    private final Supplier<WorkQueueRepository> workQueueRepository;
+    private final Consumer<JSONObject> consumer;
+    private volatile WorkQueueRepository.BroadcastConsumer broadcastConsumer;
+
+    public LazyBroadcastSubscription(Supplier<WorkQueueRepository> workQueueRepository, Consumer<JSONObject> consumer) {
+        this.workQueueRepository = workQueueRepository;
+        this.consumer = consumer;
+    }
+
+    public void ensureSubscribed() {
+        if (broadcastConsumer != null) {
+            return;
+        }
+        synchronized (this) {
+            if (broadcastConsumer == null) {
+                WorkQueueRepository.BroadcastConsumer newBroadcastConsumer = new WorkQueueRepository.BroadcastConsumer() {
+                    @Override
+                    public void broadcastReceived(JSONObject json) {
+                        consumer.accept(json);
+                    }
+                };
+                workQueueRepository.get().subscribeToBroadcastMessages(newBroadcastConsumer);
+                broadcastConsumer = newBroadcastConsumer;
+            }
+        }
+    }
+}
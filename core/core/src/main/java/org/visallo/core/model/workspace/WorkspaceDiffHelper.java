@@ -1,45 +1,114 @@
 package org.visallo.core.model.workspace;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import org.json.JSONArray;
+import org.json.JSONObject;
 import org.vertexium.*;
+import org.visallo.core.config.Configuration;
+import org.visallo.core.exception.VisalloException;
 import org.visallo.core.formula.FormulaEvaluator;
 import org.visallo.core.model.properties.VisalloProperties;
 import org.visallo.core.model.user.AuthorizationRepository;
 import org.visallo.core.model.user.UserRepository;
+import org.visallo.core.model.workQueue.LazyBroadcastSubscription;
+import org.visallo.core.model.workQueue.WorkQueueRepository;
 import org.visallo.core.trace.Traced;
 import org.visallo.core.user.User;
 import org.visallo.core.util.JSONUtil;
 import org.visallo.core.util.JsonSerializer;
 import org.visallo.core.util.SandboxStatusUtil;
+import org.visallo.core.util.ShutdownListener;
+import org.visallo.core.util.ShutdownService;
+import org.visallo.core.util.VisalloLogger;
+import org.visallo.core.util.VisalloLoggerFactory;
 import org.visallo.web.clientapi.model.ClientApiWorkspaceDiff;
 import org.visallo.web.clientapi.model.SandboxStatus;
 
-import java.util.ArrayList;
-import java.util.EnumSet;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.vertexium.util.IterableUtils.toList;
 
+/**
+ * Computes the differences between a workspace and the published graph.
+ * <p/>
+ * Workspace entities and edges are diffed in batches on a bounded pool of threads, loading the vertices of each
+ * batch at once. The diff of each element is cached per workspace and user, and is evicted when a change to the
+ * element is broadcast by the {@link WorkQueueRepository}, so diffing again, or requesting the next page of a diff,
+ * only diffs the elements which changed. Since changes made at low priority are not broadcast, cached diffs
+ * expire {@link #CONFIG_CACHE_EXPIRE_SECONDS} after being computed.
+ */
 @Singleton
-public class WorkspaceDiffHelper {
+public class WorkspaceDiffHelper implements ShutdownListener {
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(WorkspaceDiffHelper.class);
+    public static final String CONFIG_THREAD_COUNT = WorkspaceDiffHelper.class.getName() + ".threadCount";
+    public static final int DEFAULT_THREAD_COUNT = 4;
+    public static final String CONFIG_BATCH_SIZE = WorkspaceDiffHelper.class.getName() + ".batchSize";
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final String CONFIG_CACHE_EXPIRE_SECONDS = WorkspaceDiffHelper.class.getName() + ".cacheExpireSeconds";
+    public static final int DEFAULT_CACHE_EXPIRE_SECONDS = 60;
+    public static final String CONFIG_CACHE_MAX_SIZE = WorkspaceDiffHelper.class.getName() + ".cacheMaxSize";
+    public static final int DEFAULT_CACHE_MAX_SIZE = 100;
+    private static final String VERTEX_KEY_PREFIX = "v:";
+    private static final String EDGE_KEY_PREFIX = "e:";
+    private static final EnumSet<FetchHint> DELETED_VERTEX_FETCH_HINTS = EnumSet.of(FetchHint.PROPERTIES, FetchHint.PROPERTY_METADATA, FetchHint.INCLUDE_HIDDEN);
     private final Graph graph;
     private final UserRepository userRepository;
     private final AuthorizationRepository authorizationRepository;
     private final FormulaEvaluator formulaEvaluator;
+    private final ExecutorService executorService;
+    private final int batchSize;
+    private final Cache<String, ConcurrentMap<String, List<ClientApiWorkspaceDiff.Item>>> diffCache;
+    private final LazyBroadcastSubscription broadcastSubscription;
 
     @Inject
     public WorkspaceDiffHelper(
             Graph graph,
             UserRepository userRepository,
             AuthorizationRepository authorizationRepository,
-            FormulaEvaluator formulaEvaluator
+            FormulaEvaluator formulaEvaluator,
+            WorkQueueRepository workQueueRepository,
+            Configuration configuration,
+            ShutdownService shutdownService
     ) {
         this.graph = graph;
         this.userRepository = userRepository;
         this.authorizationRepository = authorizationRepository;
         this.formulaEvaluator = formulaEvaluator;
+        this.batchSize = Math.max(1, configuration.getInt(CONFIG_BATCH_SIZE, DEFAULT_BATCH_SIZE));
+
+        int threadCount = Math.max(1, configuration.getInt(CONFIG_THREAD_COUNT, DEFAULT_THREAD_COUNT));
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executorService = Executors.newFixedThreadPool(threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "workspace-diff-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        int cacheExpireSeconds = configuration.getInt(CONFIG_CACHE_EXPIRE_SECONDS, DEFAULT_CACHE_EXPIRE_SECONDS);
+        if (cacheExpireSeconds > 0) {
+            this.diffCache = CacheBuilder.newBuilder()
+                    .expireAfterWrite(cacheExpireSeconds, TimeUnit.SECONDS)
+                    .maximumSize(configuration.getInt(CONFIG_CACHE_MAX_SIZE, DEFAULT_CACHE_MAX_SIZE))
+                    .build();
+        } else {
+            this.diffCache = null;
+        }
+        this.broadcastSubscription = new LazyBroadcastSubscription(() -> workQueueRepository, json -> {
+            try {
+                handleBroadcast(json);
+            } catch (Exception ex) {
+                LOGGER.error("Could not evict workspace diffs for broadcast: %s", json, ex);
+                diffCache.invalidateAll();
+            }
+        });
+        shutdownService.register(this);
     }
 
     @Traced
@@ -55,28 +124,210 @@ public class WorkspaceDiffHelper {
                 WorkspaceRepository.VISIBILITY_STRING,
                 workspace.getWorkspaceId()
         );
+        Map<String, List<ClientApiWorkspaceDiff.Item>> cachedDiffs = getCachedDiffs(workspace.getWorkspaceId(), user, userContext);
+
+        List<Callable<List<ClientApiWorkspaceDiff.Item>>> batches = new ArrayList<>();
+        for (List<WorkspaceEntity> batch : Lists.partition(toList(workspaceEntities), batchSize)) {
+            batches.add(() -> diffWorkspaceEntities(workspace, batch, userContext, authorizations, cachedDiffs));
+        }
+        for (List<Edge> batch : Lists.partition(toList(workspaceEdges), batchSize)) {
+            batches.add(() -> diffEdges(workspace, batch, authorizations, cachedDiffs));
+        }
 
         ClientApiWorkspaceDiff result = new ClientApiWorkspaceDiff();
+        try {
+            if (batches.size() == 1) {
+                result.addAll(batches.get(0).call());
+                return result;
+            }
+            for (Future<List<ClientApiWorkspaceDiff.Item>> future : executorService.invokeAll(batches)) {
+                result.addAll(future.get());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new VisalloException("Interrupted while diffing workspace " + workspace.getWorkspaceId(), ex);
+        } catch (ExecutionException ex) {
+            throw new VisalloException("Could not diff workspace " + workspace.getWorkspaceId(), ex.getCause());
+        } catch (VisalloException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new VisalloException("Could not diff workspace " + workspace.getWorkspaceId(), ex);
+        }
+        return result;
+    }
+
+    private List<ClientApiWorkspaceDiff.Item> diffWorkspaceEntities(
+            Workspace workspace,
+            List<WorkspaceEntity> workspaceEntities,
+            FormulaEvaluator.UserContext userContext,
+            Authorizations authorizations,
+            Map<String, List<ClientApiWorkspaceDiff.Item>> cachedDiffs
+    ) {
+        // Workspace vertices will be null if deleted, so retrieve them with hidden
+        List<String> deletedVertexIds = new ArrayList<>();
         for (WorkspaceEntity workspaceEntity : workspaceEntities) {
-            List<ClientApiWorkspaceDiff.Item> entityDiffs = diffWorkspaceEntity(
-                    workspace,
-                    workspaceEntity,
-                    userContext,
-                    authorizations
-            );
-            if (entityDiffs != null) {
-                result.addAll(entityDiffs);
+            String key = VERTEX_KEY_PREFIX + workspaceEntity.getEntityVertexId();
+            if (workspaceEntity.getVertex() == null && (cachedDiffs == null || !cachedDiffs.containsKey(key))) {
+                deletedVertexIds.add(workspaceEntity.getEntityVertexId());
+            }
+        }
+        Map<String, Vertex> deletedVertices = new HashMap<>();
+        if (deletedVertexIds.size() > 0) {
+            for (Vertex vertex : graph.getVertices(deletedVertexIds, DELETED_VERTEX_FETCH_HINTS, authorizations)) {
+                deletedVertices.put(vertex.getId(), vertex);
             }
         }
 
-        for (Edge workspaceEdge : workspaceEdges) {
-            List<ClientApiWorkspaceDiff.Item> entityDiffs = diffEdge(workspace, workspaceEdge, authorizations);
-            if (entityDiffs != null) {
-                result.addAll(entityDiffs);
+        // titles of deleted vertices are evaluated together so each batch makes a single call to the evaluator
+        List<Vertex> publicDeletedVertices = new ArrayList<>();
+        for (WorkspaceEntity workspaceEntity : workspaceEntities) {
+            String key = VERTEX_KEY_PREFIX + workspaceEntity.getEntityVertexId();
+            Vertex entityVertex = getEntityVertex(workspaceEntity, deletedVertices);
+            if ((cachedDiffs == null || !cachedDiffs.containsKey(key))
+                    && entityVertex != null
+                    && WorkspaceDiffHelper.isPublicDelete(entityVertex, authorizations)) {
+                publicDeletedVertices.add(entityVertex);
+            }
+        }
+        Map<String, String> titles = new HashMap<>();
+        if (publicDeletedVertices.size() > 0) {
+            List<FormulaEvaluator.FormulaResults> formulaResults = formulaEvaluator.evaluateFormulas(publicDeletedVertices, userContext, null);
+            for (int i = 0; i < publicDeletedVertices.size(); i++) {
+                titles.put(publicDeletedVertices.get(i).getId(), formulaResults.get(i).getTitle());
             }
         }
 
-        return result;
+        List<ClientApiWorkspaceDiff.Item> results = new ArrayList<>();
+        for (WorkspaceEntity workspaceEntity : workspaceEntities) {
+            String key = VERTEX_KEY_PREFIX + workspaceEntity.getEntityVertexId();
+            List<ClientApiWorkspaceDiff.Item> entityDiffs = cachedDiffs == null ? null : cachedDiffs.get(key);
+            if (entityDiffs == null) {
+                Vertex entityVertex = getEntityVertex(workspaceEntity, deletedVertices);
+                String title = entityVertex == null ? null : titles.get(entityVertex.getId());
+                entityDiffs = diffVertex(workspace, entityVertex, title, authorizations);
+                if (entityDiffs == null) {
+                    entityDiffs = Collections.emptyList();
+                }
+                if (cachedDiffs != null) {
+                    cachedDiffs.put(key, entityDiffs);
+                }
+            }
+            results.addAll(entityDiffs);
+        }
+        return results;
+    }
+
+    private static Vertex getEntityVertex(WorkspaceEntity workspaceEntity, Map<String, Vertex> deletedVertices) {
+        return workspaceEntity.getVertex() == null ?
+                deletedVertices.get(workspaceEntity.getEntityVertexId()) :
+                workspaceEntity.getVertex();
+    }
+
+    private List<ClientApiWorkspaceDiff.Item> diffEdges(
+            Workspace workspace,
+            List<Edge> edges,
+            Authorizations authorizations,
+            Map<String, List<ClientApiWorkspaceDiff.Item>> cachedDiffs
+    ) {
+        List<ClientApiWorkspaceDiff.Item> results = new ArrayList<>();
+        for (Edge edge : edges) {
+            String key = EDGE_KEY_PREFIX + edge.getId();
+            List<ClientApiWorkspaceDiff.Item> edgeDiffs = cachedDiffs == null ? null : cachedDiffs.get(key);
+            if (edgeDiffs == null) {
+                edgeDiffs = diffEdge(workspace, edge, authorizations);
+                if (cachedDiffs != null) {
+                    cachedDiffs.put(key, edgeDiffs);
+                }
+            }
+            results.addAll(edgeDiffs);
+        }
+        return results;
+    }
+
+    private Map<String, List<ClientApiWorkspaceDiff.Item>> getCachedDiffs(
+            String workspaceId,
+            User user,
+            FormulaEvaluator.UserContext userContext
+    ) {
+        if (diffCache == null) {
+            return null;
+        }
+        // nothing needs evicting before something is cached, so subscribing can wait until now
+        broadcastSubscription.ensureSubscribed();
+        try {
+            return diffCache.get(getCacheKey(workspaceId, user, userContext), ConcurrentHashMap::new);
+        } catch (ExecutionException ex) {
+            throw new VisalloException("Could not get cached diffs of workspace " + workspaceId, ex);
+        }
+    }
+
+    /**
+     * The titles of deleted vertices depend on the locale and time zone of the user's session, so sessions with a
+     * different locale or time zone have their own cached diffs.
+     */
+    private static String getCacheKey(String workspaceId, User user, FormulaEvaluator.UserContext userContext) {
+        String key = workspaceId + "\u001f" + user.getUserId();
+        if (userContext != null) {
+            key += "\u001f" + userContext.getLocale() + "\u001f" + userContext.getTimeZone();
+        }
+        return key;
+    }
+
+    /**
+     * Evicts the cached diffs of every element of a workspace.
+     */
+    public void invalidate(String workspaceId) {
+        if (diffCache == null) {
+            return;
+        }
+        String keyPrefix = workspaceId + "\u001f";
+        diffCache.asMap().keySet().removeIf(key -> key.startsWith(keyPrefix));
+    }
+
+    private void invalidateElement(String keyPrefix, String elementId) {
+        String key = keyPrefix + elementId;
+        for (Map<String, List<ClientApiWorkspaceDiff.Item>> cachedDiffs : diffCache.asMap().values()) {
+            cachedDiffs.remove(key);
+        }
+    }
+
+    private void handleBroadcast(JSONObject json) {
+        String type = json.optString("type", null);
+        if ("userAccessChange".equals(type)) {
+            diffCache.invalidateAll();
+            return;
+        }
+        if ("workspaceDelete".equals(type)) {
+            String workspaceId = json.optString("workspaceId", null);
+            if (workspaceId != null) {
+                invalidate(workspaceId);
+            }
+            return;
+        }
+
+        JSONObject data = json.optJSONObject("data");
+        if (data == null) {
+            return;
+        }
+        String vertexId = data.optString("graphVertexId", null);
+        if (vertexId != null) {
+            invalidateElement(VERTEX_KEY_PREFIX, vertexId);
+        }
+        String edgeId = data.optString("graphEdgeId", data.optString("edgeId", null));
+        if (edgeId != null) {
+            invalidateElement(EDGE_KEY_PREFIX, edgeId);
+        }
+        JSONArray vertexIds = data.optJSONArray("vertexIds");
+        if (vertexIds != null) {
+            for (int i = 0; i < vertexIds.length(); i++) {
+                invalidateElement(VERTEX_KEY_PREFIX, vertexIds.getString(i));
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        executorService.shutdownNow();
     }
 
     @Traced
@@ -140,19 +391,32 @@ public class WorkspaceDiffHelper {
             FormulaEvaluator.UserContext userContext,
             Authorizations authorizations
     ) {
-        List<ClientApiWorkspaceDiff.Item> result = new ArrayList<>();
-
-        EnumSet<FetchHint> hints = EnumSet.of(FetchHint.PROPERTIES, FetchHint.PROPERTY_METADATA, FetchHint.INCLUDE_HIDDEN);
         // Workspace vertex will be null if deleted, so retrieve with hidden
         Vertex entityVertex = workspaceEntity.getVertex() == null ?
-            this.graph.getVertex(workspaceEntity.getEntityVertexId(), hints, authorizations) :
+            this.graph.getVertex(workspaceEntity.getEntityVertexId(), DELETED_VERTEX_FETCH_HINTS, authorizations) :
             workspaceEntity.getVertex();
+        String title = entityVertex != null && WorkspaceDiffHelper.isPublicDelete(entityVertex, authorizations) ?
+                formulaEvaluator.evaluateTitleFormula(entityVertex, userContext, null) :
+                null;
+        return diffVertex(workspace, entityVertex, title, authorizations);
+    }
 
+    /**
+     * @param title the evaluated title of the vertex, only used if the vertex is deleted
+     */
+    private List<ClientApiWorkspaceDiff.Item> diffVertex(
+            Workspace workspace,
+            Vertex entityVertex,
+            String title,
+            Authorizations authorizations
+    ) {
         // vertex can be null if the user doesn't have access to the entity
         if (entityVertex == null) {
             return null;
         }
 
+        List<ClientApiWorkspaceDiff.Item> result = new ArrayList<>();
+
         SandboxStatus sandboxStatus = SandboxStatusUtil.getSandboxStatus(entityVertex, workspace.getWorkspaceId());
         boolean isPrivateChange = sandboxStatus != SandboxStatus.PUBLIC;
         boolean isPublicDelete = WorkspaceDiffHelper.isPublicDelete(entityVertex, authorizations);
@@ -160,7 +424,7 @@ public class WorkspaceDiffHelper {
             result.add(createWorkspaceDiffVertexItem(
                     entityVertex,
                     sandboxStatus,
-                    userContext,
+                    title,
                     isPublicDelete
             ));
         }
@@ -176,11 +440,10 @@ public class WorkspaceDiffHelper {
     private ClientApiWorkspaceDiff.VertexItem createWorkspaceDiffVertexItem(
             Vertex vertex,
             SandboxStatus sandboxStatus,
-            FormulaEvaluator.UserContext userContext,
+            String title,
             boolean deleted
     ) {
         String vertexId = vertex.getId();
-        String title = deleted ? formulaEvaluator.evaluateTitleFormula(vertex, userContext, null) : null;
         String conceptType = VisalloProperties.CONCEPT_TYPE.getPropertyValue(vertex);
         Property visibilityJsonProperty = VisalloProperties.VISIBILITY_JSON.getProperty(vertex);
         JsonNode visibilityJson = visibilityJsonProperty == null ? null : JSONUtil.toJsonNode(JsonSerializer.toJsonProperty(
@@ -208,6 +208,28 @@ public abstract class WorkspaceRepository {
 
     public abstract ClientApiWorkspaceDiff getDiff(Workspace workspace, User user, FormulaEvaluator.UserContext userContext);
 
+    /**
+     * Gets a page of the diff of a workspace along with the total number of diff items.
+     *
+     * @param offset the index of the first diff item to return
+     * @param size   the maximum number of diff items to return, or a negative number for all of the remaining items
+     */
+    public ClientApiWorkspaceDiff getDiff(
+            Workspace workspace,
+            User user,
+            FormulaEvaluator.UserContext userContext,
+            int offset,
+            int size
+    ) {
+        List<ClientApiWorkspaceDiff.Item> diffs = getDiff(workspace, user, userContext).getDiffs();
+        int start = Math.min(Math.max(0, offset), diffs.size());
+        int end = size < 0 ? diffs.size() : (int) Math.min((long) start + size, diffs.size());
+        ClientApiWorkspaceDiff result = new ClientApiWorkspaceDiff();
+        result.addAll(diffs.subList(start, end));
+        result.setTotalCount(diffs.size());
+        return result;
+    }
+
     public String getCreatorUserId(String workspaceId, User user) {
         for (WorkspaceUser workspaceUser : findUsersWithAccess(workspaceId, user)) {
             if (workspaceUser.isCreator()) {
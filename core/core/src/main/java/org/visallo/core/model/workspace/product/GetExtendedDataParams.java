@@ -5,6 +5,9 @@ import org.visallo.web.clientapi.model.ClientApiObject;
 public class GetExtendedDataParams implements ClientApiObject {
     private boolean includeVertices;
     private boolean includeEdges;
+    private String version;
+    private Integer offset;
+    private Integer size;
 
     public boolean isIncludeVertices() {
         return includeVertices;
@@ -23,4 +26,41 @@ public class GetExtendedDataParams implements ClientApiObject {
         this.includeEdges = includeEdges;
         return this;
     }
+
+    /**
+     * The version of the extended data the client already has, for products which can send only what changed since
+     * then.
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    public GetExtendedDataParams setVersion(String version) {
+        this.version = version;
+        return this;
+    }
+
+    /**
+     * The index of the first vertex to include, for products which can be loaded a page of vertices at a time.
+     */
+    public Integer getOffset() {
+        return offset;
+    }
+
+    public GetExtendedDataParams setOffset(Integer offset) {
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * The number of vertices to include, for products which can be loaded a page of vertices at a time.
+     */
+    public Integer getSize() {
+        return size;
+    }
+
+    public GetExtendedDataParams setSize(Integer size) {
+        this.size = size;
+        return this;
+    }
 }
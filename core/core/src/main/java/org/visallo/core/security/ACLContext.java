@@ -0,0 +1,91 @@
+package org.visallo.core.security;
+
+import org.visallo.core.model.ontology.*;
+import org.visallo.core.user.User;
+import org.visallo.web.clientapi.model.ClientApiPropertyAcl;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * The state needed to evaluate the ACLs of many elements for one user in one workspace, created by
+ * {@link ACLProvider#createContext(User, String)}. The privileges of the user and the ontology of the workspace are
+ * read once, and the ontology lookups and the property ACLs which do not depend on an element are remembered, so
+ * a context should only be used for a single request and is not thread safe.
+ */
+public class ACLContext {
+    private final User user;
+    private final String workspaceId;
+    private final Set<String> privileges;
+    private final Ontology ontology;
+    private final Map<String, Concept> conceptsByIri = new HashMap<>();
+    private final Map<String, Relationship> relationshipsByIri = new HashMap<>();
+    private final Map<String, OntologyElement> ontologyElementsByType = new HashMap<>();
+    private final Map<String, List<HasOntologyProperties>> ontologyHierarchiesByType = new HashMap<>();
+    private final Map<String, ClientApiPropertyAcl> defaultPropertyAcls = new HashMap<>();
+
+    ACLContext(User user, String workspaceId, Set<String> privileges, Ontology ontology) {
+        this.user = user;
+        this.workspaceId = workspaceId;
+        this.privileges = privileges;
+        this.ontology = ontology;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public String getWorkspaceId() {
+        return workspaceId;
+    }
+
+    public Set<String> getPrivileges() {
+        return privileges;
+    }
+
+    /**
+     * @return the ontology of the workspace or null if the ontology repository could not provide one, in which case
+     * concepts and relationships are looked up in the ontology repository.
+     */
+    public Ontology getOntology() {
+        return ontology;
+    }
+
+    Concept getConcept(String iri, Function<String, Concept> lookup) {
+        return getOrLookup(conceptsByIri, iri, lookup);
+    }
+
+    void putConcept(Concept concept) {
+        conceptsByIri.put(concept.getIRI(), concept);
+    }
+
+    Relationship getRelationship(String iri, Function<String, Relationship> lookup) {
+        return getOrLookup(relationshipsByIri, iri, lookup);
+    }
+
+    void putRelationship(Relationship relationship) {
+        relationshipsByIri.put(relationship.getIRI(), relationship);
+    }
+
+    OntologyElement getOntologyElement(String type, Function<String, OntologyElement> lookup) {
+        return getOrLookup(ontologyElementsByType, type, lookup);
+    }
+
+    List<HasOntologyProperties> getOntologyHierarchy(String type, Function<String, List<HasOntologyProperties>> lookup) {
+        return getOrLookup(ontologyHierarchiesByType, type, lookup);
+    }
+
+    ClientApiPropertyAcl getDefaultPropertyAcl(String type, String key, String name, Function<String, ClientApiPropertyAcl> lookup) {
+        return getOrLookup(defaultPropertyAcls, type + "\u001f" + key + "\u001f" + name, lookup);
+    }
+
+    // missing values are remembered as well so a missing concept is only looked up once
+    private static <T> T getOrLookup(Map<String, T> map, String key, Function<String, T> lookup) {
+        if (map.containsKey(key)) {
+            return map.get(key);
+        }
+        T value = lookup.apply(key);
+        map.put(key, value);
+        return value;
+    }
+}
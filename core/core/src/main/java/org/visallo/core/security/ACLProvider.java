@@ -214,51 +214,40 @@ public abstract class ACLProvider {
         }
     }
 
-    public final ClientApiElementAcl elementACL(ClientApiElement clientApiElement, User user, String workspaceId) {
+    /**
+     * Creates a context to evaluate the ACLs of many elements for the user in the workspace. Use it in place of the
+     * user and workspace id when appending ACLs to several objects of the same response.
+     */
+    public final ACLContext createContext(User user, String workspaceId) {
         Set<String> privileges = privilegeRepository.getPrivileges(user);
-        OntologyElement ontologyElement = getOntologyElement(clientApiElement, workspaceId);
-        return elementACL(clientApiElement, ontologyElement, null, privileges, user, workspaceId);
+        Ontology ontology = ontologyRepository.getOntology(workspaceId);
+        return new ACLContext(user, workspaceId, privileges, ontology);
     }
 
-    private ClientApiElementAcl elementACL(
-            ClientApiElement clientApiElement,
-            OntologyElement ontologyElement,
-            Ontology ontology,
-            Set<String> privileges,
-            User user,
-            String workspaceId
-    ) {
+    public final ClientApiElementAcl elementACL(ClientApiElement clientApiElement, User user, String workspaceId) {
+        return elementACL(clientApiElement, createContext(user, workspaceId));
+    }
+
+    public final ClientApiElementAcl elementACL(ClientApiElement clientApiElement, ACLContext context) {
         checkNotNull(clientApiElement, "clientApiElement is required");
+        OntologyElement ontologyElement = getOntologyElement(clientApiElement, context);
+        return elementACL(clientApiElement, ontologyElement, context);
+    }
+
+    private ClientApiElementAcl elementACL(ClientApiElement clientApiElement, OntologyElement ontologyElement, ACLContext context) {
+        Ontology ontology = context.getOntology();
+        Set<String> privileges = context.getPrivileges();
+        User user = context.getUser();
+        String workspaceId = context.getWorkspaceId();
         ClientApiElementAcl elementAcl = new ClientApiElementAcl();
         elementAcl.setAddable(true);
         elementAcl.setUpdateable(internalCanUpdateElement(clientApiElement, ontologyElement, ontology, privileges, user, workspaceId));
         elementAcl.setDeleteable(internalCanDeleteElement(clientApiElement, ontologyElement, ontology, privileges, user, workspaceId));
 
         List<ClientApiPropertyAcl> propertyAcls = elementAcl.getPropertyAcls();
-        if (clientApiElement instanceof ClientApiVertex) {
-            String iri = VisalloProperties.CONCEPT_TYPE.getPropertyValue(clientApiElement);
-            while (iri != null) {
-                Concept concept = ontology == null ? ontologyRepository.getConceptByIRI(iri, workspaceId) : ontology.getConceptByIri(iri);
-                if (concept == null) {
-                    LOGGER.warn("Could not find concept: %s", iri);
-                    break;
-                }
-                populatePropertyAcls(concept, clientApiElement, ontologyElement, ontology, privileges, user, workspaceId, propertyAcls);
-                iri = concept.getParentConceptIRI();
-            }
-        } else if (clientApiElement instanceof ClientApiEdge) {
-            String iri = ((ClientApiEdge) clientApiElement).getLabel();
-            while (iri != null) {
-                Relationship relationship = ontology == null ? ontologyRepository.getRelationshipByIRI(iri, workspaceId) : ontology.getRelationshipByIri(iri);
-                if (relationship == null) {
-                    LOGGER.warn("Could not find relationship: %s", iri);
-                    break;
-                }
-                populatePropertyAcls(relationship, clientApiElement, ontologyElement, ontology, privileges, user, workspaceId, propertyAcls);
-                iri = relationship.getParentIRI();
-            }
-        } else {
-            throw new VisalloException("unsupported ClientApiElement class " + clientApiElement.getClass().getName());
+        String ontologyElementType = getOntologyElementType(clientApiElement);
+        for (HasOntologyProperties hasOntologyProperties : getOntologyHierarchy(clientApiElement, context)) {
+            populatePropertyAcls(hasOntologyProperties, clientApiElement, ontologyElement, ontologyElementType, context, propertyAcls);
         }
         return elementAcl;
     }
@@ -267,38 +256,42 @@ public abstract class ACLProvider {
         if (user == null) {
             return clientApiObject;
         }
-        Set<String> privileges = privilegeRepository.getPrivileges(user);
-        Ontology ontology = ontologyRepository.getOntology(workspaceId);
-        return appendACL(clientApiObject, ontology, privileges, user, workspaceId);
+        return appendACL(clientApiObject, createContext(user, workspaceId));
     }
 
-    private ClientApiObject appendACL(ClientApiObject clientApiObject, Ontology ontology, Set<String> privileges, User user, String workspaceId) {
+    public final ClientApiObject appendACL(ClientApiObject clientApiObject, ACLContext context) {
         if (clientApiObject instanceof ClientApiElement) {
-            appendACL((ClientApiElement) clientApiObject, ontology, privileges, user, workspaceId);
+            appendACL((ClientApiElement) clientApiObject, context);
         } else if (clientApiObject instanceof ClientApiWorkspaceVertices) {
-            appendACL(((ClientApiWorkspaceVertices) clientApiObject).getVertices(), ontology, user, workspaceId);
+            appendACL(((ClientApiWorkspaceVertices) clientApiObject).getVertices(), context);
         } else if (clientApiObject instanceof ClientApiVertexMultipleResponse) {
-            appendACL(((ClientApiVertexMultipleResponse) clientApiObject).getVertices(), ontology, user, workspaceId);
+            appendACL(((ClientApiVertexMultipleResponse) clientApiObject).getVertices(), context);
         } else if (clientApiObject instanceof ClientApiEdgeMultipleResponse) {
-            appendACL(((ClientApiEdgeMultipleResponse) clientApiObject).getEdges(), ontology, user, workspaceId);
+            appendACL(((ClientApiEdgeMultipleResponse) clientApiObject).getEdges(), context);
         } else if (clientApiObject instanceof ClientApiElementSearchResponse) {
-            appendACL(((ClientApiElementSearchResponse) clientApiObject).getElements(), ontology, user, workspaceId);
+            appendACL(((ClientApiElementSearchResponse) clientApiObject).getElements(), context);
             List<ClientApiVertexiumObject> referencedElements = ((ClientApiElementSearchResponse) clientApiObject).getReferencedElements();
             if (referencedElements != null) {
-                appendACL(referencedElements, ontology, user, workspaceId);
+                appendACL(referencedElements, context);
             }
         } else if (clientApiObject instanceof ClientApiEdgeSearchResponse) {
-            appendACL(((ClientApiEdgeSearchResponse) clientApiObject).getResults(), ontology, user, workspaceId);
+            appendACL(((ClientApiEdgeSearchResponse) clientApiObject).getResults(), context);
         } else if (clientApiObject instanceof ClientApiVertexEdges) {
             ClientApiVertexEdges vertexEdges = (ClientApiVertexEdges) clientApiObject;
-            appendACL(vertexEdges, ontology, privileges, user, workspaceId);
+            appendACL(vertexEdges, context);
         } else if (clientApiObject instanceof ClientApiElementFindRelatedResponse) {
-            appendACL(((ClientApiElementFindRelatedResponse) clientApiObject).getElements(), ontology, user, workspaceId);
+            appendACL(((ClientApiElementFindRelatedResponse) clientApiObject).getElements(), context);
         }
 
         return clientApiObject;
     }
 
+    public final void appendACL(Collection<? extends ClientApiObject> clientApiObjects, ACLContext context) {
+        for (ClientApiObject apiObject : clientApiObjects) {
+            appendACL(apiObject, context);
+        }
+    }
+
     protected final boolean isComment(String propertyName) {
         return VisalloProperties.COMMENT.isSameName(propertyName);
     }
@@ -337,27 +330,13 @@ public abstract class ACLProvider {
         return false;
     }
 
-    private void appendACL(Collection<? extends ClientApiObject> clientApiObject, Ontology ontology, User user, String workspaceId) {
-        Set<String> privileges = privilegeRepository.getPrivileges(user);
-        for (ClientApiObject apiObject : clientApiObject) {
-            appendACL(apiObject, ontology, privileges, user, workspaceId);
-        }
-    }
-
-    private void appendACL(ClientApiElement clientApiElement, Ontology ontology, Set<String> privileges, User user, String workspaceId) {
-        OntologyElement ontologyElement = getOntologyElement(clientApiElement, ontology, workspaceId);
-
-        appendACL(clientApiElement, ontologyElement, ontology, privileges, user, workspaceId);
-    }
+    private void appendACL(ClientApiElement clientApiElement, ACLContext context) {
+        OntologyElement ontologyElement = getOntologyElement(clientApiElement, context);
+        Ontology ontology = context.getOntology();
+        Set<String> privileges = context.getPrivileges();
+        User user = context.getUser();
+        String workspaceId = context.getWorkspaceId();
 
-    private void appendACL(
-            ClientApiElement clientApiElement,
-            OntologyElement ontologyElement,
-            Ontology ontology,
-            Set<String> privileges,
-            User user,
-            String workspaceId
-    ) {
         for (ClientApiProperty apiProperty : clientApiElement.getProperties()) {
             String key = apiProperty.getKey();
             String name = apiProperty.getName();
@@ -368,18 +347,18 @@ public abstract class ACLProvider {
         clientApiElement.setUpdateable(internalCanUpdateElement(clientApiElement, ontologyElement, ontology, privileges, user, workspaceId));
         clientApiElement.setDeleteable(internalCanDeleteElement(clientApiElement, ontologyElement, ontology, privileges, user, workspaceId));
 
-        clientApiElement.setAcl(elementACL(clientApiElement, ontologyElement, ontology, privileges, user, workspaceId));
+        clientApiElement.setAcl(elementACL(clientApiElement, ontologyElement, context));
 
         if (clientApiElement instanceof ClientApiEdgeWithVertexData) {
-            appendACL(((ClientApiEdgeWithVertexData) clientApiElement).getSource(), ontology, privileges, user, workspaceId);
-            appendACL(((ClientApiEdgeWithVertexData) clientApiElement).getTarget(), ontology, privileges, user, workspaceId);
+            appendACL(((ClientApiEdgeWithVertexData) clientApiElement).getSource(), context);
+            appendACL(((ClientApiEdgeWithVertexData) clientApiElement).getTarget(), context);
         }
     }
 
-    private void appendACL(ClientApiVertexEdges edges, Ontology ontology, Set<String> privileges, User user, String workspaceId) {
+    private void appendACL(ClientApiVertexEdges edges, ACLContext context) {
         for (ClientApiVertexEdges.Edge vertexEdge : edges.getRelationships()) {
-            appendACL(vertexEdge.getRelationship(), ontology, privileges, user, workspaceId);
-            appendACL(vertexEdge.getVertex(), ontology, privileges, user, workspaceId);
+            appendACL(vertexEdge.getRelationship(), context);
+            appendACL(vertexEdge.getVertex(), context);
         }
     }
 
@@ -387,12 +366,14 @@ public abstract class ACLProvider {
             HasOntologyProperties hasOntologyProperties,
             ClientApiElement clientApiElement,
             OntologyElement ontologyElement,
-            Ontology ontology,
-            Set<String> privileges,
-            User user,
-            String workspaceId,
+            String ontologyElementType,
+            ACLContext context,
             List<ClientApiPropertyAcl> propertyAcls
     ) {
+        Ontology ontology = context.getOntology();
+        Set<String> privileges = context.getPrivileges();
+        User user = context.getUser();
+        String workspaceId = context.getWorkspaceId();
         Collection<OntologyProperty> ontologyProperties = hasOntologyProperties.getProperties();
         Set<String> addedPropertyNames = new HashSet<>();
         for (OntologyProperty ontologyProperty : ontologyProperties) {
@@ -408,16 +389,7 @@ public abstract class ACLProvider {
                         user,
                         workspaceId
                 );
-                ClientApiPropertyAcl defaultAcl = newClientApiPropertyAcl(
-                        null,
-                        ontologyElement,
-                        property.getKey(),
-                        propertyName,
-                        ontology,
-                        privileges,
-                        user,
-                        workspaceId
-                );
+                ClientApiPropertyAcl defaultAcl = getDefaultPropertyAcl(ontologyElement, ontologyElementType, property.getKey(), propertyName, context);
                 if (!acl.equals(defaultAcl)) {
                     propertyAcls.add(acl);
                 }
@@ -441,16 +413,7 @@ public abstract class ACLProvider {
                                     user,
                                     workspaceId
                             );
-                            ClientApiPropertyAcl defaultAcl = newClientApiPropertyAcl(
-                                    null,
-                                    ontologyElement,
-                                    null,
-                                    propertyName,
-                                    ontology,
-                                    privileges,
-                                    user,
-                                    workspaceId
-                            );
+                            ClientApiPropertyAcl defaultAcl = getDefaultPropertyAcl(ontologyElement, ontologyElementType, null, propertyName, context);
                             return acl.equals(defaultAcl) ? null : acl;
                         })
                         .filter(Objects::nonNull)
@@ -458,6 +421,29 @@ public abstract class ACLProvider {
         );
     }
 
+    /**
+     * The ACL of a property without an element only depends on the ontology element, so it is computed once per
+     * context for each ontology element, property key and property name.
+     */
+    private ClientApiPropertyAcl getDefaultPropertyAcl(
+            OntologyElement ontologyElement,
+            String ontologyElementType,
+            String key,
+            String name,
+            ACLContext context
+    ) {
+        return context.getDefaultPropertyAcl(ontologyElementType, key, name, k -> newClientApiPropertyAcl(
+                null,
+                ontologyElement,
+                key,
+                name,
+                context.getOntology(),
+                context.getPrivileges(),
+                context.getUser(),
+                context.getWorkspaceId()
+        ));
+    }
+
     private ClientApiPropertyAcl newClientApiPropertyAcl(
             ClientApiElement clientApiElement,
             OntologyElement ontologyElement,
@@ -631,6 +617,74 @@ public abstract class ACLProvider {
         throw new VisalloException("Unexpected " + ClientApiVertex.class.getName() + " found " + clientApiElement.getClass().getName());
     }
 
+    private OntologyElement getOntologyElement(ClientApiElement clientApiElement, ACLContext context) {
+        return context.getOntologyElement(getOntologyElementType(clientApiElement), type -> {
+            OntologyElement ontologyElement = getOntologyElement(clientApiElement, context.getOntology(), context.getWorkspaceId());
+            if (ontologyElement instanceof Concept) {
+                context.putConcept((Concept) ontologyElement);
+            } else if (ontologyElement instanceof Relationship) {
+                context.putRelationship((Relationship) ontologyElement);
+            }
+            return ontologyElement;
+        });
+    }
+
+    private static String getOntologyElementType(ClientApiElement clientApiElement) {
+        if (clientApiElement instanceof ClientApiEdge) {
+            return "relationship:" + ((ClientApiEdge) clientApiElement).getLabel();
+        }
+        if (clientApiElement instanceof ClientApiVertex) {
+            return "concept:" + VisalloProperties.CONCEPT_TYPE.getPropertyValue(clientApiElement, CONCEPT_TYPE_THING);
+        }
+        throw new VisalloException("unsupported ClientApiElement class " + clientApiElement.getClass().getName());
+    }
+
+    /**
+     * @return the concept of the vertex and its parents, or the relationship of the edge and its parents.
+     */
+    private List<HasOntologyProperties> getOntologyHierarchy(ClientApiElement clientApiElement, ACLContext context) {
+        if (clientApiElement instanceof ClientApiVertex) {
+            String conceptType = VisalloProperties.CONCEPT_TYPE.getPropertyValue(clientApiElement);
+            if (conceptType == null) {
+                return Collections.emptyList();
+            }
+            return context.getOntologyHierarchy("concept:" + conceptType, type -> {
+                List<HasOntologyProperties> hierarchy = new ArrayList<>();
+                String iri = conceptType;
+                while (iri != null) {
+                    Concept concept = context.getConcept(iri, conceptIri -> getOntologyConcept(conceptIri, context.getOntology(), context.getWorkspaceId()));
+                    if (concept == null) {
+                        LOGGER.warn("Could not find concept: %s", iri);
+                        break;
+                    }
+                    hierarchy.add(concept);
+                    iri = concept.getParentConceptIRI();
+                }
+                return hierarchy;
+            });
+        } else if (clientApiElement instanceof ClientApiEdge) {
+            String label = ((ClientApiEdge) clientApiElement).getLabel();
+            if (label == null) {
+                return Collections.emptyList();
+            }
+            return context.getOntologyHierarchy("relationship:" + label, type -> {
+                List<HasOntologyProperties> hierarchy = new ArrayList<>();
+                String iri = label;
+                while (iri != null) {
+                    Relationship relationship = context.getRelationship(iri, relationshipIri -> getOntologyRelationship(relationshipIri, context.getOntology(), context.getWorkspaceId()));
+                    if (relationship == null) {
+                        LOGGER.warn("Could not find relationship: %s", iri);
+                        break;
+                    }
+                    hierarchy.add(relationship);
+                    iri = relationship.getParentIRI();
+                }
+                return hierarchy;
+            });
+        }
+        throw new VisalloException("unsupported ClientApiElement class " + clientApiElement.getClass().getName());
+    }
+
     private Relationship getOntologyRelationshipFromElement(Edge e, Ontology ontology, String workspaceId) {
         String label = e.getLabel();
         return getOntologyRelationshipFromElement(label, ontology, workspaceId);
@@ -643,11 +697,15 @@ public abstract class ACLProvider {
 
     private Relationship getOntologyRelationshipFromElement(String edgeLabel, Ontology ontology, String workspaceId) {
         checkNotNull(edgeLabel, "Edge label cannot be null");
-        Relationship relationship = ontology == null ? ontologyRepository.getRelationshipByIRI(edgeLabel, workspaceId) : ontology.getRelationshipByIri(edgeLabel);
+        Relationship relationship = getOntologyRelationship(edgeLabel, ontology, workspaceId);
         checkNotNull(relationship, edgeLabel + " does not exist in ontology");
         return relationship;
     }
 
+    private Relationship getOntologyRelationship(String iri, Ontology ontology, String workspaceId) {
+        return ontology == null ? ontologyRepository.getRelationshipByIRI(iri, workspaceId) : ontology.getRelationshipByIri(iri);
+    }
+
     private Concept getOntologyConceptFromElement(Vertex vertex, Ontology ontology, String workspaceId) {
         String iri = VisalloProperties.CONCEPT_TYPE.getPropertyValue(vertex, CONCEPT_TYPE_THING);
         return getOntologyConcept(iri, ontology, workspaceId);
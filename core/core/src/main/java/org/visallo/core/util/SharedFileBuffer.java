@@ -0,0 +1,218 @@
+package org.visallo.core.util;
+
+import org.visallo.core.status.PausableTimerContext;
+import org.visallo.core.status.PausableTimerContextAware;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Copies a source stream to a file while any number of readers read it, each with its own position. Unlike
+ * {@link TeeInputStream} readers share no lock and never throttle each other or the writer, data is spilled to
+ * disk instead of being held in a cyclic buffer. Readers use positional reads of the shared channel, which are
+ * served from the page cache while the file is recent, and nothing but the channel has to be released on
+ * {@link #close()}. Once written the file can be used directly by code which requires a local file.
+ */
+public class SharedFileBuffer implements Closeable {
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(SharedFileBuffer.class);
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final long READER_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private final File file;
+    private final FileChannel channel;
+    private final Queue<Thread> waitingReaders = new ConcurrentLinkedQueue<>();
+    private volatile long committedLength;
+    private volatile boolean complete;
+    private volatile IOException failure;
+
+    public SharedFileBuffer(File file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(
+                file.toPath(),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE
+        );
+    }
+
+    /**
+     * Copies the source to the file, making data available to readers as it is written. Must be called from a
+     * single thread.
+     *
+     * @return the number of bytes written.
+     */
+    public long writeFrom(InputStream source) throws IOException {
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        try {
+            int read;
+            while ((read = source.read(buffer)) != -1) {
+                ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+                while (byteBuffer.hasRemaining()) {
+                    channel.write(byteBuffer);
+                }
+                committedLength += read;
+                unparkReaders();
+            }
+            return committedLength;
+        } catch (IOException ex) {
+            failure = ex;
+            throw ex;
+        } finally {
+            complete = true;
+            unparkReaders();
+        }
+    }
+
+    public InputStream newReader() {
+        return new Reader();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long getLength() {
+        return committedLength;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    private void unparkReaders() {
+        Thread reader;
+        while ((reader = waitingReaders.poll()) != null) {
+            LockSupport.unpark(reader);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private class Reader extends InputStream implements PausableTimerContextAware {
+        private long position;
+        private boolean closed;
+        private PausableTimerContext pausableTimerContext;
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int read = read(b, 0, 1);
+            return read == -1 ? -1 : (b[0] & 0xff);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            long available = waitForData();
+            if (available <= 0) {
+                return -1;
+            }
+            int readLength = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, available)), position);
+            if (readLength <= 0) {
+                throw new IOException("Could not read committed data from " + file.getAbsolutePath() + " at " + position);
+            }
+            position += readLength;
+            return readLength;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (n <= 0 || closed) {
+                return 0;
+            }
+            long skipped = 0;
+            while (skipped < n) {
+                long available = waitForData();
+                if (available <= 0) {
+                    break;
+                }
+                long skip = Math.min(n - skipped, available);
+                position += skip;
+                skipped += skip;
+            }
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            if (closed) {
+                return 0;
+            }
+            return (int) Math.min(Integer.MAX_VALUE, Math.max(0, committedLength - position));
+        }
+
+        /**
+         * @return the number of bytes available at the current position, 0 or less at the end of the stream.
+         */
+        private long waitForData() throws IOException {
+            while (true) {
+                long available = committedLength - position;
+                if (available > 0) {
+                    return available;
+                }
+                if (failure != null) {
+                    throw new IOException("Failed to read source of " + file.getAbsolutePath(), failure);
+                }
+                if (complete) {
+                    return committedLength - position;
+                }
+                pauseTimer();
+                try {
+                    Thread currentThread = Thread.currentThread();
+                    waitingReaders.add(currentThread);
+                    // recheck after registering so a write between the check and park is never missed
+                    if (committedLength - position <= 0 && !complete) {
+                        LockSupport.parkNanos(this, READER_PARK_NANOS);
+                    }
+                    waitingReaders.remove(currentThread);
+                    if (Thread.interrupted()) {
+                        throw new IOException("Interrupted waiting for data from " + file.getAbsolutePath());
+                    }
+                } finally {
+                    resumeTimer();
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            LOGGER.debug("Closing reader of %s at %d", file.getAbsolutePath(), position);
+            closed = true;
+            super.close();
+        }
+
+        @Override
+        public void setPausableTimerContext(PausableTimerContext pausableTimerContext) {
+            this.pausableTimerContext = pausableTimerContext;
+        }
+
+        private void pauseTimer() {
+            if (this.pausableTimerContext != null) {
+                this.pausableTimerContext.pause();
+            }
+        }
+
+        private void resumeTimer() {
+            if (this.pausableTimerContext != null) {
+                this.pausableTimerContext.resume();
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.visallo.core.util;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.vertexium.Element;
+import org.vertexium.Property;
+import org.vertexium.property.StreamingPropertyValue;
+import org.visallo.core.exception.VisalloException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads byte ranges of streaming property values. Ranges of values copied to the local spool cache, or stored in
+ * local files, are read by positioning the file directly, other values are read from the start and skipped up to
+ * the range.
+ */
+@Singleton
+public class StreamingPropertyValueRangeReader {
+    private final StreamingPropertyValueSpoolCache spoolCache;
+
+    @Inject
+    public StreamingPropertyValueRangeReader(StreamingPropertyValueSpoolCache spoolCache) {
+        this.spoolCache = spoolCache;
+    }
+
+    /**
+     * @param start  the position of the first byte to read
+     * @param length the number of bytes to read
+     */
+    public InputStream read(Element element, Property property, long start, long length) throws IOException {
+        if (!(property.getValue() instanceof StreamingPropertyValue)) {
+            throw new VisalloException("Property " + property.getName() + " on " + element.getId() + " is not a streaming property value");
+        }
+
+        InputStream in = null;
+        File file = spoolCache.getFile(element, property);
+        if (file != null) {
+            try {
+                in = new FileInputStream(file);
+            } catch (FileNotFoundException ex) {
+                // evicted from the spool cache after it was looked up
+            }
+        }
+        if (in == null) {
+            in = ((StreamingPropertyValue) property.getValue()).getInputStream();
+        }
+        try {
+            seek(in, start);
+        } catch (IOException | RuntimeException ex) {
+            in.close();
+            throw ex;
+        }
+        return new LimitInputStream(in, length);
+    }
+
+    static void seek(InputStream in, long position) throws IOException {
+        if (position <= 0) {
+            return;
+        }
+        if (in instanceof FileInputStream) {
+            ((FileInputStream) in).getChannel().position(position);
+            return;
+        }
+
+        // skip may skip fewer bytes than requested without reaching the end of the stream
+        long remaining = position;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped > 0) {
+                remaining -= skipped;
+            } else if (in.read() == -1) {
+                throw new VisalloException("Could not seek to " + position + ", stream ended after " + (position - remaining) + " bytes");
+            } else {
+                remaining--;
+            }
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package org.visallo.core.util;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.vertexium.Element;
+import org.vertexium.Property;
+import org.vertexium.property.StreamingPropertyValue;
+import org.visallo.core.config.Configuration;
+import org.visallo.core.exception.VisalloException;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Copies streaming property values which are read often, such as media being played back, to local files so
+ * they can be read from any position without going back to the storage backing the value. A value is only copied
+ * once it has been read {@link #CONFIG_MIN_READS} times, so values read once are never copied. The least recently
+ * used files are deleted when the cache grows beyond its configured size.
+ * <p/>
+ * Each process spools to its own subdirectory of the configured directory, which is deleted on shutdown.
+ */
+@Singleton
+public class StreamingPropertyValueSpoolCache implements ShutdownListener {
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(StreamingPropertyValueSpoolCache.class);
+    public static final String CONFIG_DIRECTORY = StreamingPropertyValueSpoolCache.class.getName() + ".directory";
+    public static final String CONFIG_MAX_SIZE = StreamingPropertyValueSpoolCache.class.getName() + ".maxSize";
+    public static final long DEFAULT_MAX_SIZE = 1024L * 1024L * 1024L;
+    public static final String CONFIG_MIN_LENGTH = StreamingPropertyValueSpoolCache.class.getName() + ".minLength";
+    public static final long DEFAULT_MIN_LENGTH = 1024L * 1024L;
+    public static final String CONFIG_MIN_READS = StreamingPropertyValueSpoolCache.class.getName() + ".minReads";
+    public static final int DEFAULT_MIN_READS = 2;
+    private static final int MAX_READ_COUNTS = 10000;
+    private static final String FILE_EXTENSION = ".spool";
+    private final File directory;
+    private final long maxSize;
+    private final long minLength;
+    private final int minReads;
+    private final Map<String, File> files = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Integer> readCounts = new LinkedHashMap<String, Integer>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+            return size() > MAX_READ_COUNTS;
+        }
+    };
+    private final Set<String> spoolingKeys = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executorService;
+    private long size;
+
+    @Inject
+    public StreamingPropertyValueSpoolCache(Configuration configuration, ShutdownService shutdownService) {
+        this.maxSize = configuration.getLong(CONFIG_MAX_SIZE, DEFAULT_MAX_SIZE);
+        this.minLength = configuration.getLong(CONFIG_MIN_LENGTH, DEFAULT_MIN_LENGTH);
+        this.minReads = Math.max(1, configuration.getInt(CONFIG_MIN_READS, DEFAULT_MIN_READS));
+        this.executorService = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "spool-cache");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.directory = isEnabled() ? createDirectory(configuration) : null;
+        shutdownService.register(this);
+    }
+
+    /**
+     * Other processes on the same host may use the same configured directory, so this process only ever writes to
+     * and deletes from a subdirectory of its own.
+     */
+    private static File createDirectory(Configuration configuration) {
+        File parentDirectory = new File(configuration.get(
+                CONFIG_DIRECTORY,
+                new File(System.getProperty("java.io.tmpdir"), "visallo-spool").getAbsolutePath()
+        ));
+        try {
+            FileUtils.forceMkdir(parentDirectory);
+            return Files.createTempDirectory(parentDirectory.toPath(), "spool-").toFile();
+        } catch (IOException ex) {
+            throw new VisalloException("Could not create spool directory in " + parentDirectory, ex);
+        }
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    /**
+     * @return the local copy of the property's value, or null if it has not been copied. Values within the
+     * configured size limits which have been read often enough are copied in the background. The file may be
+     * deleted at any time to make room for other values, callers must fall back to the value if it is gone.
+     */
+    public File getFile(Element element, Property property) {
+        if (!isEnabled() || !(property.getValue() instanceof StreamingPropertyValue)) {
+            return null;
+        }
+        String key = getKey(element, property);
+        synchronized (files) {
+            File file = files.get(key);
+            if (file != null) {
+                return file;
+            }
+        }
+
+        StreamingPropertyValue value = (StreamingPropertyValue) property.getValue();
+        Long length = value.getLength();
+        if (length == null || length < minLength || length > maxSize) {
+            return null;
+        }
+        if (!isReadOften(key)) {
+            return null;
+        }
+        if (spoolingKeys.add(key)) {
+            try {
+                executorService.execute(() -> {
+                    try {
+                        spool(key, value);
+                    } finally {
+                        spoolingKeys.remove(key);
+                    }
+                });
+            } catch (RejectedExecutionException ex) {
+                spoolingKeys.remove(key);
+            }
+        }
+        return null;
+    }
+
+    private boolean isReadOften(String key) {
+        synchronized (readCounts) {
+            Integer readCount = readCounts.get(key);
+            readCount = readCount == null ? 1 : readCount + 1;
+            if (readCount >= minReads) {
+                readCounts.remove(key);
+                return true;
+            }
+            readCounts.put(key, readCount);
+            return false;
+        }
+    }
+
+    private void spool(String key, StreamingPropertyValue value) {
+        File file = new File(directory, key + FILE_EXTENSION);
+        File tempFile = new File(directory, key + FILE_EXTENSION + ".tmp");
+        try {
+            try (InputStream in = value.getInputStream(); OutputStream out = new FileOutputStream(tempFile)) {
+                IOUtils.copyLarge(in, out);
+            }
+            if (!tempFile.renameTo(file)) {
+                throw new VisalloException("Could not rename " + tempFile + " to " + file);
+            }
+        } catch (Exception ex) {
+            LOGGER.error("Could not spool %s", key, ex);
+            FileUtils.deleteQuietly(tempFile);
+            return;
+        }
+
+        synchronized (files) {
+            File existingFile = files.put(key, file);
+            if (existingFile == null) {
+                size += file.length();
+            }
+            Iterator<Map.Entry<String, File>> eldest = files.entrySet().iterator();
+            while (size > maxSize && eldest.hasNext()) {
+                File eldestFile = eldest.next().getValue();
+                size -= eldestFile.length();
+                FileUtils.deleteQuietly(eldestFile);
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * The key changes whenever the property is updated so stale copies are never returned.
+     */
+    private static String getKey(Element element, Property property) {
+        return DigestUtils.sha1Hex(
+                element.getId() + "\u001f" + property.getName() + "\u001f" + property.getKey() + "\u001f" + property.getTimestamp()
+        );
+    }
+
+    @Override
+    public void shutdown() {
+        executorService.shutdownNow();
+        if (directory != null) {
+            FileUtils.deleteQuietly(directory);
+        }
+    }
+}
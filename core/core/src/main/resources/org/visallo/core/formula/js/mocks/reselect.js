@@ -3,12 +3,19 @@ define([], function() {
         createSelector: function(deps, callback) {
             if (!_.isArray(deps)) {
                 deps = _.toArray(arguments);
-                callback = deps.unshift();
+                callback = deps.pop();
             }
+            var lastValues, lastResult;
             return function(state) {
-                return callback.apply(null, deps.map(function(dep) {
+                var values = deps.map(function(dep) {
                     return dep(state);
-                }))
+                });
+                // like reselect only recompute when an input changes
+                if (!lastValues || _.some(values, function(value, i) { return value !== lastValues[i]; })) {
+                    lastResult = callback.apply(null, values);
+                    lastValues = values;
+                }
+                return lastResult;
             }
         }
     }
@@ -1,19 +1,28 @@
 define(['util/promise'], function(Promise) {
 console.log('in store')
     var promise;
-    var parsedOntology = JSON.parse(ONTOLOGY_JSON);
-    var ontology = {
-        concepts: _.indexBy(parsedOntology.concepts, "id"),
-        relationships: _.indexBy(parsedOntology.relationships, "title"),
-        properties: _.indexBy(parsedOntology.properties, "title")
-    };
-    var workspaceOntology = {};
-    workspaceOntology['WORKSPACE_ID'] = ontology;
+    var state = { workspace: { currentId: 'WORKSPACE_ID' }, ontology: {} };
+    updateOntologyJson(ONTOLOGY_JSON);
+
+    // called by FormulaEvaluator when the ontology bound to this scope changes
+    window.updateOntologyJson = updateOntologyJson;
+
+    function updateOntologyJson(json) {
+        var parsedOntology = JSON.parse(json);
+        var ontology = {
+            concepts: _.indexBy(parsedOntology.concepts, "id"),
+            relationships: _.indexBy(parsedOntology.relationships, "title"),
+            properties: _.indexBy(parsedOntology.properties, "title")
+        };
+        // replaced rather than modified so memoized selectors recompute
+        state.ontology = { 'WORKSPACE_ID': ontology };
+        promise = null;
+    }
 
     return {
         getStore: function() {
             return {
-                getState: function () { return { workspace: { currentId: 'WORKSPACE_ID' }, ontology: workspaceOntology }; },
+                getState: function () { return state; },
                 subscribe: function() {},
                 observe: function(handler) { handler(this.getState(), this.getState())}
             };
@@ -23,7 +32,7 @@ console.log('in store')
                 return JSON.parse(JSON.stringify(o));
             });
 
-            var copied = callback({ ontology: workspaceOntology })
+            var copied = callback({ ontology: state.ontology })
             return (promise = Promise.resolve(copied));
         }
     }
@@ -0,0 +1,200 @@
+package org.visallo.model.queue.inmemory;
+
+import org.visallo.core.model.workQueue.Priority;
+import org.visallo.core.util.VisalloLogger;
+import org.visallo.core.util.VisalloLoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A queue with one lock-free deque per {@link Priority}. Consumers take from the priorities using a weighted
+ * round robin (HIGH 4, NORMAL 2, LOW 1) so lower priorities are never starved, falling back to the highest
+ * non-empty priority when the scheduled one is empty. Waiting producers and consumers are parked rather than
+ * sleeping, and are unparked as soon as space or data becomes available.
+ */
+public class InMemoryPriorityQueue {
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(InMemoryPriorityQueue.class);
+    private static final Priority[] PRIORITY_SCHEDULE = new Priority[]{
+            Priority.HIGH, Priority.HIGH, Priority.HIGH, Priority.HIGH,
+            Priority.NORMAL, Priority.NORMAL,
+            Priority.LOW
+    };
+    private static final Priority[] PRIORITY_FALLBACK_ORDER = new Priority[]{Priority.HIGH, Priority.NORMAL, Priority.LOW};
+    private final String name;
+    private final int capacity;
+    private final long pushTimeoutNanos;
+    private final Map<Priority, Deque<byte[]>> deques = new EnumMap<>(Priority.class);
+    private final AtomicInteger size = new AtomicInteger(0);
+    private final AtomicLong takeCount = new AtomicLong(0);
+    private final Queue<Thread> waitingConsumers = new ConcurrentLinkedQueue<>();
+    private final Queue<Thread> waitingProducers = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param capacity        maximum number of items before producers are blocked, 0 or less for unbounded.
+     * @param pushTimeoutMillis how long a producer waits for space before adding the item anyway. Waiting
+     *                        indefinitely could deadlock workers which push onto the queue they consume from.
+     */
+    public InMemoryPriorityQueue(String name, int capacity, long pushTimeoutMillis) {
+        this.name = name;
+        this.capacity = capacity;
+        this.pushTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(pushTimeoutMillis);
+        for (Priority priority : Priority.values()) {
+            deques.put(priority, new ConcurrentLinkedDeque<>());
+        }
+    }
+
+    public void push(byte[] data, Priority priority) {
+        if (priority == null) {
+            priority = Priority.NORMAL;
+        }
+        reserveCapacity();
+        deques.get(priority).offerLast(data);
+        unparkOne(waitingConsumers);
+    }
+
+    private void reserveCapacity() {
+        if (capacity <= 0) {
+            size.incrementAndGet();
+            return;
+        }
+        long deadline = System.nanoTime() + pushTimeoutNanos;
+        while (true) {
+            int currentSize = size.get();
+            if (currentSize < capacity) {
+                if (size.compareAndSet(currentSize, currentSize + 1)) {
+                    return;
+                }
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || Thread.currentThread().isInterrupted()) {
+                LOGGER.warn("queue %s is full (capacity: %d), adding item after waiting %dms", name, capacity, TimeUnit.NANOSECONDS.toMillis(pushTimeoutNanos));
+                size.incrementAndGet();
+                return;
+            }
+            park(waitingProducers, remaining, () -> size.get() < capacity);
+        }
+    }
+
+    /**
+     * @return the next item or null if no item became available before the timeout.
+     */
+    public byte[] poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (true) {
+            byte[] data = tryPoll();
+            if (data != null) {
+                return data;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return null;
+            }
+            park(waitingConsumers, remaining, () -> size.get() > 0);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    /**
+     * Waits up to the timeout for at least one item and then returns up to maxCount items without waiting further.
+     */
+    public List<byte[]> poll(int maxCount, long timeout, TimeUnit unit) throws InterruptedException {
+        List<byte[]> results = new ArrayList<>();
+        byte[] first = poll(timeout, unit);
+        if (first == null) {
+            return results;
+        }
+        results.add(first);
+        while (results.size() < maxCount) {
+            byte[] data = tryPoll();
+            if (data == null) {
+                break;
+            }
+            results.add(data);
+        }
+        return results;
+    }
+
+    private byte[] tryPoll() {
+        if (size.get() == 0) {
+            return null;
+        }
+        Priority scheduled = PRIORITY_SCHEDULE[(int) (takeCount.getAndIncrement() % PRIORITY_SCHEDULE.length)];
+        byte[] data = deques.get(scheduled).pollFirst();
+        if (data == null) {
+            for (Priority priority : PRIORITY_FALLBACK_ORDER) {
+                data = deques.get(priority).pollFirst();
+                if (data != null) {
+                    break;
+                }
+            }
+        }
+        if (data != null) {
+            size.decrementAndGet();
+            unparkOne(waitingProducers);
+        }
+        return data;
+    }
+
+    private void park(Queue<Thread> waiters, long nanos, Condition condition) {
+        Thread currentThread = Thread.currentThread();
+        waiters.add(currentThread);
+        try {
+            // recheck after registering so a push between our check and park is never missed
+            if (!condition.isMet()) {
+                LockSupport.parkNanos(this, nanos);
+            }
+        } finally {
+            waiters.remove(currentThread);
+        }
+    }
+
+    private void unparkOne(Queue<Thread> waiters) {
+        Thread waiter = waiters.poll();
+        if (waiter != null) {
+            LockSupport.unpark(waiter);
+        }
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public int size(Priority priority) {
+        return deques.get(priority).size();
+    }
+
+    public void clear() {
+        for (Deque<byte[]> deque : deques.values()) {
+            while (deque.pollFirst() != null) {
+                size.decrementAndGet();
+                unparkOne(waitingProducers);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "InMemoryPriorityQueue{" +
+                "name='" + name + '\'' +
+                ", size=" + size.get() +
+                '}';
+    }
+
+    private interface Condition {
+        boolean isMet();
+    }
+}
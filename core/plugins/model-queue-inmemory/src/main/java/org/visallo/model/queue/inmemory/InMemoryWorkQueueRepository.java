@@ -11,11 +11,22 @@ import org.visallo.core.model.WorkQueueNames;
 import org.visallo.core.model.workQueue.Priority;
 import org.visallo.core.model.workQueue.WorkQueueRepository;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 @Singleton
 public class InMemoryWorkQueueRepository extends WorkQueueRepository {
-    private static Map<String, List<byte[]>> queues = new HashMap<>();
+    public static final String CONFIG_QUEUE_CAPACITY = InMemoryWorkQueueRepository.class.getName() + ".queueCapacity";
+    public static final int CONFIG_QUEUE_CAPACITY_DEFAULT = 0;
+    public static final String CONFIG_PUSH_TIMEOUT_MILLIS = InMemoryWorkQueueRepository.class.getName() + ".pushTimeoutMillis";
+    public static final long CONFIG_PUSH_TIMEOUT_MILLIS_DEFAULT = 10 * 1000;
+    private static final long NEXT_TUPLE_TIMEOUT_MILLIS = 100;
+    private static Map<String, InMemoryPriorityQueue> queues = new ConcurrentHashMap<>();
+    private static volatile int queueCapacity = CONFIG_QUEUE_CAPACITY_DEFAULT;
+    private static volatile long pushTimeoutMillis = CONFIG_PUSH_TIMEOUT_MILLIS_DEFAULT;
     private List<BroadcastConsumer> broadcastConsumers = new ArrayList<>();
 
     @Inject
@@ -25,6 +36,8 @@ public class InMemoryWorkQueueRepository extends WorkQueueRepository {
             Configuration configuration
     ) {
         super(graph, workQueueNames, configuration);
+        queueCapacity = configuration.getInt(CONFIG_QUEUE_CAPACITY, CONFIG_QUEUE_CAPACITY_DEFAULT);
+        pushTimeoutMillis = configuration.getLong(CONFIG_PUSH_TIMEOUT_MILLIS, CONFIG_PUSH_TIMEOUT_MILLIS_DEFAULT);
     }
 
     @Override
@@ -47,17 +60,7 @@ public class InMemoryWorkQueueRepository extends WorkQueueRepository {
     }
 
     public void addToQueue(String queueName, byte[] data, Priority priority) {
-        final List<byte[]> queue = getQueue(queueName);
-        // getQueue - only returns static variables
-        //noinspection SynchronizationOnLocalVariableOrMethodParameter
-        synchronized (queue) {
-            if (priority == Priority.HIGH) {
-                queue.add(0, data);
-            } else {
-                queue.add(data);
-            }
-            queue.notifyAll();
-        }
+        getQueue(queueName).push(data, priority);
     }
 
     @Override
@@ -82,22 +85,30 @@ public class InMemoryWorkQueueRepository extends WorkQueueRepository {
 
     @Override
     public WorkerSpout createWorkerSpout(String queueName) {
-        final List<byte[]> queue = getQueue(queueName);
+        final InMemoryPriorityQueue queue = getQueue(queueName);
         return new WorkerSpout() {
             @Override
             public WorkerTuple nextTuple() throws Exception {
-                synchronized (queue) {
-                    if (queue.size() == 0) {
-                        Thread.sleep(100);
-                        return null;
-                    }
-                    byte[] entry = queue.remove(0);
-                    if (entry == null) {
-                        Thread.sleep(100);
-                        return null;
-                    }
-                    return new WorkerTuple("", entry);
+                byte[] entry = queue.poll(NEXT_TUPLE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (entry == null) {
+                    return null;
                 }
+                return new WorkerTuple("", entry);
+            }
+
+            @Override
+            public List<WorkerTuple> nextTuples(int maxCount, long maxWaitMillis) throws Exception {
+                List<byte[]> entries = queue.poll(maxCount, maxWaitMillis, TimeUnit.MILLISECONDS);
+                List<WorkerTuple> tuples = new ArrayList<>(entries.size());
+                for (byte[] entry : entries) {
+                    tuples.add(new WorkerTuple("", entry));
+                }
+                return tuples;
+            }
+
+            @Override
+            public boolean isBatchSupported() {
+                return true;
             }
         };
     }
@@ -111,7 +122,7 @@ public class InMemoryWorkQueueRepository extends WorkQueueRepository {
         queues.remove(queueName);
     }
 
-    public static List<byte[]> getQueue(String queueName) {
-        return queues.computeIfAbsent(queueName, k -> new LinkedList<>());
+    public static InMemoryPriorityQueue getQueue(String queueName) {
+        return queues.computeIfAbsent(queueName, k -> new InMemoryPriorityQueue(k, queueCapacity, pushTimeoutMillis));
     }
 }
@@ -0,0 +1,107 @@
+package org.visallo.model.queue.inmemory;
+
+import org.junit.Test;
+import org.visallo.core.model.workQueue.Priority;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class InMemoryPriorityQueueTest {
+    @Test
+    public void testPollReturnsNullWhenEmpty() throws InterruptedException {
+        InMemoryPriorityQueue queue = new InMemoryPriorityQueue("test", 0, 0);
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testFifoWithinPriority() throws InterruptedException {
+        InMemoryPriorityQueue queue = new InMemoryPriorityQueue("test", 0, 0);
+        queue.push(new byte[]{1}, Priority.NORMAL);
+        queue.push(new byte[]{2}, Priority.NORMAL);
+        queue.push(new byte[]{3}, Priority.NORMAL);
+
+        assertEquals(1, queue.poll(0, TimeUnit.MILLISECONDS)[0]);
+        assertEquals(2, queue.poll(0, TimeUnit.MILLISECONDS)[0]);
+        assertEquals(3, queue.poll(0, TimeUnit.MILLISECONDS)[0]);
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testHigherPrioritiesPreferredWithoutStarvingLow() throws InterruptedException {
+        InMemoryPriorityQueue queue = new InMemoryPriorityQueue("test", 0, 0);
+        for (int i = 0; i < 20; i++) {
+            queue.push(new byte[]{(byte) Priority.LOW.ordinal()}, Priority.LOW);
+            queue.push(new byte[]{(byte) Priority.NORMAL.ordinal()}, Priority.NORMAL);
+            queue.push(new byte[]{(byte) Priority.HIGH.ordinal()}, Priority.HIGH);
+        }
+
+        int[] counts = new int[Priority.values().length];
+        for (byte[] data : queue.poll(14, 0, TimeUnit.MILLISECONDS)) {
+            counts[data[0]]++;
+        }
+        assertEquals(8, counts[Priority.HIGH.ordinal()]);
+        assertEquals(4, counts[Priority.NORMAL.ordinal()]);
+        assertEquals(2, counts[Priority.LOW.ordinal()]);
+    }
+
+    @Test
+    public void testPollWakesWhenItemPushed() throws Exception {
+        InMemoryPriorityQueue queue = new InMemoryPriorityQueue("test", 0, 0);
+        AtomicReference<byte[]> result = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        Thread consumer = new Thread(() -> {
+            try {
+                result.set(queue.poll(10, TimeUnit.SECONDS));
+            } catch (InterruptedException ex) {
+                throw new RuntimeException(ex);
+            }
+            done.countDown();
+        });
+        consumer.start();
+        Thread.sleep(50);
+
+        long startTime = System.currentTimeMillis();
+        queue.push(new byte[]{42}, Priority.NORMAL);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(System.currentTimeMillis() - startTime < 1000);
+        assertEquals(42, result.get()[0]);
+    }
+
+    @Test
+    public void testBoundedPushWaitsForSpace() throws Exception {
+        InMemoryPriorityQueue queue = new InMemoryPriorityQueue("test", 2, 10 * 1000);
+        queue.push(new byte[]{1}, Priority.NORMAL);
+        queue.push(new byte[]{2}, Priority.NORMAL);
+
+        CountDownLatch pushed = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            queue.push(new byte[]{3}, Priority.NORMAL);
+            pushed.countDown();
+        });
+        producer.start();
+
+        assertFalse(pushed.await(100, TimeUnit.MILLISECONDS));
+        assertEquals(1, queue.poll(0, TimeUnit.MILLISECONDS)[0]);
+        assertTrue(pushed.await(5, TimeUnit.SECONDS));
+
+        List<Byte> remaining = new ArrayList<>();
+        for (byte[] data : queue.poll(10, 0, TimeUnit.MILLISECONDS)) {
+            remaining.add(data[0]);
+        }
+        assertEquals(2, remaining.size());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testBoundedPushAddsAfterTimeout() {
+        InMemoryPriorityQueue queue = new InMemoryPriorityQueue("test", 1, 10);
+        queue.push(new byte[]{1}, Priority.NORMAL);
+        queue.push(new byte[]{2}, Priority.NORMAL);
+        assertEquals(2, queue.size());
+    }
+}
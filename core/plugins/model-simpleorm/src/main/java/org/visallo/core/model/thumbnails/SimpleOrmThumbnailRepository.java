@@ -8,8 +8,6 @@ import org.visallo.core.model.ontology.OntologyRepository;
 import org.visallo.core.simpleorm.SimpleOrmContextProvider;
 import org.visallo.core.user.User;
 
-import java.io.InputStream;
-
 @Singleton
 public class SimpleOrmThumbnailRepository extends ThumbnailRepository {
     private static final String VISIBILITY_STRING = "";
@@ -36,15 +34,7 @@ public class SimpleOrmThumbnailRepository extends ThumbnailRepository {
     }
 
     @Override
-    public Thumbnail createThumbnail(
-            Vertex vertex,
-            String propertyKey,
-            String thumbnailType,
-            InputStream in,
-            int[] boundaryDims,
-            User user
-    ) {
-        Thumbnail thumbnail = generateThumbnail(vertex, propertyKey, thumbnailType, in, boundaryDims);
+    protected Thumbnail saveThumbnail(Vertex vertex, String thumbnailType, Thumbnail thumbnail, User user) {
         simpleOrmSession.save(new SimpleOrmThumbnail(thumbnail), VISIBILITY_STRING, simpleOrmContextProvider.getContext(user));
         return thumbnail;
     }
@@ -248,6 +248,40 @@ public class VertexiumLongRunningProcessRepository extends LongRunningProcessRep
         workQueueRepository.broadcastLongRunningProcessChange(json);
     }
 
+    @Override
+    public void saveCheckpoint(JSONObject longRunningProcessQueueItem, JSONObject checkpoint) {
+        String longRunningProcessId = longRunningProcessQueueItem.optString("id", null);
+        if (longRunningProcessId == null) {
+            return;
+        }
+        Authorizations authorizations = getAuthorizations(userRepository.getSystemUser());
+        Vertex vertex = this.graph.getVertex(longRunningProcessId, authorizations);
+        checkNotNull(vertex, "Could not find long running process vertex: " + longRunningProcessId);
+
+        VertexBuilder vb = graph.prepareVertex(longRunningProcessId, vertex.getVisibility());
+        LongRunningProcessProperties.CHECKPOINT_JSON_PROPERTY.setProperty(
+                vb,
+                checkpoint,
+                getVisibility()
+        );
+        vb.save(authorizations);
+        this.graph.flush();
+    }
+
+    @Override
+    public JSONObject getCheckpoint(JSONObject longRunningProcessQueueItem) {
+        String longRunningProcessId = longRunningProcessQueueItem.optString("id", null);
+        if (longRunningProcessId == null) {
+            return null;
+        }
+        Authorizations authorizations = getAuthorizations(userRepository.getSystemUser());
+        Vertex vertex = this.graph.getVertex(longRunningProcessId, authorizations);
+        if (vertex == null) {
+            return null;
+        }
+        return LongRunningProcessProperties.CHECKPOINT_JSON_PROPERTY.getPropertyValue(vertex);
+    }
+
     @Override
     public void delete(String longRunningProcessId, User authUser) {
         if (longRunningProcessId == null) {
@@ -129,6 +129,18 @@ public class VertexiumOntologyRepository extends OntologyRepositoryBase {
         graph.flush();
     }
 
+    @Override
+    public void updateCache(
+            String workspaceId,
+            Iterable<Concept> concepts,
+            Iterable<Relationship> relationships,
+            Iterable<OntologyProperty> properties
+    ) {
+        LOGGER.info("updating ontology cache for workspace %s", workspaceId);
+        graph.flush();
+        super.updateCache(workspaceId, concepts, relationships, properties);
+    }
+
     @Override
     protected void addEntityGlyphIconToEntityConcept(Concept entityConcept, byte[] rawImg, Authorizations authorizations) {
         StreamingPropertyValue raw = StreamingPropertyValue.create(new ByteArrayInputStream(rawImg), byte[].class);
@@ -20,7 +20,6 @@ import org.visallo.web.clientapi.model.VisibilityJson;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.ArrayList;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -63,16 +62,8 @@ public class VertexiumThumbnailRepository extends ThumbnailRepository {
     }
 
     @Override
-    public Thumbnail createThumbnail(
-            Vertex vertex,
-            String propertyKey,
-            String thumbnailType,
-            InputStream in,
-            int[] boundaryDims,
-            User user
-    ) {
+    protected Thumbnail saveThumbnail(Vertex vertex, String thumbnailType, Thumbnail thumbnail, User user) {
         Authorizations authorizations = getAuthorizations(user);
-        Thumbnail thumbnail = generateThumbnail(vertex, propertyKey, thumbnailType, in, boundaryDims);
         StreamingPropertyValue spv = StreamingPropertyValue.create(new ByteArrayInputStream(thumbnail.getData()), byte[].class);
         String key = createId(thumbnailType, thumbnail);
         Visibility visibility = new Visibility(VISIBILITY_STRING);
@@ -1609,11 +1609,13 @@ public class VertexiumWorkspaceRepository extends WorkspaceRepository {
             );
         }
 
-        return lockRepository.lock(getLockName(workspace), () -> {
-            List<WorkspaceEntity> workspaceEntities = findEntitiesNoLock(workspace, true, true, user);
-            Iterable<Edge> workspaceEdges = findModifiedEdges(workspace, workspaceEntities, true, user);
-            return workspaceDiff.diff(workspace, workspaceEntities, workspaceEdges, userContext, user);
-        });
+        // only reading the workspace entities needs the lock, diffing them can take a while on large workspaces
+        List<WorkspaceEntity> workspaceEntities = lockRepository.lock(
+                getLockName(workspace),
+                () -> findEntitiesNoLock(workspace, true, true, user)
+        );
+        Iterable<Edge> workspaceEdges = findModifiedEdges(workspace, workspaceEntities, true, user);
+        return workspaceDiff.diff(workspace, workspaceEntities, workspaceEdges, userContext, user);
     }
 
     private class ProductPreview {
@@ -0,0 +1,106 @@
+package org.visallo.imageThumbnail;
+
+import com.google.inject.Inject;
+import org.vertexium.Element;
+import org.vertexium.Property;
+import org.vertexium.Vertex;
+import org.visallo.core.exception.VisalloException;
+import org.visallo.core.ingest.graphProperty.ElementOrPropertyStatus;
+import org.visallo.core.ingest.graphProperty.GraphPropertyWorkData;
+import org.visallo.core.ingest.graphProperty.GraphPropertyWorker;
+import org.visallo.core.ingest.graphProperty.GraphPropertyWorkerPrepareData;
+import org.visallo.core.model.Description;
+import org.visallo.core.model.Name;
+import org.visallo.core.model.properties.VisalloProperties;
+import org.visallo.core.model.thumbnails.ThumbnailRepository;
+import org.visallo.core.util.VisalloLogger;
+import org.visallo.core.util.VisalloLoggerFactory;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates the thumbnails of image vertices at ingest so they are already cached when they are first displayed.
+ * The sizes are the boundary widths requested by the web client, configured as a comma separated list.
+ */
+@Name("Image Thumbnail")
+@Description("Generates thumbnails of images")
+public class ImageThumbnailGraphPropertyWorker extends GraphPropertyWorker {
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(ImageThumbnailGraphPropertyWorker.class);
+    public static final String CONFIG_SIZES = ImageThumbnailGraphPropertyWorker.class.getName() + ".sizes";
+    public static final String DEFAULT_SIZES = "150,200";
+    public static final String THUMBNAIL_TYPE = "raw";
+    private final ThumbnailRepository thumbnailRepository;
+    private List<Integer> sizes;
+
+    @Inject
+    public ImageThumbnailGraphPropertyWorker(ThumbnailRepository thumbnailRepository) {
+        this.thumbnailRepository = thumbnailRepository;
+    }
+
+    @Override
+    public void prepare(GraphPropertyWorkerPrepareData workerPrepareData) throws Exception {
+        super.prepare(workerPrepareData);
+        sizes = parseSizes(getConfiguration().get(CONFIG_SIZES, DEFAULT_SIZES));
+        LOGGER.debug("Thumbnail sizes: %s", sizes);
+    }
+
+    static List<Integer> parseSizes(String sizesString) {
+        List<Integer> sizes = new ArrayList<>();
+        for (String size : sizesString.split(",")) {
+            size = size.trim();
+            if (size.length() == 0) {
+                continue;
+            }
+            try {
+                sizes.add(Integer.parseInt(size));
+            } catch (NumberFormatException ex) {
+                throw new VisalloException("Invalid thumbnail size \"" + size + "\" in " + CONFIG_SIZES, ex);
+            }
+        }
+        return sizes;
+    }
+
+    @Override
+    public void execute(InputStream in, GraphPropertyWorkData data) throws Exception {
+        Vertex vertex = (Vertex) data.getElement();
+        Property property = data.getProperty();
+
+        List<int[]> boundaryDims = new ArrayList<>();
+        for (Integer size : sizes) {
+            if (thumbnailRepository.getThumbnail(vertex.getId(), THUMBNAIL_TYPE, size, size, data.getWorkspaceId(), getUser()) != null) {
+                continue;
+            }
+            LOGGER.debug("creating %d x %d thumbnail for vertex %s", size, size, vertex.getId());
+            boundaryDims.add(new int[]{size, size});
+        }
+        if (boundaryDims.size() > 0) {
+            thumbnailRepository.createThumbnails(vertex, property.getKey(), THUMBNAIL_TYPE, in, boundaryDims, getUser());
+        }
+    }
+
+    @Override
+    public boolean isHandled(Element element, Property property) {
+        if (property == null || !(element instanceof Vertex)) {
+            return false;
+        }
+
+        if (!property.getName().equals(VisalloProperties.RAW.getPropertyName())) {
+            return false;
+        }
+
+        String mimeType = VisalloProperties.MIME_TYPE_METADATA.getMetadataValue(property.getMetadata(), null);
+        return mimeType != null && mimeType.startsWith("image");
+    }
+
+    @Override
+    public Set<String> getHandledPropertyNames(ElementOrPropertyStatus status) {
+        if (status == ElementOrPropertyStatus.UPDATE) {
+            return Collections.singleton(VisalloProperties.RAW.getPropertyName());
+        }
+        return Collections.emptySet();
+    }
+}
@@ -0,0 +1,20 @@
+package org.visallo.imageThumbnail;
+
+import org.junit.Test;
+import org.visallo.core.exception.VisalloException;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+public class ImageThumbnailGraphPropertyWorkerTest {
+    @Test
+    public void testParseSizes() {
+        assertEquals(Arrays.asList(150, 200, 300), ImageThumbnailGraphPropertyWorker.parseSizes("150, 200,,300"));
+    }
+
+    @Test(expected = VisalloException.class)
+    public void testParseInvalidSizes() {
+        ImageThumbnailGraphPropertyWorker.parseSizes("150,large");
+    }
+}
@@ -0,0 +1,59 @@
+package org.visallo.tools.migrations;
+
+import com.beust.jcommander.Parameters;
+import org.vertexium.*;
+import org.visallo.core.cmdline.CommandLineTool;
+import org.visallo.core.model.properties.VisalloProperties;
+import org.visallo.core.model.termMention.TermMentionIndex;
+import org.visallo.core.model.termMention.TermMentionRepository;
+import org.visallo.core.security.VisalloVisibility;
+import org.visallo.core.util.VisalloLogger;
+import org.visallo.core.util.VisalloLoggerFactory;
+
+import static org.vertexium.util.IterableUtils.singleOrDefault;
+
+@Parameters(commandDescription = "Index the term mentions of graphs created before the term mention index")
+public class IndexTermMentions extends CommandLineTool {
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(IndexTermMentions.class);
+    private static final int LOG_EVERY = 10000;
+
+    public static void main(String[] args) throws Exception {
+        CommandLineTool.main(new IndexTermMentions(), args);
+    }
+
+    @Override
+    protected int run() throws Exception {
+        Graph graph = getGraph();
+        if (TermMentionIndex.isIndexed(graph)) {
+            LOGGER.info("Term mentions are already indexed");
+            return 0;
+        }
+
+        Authorizations authorizations = graph.createAuthorizations(
+                VisalloVisibility.SUPER_USER_VISIBILITY_STRING,
+                TermMentionRepository.VISIBILITY_STRING
+        );
+        long count = 0;
+        for (Vertex vertex : graph.getVertices(FetchHint.ALL_INCLUDING_HIDDEN, authorizations)) {
+            if (VisalloProperties.TERM_MENTION_START_OFFSET.getPropertyValue(vertex) == null) {
+                continue;
+            }
+            String outVertexId = singleOrDefault(vertex.getVertexIds(Direction.IN, VisalloProperties.TERM_MENTION_LABEL_HAS_TERM_MENTION, authorizations), null);
+            Vertex outVertex = outVertexId == null ? null : graph.getVertex(outVertexId, authorizations);
+            if (outVertex == null) {
+                LOGGER.warn("Could not find the out vertex of term mention %s", vertex.getId());
+                continue;
+            }
+            TermMentionIndex.addTermMention(outVertex, vertex, authorizations);
+            count++;
+            if (count % LOG_EVERY == 0) {
+                LOGGER.info("Indexed %d term mentions", count);
+            }
+        }
+        graph.flush();
+
+        TermMentionIndex.setIndexed(graph);
+        LOGGER.info("Indexed %d term mentions", count);
+        return 0;
+    }
+}
@@ -1,5 +1,6 @@
 package org.visallo.web.clientapi.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
@@ -11,6 +12,7 @@ import java.util.List;
 
 public class ClientApiWorkspaceDiff implements ClientApiObject {
     private List<Item> diffs = new ArrayList<Item>();
+    private Integer totalCount;
 
     public void addAll(List<Item> diffs) {
         this.diffs.addAll(diffs);
@@ -20,6 +22,18 @@ public class ClientApiWorkspaceDiff implements ClientApiObject {
         return diffs;
     }
 
+    /**
+     * The number of items in the whole diff when this is a page of it, otherwise null.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Integer getTotalCount() {
+        return totalCount;
+    }
+
+    public void setTotalCount(Integer totalCount) {
+        this.totalCount = totalCount;
+    }
+
     @Override
     public String toString() {
         return ClientApiConverter.clientApiToString(this);
@@ -13,5 +13,6 @@ public class GraphProductOntology {
     public static final StringSingleValueVisalloProperty PARENT_NODE = new StringSingleValueVisalloProperty("http://visallo.org/workspace/product/graph#parentNode");
     public static final StringListSingleValueVisalloProperty NODE_CHILDREN = new StringListSingleValueVisalloProperty("http://visallo.org/workspace/product/graph#nodeChildren");
     public static final StringSingleValueVisalloProperty NODE_TITLE = new StringSingleValueVisalloProperty("http://visallo.org/workspace/product/graph#nodeTitle");
+    public static final StringSingleValueVisalloProperty REVISION = new StringSingleValueVisalloProperty("http://visallo.org/workspace/product/graph#revision");
 
 }
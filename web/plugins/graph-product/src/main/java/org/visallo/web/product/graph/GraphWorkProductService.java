@@ -1,22 +1,32 @@
 package org.visallo.web.product.graph;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Queues;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import org.json.JSONArray;
+import org.json.JSONObject;
 import org.vertexium.*;
+import org.vertexium.mutation.ElementMutation;
+import org.visallo.core.config.Configuration;
 import org.visallo.core.exception.VisalloException;
 import org.visallo.core.model.graph.ElementUpdateContext;
 import org.visallo.core.model.graph.GraphRepository;
 import org.visallo.core.model.graph.GraphUpdateContext;
 import org.visallo.core.model.user.AuthorizationRepository;
 import org.visallo.core.model.user.UserRepository;
+import org.visallo.core.model.workQueue.LazyBroadcastSubscription;
+import org.visallo.core.model.workQueue.WorkQueueRepository;
 import org.visallo.core.model.workspace.WorkspaceProperties;
 import org.visallo.core.model.workspace.WorkspaceRepository;
 import org.visallo.core.model.workspace.product.*;
 import org.visallo.core.security.VisalloVisibility;
 import org.visallo.core.user.User;
 import org.visallo.core.util.StreamUtil;
+import org.visallo.core.util.VisalloLogger;
+import org.visallo.core.util.VisalloLoggerFactory;
 import org.visallo.web.clientapi.model.GraphPosition;
 import org.visallo.web.clientapi.model.VisibilityJson;
 import org.visallo.web.product.graph.model.GraphUpdateProductEdgeOptions;
@@ -24,6 +34,9 @@ import org.visallo.web.product.graph.model.GraphWorkProductExtendedData;
 import org.visallo.web.product.graph.model.GraphWorkProductVertex;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import static org.visallo.web.product.graph.GraphProductOntology.ENTITY_POSITION;
@@ -31,22 +44,50 @@ import static org.visallo.web.product.graph.GraphProductOntology.ENTITY_POSITION
 @Singleton
 public class GraphWorkProductService extends WorkProductServiceHasElementsBase<GraphWorkProductVertex, WorkProductEdge> {
     public static final String KIND = "org.visallo.web.product.graph.GraphWorkProduct";
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(GraphWorkProductService.class);
+    public static final String CONFIG_SNAPSHOT_CACHE_EXPIRE_SECONDS = GraphWorkProductService.class.getName() + ".snapshotCache.expireSeconds";
+    public static final int DEFAULT_SNAPSHOT_CACHE_EXPIRE_SECONDS = 600;
+    public static final String CONFIG_SNAPSHOT_CACHE_MAX_SIZE = GraphWorkProductService.class.getName() + ".snapshotCache.maxSize";
+    public static final int DEFAULT_SNAPSHOT_CACHE_MAX_SIZE = 100;
     private static final String ROOT_NODE_ID = "root";
     private final AuthorizationRepository authorizationRepository;
     private final GraphRepository graphRepository;
     private final UserRepository userRepository;
+    private final Cache<String, GraphWorkProductSnapshot> snapshots;
+    private final AtomicLong invalidationCount = new AtomicLong();
+    private final LazyBroadcastSubscription broadcastSubscription;
     public static final VisalloVisibility VISIBILITY = new VisalloVisibility(WorkspaceRepository.VISIBILITY_STRING);
 
     @Inject
     public GraphWorkProductService(
             AuthorizationRepository authorizationRepository,
             GraphRepository graphRepository,
-            UserRepository userRepository
+            UserRepository userRepository,
+            WorkQueueRepository workQueueRepository,
+            Configuration configuration
     ) {
         super(authorizationRepository);
         this.authorizationRepository = authorizationRepository;
         this.graphRepository = graphRepository;
         this.userRepository = userRepository;
+        this.broadcastSubscription = new LazyBroadcastSubscription(() -> workQueueRepository, json -> {
+            try {
+                handleBroadcast(json);
+            } catch (Exception ex) {
+                LOGGER.error("Could not mark product snapshots stale for broadcast: %s", json, ex);
+                markStale(snapshot -> true);
+            }
+        });
+
+        int snapshotCacheExpireSeconds = configuration.getInt(CONFIG_SNAPSHOT_CACHE_EXPIRE_SECONDS, DEFAULT_SNAPSHOT_CACHE_EXPIRE_SECONDS);
+        if (snapshotCacheExpireSeconds > 0) {
+            this.snapshots = CacheBuilder.newBuilder()
+                    .expireAfterWrite(snapshotCacheExpireSeconds, TimeUnit.SECONDS)
+                    .maximumSize(configuration.getInt(CONFIG_SNAPSHOT_CACHE_MAX_SIZE, DEFAULT_SNAPSHOT_CACHE_MAX_SIZE))
+                    .build();
+        } else {
+            this.snapshots = null;
+        }
     }
 
     @Override
@@ -58,20 +99,143 @@ public class GraphWorkProductService extends WorkProductServiceHasElementsBase<G
             User user,
             Authorizations authorizations
     ) {
-        GraphWorkProductExtendedData extendedData = new GraphWorkProductExtendedData();
+        if (!params.isIncludeVertices() && !params.isIncludeEdges()) {
+            return new GraphWorkProductExtendedData();
+        }
+        return getSnapshot(graph, productVertex, params, user, authorizations).toExtendedData(params);
+    }
 
+    private GraphWorkProductSnapshot getSnapshot(
+            Graph graph,
+            Vertex productVertex,
+            GetExtendedDataParams params,
+            User user,
+            Authorizations authorizations
+    ) {
+        if (snapshots == null) {
+            return createSnapshot(graph, productVertex, params, user, authorizations, null);
+        }
+        broadcastSubscription.ensureSubscribed();
+
+        String key = getSnapshotKey(productVertex.getId(), params, authorizations);
+        GraphWorkProductSnapshot snapshot = snapshots.getIfPresent(key);
+        if (snapshot != null
+                && !snapshot.isStale()
+                && Objects.equals(snapshot.getRevision(), GraphProductOntology.REVISION.getPropertyValue(productVertex))) {
+            return snapshot;
+        }
+
+        long invalidationCountBefore = invalidationCount.get();
+        GraphWorkProductSnapshot newSnapshot = createSnapshot(graph, productVertex, params, user, authorizations, snapshot);
+        snapshots.put(key, newSnapshot);
+        // a change broadcast while the snapshot was created may not be part of it
+        if (invalidationCount.get() != invalidationCountBefore) {
+            newSnapshot.setStale();
+        }
+        return newSnapshot;
+    }
+
+    private GraphWorkProductSnapshot createSnapshot(
+            Graph graph,
+            Vertex productVertex,
+            GetExtendedDataParams params,
+            User user,
+            Authorizations authorizations,
+            GraphWorkProductSnapshot previous
+    ) {
+        Map<String, GraphWorkProductVertex> vertices = null;
+        Map<String, GraphWorkProductVertex> compoundNodes = null;
         if (params.isIncludeVertices()) {
             Nodes nodes = getNodes(graph, productVertex, authorizations);
-
-            extendedData.setVertices(nodes.vertices);
-            extendedData.setCompoundNodes(nodes.compoundNodes);
+            vertices = nodes.vertices;
+            compoundNodes = nodes.compoundNodes;
         }
 
+        List<String> productVertexIds = getProductVertexIds(productVertex, user);
+        Map<String, WorkProductEdge> edges = null;
         if (params.isIncludeEdges()) {
-            extendedData.setEdges(getEdges(graph, productVertex, user, authorizations));
+            edges = getEdges(graph, productVertexIds, authorizations);
+        }
+
+        String revision = GraphProductOntology.REVISION.getPropertyValue(productVertex);
+        return new GraphWorkProductSnapshot(productVertex.getId(), revision, vertices, compoundNodes, edges, productVertexIds, previous);
+    }
+
+    private static String getSnapshotKey(String productId, GetExtendedDataParams params, Authorizations authorizations) {
+        String[] auths = authorizations.getAuthorizations().clone();
+        Arrays.sort(auths);
+        return productId
+                + "\u001f" + params.isIncludeVertices()
+                + "\u001f" + params.isIncludeEdges()
+                + "\u001f" + String.join("\u001f", auths);
+    }
+
+    private void markStale(Predicate<GraphWorkProductSnapshot> predicate) {
+        invalidationCount.incrementAndGet();
+        for (GraphWorkProductSnapshot snapshot : snapshots.asMap().values()) {
+            if (predicate.test(snapshot)) {
+                snapshot.setStale();
+            }
+        }
+    }
+
+    /**
+     * Changes the revision of the product once the rest of the changes in the context are saved, and marks the
+     * snapshots of the product on this web server stale without waiting for the broadcast of the change. The
+     * revision is saved directly rather than through the context, so the product vertex is not pushed on the graph
+     * property queue each time a vertex is moved.
+     */
+    private void productChanged(GraphUpdateContext ctx, Vertex productVertex, Visibility visibility, Authorizations authorizations) {
+        ctx.flush();
+        ElementMutation<Vertex> m = productVertex.prepareMutation();
+        GraphProductOntology.REVISION.setProperty(m, UUID.randomUUID().toString(), visibility);
+        m.save(authorizations);
+        if (snapshots != null) {
+            markStale(snapshot -> productVertex.getId().equals(snapshot.getProductId()));
+        }
+    }
+
+    private void handleBroadcast(JSONObject json) {
+        String type = json.optString("type", null);
+        if ("userAccessChange".equals(type) || "workspaceDelete".equals(type)) {
+            markStale(snapshot -> true);
+            return;
         }
 
-        return extendedData;
+        JSONObject data = json.optJSONObject("data");
+        if (data == null) {
+            return;
+        }
+        if ("workProductChange".equals(type) || "workProductDelete".equals(type)) {
+            String productId = data.optString("id", null);
+            if (productId != null) {
+                markStale(snapshot -> productId.equals(snapshot.getProductId()));
+            }
+            return;
+        }
+
+        // element changes, including new edges between the vertices of a product
+        List<String> vertexIds = new ArrayList<>();
+        for (String name : new String[]{"graphVertexId", "outVertexId", "inVertexId"}) {
+            String vertexId = data.optString(name, null);
+            if (vertexId != null) {
+                vertexIds.add(vertexId);
+            }
+        }
+        JSONArray deletedVertexIds = data.optJSONArray("vertexIds");
+        if (deletedVertexIds != null) {
+            for (int i = 0; i < deletedVertexIds.length(); i++) {
+                vertexIds.add(deletedVertexIds.getString(i));
+            }
+        }
+        List<String> edgeIds = new ArrayList<>();
+        String edgeId = data.optString("graphEdgeId", data.optString("edgeId", null));
+        if (edgeId != null) {
+            edgeIds.add(edgeId);
+        }
+        if (vertexIds.size() > 0 || edgeIds.size() > 0) {
+            markStale(snapshot -> snapshot.containsAny(vertexIds, edgeIds));
+        }
     }
 
     private static class Nodes {
@@ -149,22 +313,24 @@ public class GraphWorkProductService extends WorkProductServiceHasElementsBase<G
         return nodes;
     }
 
-    private Map<String, WorkProductEdge> getEdges(
-            Graph graph,
-            Vertex productVertex,
-            User user,
-            Authorizations authorizations
-    ) {
-        Map<String, WorkProductEdge> edges = new HashMap<>();
+    private List<String> getProductVertexIds(Vertex productVertex, User user) {
         Authorizations systemAuthorizations = authorizationRepository.getGraphAuthorizations(
                 user,
                 VisalloVisibility.SUPER_USER_VISIBILITY_STRING
         );
-        Iterable<String> productVertexIds = productVertex.getVertexIds(
+        return Lists.newArrayList(productVertex.getVertexIds(
                 Direction.OUT,
                 WorkspaceProperties.PRODUCT_TO_ENTITY_RELATIONSHIP_IRI,
                 systemAuthorizations
-        );
+        ));
+    }
+
+    private Map<String, WorkProductEdge> getEdges(
+            Graph graph,
+            List<String> productVertexIds,
+            Authorizations authorizations
+    ) {
+        Map<String, WorkProductEdge> edges = new HashMap<>();
         Iterable<RelatedEdge> productRelatedEdges = graph.findRelatedEdgeSummary(productVertexIds, authorizations);
         List<String> ids = StreamUtil.stream(productRelatedEdges)
                 .map(RelatedEdge::getEdgeId)
@@ -240,6 +406,7 @@ public class GraphWorkProductService extends WorkProductServiceHasElementsBase<G
             for (String childId : childIds) {
                 updateParent(ctx, productVertex, childId, vertexId, visibility, authorizations);
             }
+            productChanged(ctx, productVertex, visibility, authorizations);
 
             return populateProductVertexWithWorkspaceEdge(ctx.getGraph().getEdge(edge.getId(), authorizations));
         } catch (Exception ex) {
@@ -268,6 +435,25 @@ public class GraphWorkProductService extends WorkProductServiceHasElementsBase<G
 
             addOrUpdateProductEdgeToEntity(ctx, productVertex, id, updateData, visibility);
         }
+        productChanged(ctx, productVertex, visibility, authorizations);
+    }
+
+    public void setNodeTitle(
+            GraphUpdateContext ctx,
+            Vertex productVertex,
+            String compoundNodeId,
+            String title,
+            Visibility visibility,
+            Authorizations authorizations
+    ) {
+        String edgeId = getEdgeId(productVertex.getId(), compoundNodeId);
+        Edge productVertexEdge = ctx.getGraph().getEdge(edgeId, authorizations);
+        if (productVertexEdge == null) {
+            throw new VisalloException("Could not find compound node " + compoundNodeId + " in product " + productVertex.getId());
+        }
+        ctx.update(productVertexEdge, elemCtx ->
+                GraphProductOntology.NODE_TITLE.setProperty(elemCtx.getMutation(), title, visibility));
+        productChanged(ctx, productVertex, visibility, authorizations);
     }
 
     public void removeVertices(
@@ -319,6 +505,7 @@ public class GraphWorkProductService extends WorkProductServiceHasElementsBase<G
                 }
             }
         }
+        productChanged(ctx, productVertex, visibility, authorizations);
     }
 
     private void addChild(
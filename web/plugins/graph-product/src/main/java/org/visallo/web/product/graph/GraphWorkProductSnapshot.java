@@ -0,0 +1,246 @@
+package org.visallo.web.product.graph;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.visallo.core.model.workspace.product.GetExtendedDataParams;
+import org.visallo.core.model.workspace.product.WorkProductEdge;
+import org.visallo.core.util.ClientApiConverter;
+import org.visallo.web.product.graph.model.GraphWorkProductExtendedData;
+import org.visallo.web.product.graph.model.GraphWorkProductVertex;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * The vertices, compound nodes and edges of a graph product as seen with one set of authorizations. Snapshots are
+ * cached by {@link GraphWorkProductService} until a change to the product, or to one of its elements, marks them
+ * stale. The revision of the product vertex the snapshot was created from is kept as well, so a snapshot is not used
+ * once the product was changed by another web server, even if the broadcast of that change has not arrived yet.
+ * <p/>
+ * The version of a snapshot is a hash of its contents, so it is the same on every web server. A client which sends
+ * the version it already has gets an empty delta if nothing changed, or only the changed nodes and edges if it has
+ * the version of the snapshot this one replaced.
+ */
+class GraphWorkProductSnapshot {
+    private static final String VERTEX_KEY_PREFIX = "v:";
+    private static final String COMPOUND_NODE_KEY_PREFIX = "c:";
+    private static final String EDGE_KEY_PREFIX = "e:";
+    private final String productId;
+    private final String revision;
+    private final Map<String, GraphWorkProductVertex> vertices;
+    private final Map<String, GraphWorkProductVertex> compoundNodes;
+    private final Map<String, WorkProductEdge> edges;
+    private final Set<String> productVertexIds;
+    private final Map<String, Long> hashesByKey;
+    private final List<String> sortedVertexIds;
+    private final String version;
+    private final String previousVersion;
+    private final Set<String> changedKeys;
+    private final Set<String> removedKeys;
+    private volatile boolean stale;
+
+    GraphWorkProductSnapshot(
+            String productId,
+            String revision,
+            Map<String, GraphWorkProductVertex> vertices,
+            Map<String, GraphWorkProductVertex> compoundNodes,
+            Map<String, WorkProductEdge> edges,
+            Collection<String> productVertexIds,
+            GraphWorkProductSnapshot previous
+    ) {
+        this.productId = productId;
+        this.revision = revision;
+        this.vertices = vertices;
+        this.compoundNodes = compoundNodes;
+        this.edges = edges;
+        this.productVertexIds = new HashSet<>(productVertexIds);
+        if (vertices != null) {
+            this.productVertexIds.addAll(vertices.keySet());
+            this.productVertexIds.addAll(compoundNodes.keySet());
+            this.sortedVertexIds = new ArrayList<>(vertices.keySet());
+            Collections.sort(this.sortedVertexIds);
+        } else {
+            this.sortedVertexIds = Collections.emptyList();
+        }
+
+        this.hashesByKey = new HashMap<>();
+        hashAll(VERTEX_KEY_PREFIX, vertices);
+        hashAll(COMPOUND_NODE_KEY_PREFIX, compoundNodes);
+        hashAll(EDGE_KEY_PREFIX, edges);
+        this.version = calculateVersion(hashesByKey);
+
+        if (previous == null || previous.version.equals(version)) {
+            this.previousVersion = null;
+            this.changedKeys = null;
+            this.removedKeys = null;
+        } else {
+            this.previousVersion = previous.version;
+            this.changedKeys = new HashSet<>();
+            for (Map.Entry<String, Long> entry : hashesByKey.entrySet()) {
+                if (!entry.getValue().equals(previous.hashesByKey.get(entry.getKey()))) {
+                    changedKeys.add(entry.getKey());
+                }
+            }
+            this.removedKeys = new HashSet<>(previous.hashesByKey.keySet());
+            this.removedKeys.removeAll(hashesByKey.keySet());
+        }
+    }
+
+    String getProductId() {
+        return productId;
+    }
+
+    String getRevision() {
+        return revision;
+    }
+
+    String getVersion() {
+        return version;
+    }
+
+    boolean isStale() {
+        return stale;
+    }
+
+    void setStale() {
+        this.stale = true;
+    }
+
+    /**
+     * @return true if any of the vertices or edges is part of the product, or if an edge could be added between the
+     * vertices of the product
+     */
+    boolean containsAny(Collection<String> vertexIds, Collection<String> edgeIds) {
+        for (String vertexId : vertexIds) {
+            if (productVertexIds.contains(vertexId)) {
+                return true;
+            }
+        }
+        if (edges != null) {
+            for (String edgeId : edgeIds) {
+                if (edges.containsKey(edgeId)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    GraphWorkProductExtendedData toExtendedData(GetExtendedDataParams params) {
+        if (params.getOffset() != null || params.getSize() != null) {
+            return toPage(
+                    params.getOffset() == null ? 0 : Math.max(0, params.getOffset()),
+                    params.getSize() == null ? sortedVertexIds.size() : Math.max(0, params.getSize())
+            );
+        }
+        if (version.equals(params.getVersion())) {
+            return toDelta(version, Collections.emptySet(), Collections.emptySet());
+        }
+        if (previousVersion != null && previousVersion.equals(params.getVersion())) {
+            return toDelta(previousVersion, changedKeys, removedKeys);
+        }
+
+        GraphWorkProductExtendedData extendedData = new GraphWorkProductExtendedData();
+        extendedData.setVersion(version);
+        if (vertices != null) {
+            extendedData.setVertices(new HashMap<>(vertices));
+            extendedData.setCompoundNodes(new HashMap<>(compoundNodes));
+        }
+        if (edges != null) {
+            extendedData.setEdges(new HashMap<>(edges));
+        }
+        return extendedData;
+    }
+
+    private GraphWorkProductExtendedData toDelta(String baseVersion, Set<String> changedKeys, Set<String> removedKeys) {
+        GraphWorkProductExtendedData extendedData = new GraphWorkProductExtendedData();
+        extendedData.setVersion(version);
+        extendedData.setBaseVersion(baseVersion);
+        if (vertices != null) {
+            extendedData.setVertices(filter(vertices, VERTEX_KEY_PREFIX, changedKeys));
+            extendedData.setCompoundNodes(filter(compoundNodes, COMPOUND_NODE_KEY_PREFIX, changedKeys));
+        }
+        if (edges != null) {
+            extendedData.setEdges(filter(edges, EDGE_KEY_PREFIX, changedKeys));
+        }
+
+        List<String> removedVertexIds = new ArrayList<>();
+        List<String> removedEdgeIds = new ArrayList<>();
+        for (String key : removedKeys) {
+            String id = key.substring(2);
+            if (key.startsWith(EDGE_KEY_PREFIX)) {
+                removedEdgeIds.add(id);
+            } else if (!hashesByKey.containsKey(VERTEX_KEY_PREFIX + id) && !hashesByKey.containsKey(COMPOUND_NODE_KEY_PREFIX + id)) {
+                removedVertexIds.add(id);
+            }
+        }
+        extendedData.setRemovedVertexIds(removedVertexIds);
+        extendedData.setRemovedEdgeIds(removedEdgeIds);
+        return extendedData;
+    }
+
+    private GraphWorkProductExtendedData toPage(int offset, int size) {
+        GraphWorkProductExtendedData extendedData = new GraphWorkProductExtendedData();
+        extendedData.setVersion(version);
+        extendedData.setTotalVertexCount(sortedVertexIds.size());
+
+        Set<String> pageVertexIds = new HashSet<>();
+        if (vertices != null) {
+            Map<String, GraphWorkProductVertex> pageVertices = new HashMap<>();
+            int end = (int) Math.min((long) offset + size, sortedVertexIds.size());
+            for (int i = offset; i < end; i++) {
+                String vertexId = sortedVertexIds.get(i);
+                pageVertices.put(vertexId, vertices.get(vertexId));
+                pageVertexIds.add(vertexId);
+            }
+            extendedData.setVertices(pageVertices);
+            // compound nodes are needed by every page to place their children
+            extendedData.setCompoundNodes(new HashMap<>(compoundNodes));
+        }
+        if (edges != null) {
+            Map<String, WorkProductEdge> pageEdges = new HashMap<>();
+            for (WorkProductEdge edge : edges.values()) {
+                boolean unauthorizedEdgeOnFirstPage = edge.getOutVertexId() == null && offset == 0;
+                if (unauthorizedEdgeOnFirstPage
+                        || vertices == null
+                        || pageVertexIds.contains(edge.getOutVertexId())
+                        || pageVertexIds.contains(edge.getInVertexId())) {
+                    pageEdges.put(edge.getEdgeId(), edge);
+                }
+            }
+            extendedData.setEdges(pageEdges);
+        }
+        return extendedData;
+    }
+
+    private static <T> Map<String, T> filter(Map<String, T> map, String keyPrefix, Set<String> keys) {
+        Map<String, T> result = new HashMap<>();
+        for (Map.Entry<String, T> entry : map.entrySet()) {
+            if (keys.contains(keyPrefix + entry.getKey())) {
+                result.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    private void hashAll(String keyPrefix, Map<String, ?> map) {
+        if (map == null) {
+            return;
+        }
+        for (Map.Entry<String, ?> entry : map.entrySet()) {
+            String json = ClientApiConverter.clientApiToString(entry.getValue());
+            hashesByKey.put(keyPrefix + entry.getKey(), Hashing.murmur3_128().hashString(json, StandardCharsets.UTF_8).asLong());
+        }
+    }
+
+    private static String calculateVersion(Map<String, Long> hashesByKey) {
+        List<String> keys = new ArrayList<>(hashesByKey.keySet());
+        Collections.sort(keys);
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        for (String key : keys) {
+            hasher.putString(key, StandardCharsets.UTF_8);
+            hasher.putLong(hashesByKey.get(key));
+        }
+        return hasher.hash().toString();
+    }
+}
@@ -2,10 +2,16 @@ package org.visallo.web.product.graph.model;
 
 import org.visallo.core.model.workspace.product.WorkProductExtendedData;
 
+import java.util.List;
 import java.util.Map;
 
 public class GraphWorkProductExtendedData extends WorkProductExtendedData {
     private Map<String, GraphWorkProductVertex> compoundNodes;
+    private String version;
+    private String baseVersion;
+    private List<String> removedVertexIds;
+    private List<String> removedEdgeIds;
+    private Integer totalVertexCount;
 
     public void setCompoundNodes(Map<String, GraphWorkProductVertex> compoundNodes) {
         this.compoundNodes = compoundNodes;
@@ -14,4 +20,50 @@ public class GraphWorkProductExtendedData extends WorkProductExtendedData {
     public Map<String, GraphWorkProductVertex> getCompoundNodes() {
         return compoundNodes;
     }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    /**
+     * Set when the vertices, compound nodes and edges are only the ones which changed since baseVersion.
+     */
+    public String getBaseVersion() {
+        return baseVersion;
+    }
+
+    public void setBaseVersion(String baseVersion) {
+        this.baseVersion = baseVersion;
+    }
+
+    public List<String> getRemovedVertexIds() {
+        return removedVertexIds;
+    }
+
+    public void setRemovedVertexIds(List<String> removedVertexIds) {
+        this.removedVertexIds = removedVertexIds;
+    }
+
+    public List<String> getRemovedEdgeIds() {
+        return removedEdgeIds;
+    }
+
+    public void setRemovedEdgeIds(List<String> removedEdgeIds) {
+        this.removedEdgeIds = removedEdgeIds;
+    }
+
+    /**
+     * Set when only a page of the vertices is included.
+     */
+    public Integer getTotalVertexCount() {
+        return totalVertexCount;
+    }
+
+    public void setTotalVertexCount(Integer totalVertexCount) {
+        this.totalVertexCount = totalVertexCount;
+    }
 }
@@ -6,22 +6,23 @@ import org.visallo.webster.ParameterizedHandler;
 import org.visallo.webster.annotations.Handle;
 import org.visallo.webster.annotations.Required;
 import org.vertexium.Authorizations;
-import org.vertexium.Edge;
 import org.vertexium.Graph;
-import org.vertexium.mutation.ElementMutation;
+import org.vertexium.Vertex;
 import org.visallo.core.exception.VisalloAccessDeniedException;
+import org.visallo.core.exception.VisalloException;
+import org.visallo.core.model.graph.GraphRepository;
+import org.visallo.core.model.graph.GraphUpdateContext;
 import org.visallo.core.model.user.AuthorizationRepository;
+import org.visallo.core.model.workQueue.Priority;
 import org.visallo.core.model.workQueue.WorkQueueRepository;
 import org.visallo.core.model.workspace.Workspace;
 import org.visallo.core.model.workspace.WorkspaceRepository;
-import org.visallo.core.model.workspace.product.WorkProductServiceHasElementsBase;
 import org.visallo.core.user.User;
 import org.visallo.web.VisalloResponse;
 import org.visallo.web.clientapi.model.ClientApiSuccess;
 import org.visallo.web.clientapi.model.ClientApiWorkspace;
 import org.visallo.web.parameterProviders.ActiveWorkspaceId;
 import org.visallo.web.parameterProviders.SourceGuid;
-import org.visallo.web.product.graph.GraphProductOntology;
 import org.visallo.web.product.graph.GraphWorkProductService;
 
 @Singleton
@@ -30,18 +31,24 @@ public class NodeSetTitle implements ParameterizedHandler {
     private final WorkspaceRepository workspaceRepository;
     private final WorkQueueRepository workQueueRepository;
     private final AuthorizationRepository authorizationRepository;
+    private final GraphRepository graphRepository;
+    private final GraphWorkProductService graphWorkProductService;
 
     @Inject
     public NodeSetTitle(
             Graph graph,
             WorkspaceRepository workspaceRepository,
             WorkQueueRepository workQueueRepository,
-            AuthorizationRepository authorizationRepository
+            AuthorizationRepository authorizationRepository,
+            GraphRepository graphRepository,
+            GraphWorkProductService graphWorkProductService
     ) {
         this.graph = graph;
         this.workspaceRepository = workspaceRepository;
         this.workQueueRepository = workQueueRepository;
         this.authorizationRepository = authorizationRepository;
+        this.graphRepository = graphRepository;
+        this.graphWorkProductService = graphWorkProductService;
     }
 
     @Handle
@@ -67,12 +74,19 @@ public class NodeSetTitle implements ParameterizedHandler {
                 workspaceId
         );
 
-        String edgeId = WorkProductServiceHasElementsBase.getEdgeId(productId, compoundNodeId);
-        Edge productEdge = graph.getEdge(edgeId, authorizations);
-        ElementMutation<Edge> m = productEdge.prepareMutation();
-        GraphProductOntology.NODE_TITLE.setProperty(m, title, GraphWorkProductService.VISIBILITY.getVisibility());
-        m.save(authorizations);
-        graph.flush();
+        try (GraphUpdateContext ctx = graphRepository.beginGraphUpdate(Priority.HIGH, user, authorizations)) {
+            Vertex productVertex = graph.getVertex(productId, authorizations);
+            graphWorkProductService.setNodeTitle(
+                    ctx,
+                    productVertex,
+                    compoundNodeId,
+                    title,
+                    GraphWorkProductService.VISIBILITY.getVisibility(),
+                    authorizations
+            );
+        } catch (Exception e) {
+            throw new VisalloException("Could not set title of node " + compoundNodeId + " in product: " + productId, e);
+        }
 
         Workspace workspace = workspaceRepository.findById(workspaceId, user);
         ClientApiWorkspace clientApiWorkspace = workspaceRepository.toClientApi(workspace, user, authorizations);
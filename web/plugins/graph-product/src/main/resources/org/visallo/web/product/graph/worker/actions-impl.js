@@ -133,20 +133,8 @@ define([
                 { cancelHash: `${productId}|${Object.keys(updateVertices).join('|')}` }
             ).then(() => {
                 if (addingNewVertices) {
-                    return ajax('GET', '/product', { productId,
-                        includeExtended: true,
-                        params: {
-                            includeVertices: true,
-                            includeEdges: true
-                        }
-                    }).then(product => {
-                        dispatch(productActions.update(product));
-
-                        const { edges } = product.extendedData;
-                        const vertexIds = _.pluck(byType.vertex, 'id');
-                        const edgeIds = _.pluck(edges, 'edgeId');
-                        return dispatch(elementActions.get({ workspaceId, vertexIds, edgeIds }));
-                    });
+                    // loads only what changed, including the edges of the new vertices
+                    return dispatch(productActions.get({ productId, invalidate: true }));
                 }
             });
 
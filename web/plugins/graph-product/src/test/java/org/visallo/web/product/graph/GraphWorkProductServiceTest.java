@@ -0,0 +1,224 @@
+package org.visallo.web.product.graph;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.vertexium.*;
+import org.vertexium.mutation.ExistingElementMutation;
+import org.visallo.core.config.Configuration;
+import org.visallo.core.model.graph.GraphRepository;
+import org.visallo.core.model.graph.GraphUpdateContext;
+import org.visallo.core.model.user.AuthorizationRepository;
+import org.visallo.core.model.user.UserRepository;
+import org.visallo.core.model.workQueue.WorkQueueRepository;
+import org.visallo.core.model.workspace.WorkspaceProperties;
+import org.visallo.core.model.workspace.product.GetExtendedDataParams;
+import org.visallo.core.user.User;
+import org.visallo.web.product.graph.model.GraphWorkProductExtendedData;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class GraphWorkProductServiceTest {
+    private static final String PRODUCT_ID = "p1";
+    private GraphWorkProductService graphWorkProductService;
+    private final AtomicInteger snapshotsCreated = new AtomicInteger();
+    private Runnable onCreateSnapshot;
+
+    @Mock
+    private AuthorizationRepository authorizationRepository;
+    @Mock
+    private GraphRepository graphRepository;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private WorkQueueRepository workQueueRepository;
+    @Mock
+    private Configuration configuration;
+    @Mock
+    private Graph graph;
+    @Mock
+    private Vertex productVertex;
+    @Mock
+    private User user;
+    @Mock
+    private Authorizations authorizations;
+    @Mock
+    private GraphUpdateContext ctx;
+
+    @Before
+    public void before() {
+        when(configuration.getInt(eq(GraphWorkProductService.CONFIG_SNAPSHOT_CACHE_EXPIRE_SECONDS), anyInt())).thenReturn(600);
+        when(configuration.getInt(eq(GraphWorkProductService.CONFIG_SNAPSHOT_CACHE_MAX_SIZE), anyInt())).thenReturn(100);
+        when(authorizations.getAuthorizations()).thenReturn(new String[]{"auth1"});
+
+        Edge productVertexEdge = mock(Edge.class);
+        when(productVertexEdge.getOtherVertexId(PRODUCT_ID)).thenReturn("v1");
+        when(productVertexEdge.getVertexId(Direction.IN)).thenReturn("v1");
+        when(productVertex.getId()).thenReturn(PRODUCT_ID);
+        when(productVertex.getEdges(Direction.OUT, WorkspaceProperties.PRODUCT_TO_ENTITY_RELATIONSHIP_IRI, authorizations))
+                .thenReturn(Collections.singletonList(productVertexEdge));
+        when(productVertex.getVertexIds(eq(Direction.OUT), eq(WorkspaceProperties.PRODUCT_TO_ENTITY_RELATIONSHIP_IRI), any(Authorizations.class)))
+                .thenReturn(Arrays.asList("v1", "v2"));
+        when(graph.doVerticesExist(any(), eq(authorizations))).thenAnswer(invocation -> {
+            snapshotsCreated.incrementAndGet();
+            if (onCreateSnapshot != null) {
+                onCreateSnapshot.run();
+            }
+            Map<String, Boolean> results = new HashMap<>();
+            results.put("v1", true);
+            return results;
+        });
+
+        graphWorkProductService = new GraphWorkProductService(
+                authorizationRepository,
+                graphRepository,
+                userRepository,
+                workQueueRepository,
+                configuration
+        );
+    }
+
+    @Test
+    public void testSnapshotIsReused() {
+        GraphWorkProductExtendedData first = getExtendedData();
+        GraphWorkProductExtendedData second = getExtendedData();
+        assertEquals(1, snapshotsCreated.get());
+        assertEquals(first.getVersion(), second.getVersion());
+        assertEquals(1, second.getVertices().size());
+    }
+
+    @Test
+    public void testWorkProductChangeMarksStale() {
+        getExtendedData();
+        WorkQueueRepository.BroadcastConsumer broadcastConsumer = getBroadcastConsumer();
+
+        broadcastConsumer.broadcastReceived(broadcast("workProductChange", new JSONObject().put("id", "otherProduct")));
+        getExtendedData();
+        assertEquals(1, snapshotsCreated.get());
+
+        broadcastConsumer.broadcastReceived(broadcast("workProductChange", new JSONObject().put("id", PRODUCT_ID)));
+        getExtendedData();
+        assertEquals(2, snapshotsCreated.get());
+    }
+
+    @Test
+    public void testEdgePropertyChangeMarksStale() {
+        getExtendedData();
+        WorkQueueRepository.BroadcastConsumer broadcastConsumer = getBroadcastConsumer();
+
+        broadcastConsumer.broadcastReceived(broadcast("propertyChange", new JSONObject()
+                .put("graphEdgeId", "e1")
+                .put("outVertexId", "v5")
+                .put("inVertexId", "v6")));
+        getExtendedData();
+        assertEquals(1, snapshotsCreated.get());
+
+        // a new edge from a vertex of the product
+        broadcastConsumer.broadcastReceived(broadcast("propertyChange", new JSONObject()
+                .put("graphEdgeId", "e2")
+                .put("outVertexId", "v2")
+                .put("inVertexId", "v6")));
+        getExtendedData();
+        assertEquals(2, snapshotsCreated.get());
+    }
+
+    @Test
+    public void testVerticesDeletedMarksStale() {
+        getExtendedData();
+        WorkQueueRepository.BroadcastConsumer broadcastConsumer = getBroadcastConsumer();
+
+        broadcastConsumer.broadcastReceived(broadcast("verticesDeleted", new JSONObject()
+                .put("vertexIds", new JSONArray(Arrays.asList("v5", "v6")))));
+        getExtendedData();
+        assertEquals(1, snapshotsCreated.get());
+
+        broadcastConsumer.broadcastReceived(broadcast("verticesDeleted", new JSONObject()
+                .put("vertexIds", new JSONArray(Arrays.asList("v5", "v1")))));
+        getExtendedData();
+        assertEquals(2, snapshotsCreated.get());
+    }
+
+    @Test
+    public void testBroadcastWhileCreatingSnapshotLeavesItStale() {
+        getExtendedData();
+        WorkQueueRepository.BroadcastConsumer broadcastConsumer = getBroadcastConsumer();
+        broadcastConsumer.broadcastReceived(broadcast("workProductChange", new JSONObject().put("id", PRODUCT_ID)));
+
+        onCreateSnapshot = () -> {
+            onCreateSnapshot = null;
+            broadcastConsumer.broadcastReceived(broadcast("workProductChange", new JSONObject().put("id", PRODUCT_ID)));
+        };
+        getExtendedData();
+        assertEquals(2, snapshotsCreated.get());
+
+        getExtendedData();
+        assertEquals(3, snapshotsCreated.get());
+
+        getExtendedData();
+        assertEquals(3, snapshotsCreated.get());
+    }
+
+    @Test
+    public void testChangedRevisionIsNotReused() {
+        getExtendedData();
+
+        when(productVertex.getPropertyValue(GraphProductOntology.REVISION.getPropertyName())).thenReturn("revision2");
+        getExtendedData();
+        assertEquals(2, snapshotsCreated.get());
+
+        getExtendedData();
+        assertEquals(2, snapshotsCreated.get());
+    }
+
+    @Test
+    public void testUpdateVerticesMarksStale() {
+        @SuppressWarnings("unchecked")
+        ExistingElementMutation<Vertex> productVertexMutation = mock(ExistingElementMutation.class);
+        when(productVertex.prepareMutation()).thenReturn(productVertexMutation);
+        getExtendedData();
+
+        graphWorkProductService.updateVertices(ctx, productVertex, new HashMap<>(), user, new Visibility(""), authorizations);
+        verify(ctx).flush();
+        verify(productVertexMutation).setProperty(eq(GraphProductOntology.REVISION.getPropertyName()), any(), any(Visibility.class));
+        verify(productVertexMutation).save(authorizations);
+        verify(ctx, never()).update(eq(productVertex), any(GraphUpdateContext.Update.class));
+        getExtendedData();
+        assertEquals(2, snapshotsCreated.get());
+    }
+
+    private GraphWorkProductExtendedData getExtendedData() {
+        GetExtendedDataParams params = new GetExtendedDataParams().setIncludeVertices(true);
+        return (GraphWorkProductExtendedData) graphWorkProductService.getExtendedData(graph, null, productVertex, params, user, authorizations);
+    }
+
+    private WorkQueueRepository.BroadcastConsumer getBroadcastConsumer() {
+        ArgumentCaptor<WorkQueueRepository.BroadcastConsumer> broadcastConsumer = ArgumentCaptor.forClass(WorkQueueRepository.BroadcastConsumer.class);
+        verify(workQueueRepository).subscribeToBroadcastMessages(broadcastConsumer.capture());
+        return broadcastConsumer.getValue();
+    }
+
+    private static JSONObject broadcast(String type, JSONObject data) {
+        return new JSONObject()
+                .put("type", type)
+                .put("data", data);
+    }
+}
@@ -0,0 +1,173 @@
+package org.visallo.web.product.graph;
+
+import com.google.common.collect.Sets;
+import org.junit.Test;
+import org.visallo.core.model.workspace.product.GetExtendedDataParams;
+import org.visallo.core.model.workspace.product.WorkProductEdge;
+import org.visallo.web.clientapi.model.GraphPosition;
+import org.visallo.web.product.graph.model.GraphWorkProductExtendedData;
+import org.visallo.web.product.graph.model.GraphWorkProductVertex;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class GraphWorkProductSnapshotTest {
+    private static final String PRODUCT_ID = "p1";
+
+    @Test
+    public void testSameVersionReturnsEmptyDelta() {
+        GraphWorkProductSnapshot snapshot = createSnapshot(
+                vertices(vertex("v1", 0), vertex("v2", 10)),
+                edges(edge("e1", "v1", "v2")),
+                null
+        );
+
+        GraphWorkProductExtendedData extendedData = snapshot.toExtendedData(params().setVersion(snapshot.getVersion()));
+        assertEquals(snapshot.getVersion(), extendedData.getVersion());
+        assertEquals(snapshot.getVersion(), extendedData.getBaseVersion());
+        assertEquals(0, extendedData.getVertices().size());
+        assertEquals(0, extendedData.getCompoundNodes().size());
+        assertEquals(0, extendedData.getEdges().size());
+        assertEquals(0, extendedData.getRemovedVertexIds().size());
+        assertEquals(0, extendedData.getRemovedEdgeIds().size());
+    }
+
+    @Test
+    public void testPreviousVersionReturnsChangedAndRemoved() {
+        GraphWorkProductSnapshot previous = createSnapshot(
+                vertices(vertex("v1", 0), vertex("v2", 10), vertex("v3", 20)),
+                edges(edge("e1", "v1", "v2"), edge("e2", "v2", "v3")),
+                null
+        );
+        GraphWorkProductSnapshot snapshot = createSnapshot(
+                vertices(vertex("v1", 5), vertex("v2", 10), vertex("v4", 30)),
+                edges(edge("e1", "v1", "v2"), edge("e3", "v2", "v4")),
+                previous
+        );
+        assertNotEquals(previous.getVersion(), snapshot.getVersion());
+
+        GraphWorkProductExtendedData extendedData = snapshot.toExtendedData(params().setVersion(previous.getVersion()));
+        assertEquals(snapshot.getVersion(), extendedData.getVersion());
+        assertEquals(previous.getVersion(), extendedData.getBaseVersion());
+        assertEquals(Sets.newHashSet("v1", "v4"), extendedData.getVertices().keySet());
+        assertEquals(Sets.newHashSet("e3"), extendedData.getEdges().keySet());
+        assertEquals(Collections.singletonList("v3"), extendedData.getRemovedVertexIds());
+        assertEquals(Collections.singletonList("e2"), extendedData.getRemovedEdgeIds());
+    }
+
+    @Test
+    public void testUnknownVersionReturnsEverything() {
+        GraphWorkProductSnapshot snapshot = createSnapshot(
+                vertices(vertex("v1", 0), vertex("v2", 10)),
+                edges(edge("e1", "v1", "v2")),
+                null
+        );
+
+        GraphWorkProductExtendedData extendedData = snapshot.toExtendedData(params().setVersion("unknown"));
+        assertEquals(snapshot.getVersion(), extendedData.getVersion());
+        assertNull(extendedData.getBaseVersion());
+        assertEquals(Sets.newHashSet("v1", "v2"), extendedData.getVertices().keySet());
+        assertEquals(Sets.newHashSet("e1"), extendedData.getEdges().keySet());
+    }
+
+    @Test
+    public void testToPage() {
+        WorkProductEdge unauthorizedEdge = new WorkProductEdge();
+        unauthorizedEdge.setEdgeId("e3");
+        unauthorizedEdge.setUnauthorized(true);
+        GraphWorkProductSnapshot snapshot = createSnapshot(
+                vertices(vertex("v3", 20), vertex("v1", 0), vertex("v2", 10)),
+                edges(edge("e1", "v1", "v2"), edge("e2", "v2", "v3"), unauthorizedEdge),
+                null
+        );
+
+        GraphWorkProductExtendedData firstPage = snapshot.toExtendedData(params().setOffset(0).setSize(2));
+        assertEquals(snapshot.getVersion(), firstPage.getVersion());
+        assertEquals(3, (int) firstPage.getTotalVertexCount());
+        assertEquals(Sets.newHashSet("v1", "v2"), firstPage.getVertices().keySet());
+        assertEquals(Sets.newHashSet("c1"), firstPage.getCompoundNodes().keySet());
+        assertEquals(Sets.newHashSet("e1", "e2", "e3"), firstPage.getEdges().keySet());
+
+        GraphWorkProductExtendedData secondPage = snapshot.toExtendedData(params().setOffset(2).setSize(2));
+        assertEquals(3, (int) secondPage.getTotalVertexCount());
+        assertEquals(Sets.newHashSet("v3"), secondPage.getVertices().keySet());
+        assertEquals(Sets.newHashSet("c1"), secondPage.getCompoundNodes().keySet());
+        assertEquals(Sets.newHashSet("e2"), secondPage.getEdges().keySet());
+
+        GraphWorkProductExtendedData pastEnd = snapshot.toExtendedData(params().setOffset(4).setSize(2));
+        assertEquals(3, (int) pastEnd.getTotalVertexCount());
+        assertEquals(0, pastEnd.getVertices().size());
+        assertEquals(0, pastEnd.getEdges().size());
+    }
+
+    @Test
+    public void testContainsAny() {
+        GraphWorkProductSnapshot snapshot = createSnapshot(
+                vertices(vertex("v1", 0)),
+                edges(edge("e1", "v1", "v2")),
+                null
+        );
+
+        assertTrue(snapshot.containsAny(Collections.singletonList("v1"), Collections.emptyList()));
+        assertTrue("vertices of the product not in the snapshot", snapshot.containsAny(Collections.singletonList("v9"), Collections.emptyList()));
+        assertTrue(snapshot.containsAny(Collections.emptyList(), Collections.singletonList("e1")));
+        assertFalse(snapshot.containsAny(Collections.singletonList("v5"), Collections.singletonList("e5")));
+    }
+
+    private static GraphWorkProductSnapshot createSnapshot(
+            Map<String, GraphWorkProductVertex> vertices,
+            Map<String, WorkProductEdge> edges,
+            GraphWorkProductSnapshot previous
+    ) {
+        Map<String, GraphWorkProductVertex> compoundNodes = new HashMap<>();
+        GraphWorkProductVertex compoundNode = vertex("c1", 100);
+        compoundNode.setType("compoundNode");
+        compoundNode.setChildren(new ArrayList<>());
+        compoundNodes.put(compoundNode.getId(), compoundNode);
+
+        Set<String> productVertexIds = new HashSet<>(vertices.keySet());
+        productVertexIds.add("v9");
+        return new GraphWorkProductSnapshot(PRODUCT_ID, null, vertices, compoundNodes, edges, productVertexIds, previous);
+    }
+
+    private static GetExtendedDataParams params() {
+        return new GetExtendedDataParams()
+                .setIncludeVertices(true)
+                .setIncludeEdges(true);
+    }
+
+    private static Map<String, GraphWorkProductVertex> vertices(GraphWorkProductVertex... vertices) {
+        Map<String, GraphWorkProductVertex> results = new HashMap<>();
+        for (GraphWorkProductVertex vertex : vertices) {
+            results.put(vertex.getId(), vertex);
+        }
+        return results;
+    }
+
+    private static GraphWorkProductVertex vertex(String vertexId, int x) {
+        GraphWorkProductVertex vertex = new GraphWorkProductVertex();
+        vertex.setId(vertexId);
+        vertex.setType("vertex");
+        vertex.setPos(new GraphPosition(x, 0));
+        vertex.setParent("root");
+        return vertex;
+    }
+
+    private static Map<String, WorkProductEdge> edges(WorkProductEdge... edges) {
+        Map<String, WorkProductEdge> results = new HashMap<>();
+        for (WorkProductEdge edge : edges) {
+            results.put(edge.getEdgeId(), edge);
+        }
+        return results;
+    }
+
+    private static WorkProductEdge edge(String edgeId, String outVertexId, String inVertexId) {
+        WorkProductEdge edge = new WorkProductEdge();
+        edge.setEdgeId(edgeId);
+        edge.setLabel("label1");
+        edge.setOutVertexId(outVertexId);
+        edge.setInVertexId(inVertexId);
+        return edge;
+    }
+}
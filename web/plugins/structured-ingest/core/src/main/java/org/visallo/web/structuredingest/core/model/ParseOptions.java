@@ -9,12 +9,19 @@ public class ParseOptions {
     public char separator;
     public char quoteChar;
 
+    /**
+     * The number of partitions of the file parsers which support partitioned files read at once. Set by the ingest
+     * process, not by the request.
+     */
+    public int threadCount;
+
     public ParseOptions() {
         hasHeaderRow = true;
         startRowIndex = 0;
         sheetIndex = null;
         separator = ',';
         quoteChar = '"';
+        threadCount = 1;
     }
 
     public ParseOptions(String json) {
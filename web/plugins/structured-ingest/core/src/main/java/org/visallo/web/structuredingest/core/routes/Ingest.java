@@ -159,9 +159,11 @@ public class Ingest implements ParameterizedHandler {
                 reporter);
 
         parserHandler.dryRun = true;
+        parserHandler.batchSize = GraphBuilderParserHandler.DEFAULT_BATCH_SIZE;
         ParseOptions parseOptions = new ParseOptions(optionsJson);
 
         parse(vertex, rawPropertyValue, parseOptions, parserHandler);
+        parserHandler.flush();
 
         if (parserHandler.hasErrors()) {
             return parserHandler.parseErrors;
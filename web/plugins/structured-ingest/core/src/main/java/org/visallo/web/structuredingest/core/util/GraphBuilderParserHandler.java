@@ -1,12 +1,12 @@
 package org.visallo.web.structuredingest.core.util;
 
 import com.google.common.base.Charsets;
-import com.google.common.collect.Lists;
 import com.google.common.hash.HashCode;
 import com.google.common.hash.HashFunction;
 import com.google.common.hash.Hasher;
 import com.google.common.hash.Hashing;
 import org.vertexium.*;
+import org.vertexium.mutation.ElementMutation;
 import org.visallo.core.exception.VisalloException;
 import org.visallo.core.model.graph.GraphRepository;
 import org.visallo.core.model.properties.VisalloProperties;
@@ -34,16 +34,15 @@ import org.visallo.web.structuredingest.core.util.mapping.ParseMapping;
 import org.visallo.web.structuredingest.core.util.mapping.PropertyMapping;
 import org.visallo.web.structuredingest.core.util.mapping.VertexMapping;
 
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.stream.Collectors;
 
 import static org.visallo.core.model.properties.VisalloProperties.VISIBILITY_JSON_METADATA;
 
 public class GraphBuilderParserHandler extends BaseStructuredFileParserHandler {
     private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(GraphBuilderParserHandler.class);
     public static final Long MAX_DRY_RUN_ROWS = 50000L;
+    public static final int DEFAULT_BATCH_SIZE = 1000;
     private static final String MULTI_KEY = "SFIMPORT:";
     private static final String SKIPPED_VERTEX_ID = "SKIPPED_VERTEX";
 
@@ -69,8 +68,16 @@ public class GraphBuilderParserHandler extends BaseStructuredFileParserHandler {
     public boolean dryRun = true;
     public ClientApiParseErrors parseErrors = new ClientApiParseErrors();
     public ClientApiIngestPreview clientApiIngestPreview;
-    public List<String> createdVertexIds;
-    public List<String> createdEdgeIds;
+    public Set<String> createdVertexIds;
+    public Set<String> createdEdgeIds;
+
+    /**
+     * The number of rows added to the graph at once. Rows are only added once this many are waiting, or when
+     * {@link #flush()} is called.
+     */
+    public int batchSize = 1;
+    private final List<PendingRow> pendingRows = new ArrayList<>();
+    private long finishedRowCount;
 
     public GraphBuilderParserHandler(
             Graph graph,
@@ -106,8 +113,8 @@ public class GraphBuilderParserHandler extends BaseStructuredFileParserHandler {
         }
 
         clientApiIngestPreview = new ClientApiIngestPreview();
-        createdVertexIds = Lists.newArrayList();
-        createdEdgeIds = Lists.newArrayList();
+        createdVertexIds = new HashSet<>();
+        createdEdgeIds = new HashSet<>();
         visibilityJson = new VisibilityJson(visibilityTranslator.getDefaultVisibility().getVisibilityString());
 
         if (this.publish) {
@@ -136,6 +143,8 @@ public class GraphBuilderParserHandler extends BaseStructuredFileParserHandler {
         clientApiIngestPreview = new ClientApiIngestPreview();
         createdVertexIds.clear();
         createdEdgeIds.clear();
+        pendingRows.clear();
+        finishedRowCount = 0;
     }
 
     public boolean hasErrors() {
@@ -155,94 +164,163 @@ public class GraphBuilderParserHandler extends BaseStructuredFileParserHandler {
         Long rowCount = rowNum + 1;
         if (dryRun && rowCount > MAX_DRY_RUN_ROWS) {
             clientApiIngestPreview.didTruncate = true;
+            flush();
             return false;
         }
         clientApiIngestPreview.processedRows = rowCount;
 
-        Visibility defaultVisibility = visibilityTranslator.getDefaultVisibility();
-
         // Since we only handle the first sheet currently, bail if this isn't it.
         if (sheetNumber != 0) {
+            flush();
             return false;
         }
 
-        try {
-            List<String> newVertexIds = new ArrayList<>();
-            List<VertexBuilder> vertexBuilders = new ArrayList<>();
-            List<String> workspaceUpdates = new ArrayList<>();
-            long vertexNum = 0;
-            for (VertexMapping vertexMapping : parseMapping.vertexMappings) {
-                VertexBuilder vertexBuilder = createVertex(vertexMapping, row, rowNum, vertexNum);
-                if (vertexBuilder != null) {
-                    boolean alreadyCreated = createdVertexIds.contains(vertexBuilder.getVertexId());
-                    vertexBuilders.add(vertexBuilder);
-                    newVertexIds.add(vertexBuilder.getVertexId());
-                    createdVertexIds.add(vertexBuilder.getVertexId());
-                    workspaceUpdates.add(vertexBuilder.getVertexId());
-                    if (!alreadyCreated) {
-                        incrementConcept(vertexMapping, !graph.doesVertexExist(vertexBuilder.getVertexId(), authorizations));
-                    }
-                } else {
-                    newVertexIds.add(SKIPPED_VERTEX_ID);
-                }
-                vertexNum++;
+        pendingRows.add(new PendingRow(row, rowNum));
+        if (pendingRows.size() >= batchSize) {
+            flush();
+        }
+
+        return shouldContinue();
+    }
+
+    /**
+     * Adds the rows waiting to be added as a batch. Parsing with a batch size greater than one must call this once
+     * all of the rows have been added.
+     */
+    public void flush() {
+        if (pendingRows.isEmpty()) {
+            return;
+        }
+        List<PendingRow> rows = new ArrayList<>(pendingRows);
+        pendingRows.clear();
+
+        generateVertexIds(rows);
+
+        List<VertexBuilder> vertexBuilders = new ArrayList<>();
+        List<EdgeBuilderByVertexId> edgeBuilders = new ArrayList<>();
+        Map<String, VertexMapping> newVertexMappings = new LinkedHashMap<>();
+        Map<String, EdgeMapping> newEdgeMappings = new LinkedHashMap<>();
+        for (PendingRow row : rows) {
+            if (!shouldContinue()) {
+                break;
             }
 
-            List<EdgeBuilderByVertexId> edgeBuilders = new ArrayList<>();
-            for (EdgeMapping edgeMapping : parseMapping.edgeMappings) {
-                EdgeBuilderByVertexId edgeBuilder = createEdge(edgeMapping, newVertexIds);
-                if (edgeBuilder != null) {
-                    boolean alreadyCreated = createdEdgeIds.contains(edgeBuilder.getEdgeId());
-                    createdEdgeIds.add(edgeBuilder.getEdgeId());
-                    edgeBuilders.add(edgeBuilder);
-                    if (!alreadyCreated) {
-                        incrementEdges(edgeMapping, !graph.doesEdgeExist(edgeBuilder.getEdgeId(), authorizations));
+            try {
+                List<String> newVertexIds = new ArrayList<>();
+                List<VertexBuilder> rowVertexBuilders = new ArrayList<>();
+                List<VertexMapping> rowVertexMappings = new ArrayList<>();
+                for (int vertexNum = 0; vertexNum < parseMapping.vertexMappings.size(); vertexNum++) {
+                    VertexMapping vertexMapping = parseMapping.vertexMappings.get(vertexNum);
+                    VertexBuilder vertexBuilder = createVertex(vertexMapping, row.values, row.rowNum, row.vertexIds.get(vertexNum));
+                    if (vertexBuilder != null) {
+                        rowVertexBuilders.add(vertexBuilder);
+                        rowVertexMappings.add(vertexMapping);
+                        newVertexIds.add(vertexBuilder.getVertexId());
+                    } else {
+                        newVertexIds.add(SKIPPED_VERTEX_ID);
                     }
                 }
-            }
 
-            if (!dryRun) {
-                HashFunction hash = Hashing.sha1();
-                for (VertexBuilder vertexBuilder : vertexBuilders) {
-                    Vertex newVertex = vertexBuilder.save(authorizations);
-                    EdgeBuilder hasSourceEdgeBuilder = graph.prepareEdge(
-                            hash.newHasher()
-                                    .putString(newVertex.getId())
-                                    .putString(structuredFileVertex.getId())
-                                    .hash()
-                                    .toString(),
-                            newVertex,
-                            structuredFileVertex,
-                            StructuredIngestOntology.ELEMENT_HAS_SOURCE_IRI,
-                            visibility
-                    );
-                    VisalloProperties.VISIBILITY_JSON.setProperty(hasSourceEdgeBuilder, visibilityJson, defaultVisibility);
-                    VisalloProperties.MODIFIED_BY.setProperty(hasSourceEdgeBuilder, user.getUserId(), defaultVisibility);
-                    VisalloProperties.MODIFIED_DATE.setProperty(hasSourceEdgeBuilder, new Date(), defaultVisibility);
-                    hasSourceEdgeBuilder.save(authorizations);
+                List<EdgeBuilderByVertexId> rowEdgeBuilders = new ArrayList<>();
+                List<EdgeMapping> rowEdgeMappings = new ArrayList<>();
+                for (EdgeMapping edgeMapping : parseMapping.edgeMappings) {
+                    EdgeBuilderByVertexId edgeBuilder = createEdge(edgeMapping, newVertexIds);
+                    if (edgeBuilder != null) {
+                        rowEdgeBuilders.add(edgeBuilder);
+                        rowEdgeMappings.add(edgeMapping);
+                    }
                 }
 
-                for (EdgeBuilderByVertexId edgeBuilder : edgeBuilders) {
-                    edgeBuilder.save(authorizations);
+                if (dryRun) {
+                    for (int i = 0; i < rowVertexBuilders.size(); i++) {
+                        String vertexId = rowVertexBuilders.get(i).getVertexId();
+                        if (createdVertexIds.add(vertexId)) {
+                            newVertexMappings.put(vertexId, rowVertexMappings.get(i));
+                        }
+                    }
+                    for (int i = 0; i < rowEdgeBuilders.size(); i++) {
+                        String edgeId = rowEdgeBuilders.get(i).getEdgeId();
+                        if (createdEdgeIds.add(edgeId)) {
+                            newEdgeMappings.put(edgeId, rowEdgeMappings.get(i));
+                        }
+                    }
                 }
+                vertexBuilders.addAll(rowVertexBuilders);
+                edgeBuilders.addAll(rowEdgeBuilders);
+            } catch (SkipRowException sre) {
+                // Skip the row and keep going
+            }
 
-                graph.flush();
-
-                if (!this.publish && workspaceUpdates.size() > 0) {
-                    workspaceRepository.updateEntitiesOnWorkspace(workspace, workspaceUpdates, user);
-                }
+            // rows of partitioned files are not added in order, so report how many rows are finished
+            finishedRowCount++;
+            if (progressReporter != null) {
+                progressReporter.finishedRow(finishedRowCount, getTotalRows());
             }
-        } catch (SkipRowException sre) {
-            // Skip the row and keep going
         }
 
-        if (progressReporter != null) {
-            progressReporter.finishedRow(rowNum, getTotalRows());
+        if (dryRun) {
+            incrementPreview(newVertexMappings, newEdgeMappings);
+        } else {
+            save(vertexBuilders, edgeBuilders);
         }
+    }
 
+    private boolean shouldContinue() {
         return !dryRun || maxParseErrors <= 0 || parseErrors.errors.size() < maxParseErrors;
     }
 
+    private void incrementPreview(Map<String, VertexMapping> newVertexMappings, Map<String, EdgeMapping> newEdgeMappings) {
+        if (!newVertexMappings.isEmpty()) {
+            Map<String, Boolean> vertexExists = graph.doVerticesExist(new ArrayList<>(newVertexMappings.keySet()), authorizations);
+            newVertexMappings.forEach((vertexId, vertexMapping) ->
+                    incrementConcept(vertexMapping, !Boolean.TRUE.equals(vertexExists.get(vertexId))));
+        }
+        if (!newEdgeMappings.isEmpty()) {
+            Map<String, Boolean> edgeExists = graph.doEdgesExist(new ArrayList<>(newEdgeMappings.keySet()), authorizations);
+            newEdgeMappings.forEach((edgeId, edgeMapping) ->
+                    incrementEdges(edgeMapping, !Boolean.TRUE.equals(edgeExists.get(edgeId))));
+        }
+    }
+
+    private void save(List<VertexBuilder> vertexBuilders, List<EdgeBuilderByVertexId> edgeBuilders) {
+        if (vertexBuilders.isEmpty() && edgeBuilders.isEmpty()) {
+            return;
+        }
+
+        Visibility defaultVisibility = visibilityTranslator.getDefaultVisibility();
+        HashFunction hash = Hashing.sha1();
+        List<ElementMutation<? extends Element>> mutations = new ArrayList<>();
+        Set<String> workspaceUpdates = new LinkedHashSet<>();
+        for (VertexBuilder vertexBuilder : vertexBuilders) {
+            String vertexId = vertexBuilder.getVertexId();
+            mutations.add(vertexBuilder);
+            EdgeBuilderByVertexId hasSourceEdgeBuilder = graph.prepareEdge(
+                    hash.newHasher()
+                            .putString(vertexId)
+                            .putString(structuredFileVertex.getId())
+                            .hash()
+                            .toString(),
+                    vertexId,
+                    structuredFileVertex.getId(),
+                    StructuredIngestOntology.ELEMENT_HAS_SOURCE_IRI,
+                    visibility
+            );
+            VisalloProperties.VISIBILITY_JSON.setProperty(hasSourceEdgeBuilder, visibilityJson, defaultVisibility);
+            VisalloProperties.MODIFIED_BY.setProperty(hasSourceEdgeBuilder, user.getUserId(), defaultVisibility);
+            VisalloProperties.MODIFIED_DATE.setProperty(hasSourceEdgeBuilder, new Date(), defaultVisibility);
+            mutations.add(hasSourceEdgeBuilder);
+            workspaceUpdates.add(vertexId);
+        }
+        mutations.addAll(edgeBuilders);
+
+        graph.saveElementMutations(mutations, authorizations);
+        graph.flush();
+
+        if (!this.publish && workspaceUpdates.size() > 0) {
+            workspaceRepository.updateEntitiesOnWorkspace(workspace, workspaceUpdates, user);
+        }
+    }
+
     private void incrementConcept(VertexMapping vertexMapping, boolean isNew) {
         for (PropertyMapping mapping : vertexMapping.propertyMappings) {
             if (VisalloProperties.CONCEPT_TYPE.getPropertyName().equals(mapping.name)) {
@@ -303,7 +381,7 @@ public class GraphBuilderParserHandler extends BaseStructuredFileParserHandler {
         return m;
     }
 
-    private VertexBuilder createVertex(VertexMapping vertexMapping, Map<String, Object> row, long rowNum, long vertexNum) {
+    private VertexBuilder createVertex(VertexMapping vertexMapping, Map<String, Object> row, long rowNum, String vertexId) {
         VisibilityJson vertexVisibilityJson = visibilityJson;
         Visibility vertexVisibility = visibility;
         if (vertexMapping.visibilityJson != null) {
@@ -311,8 +389,6 @@ public class GraphBuilderParserHandler extends BaseStructuredFileParserHandler {
             vertexVisibility = vertexMapping.visibility;
         }
 
-        String vertexId = generateVertexId(vertexMapping, row, rowNum, vertexNum);
-
         VertexBuilder m = vertexId == null ? graph.prepareVertex(vertexVisibility) : graph.prepareVertex(vertexId, vertexVisibility);
         setPropertyValue(VisalloProperties.VISIBILITY_JSON, m, vertexVisibilityJson, vertexVisibility);
 
@@ -435,37 +511,53 @@ public class GraphBuilderParserHandler extends BaseStructuredFileParserHandler {
 
 
         HashCode hash = hasher.hash();
-        String vertexId = hash.toString();
-
-        // We might need to also hash the workspace if this vertex exists in the system but not visible to user.
-        if (shouldAddWorkspaceToId(vertexId)) {
-            vertexId = sha1.newHasher()
-                    .putString(vertexId)
-                    .putString(workspace.getWorkspaceId())
-                    .hash()
-                    .toString();
-        }
-
-        return vertexId;
-    }
-
-    private String prepareValueForHash(Object obj) {
-        return String.valueOf(obj).trim().toLowerCase();
+        return hash.toString();
     }
 
     /**
+     * Generates the ids of the vertices of each row, checking which of them exist with one lookup for all of the
+     * rows.
+     * <p/>
      * If the user is creating an entity that is unpublished in different sandbox, this user won't be able to access
-     * it since prepareVertex with same id won't change the visibility.
+     * it since prepareVertex with same id won't change the visibility, so the workspace is also hashed into the id.
      */
-    private boolean shouldAddWorkspaceToId(String vertexId) {
-        boolean vertexExistsForUser = graph.doesVertexExist(vertexId, authorizations);
-        if (!vertexExistsForUser) {
-            boolean vertexExistsInSystem = graph.doesVertexExist(vertexId, visalloUserAuths);
-            if (vertexExistsInSystem) {
-                return true;
+    private void generateVertexIds(List<PendingRow> rows) {
+        Set<String> vertexIds = new LinkedHashSet<>();
+        for (PendingRow row : rows) {
+            long vertexNum = 0;
+            for (VertexMapping vertexMapping : parseMapping.vertexMappings) {
+                String vertexId = generateVertexId(vertexMapping, row.values, row.rowNum, vertexNum);
+                row.vertexIds.add(vertexId);
+                vertexIds.add(vertexId);
+                vertexNum++;
             }
         }
-        return false;
+
+        Map<String, Boolean> vertexExistsForUser = graph.doVerticesExist(new ArrayList<>(vertexIds), authorizations);
+        List<String> vertexIdsNotFoundForUser = vertexIds.stream()
+                .filter(vertexId -> !Boolean.TRUE.equals(vertexExistsForUser.get(vertexId)))
+                .collect(Collectors.toList());
+        if (vertexIdsNotFoundForUser.isEmpty()) {
+            return;
+        }
+        Map<String, Boolean> vertexExistsInSystem = graph.doVerticesExist(vertexIdsNotFoundForUser, visalloUserAuths);
+        for (PendingRow row : rows) {
+            row.vertexIds.replaceAll(vertexId -> Boolean.TRUE.equals(vertexExistsInSystem.get(vertexId))
+                    ? addWorkspaceToVertexId(vertexId)
+                    : vertexId);
+        }
+    }
+
+    private String addWorkspaceToVertexId(String vertexId) {
+        return Hashing.sha1().newHasher()
+                .putString(vertexId)
+                .putString(workspace.getWorkspaceId())
+                .hash()
+                .toString();
+    }
+
+    private String prepareValueForHash(Object obj) {
+        return String.valueOf(obj).trim().toLowerCase();
     }
 
     private void setPropertyValue(SingleValueVisalloProperty property, VertexBuilder m, Object value, Visibility vertexVisibility) {
@@ -492,4 +584,15 @@ public class GraphBuilderParserHandler extends BaseStructuredFileParserHandler {
             m.addPropertyValue(MULTI_KEY + keySuffix, propertyMapping.name, propertyValue, metadata, propertyVisibility);
         }
     }
+
+    private static class PendingRow {
+        private final Map<String, Object> values;
+        private final long rowNum;
+        private final List<String> vertexIds = new ArrayList<>();
+
+        private PendingRow(Map<String, Object> values, long rowNum) {
+            this.values = values;
+            this.rowNum = rowNum;
+        }
+    }
 }
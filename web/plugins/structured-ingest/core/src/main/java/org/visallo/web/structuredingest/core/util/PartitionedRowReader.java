@@ -0,0 +1,198 @@
+package org.visallo.web.structuredingest.core.util;
+
+import org.visallo.core.exception.VisalloException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads the partitions of a structured file, such as the row groups of a Parquet file or ranges of lines of a CSV
+ * file, on a pool of threads. Parser handlers are not thread safe, so the rows of all partitions are passed through
+ * a bounded queue to the thread calling {@link #addRows(List, BaseStructuredFileParserHandler)}, which is the only
+ * thread adding rows to the handler. Partitions block once the queue is full so they can't get far ahead of the
+ * handler.
+ * <p/>
+ * Rows are added to the handler in the order they are read, not in row number order, so partitions must number
+ * their rows as if the file was read from the start.
+ */
+public class PartitionedRowReader implements AutoCloseable {
+    private static final int ROWS_PER_CHUNK = 100;
+    private static final List<Row> END_OF_PARTITION = new ArrayList<>();
+    private final ExecutorService executorService;
+    private final int queueSize;
+
+    /**
+     * @param threadCount the number of partitions read at once
+     * @param queueSize   the number of chunks of rows read ahead of the handler, each holding up to
+     *                    {@value #ROWS_PER_CHUNK} rows
+     */
+    public PartitionedRowReader(int threadCount, int queueSize) {
+        this.queueSize = Math.max(1, queueSize);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executorService = Executors.newFixedThreadPool(Math.max(1, threadCount), runnable -> {
+            Thread thread = new Thread(runnable, "structured-ingest-partition-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public interface Partition {
+        /**
+         * Reads the rows of the partition, stopping once rowSink returns false.
+         */
+        void read(RowSink rowSink) throws Exception;
+    }
+
+    /**
+     * Accepts the rows of a partition the same way as {@link BaseStructuredFileParserHandler}, returning false once
+     * no more rows should be read.
+     */
+    public interface RowSink {
+        boolean addRow(Map<String, Object> row, long rowNum) throws InterruptedException;
+
+        boolean addRow(List<Object> values, long rowNum) throws InterruptedException;
+    }
+
+    /**
+     * Runs the tasks on the pool, such as counting the rows of each partition before reading them.
+     *
+     * @return the results in the order of the tasks
+     */
+    public <T> List<T> invokeAll(List<Callable<T>> tasks) throws Exception {
+        List<T> results = new ArrayList<>();
+        for (Future<T> future : executorService.invokeAll(tasks)) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException ex) {
+                throw new VisalloException("Could not read partition", ex.getCause());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Reads all of the partitions and adds their rows to the handler.
+     *
+     * @return false if the handler stopped adding rows before all of them were read
+     */
+    public boolean addRows(List<? extends Partition> partitions, BaseStructuredFileParserHandler parserHandler) throws Exception {
+        BlockingQueue<List<Row>> queue = new ArrayBlockingQueue<>(queueSize);
+        List<Future<?>> futures = new ArrayList<>();
+        State state = new State();
+        for (Partition partition : partitions) {
+            futures.add(executorService.submit(new PartitionTask(partition, queue, state)));
+        }
+
+        boolean keepGoing = true;
+        try {
+            int finishedPartitions = 0;
+            while (finishedPartitions < partitions.size()) {
+                List<Row> rows = queue.take();
+                if (rows == END_OF_PARTITION) {
+                    finishedPartitions++;
+                    continue;
+                }
+                // rows still read after the handler stopped are only taken to unblock the partitions
+                for (int i = 0; i < rows.size() && keepGoing; i++) {
+                    Row row = rows.get(i);
+                    if (row.values != null) {
+                        keepGoing = parserHandler.addRow(row.values, row.rowNum);
+                    } else {
+                        keepGoing = parserHandler.addRow(row.row, row.rowNum);
+                    }
+                }
+                if (!keepGoing) {
+                    state.stopped = true;
+                }
+            }
+        } catch (Exception | Error ex) {
+            state.stopped = true;
+            futures.forEach(future -> future.cancel(true));
+            throw ex;
+        }
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException ex) {
+                throw new VisalloException("Could not read partition", ex.getCause());
+            }
+        }
+        return keepGoing;
+    }
+
+    @Override
+    public void close() {
+        executorService.shutdownNow();
+    }
+
+    private static class PartitionTask implements Callable<Void>, RowSink {
+        private final Partition partition;
+        private final BlockingQueue<List<Row>> queue;
+        private final State state;
+        private final List<Row> chunk = new ArrayList<>(ROWS_PER_CHUNK);
+
+        private PartitionTask(Partition partition, BlockingQueue<List<Row>> queue, State state) {
+            this.partition = partition;
+            this.queue = queue;
+            this.state = state;
+        }
+
+        @Override
+        public Void call() throws Exception {
+            try {
+                partition.read(this);
+                if (!chunk.isEmpty() && !state.stopped) {
+                    queue.put(chunk);
+                }
+            } catch (Exception ex) {
+                state.stopped = true;
+                throw ex;
+            } finally {
+                queue.put(END_OF_PARTITION);
+            }
+            return null;
+        }
+
+        @Override
+        public boolean addRow(Map<String, Object> row, long rowNum) throws InterruptedException {
+            return add(new Row(row, null, rowNum));
+        }
+
+        @Override
+        public boolean addRow(List<Object> values, long rowNum) throws InterruptedException {
+            return add(new Row(null, values, rowNum));
+        }
+
+        private boolean add(Row row) throws InterruptedException {
+            if (state.stopped) {
+                return false;
+            }
+            chunk.add(row);
+            if (chunk.size() >= ROWS_PER_CHUNK) {
+                queue.put(new ArrayList<>(chunk));
+                chunk.clear();
+            }
+            return !state.stopped;
+        }
+    }
+
+    private static class State {
+        private volatile boolean stopped;
+    }
+
+    private static class Row {
+        private final Map<String, Object> row;
+        private final List<Object> values;
+        private final long rowNum;
+
+        private Row(Map<String, Object> row, List<Object> values, long rowNum) {
+            this.row = row;
+            this.values = values;
+            this.rowNum = rowNum;
+        }
+    }
+}
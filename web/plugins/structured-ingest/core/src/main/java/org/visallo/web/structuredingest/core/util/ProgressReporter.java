@@ -1,5 +1,9 @@
 package org.visallo.web.structuredingest.core.util;
 
 public abstract class ProgressReporter {
+    /**
+     * @param row       the number of rows finished so far
+     * @param totalRows the number of rows in the file or -1 if it is not known
+     */
     public abstract void finishedRow(long row, long totalRows);
 }
@@ -21,6 +21,7 @@ import org.visallo.core.model.workspace.WorkspaceRepository;
 import org.visallo.core.security.VisibilityTranslator;
 import org.visallo.core.user.User;
 import org.visallo.core.util.ClientApiConverter;
+import org.visallo.web.structuredingest.core.model.ParseOptions;
 import org.visallo.web.structuredingest.core.model.StructuredIngestParser;
 import org.visallo.web.structuredingest.core.util.StructuredIngestParserFactory;
 import org.visallo.web.structuredingest.core.model.StructuredIngestQueueItem;
@@ -35,6 +36,9 @@ import java.text.NumberFormat;
 @Description("Extracts structured data from csv, and excel")
 public class StructuredIngestProcessWorker extends LongRunningProcessWorker {
     public static final String TYPE = "org-visallo-structured-ingest";
+    public static final String CONFIG_BATCH_SIZE = StructuredIngestProcessWorker.class.getName() + ".batchSize";
+    public static final String CONFIG_THREAD_COUNT = StructuredIngestProcessWorker.class.getName() + ".threadCount";
+    public static final int DEFAULT_THREAD_COUNT = 4;
     private OntologyRepository ontologyRepository;
     private VisibilityTranslator visibilityTranslator;
     private PrivilegeRepository privilegeRepository;
@@ -90,9 +94,11 @@ public class StructuredIngestProcessWorker extends LongRunningProcessWorker {
         parserHandler.cleanUpExistingImport();
 
         parserHandler.dryRun = false;
+        parserHandler.batchSize = configuration.getInt(CONFIG_BATCH_SIZE, GraphBuilderParserHandler.DEFAULT_BATCH_SIZE);
         parserHandler.reset();
         try {
             parse(vertex, rawPropertyValue, parserHandler, structuredIngestQueueItem);
+            parserHandler.flush();
         } catch (Exception e) {
             throw new VisalloException("Unable to ingest vertex: " + vertex, e);
         }
@@ -109,8 +115,10 @@ public class StructuredIngestProcessWorker extends LongRunningProcessWorker {
             throw new VisalloException("No parser registered for mimeType: " + mimeType);
         }
 
+        ParseOptions parseOptions = item.getParseOptions() == null ? new ParseOptions() : item.getParseOptions();
+        parseOptions.threadCount = configuration.getInt(CONFIG_THREAD_COUNT, DEFAULT_THREAD_COUNT);
         try (InputStream in = rawPropertyValue.getInputStream()) {
-            structuredIngestParser.ingest(in, item.getParseOptions(), parserHandler);
+            structuredIngestParser.ingest(in, parseOptions, parserHandler);
         }
     }
 
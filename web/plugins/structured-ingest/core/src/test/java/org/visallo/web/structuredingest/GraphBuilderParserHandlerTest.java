@@ -179,6 +179,24 @@ public class GraphBuilderParserHandlerTest extends VisalloInMemoryTestBase {
         assertTrue("All have one concept type after reimport", getGenerated().stream().allMatch(hasOneConceptType));
     }
 
+    @Test
+    public void testAddRowsInBatch() throws Exception {
+        parserHandler.dryRun = false;
+        parserHandler.batchSize = 10;
+
+        assertTrue(parserHandler.addRow(createIndexedMap("John Smith", "3/13/2015", "yes"), 0));
+        assertTrue(parserHandler.addRow(createIndexedMap("Jane Smith", "3/14/2015", "no"), 1));
+        assertTrue(parserHandler.addRow(createIndexedMap("Joe Smith", "3/15/2015", "yes"), 2));
+        assertEquals("Rows should wait for the batch", 0, getGenerated().size());
+
+        parserHandler.flush();
+
+        assertEquals("Should have created 2 entities per row", 6, getGenerated().size());
+        List<Edge> edges = Lists.newArrayList(getGraph().getEdges(authorizations));
+        assertEquals("Found the source and created edges", 9, edges.size());
+        assertEquals(3, edges.stream().filter(edge -> edge.getLabel().equals(EDGE_LABEL)).count());
+    }
+
         @Test
     public void testAddRowDryRun() throws Exception {
         doParse(true, true, 0, new String[]{"John Smith", "3/13/2015", "yes"});
@@ -9,18 +9,22 @@ import org.apache.commons.io.IOUtils;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
 import org.apache.parquet.column.ColumnDescriptor;
+import org.apache.parquet.column.page.PageReadStore;
 import org.apache.parquet.format.converter.ParquetMetadataConverter;
 import org.apache.parquet.hadoop.ParquetFileReader;
 import org.apache.parquet.hadoop.ParquetReader;
 import org.apache.parquet.hadoop.api.ReadSupport;
 import org.apache.parquet.hadoop.metadata.BlockMetaData;
 import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.apache.parquet.io.ColumnIOFactory;
+import org.apache.parquet.io.RecordReader;
 import org.apache.parquet.io.api.Binary;
 import org.apache.parquet.schema.MessageType;
 import org.apache.parquet.schema.OriginalType;
 import org.apache.parquet.schema.Type;
 import org.apache.parquet.tools.read.SimpleReadSupport;
 import org.apache.parquet.tools.read.SimpleRecord;
+import org.apache.parquet.tools.read.SimpleRecordMaterializer;
 import org.visallo.core.exception.VisalloException;
 import org.visallo.core.util.VisalloLogger;
 import org.visallo.core.util.VisalloLoggerFactory;
@@ -28,6 +32,7 @@ import org.visallo.web.structuredingest.core.model.ClientApiAnalysis;
 import org.visallo.web.structuredingest.core.model.ParseOptions;
 import org.visallo.web.structuredingest.core.model.StructuredIngestParser;
 import org.visallo.web.structuredingest.core.util.BaseStructuredFileParserHandler;
+import org.visallo.web.structuredingest.core.util.PartitionedRowReader;
 import org.visallo.web.structuredingest.core.util.StructuredFileParserHandler;
 import org.visallo.web.structuredingest.core.util.mapping.ColumnMappingType;
 
@@ -65,23 +70,17 @@ public class ParquetStructuredIngestParser implements StructuredIngestParser {
             MessageType schema = metaData.getFileMetaData().getSchema();
             parserHandler.setTotalRows(getRowCount(metaData));
 
-            try (ParquetReader<SimpleRecord> reader = ParquetReader.builder(new SimpleReadSupport(), new Path(tempFile.getAbsolutePath())).build()) {
+            if (parseOptions.threadCount > 1) {
                 parserHandler.newSheet("");
-                int rowNum = 0;
-
-                for (SimpleRecord value = reader.read(); value != null; value = reader.read()) {
-                    Map<String, Object> row = Maps.newHashMap();
-
-                    for (SimpleRecord.NameValue nameValue : value.getValues()) {
-                        String name = nameValue.getName();
-                        Object val = nameValue.getValue();
-                        if (!(val instanceof SimpleRecord)) {
-                            Type type = schema.getType(schema.getFieldIndex(name));
-                            row.put(name, getRecordValue(val, type));
-                        }
+                ingestRowGroups(conf, path, metaData, schema, parseOptions.threadCount, parserHandler);
+            } else {
+                try (ParquetReader<SimpleRecord> reader = ParquetReader.builder(new SimpleReadSupport(), new Path(tempFile.getAbsolutePath())).build()) {
+                    parserHandler.newSheet("");
+                    int rowNum = 0;
+
+                    for (SimpleRecord value = reader.read(); value != null; value = reader.read()) {
+                        if (!parserHandler.addRow(toRow(value, schema), rowNum++)) break;
                     }
-
-                    if (!parserHandler.addRow(row, rowNum++)) break;
                 }
             }
         } finally {
@@ -89,6 +88,33 @@ public class ParquetStructuredIngestParser implements StructuredIngestParser {
         }
     }
 
+    private void ingestRowGroups(Configuration conf, Path path, ParquetMetadata metaData, MessageType schema, int threadCount, BaseStructuredFileParserHandler parserHandler) throws Exception {
+        List<RowGroupPartition> partitions = new ArrayList<>();
+        long firstRowNum = 0;
+        for (BlockMetaData block : metaData.getBlocks()) {
+            partitions.add(new RowGroupPartition(conf, path, block, schema, firstRowNum));
+            firstRowNum += block.getRowCount();
+        }
+
+        try (PartitionedRowReader rowReader = new PartitionedRowReader(threadCount, threadCount * 4)) {
+            rowReader.addRows(partitions, parserHandler);
+        }
+    }
+
+    private Map<String, Object> toRow(SimpleRecord value, MessageType schema) {
+        Map<String, Object> row = Maps.newHashMap();
+
+        for (SimpleRecord.NameValue nameValue : value.getValues()) {
+            String name = nameValue.getName();
+            Object val = nameValue.getValue();
+            if (!(val instanceof SimpleRecord)) {
+                Type type = schema.getType(schema.getFieldIndex(name));
+                row.put(name, getRecordValue(val, type));
+            }
+        }
+        return row;
+    }
+
     private long getRowCount(ParquetMetadata metaData) {
         // maven shade isn't working with lambdas, so use anon class
         return metaData.getBlocks().stream().mapToLong(new ToLongFunction<BlockMetaData>() {
@@ -244,4 +270,38 @@ public class ParquetStructuredIngestParser implements StructuredIngestParser {
         }
         return null;
     }
+
+    /**
+     * Reads a single row group of the file, numbering its rows after the rows of the row groups before it.
+     */
+    private class RowGroupPartition implements PartitionedRowReader.Partition {
+        private final Configuration conf;
+        private final Path path;
+        private final BlockMetaData block;
+        private final MessageType schema;
+        private final long firstRowNum;
+
+        private RowGroupPartition(Configuration conf, Path path, BlockMetaData block, MessageType schema, long firstRowNum) {
+            this.conf = conf;
+            this.path = path;
+            this.block = block;
+            this.schema = schema;
+            this.firstRowNum = firstRowNum;
+        }
+
+        @Override
+        public void read(PartitionedRowReader.RowSink rowSink) throws Exception {
+            try (ParquetFileReader fileReader = new ParquetFileReader(conf, path, Collections.singletonList(block), schema.getColumns())) {
+                PageReadStore pages = fileReader.readNextRowGroup();
+                if (pages == null) {
+                    return;
+                }
+                RecordReader<SimpleRecord> recordReader = new ColumnIOFactory().getColumnIO(schema)
+                        .getRecordReader(pages, new SimpleRecordMaterializer(schema));
+                for (long i = 0; i < pages.getRowCount(); i++) {
+                    if (!rowSink.addRow(toRow(recordReader.read(), schema), firstRowNum + i)) break;
+                }
+            }
+        }
+    }
 }
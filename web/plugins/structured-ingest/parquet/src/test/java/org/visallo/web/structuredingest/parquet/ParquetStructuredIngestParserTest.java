@@ -175,6 +175,29 @@ public class ParquetStructuredIngestParserTest {
         assertPropertyMatchesPattern(vertices, SSN_PROP_IRI, "[0-9]{3}-[0-9]{2}-[0-9]{4}");
     }
 
+    @Test
+    public void ingestRowGroupsInParallel() throws Exception {
+        InputStream inputStream = getTestFileInputStream();
+
+        List<List<JSONObject>> vertexMappings = Arrays.asList(Lists.newArrayList(
+                conceptTypeObj("testConceptType"),
+                nameKeyObj(SSN_PROP_IRI, "social_security_number"))
+        );
+        GraphBuilderParserHandler graphBuilderParserHandler = setupGraphBuilder(parseMapping(vertexMappings, null));
+        ParseOptions parseOptions = new ParseOptions();
+        parseOptions.threadCount = 4;
+        new ParquetStructuredIngestParser().ingest(inputStream, parseOptions, graphBuilderParserHandler);
+
+        graph.flush();
+        Vertex vertex = graph.getVertex(PARQUET_FILE_VERTEX_ID, WORKSPACE_AUTHORIZATIONS_A);
+
+        List<Vertex> vertices = Lists.newArrayList(vertex.getVertices(Direction.BOTH, StructuredIngestOntology.ELEMENT_HAS_SOURCE_IRI, WORKSPACE_AUTHORIZATIONS_A));
+
+        assertThat(IterableUtils.count(graph.getVertices(WORKSPACE_AUTHORIZATIONS_A)), is(23));
+        assertConceptTypeOfAllVertices(vertices, "testConceptType");
+        assertPropertyMatchesPattern(vertices, SSN_PROP_IRI, "[0-9]{3}-[0-9]{2}-[0-9]{4}");
+    }
+
     @Test
     public void ingestCreatesMultipleVertices() throws Exception {
         assertThat(Lists.newArrayList(graph.getVertices(WORKSPACE_AUTHORIZATIONS_A)).size(), is(3));
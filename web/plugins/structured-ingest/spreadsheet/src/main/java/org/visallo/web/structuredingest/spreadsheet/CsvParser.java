@@ -1,21 +1,29 @@
 package org.visallo.web.structuredingest.spreadsheet;
 
+import au.com.bytecode.opencsv.CSVParser;
 import au.com.bytecode.opencsv.CSVReader;
 import com.google.common.collect.Sets;
 import org.visallo.core.exception.VisalloException;
+import org.visallo.core.util.LimitInputStream;
 import org.visallo.web.structuredingest.core.model.ClientApiAnalysis;
 import org.visallo.web.structuredingest.core.util.StructuredFileParserHandler;
 import org.visallo.web.structuredingest.core.model.StructuredIngestParser;
 import org.visallo.web.structuredingest.core.util.BaseStructuredFileParserHandler;
 import org.visallo.web.structuredingest.core.model.ParseOptions;
+import org.visallo.web.structuredingest.core.util.PartitionedRowReader;
 
 import java.io.*;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 public class CsvParser extends BaseParser implements StructuredIngestParser {
 
     private final static String CSV_MIME_TYPE = "text/csv";
+    private final static long CHUNK_SIZE = 16 * 1024 * 1024;
+    long chunkSize = CHUNK_SIZE;
 
     @Override
     public Set<String> getSupportedMimeTypes() {
@@ -24,7 +32,11 @@ public class CsvParser extends BaseParser implements StructuredIngestParser {
 
     @Override
     public void ingest(InputStream in, ParseOptions parseOptions, BaseStructuredFileParserHandler parserHandler) throws Exception {
-        parseCsvSheet(in, parseOptions, parserHandler);
+        if (parseOptions.threadCount > 1) {
+            parseCsvSheetInParallel(in, parseOptions, parserHandler);
+        } else {
+            parseCsvSheet(in, parseOptions, parserHandler);
+        }
     }
 
     @Override
@@ -44,6 +56,10 @@ public class CsvParser extends BaseParser implements StructuredIngestParser {
 
         handler.setTotalRows(getTotalRows(in, options));
 
+        readRows(in, options, handler);
+    }
+
+    private void readRows(InputStream in, ParseOptions options, BaseStructuredFileParserHandler handler) {
         try (Reader reader = new InputStreamReader(in)) {
             int row = 0;
             try (CSVReader csvReader = new CSVReader(reader, options.separator, options.quoteChar)) {
@@ -74,5 +90,171 @@ public class CsvParser extends BaseParser implements StructuredIngestParser {
             throw new VisalloException("Could not read csv", ex);
         }
     }
-}
 
+    /**
+     * Splits the file into chunks of lines which are read on separate threads. The rows of every chunk are counted
+     * first, so that each chunk can number its rows the same way {@link #readRows(InputStream, ParseOptions, BaseStructuredFileParserHandler)} would.
+     */
+    private void parseCsvSheetInParallel(InputStream in, ParseOptions options, BaseStructuredFileParserHandler handler) throws Exception {
+        File tempFile = File.createTempFile("csv", "tmp");
+        try {
+            List<Chunk> chunks = copyAndSplit(in, tempFile, options);
+            try (PartitionedRowReader rowReader = new PartitionedRowReader(options.threadCount, options.threadCount * 4)) {
+                List<Callable<ChunkCount>> countTasks = new ArrayList<>();
+                for (int i = 0; i < chunks.size(); i++) {
+                    Chunk chunk = chunks.get(i);
+                    boolean firstChunk = i == 0;
+                    countTasks.add(() -> countRows(tempFile, chunk, options, firstChunk));
+                }
+                List<ChunkCount> counts = rowReader.invokeAll(countTasks);
+
+                handler.newSheet("");
+                handler.setTotalRows(counts.stream().mapToLong(count -> count.nonBlankRows).sum());
+
+                // the first rows of the file which are skipped or hold the header must all be in the first chunk
+                ChunkCount firstCount = counts.get(0);
+                boolean startRowRead = firstCount.row > options.startRowIndex
+                        || (firstCount.row == options.startRowIndex && !options.hasHeaderRow);
+                if (chunks.size() == 1 || !startRowRead) {
+                    try (InputStream fileIn = new FileInputStream(tempFile)) {
+                        readRows(fileIn, options, handler);
+                    }
+                    return;
+                }
+
+                for (String headerColumn : firstCount.headerColumns) {
+                    handler.addColumn(headerColumn);
+                }
+                List<PartitionedRowReader.Partition> partitions = new ArrayList<>();
+                partitions.add(rowSink -> readChunk(tempFile, chunks.get(0), options, 0, true, rowSink));
+                long firstRowNum = firstCount.row;
+                for (int i = 1; i < chunks.size(); i++) {
+                    Chunk chunk = chunks.get(i);
+                    long chunkFirstRowNum = firstRowNum;
+                    partitions.add(rowSink -> readChunk(tempFile, chunk, options, chunkFirstRowNum, false, rowSink));
+                    firstRowNum += counts.get(i).nonBlankRows;
+                }
+                rowReader.addRows(partitions, handler);
+            }
+        } finally {
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * Copies the input to the file, ending a chunk at the first line break after every {@link #chunkSize} bytes
+     * which is not inside a quoted value. Quotes preceded by the escape character don't start or end a quoted value,
+     * the same as in {@link CSVReader}.
+     */
+    private List<Chunk> copyAndSplit(InputStream in, File file, ParseOptions options) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        // the quote and escape characters can only be found in the bytes of the file if they are single byte
+        boolean canSplit = options.quoteChar < 0x80;
+        byte quote = (byte) options.quoteChar;
+        byte escape = (byte) CSVParser.DEFAULT_ESCAPE_CHARACTER;
+        boolean inQuotes = false;
+        boolean escaped = false;
+        long chunkStart = 0;
+        long position = 0;
+        byte[] buffer = new byte[64 * 1024];
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                for (int i = 0; i < read && canSplit; i++) {
+                    byte b = buffer[i];
+                    if (escaped) {
+                        escaped = false;
+                    } else if (b == escape) {
+                        escaped = true;
+                    } else if (b == quote) {
+                        inQuotes = !inQuotes;
+                    } else if (b == '\n' && !inQuotes && position + i + 1 - chunkStart >= chunkSize) {
+                        chunks.add(new Chunk(chunkStart, position + i + 1));
+                        chunkStart = position + i + 1;
+                    }
+                }
+                position += read;
+            }
+        }
+        chunks.add(new Chunk(chunkStart, position));
+        return chunks;
+    }
+
+    private ChunkCount countRows(File file, Chunk chunk, ParseOptions options, boolean firstChunk) throws IOException {
+        ChunkCount count = new ChunkCount();
+        try (CSVReader csvReader = openChunk(file, chunk, options)) {
+            String[] columnValues;
+            while ((columnValues = csvReader.readNext()) != null) {
+                if (!rowIsBlank(columnValues)) {
+                    count.nonBlankRows++;
+                }
+                if (!firstChunk) {
+                    continue;
+                }
+                if (count.row < options.startRowIndex) {
+                    count.row++;
+                    continue;
+                }
+                if (rowIsBlank(columnValues)) {
+                    continue;
+                }
+                if (count.row == options.startRowIndex && options.hasHeaderRow) {
+                    count.headerColumns = Arrays.asList(columnValues);
+                }
+                count.row++;
+            }
+        }
+        return count;
+    }
+
+    private void readChunk(File file, Chunk chunk, ParseOptions options, long firstRowNum, boolean firstChunk, PartitionedRowReader.RowSink rowSink) throws Exception {
+        try (CSVReader csvReader = openChunk(file, chunk, options)) {
+            long row = firstRowNum;
+            String[] columnValues;
+            while ((columnValues = csvReader.readNext()) != null) {
+                if (firstChunk && row < options.startRowIndex) {
+                    row++;
+                    continue;
+                }
+                if (rowIsBlank(columnValues)) {
+                    continue;
+                }
+                if (!(firstChunk && row == options.startRowIndex && options.hasHeaderRow)) {
+                    if (!rowSink.addRow(new ArrayList<>(Arrays.asList(columnValues)), row)) {
+                        break;
+                    }
+                }
+                row++;
+            }
+        }
+    }
+
+    private CSVReader openChunk(File file, Chunk chunk, ParseOptions options) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            in.getChannel().position(chunk.start);
+            Reader reader = new InputStreamReader(new LimitInputStream(in, chunk.end - chunk.start));
+            return new CSVReader(reader, options.separator, options.quoteChar);
+        } catch (IOException ex) {
+            in.close();
+            throw ex;
+        }
+    }
+
+    private static class Chunk {
+        private final long start;
+        private final long end;
+
+        private Chunk(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    private static class ChunkCount {
+        private long nonBlankRows;
+        private long row;
+        private List<String> headerColumns = new ArrayList<>();
+    }
+}
@@ -1,7 +1,9 @@
 package org.visallo.web.structuredingest.spreadsheet;
 
 import com.google.common.collect.Sets;
+import org.apache.commons.io.IOUtils;
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
 import org.apache.poi.ss.usermodel.*;
 import org.visallo.core.exception.VisalloException;
 import org.visallo.web.structuredingest.core.model.ClientApiAnalysis;
@@ -9,14 +11,15 @@ import org.visallo.web.structuredingest.core.util.StructuredFileParserHandler;
 import org.visallo.web.structuredingest.core.model.StructuredIngestParser;
 import org.visallo.web.structuredingest.core.util.BaseStructuredFileParserHandler;
 import org.visallo.web.structuredingest.core.model.ParseOptions;
+import org.xml.sax.SAXException;
 
-import java.io.IOException;
-import java.io.InputStream;
+import java.io.*;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
 public class ExcelParser extends BaseParser implements StructuredIngestParser {
+    private static final long MAX_SHARED_STRING_CHARS_IN_MEMORY = 10 * 1024 * 1024;
 
     @Override
     public Set<String> getSupportedMimeTypes() {
@@ -45,8 +48,27 @@ public class ExcelParser extends BaseParser implements StructuredIngestParser {
     }
 
     private void parseExcel(InputStream in, ParseOptions options, BaseStructuredFileParserHandler handler) {
+        File tempFile = null;
         try {
-            Workbook workbook = WorkbookFactory.create(in);
+            tempFile = File.createTempFile("excel", "tmp");
+            try (OutputStream out = new FileOutputStream(tempFile)) {
+                IOUtils.copy(in, out);
+            }
+
+            if (StreamingXlsxReader.isXlsx(tempFile)) {
+                new StreamingXlsxReader(MAX_SHARED_STRING_CHARS_IN_MEMORY).read(tempFile, options, handler);
+            } else {
+                parseWorkbook(tempFile, options, handler);
+            }
+        } catch (IOException | OpenXML4JException | SAXException ex) {
+            throw new VisalloException("Could not read excel workbook", ex);
+        } finally {
+            if (tempFile != null) tempFile.delete();
+        }
+    }
+
+    private void parseWorkbook(File file, ParseOptions options, BaseStructuredFileParserHandler handler) throws IOException, InvalidFormatException {
+        try (Workbook workbook = WorkbookFactory.create(file, null, true)) {
             FormulaEvaluator evaluator = workbook.getCreationHelper().createFormulaEvaluator();
             DataFormatter formatter = new DataFormatter(true);
 
@@ -59,34 +81,19 @@ public class ExcelParser extends BaseParser implements StructuredIngestParser {
                 if(excelSheet.getPhysicalNumberOfRows() > 0) {
                     int lastRowNum = excelSheet.getLastRowNum();
                     handler.setTotalRows(lastRowNum);
-                    for(int j = 0, rowIndex = 0; j <= lastRowNum; j++) {
-                        if (rowIndex < options.startRowIndex) {
-                            rowIndex++;
+                    SheetRows sheetRows = new SheetRows(options, handler);
+                    for(int j = 0; j <= lastRowNum; j++) {
+                        if (j < options.startRowIndex) {
                             continue;
                         }
 
                         Row row = excelSheet.getRow(j);
-                        List<Object> parsedRow = parseExcelRow(row, evaluator, formatter);
-                        if(parsedRow.size() > 0) {
-                            if(rowIndex == options.startRowIndex && options.hasHeaderRow) {
-                                for (int k = 0; k < parsedRow.size(); k++) {
-                                    handler.addColumn(parsedRow.get(k).toString());
-                                }
-                            } else {
-                                if(!handler.addRow(parsedRow, j)) {
-                                    break;
-                                }
-                            }
-
-                            rowIndex++;
+                        if(!sheetRows.addRow(j, parseExcelRow(row, evaluator, formatter))) {
+                            break;
                         }
                     }
                 }
             }
-        } catch (IOException ex) {
-            throw new VisalloException("Could not read excel workbook", ex);
-        } catch (InvalidFormatException e) {
-            throw new VisalloException("Could not read excel workbook", e);
         }
     }
 
@@ -114,4 +121,41 @@ public class ExcelParser extends BaseParser implements StructuredIngestParser {
         return parsedRow;
     }
 
+    /**
+     * Adds the rows of a sheet to the handler, skipping the rows before the start row and empty rows, and using the
+     * first row after them as the header row.
+     */
+    static class SheetRows {
+        private final ParseOptions options;
+        private final BaseStructuredFileParserHandler handler;
+        private boolean firstRow = true;
+
+        SheetRows(ParseOptions options, BaseStructuredFileParserHandler handler) {
+            this.options = options;
+            this.handler = handler;
+        }
+
+        void setTotalRows(long totalRows) {
+            handler.setTotalRows(totalRows);
+        }
+
+        /**
+         * @return false if the handler doesn't need any more rows of the sheet
+         */
+        boolean addRow(int rowNum, List<Object> parsedRow) {
+            if (rowNum < options.startRowIndex || parsedRow.size() == 0) {
+                return true;
+            }
+
+            boolean isHeaderRow = firstRow && options.hasHeaderRow;
+            firstRow = false;
+            if (isHeaderRow) {
+                for (Object column : parsedRow) {
+                    handler.addColumn(column.toString());
+                }
+                return true;
+            }
+            return handler.addRow(parsedRow, rowNum);
+        }
+    }
 }
@@ -0,0 +1,144 @@
+package org.visallo.web.structuredingest.spreadsheet;
+
+import org.apache.poi.util.SAXHelper;
+import org.visallo.core.exception.VisalloException;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The shared strings of an XLSX workbook, read from the sharedStrings.xml part with a SAX parser. Strings are kept
+ * in memory until maxCharsInMemory characters have been read, the rest are written to a temporary file and read
+ * back from it when looked up, so large workbooks don't need to hold all of their strings in memory.
+ */
+class SharedStringsCache extends DefaultHandler implements Closeable {
+    private final long maxCharsInMemory;
+    private final List<String> strings = new ArrayList<>();
+    private long charsInMemory;
+    private File spillFile;
+    private DataOutputStream spillOut;
+    private long spillPosition;
+    private long[] spillOffsets = new long[0];
+    private int spillCount;
+    private RandomAccessFile spillIn;
+    private StringBuilder value;
+    private boolean inText;
+    private boolean inPhonetic;
+
+    SharedStringsCache(long maxCharsInMemory) {
+        this.maxCharsInMemory = maxCharsInMemory;
+    }
+
+    void read(InputStream in) throws IOException {
+        try {
+            XMLReader xmlReader = SAXHelper.newXMLReader();
+            xmlReader.setContentHandler(this);
+            xmlReader.parse(new InputSource(in));
+        } catch (ParserConfigurationException | SAXException ex) {
+            throw new VisalloException("Could not read shared strings", ex);
+        }
+        if (spillOut != null) {
+            spillOut.close();
+            spillOut = null;
+            spillIn = new RandomAccessFile(spillFile, "r");
+        }
+    }
+
+    int size() {
+        return strings.size() + spillCount;
+    }
+
+    String get(int index) throws IOException {
+        if (index < strings.size()) {
+            return strings.get(index);
+        }
+        int spillIndex = index - strings.size();
+        if (spillIndex >= spillCount) {
+            throw new VisalloException("Invalid shared string index: " + index);
+        }
+        spillIn.seek(spillOffsets[spillIndex]);
+        byte[] bytes = new byte[spillIn.readInt()];
+        spillIn.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+        if ("si".equals(localName)) {
+            value = new StringBuilder();
+        } else if ("rPh".equals(localName)) {
+            inPhonetic = true;
+        } else if ("t".equals(localName) && value != null && !inPhonetic) {
+            inText = true;
+        }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        if ("si".equals(localName)) {
+            try {
+                add(value.toString());
+            } catch (IOException ex) {
+                throw new SAXException("Could not write shared string", ex);
+            }
+            value = null;
+        } else if ("rPh".equals(localName)) {
+            inPhonetic = false;
+        } else if ("t".equals(localName)) {
+            inText = false;
+        }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+        if (inText) {
+            value.append(ch, start, length);
+        }
+    }
+
+    private void add(String string) throws IOException {
+        if (spillOut == null && charsInMemory + string.length() <= maxCharsInMemory) {
+            strings.add(string);
+            charsInMemory += string.length();
+            return;
+        }
+
+        if (spillOut == null) {
+            spillFile = File.createTempFile("sharedStrings", "tmp");
+            spillOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spillFile)));
+        }
+        if (spillCount == spillOffsets.length) {
+            spillOffsets = Arrays.copyOf(spillOffsets, Math.max(1024, spillOffsets.length * 2));
+        }
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        spillOffsets[spillCount++] = spillPosition;
+        spillOut.writeInt(bytes.length);
+        spillOut.write(bytes);
+        spillPosition += 4 + bytes.length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (spillOut != null) {
+                spillOut.close();
+            }
+            if (spillIn != null) {
+                spillIn.close();
+            }
+        } finally {
+            if (spillFile != null) {
+                spillFile.delete();
+            }
+        }
+    }
+}
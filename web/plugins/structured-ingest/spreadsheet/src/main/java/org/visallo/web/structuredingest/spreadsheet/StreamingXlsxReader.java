@@ -0,0 +1,240 @@
+package org.visallo.web.structuredingest.spreadsheet;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.SAXHelper;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.visallo.web.structuredingest.core.model.ParseOptions;
+import org.visallo.web.structuredingest.core.util.BaseStructuredFileParserHandler;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads XLSX workbooks with the SAX parser of each sheet instead of the POI user model, so the memory needed doesn't
+ * depend on the size of the sheets. Cells are formatted the same way {@link DataFormatter} formats them in the user
+ * model, except formulas which use the value cached in the workbook instead of being evaluated.
+ */
+class StreamingXlsxReader {
+    private final long maxSharedStringCharsInMemory;
+
+    StreamingXlsxReader(long maxSharedStringCharsInMemory) {
+        this.maxSharedStringCharsInMemory = maxSharedStringCharsInMemory;
+    }
+
+    /**
+     * XLSX workbooks are zip files, unlike XLS workbooks.
+     */
+    static boolean isXlsx(File file) throws IOException {
+        byte[] header = new byte[4];
+        try (InputStream in = new FileInputStream(file)) {
+            return in.read(header) == header.length
+                    && header[0] == 'P' && header[1] == 'K' && header[2] == 3 && header[3] == 4;
+        }
+    }
+
+    void read(File file, ParseOptions options, BaseStructuredFileParserHandler handler) throws IOException, OpenXML4JException, SAXException {
+        OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ);
+        try (SharedStringsCache sharedStrings = new SharedStringsCache(maxSharedStringCharsInMemory)) {
+            List<PackagePart> sharedStringsParts = pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType());
+            if (sharedStringsParts.size() > 0) {
+                try (InputStream in = sharedStringsParts.get(0).getInputStream()) {
+                    sharedStrings.read(in);
+                }
+            }
+
+            XSSFReader xssfReader = new XSSFReader(pkg);
+            StylesTable styles = xssfReader.getStylesTable();
+            DataFormatter formatter = new DataFormatter(true);
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) xssfReader.getSheetsData();
+            for (int i = 0; sheets.hasNext(); i++) {
+                try (InputStream sheetIn = sheets.next()) {
+                    if (options.sheetIndex != null && i != options.sheetIndex) continue;
+                    handler.newSheet(sheets.getSheetName());
+
+                    SheetHandler sheetHandler = new SheetHandler(sharedStrings, styles, formatter, new ExcelParser.SheetRows(options, handler));
+                    XMLReader xmlReader = SAXHelper.newXMLReader();
+                    xmlReader.setContentHandler(sheetHandler);
+                    try {
+                        xmlReader.parse(new InputSource(sheetIn));
+                    } catch (StopSheetException ex) {
+                        // the handler doesn't need more rows of this sheet
+                    }
+                    if (!sheetHandler.totalRowsSet && sheetHandler.lastRowNum >= 0) {
+                        handler.setTotalRows(sheetHandler.lastRowNum);
+                    }
+                }
+            }
+        } catch (ParserConfigurationException ex) {
+            throw new IOException("Could not create xml reader", ex);
+        } finally {
+            pkg.revert();
+        }
+    }
+
+    private static class SheetHandler extends DefaultHandler {
+        private final SharedStringsCache sharedStrings;
+        private final StylesTable styles;
+        private final DataFormatter formatter;
+        private final ExcelParser.SheetRows sheetRows;
+        private final StringBuilder value = new StringBuilder();
+        private List<Object> row;
+        private int rowNum = -1;
+        private int lastRowNum = -1;
+        private boolean totalRowsSet;
+        private int columnIndex;
+        private String cellType;
+        private String cellStyle;
+        private boolean inValue;
+        private boolean inInlineString;
+        private boolean inPhonetic;
+
+        private SheetHandler(SharedStringsCache sharedStrings, StylesTable styles, DataFormatter formatter, ExcelParser.SheetRows sheetRows) {
+            this.sharedStrings = sharedStrings;
+            this.styles = styles;
+            this.formatter = formatter;
+            this.sheetRows = sheetRows;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "dimension":
+                    // the estimate of the number of rows, available before any of the rows are read
+                    String ref = attributes.getValue("ref");
+                    if (ref != null && ref.contains(":")) {
+                        sheetRows.setTotalRows(new CellReference(ref.substring(ref.indexOf(':') + 1)).getRow());
+                        totalRowsSet = true;
+                    }
+                    break;
+                case "row":
+                    String r = attributes.getValue("r");
+                    rowNum = r == null ? rowNum + 1 : Integer.parseInt(r) - 1;
+                    lastRowNum = rowNum;
+                    row = new ArrayList<>();
+                    columnIndex = -1;
+                    break;
+                case "c":
+                    String cellRef = attributes.getValue("r");
+                    columnIndex = cellRef == null ? columnIndex + 1 : new CellReference(cellRef).getCol();
+                    cellType = attributes.getValue("t");
+                    cellStyle = attributes.getValue("s");
+                    value.setLength(0);
+                    break;
+                case "v":
+                    inValue = true;
+                    break;
+                case "is":
+                    inInlineString = true;
+                    break;
+                case "rPh":
+                    inPhonetic = true;
+                    break;
+                case "t":
+                    inValue = inInlineString && !inPhonetic;
+                    break;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            switch (localName) {
+                case "v":
+                case "t":
+                    inValue = false;
+                    break;
+                case "is":
+                    inInlineString = false;
+                    break;
+                case "rPh":
+                    inPhonetic = false;
+                    break;
+                case "c":
+                    while (row.size() < columnIndex) {
+                        row.add("");
+                    }
+                    row.add(formatCellValue());
+                    break;
+                case "row":
+                    if (!sheetRows.addRow(rowNum, row)) {
+                        throw new StopSheetException();
+                    }
+                    row = null;
+                    break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inValue) {
+                value.append(ch, start, length);
+            }
+        }
+
+        private String formatCellValue() throws SAXException {
+            String text = value.toString();
+            if (cellType == null || "n".equals(cellType)) {
+                if (text.isEmpty()) {
+                    return "";
+                }
+                return formatNumber(text);
+            }
+            switch (cellType) {
+                case "s":
+                    try {
+                        return sharedStrings.get(Integer.parseInt(text));
+                    } catch (IOException ex) {
+                        throw new SAXException("Could not read shared string", ex);
+                    }
+                case "b":
+                    return "0".equals(text) ? "FALSE" : "TRUE";
+                case "inlineStr":
+                case "str":
+                case "e":
+                default:
+                    return text;
+            }
+        }
+
+        private String formatNumber(String text) {
+            XSSFCellStyle style = null;
+            if (styles != null) {
+                if (cellStyle != null) {
+                    style = styles.getStyleAt(Integer.parseInt(cellStyle));
+                } else if (styles.getNumCellStyles() > 0) {
+                    style = styles.getStyleAt(0);
+                }
+            }
+            if (style == null) {
+                return formatter.formatRawCellContents(Double.parseDouble(text), 0, "General");
+            }
+            short formatIndex = style.getDataFormat();
+            String formatString = style.getDataFormatString();
+            if (formatString == null) {
+                formatString = BuiltinFormats.getBuiltinFormat(formatIndex);
+            }
+            return formatter.formatRawCellContents(Double.parseDouble(text), formatIndex, formatString);
+        }
+    }
+
+    private static class StopSheetException extends SAXException {
+    }
+}
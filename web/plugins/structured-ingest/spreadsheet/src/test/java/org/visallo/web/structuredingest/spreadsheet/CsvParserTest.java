@@ -2,11 +2,14 @@ package org.visallo.web.structuredingest.spreadsheet;
 
 import org.junit.Test;
 import org.visallo.web.structuredingest.core.model.ClientApiAnalysis;
+import org.visallo.web.structuredingest.core.util.BaseStructuredFileParserHandler;
 import org.visallo.web.structuredingest.core.util.StructuredFileParserHandler;
 import org.visallo.web.structuredingest.core.model.ParseOptions;
+import org.visallo.web.structuredingest.core.util.mapping.ColumnMappingType;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.util.*;
 
 import static org.junit.Assert.assertEquals;
 
@@ -63,4 +66,48 @@ public class CsvParserTest {
         assertEquals("Appleseed", sheet.parsedRows.get(0).columns.get(0));
         assertEquals("Johnny", sheet.parsedRows.get(0).columns.get(1));
     }
+
+    @Test
+    public void testParseInParallelNumbersRowsLikeSequentialParse() throws Exception {
+        StringBuilder data = new StringBuilder("skipped\nlast,first,note\n");
+        for (int i = 0; i < 200; i++) {
+            data.append("last").append(i).append(",first").append(i).append(",\"a, \n\"\"b\"\"\"\n");
+            if (i % 7 == 0) {
+                data.append("   ,  \n");
+            }
+        }
+        ParseOptions parseOptions = new ParseOptions();
+        parseOptions.startRowIndex = 1;
+
+        RowCollector sequential = new RowCollector();
+        new CsvParser().ingest(toStream(data.toString()), parseOptions, sequential);
+
+        parseOptions.threadCount = 4;
+        CsvParser parallelParser = new CsvParser();
+        parallelParser.chunkSize = 100;
+        RowCollector parallel = new RowCollector();
+        parallelParser.ingest(toStream(data.toString()), parseOptions, parallel);
+
+        assertEquals(Arrays.asList("last", "first", "note"), parallel.columns);
+        assertEquals(sequential.columns, parallel.columns);
+        assertEquals(sequential.getTotalRows(), parallel.getTotalRows());
+        assertEquals(200, parallel.rows.size());
+        assertEquals(sequential.rows, parallel.rows);
+    }
+
+    private static class RowCollector extends BaseStructuredFileParserHandler {
+        private final List<String> columns = new ArrayList<>();
+        private final Map<Long, List<Object>> rows = new TreeMap<>();
+
+        @Override
+        public void addColumn(String name, ColumnMappingType type) {
+            columns.add(name);
+        }
+
+        @Override
+        public boolean addRow(List<Object> values, long rowNum) {
+            rows.put(rowNum, values);
+            return true;
+        }
+    }
 }
\ No newline at end of file
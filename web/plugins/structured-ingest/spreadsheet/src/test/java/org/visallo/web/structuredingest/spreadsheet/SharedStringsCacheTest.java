@@ -0,0 +1,32 @@
+package org.visallo.web.structuredingest.spreadsheet;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+
+import static org.junit.Assert.assertEquals;
+
+public class SharedStringsCacheTest {
+
+    @Test
+    public void testReadSpillsToDisk() throws Exception {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<sst xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" count=\"4\" uniqueCount=\"4\">"
+                + "<si><t>Header1</t></si>"
+                + "<si><r><t>Rich</t></r><r><t xml:space=\"preserve\"> text</t></r></si>"
+                + "<si><t>ünicode 中</t><rPh sb=\"0\" eb=\"1\"><t>phonetic</t></rPh></si>"
+                + "<si><t/></si>"
+                + "</sst>";
+
+        try (SharedStringsCache sharedStrings = new SharedStringsCache(10)) {
+            sharedStrings.read(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+
+            assertEquals(4, sharedStrings.size());
+            assertEquals("Header1", sharedStrings.get(0));
+            assertEquals("Rich text", sharedStrings.get(1));
+            assertEquals("ünicode 中", sharedStrings.get(2));
+            assertEquals("", sharedStrings.get(3));
+            assertEquals("Rich text", sharedStrings.get(1));
+        }
+    }
+}
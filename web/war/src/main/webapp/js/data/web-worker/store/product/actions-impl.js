@@ -10,12 +10,45 @@ define([
 ], function(actions, ajax, elementActions, elementSelectors, workspaceActions, selectionActions, selectors, registry) {
     actions.protectFromMain();
 
+    // products which support it load this many vertices at a time
+    const PAGE_SIZE = 1000;
+
+    const mergeElements = (elements, removedIds, changedElements) => ({
+        ..._.omit(elements || {}, removedIds || []),
+        ...changedElements
+    });
+
+    // the response only has what changed since baseVersion, apply it to the extended data the client has
+    const applyExtendedDataDelta = (extendedData, delta) => {
+        const { baseVersion, removedVertexIds, removedEdgeIds, ...changes } = delta;
+        return {
+            ...extendedData,
+            ...changes,
+            vertices: mergeElements(extendedData.vertices, removedVertexIds, changes.vertices),
+            compoundNodes: mergeElements(extendedData.compoundNodes, removedVertexIds, changes.compoundNodes),
+            edges: mergeElements(extendedData.edges, removedEdgeIds, changes.edges)
+        };
+    };
+
+    const mergeExtendedDataPage = (extendedData, page) => {
+        const { totalVertexCount, ...pageData } = page;
+        if (!extendedData) {
+            return pageData;
+        }
+        return {
+            ...pageData,
+            vertices: { ...extendedData.vertices, ...pageData.vertices },
+            edges: { ...extendedData.edges, ...pageData.edges }
+        };
+    };
+
     const api = {
         get: ({productId, invalidate, includeExtended = true }) => (dispatch, getState) => {
             const state = getState();
             const workspaceId = state.workspace.currentId;
             const { products } = state.product.workspaces[workspaceId];
             const product = products[productId];
+            const loadedExtendedData = product && product.extendedData;
             let request;
 
             const options = { productId, includeExtended };
@@ -26,28 +59,88 @@ define([
                 }
             }
 
+            const loadElements = (extendedData) => {
+                const { vertices, edges } = extendedData;
+                const vertexIds = Object.keys(vertices);
+                const edgeIds = Object.keys(edges);
+                const includeAncillary = _.any(vertices, ({ancillary}) => ancillary === true)
+
+                if (vertexIds.length || edgeIds.length) {
+                    dispatch(elementActions.get({ workspaceId, vertexIds, edgeIds, includeAncillary }));
+                }
+            };
+
+            const requestPages = (offset, extendedData) => ajax('GET', '/product', {
+                ...options,
+                params: { ...options.params, offset, size: PAGE_SIZE }
+            }).then(function(product) {
+                const page = product.extendedData;
+                if (!page || page.totalVertexCount === undefined) {
+                    if (page) {
+                        loadElements(page);
+                    }
+                    return product;
+                }
+                if (extendedData && extendedData.version !== page.version) {
+                    // changed while it was loaded, start over
+                    return requestPages(0, null);
+                }
+
+                const merged = mergeExtendedDataPage(extendedData, page);
+                loadElements(page);
+                if (offset + PAGE_SIZE >= page.totalVertexCount) {
+                    return { ...product, extendedData: merged };
+                }
+
+                // show the pages loaded so far, without a version until they are all loaded
+                const { version, ...partial } = merged;
+                dispatch(api.update({ ...product, extendedData: partial }));
+                return requestPages(offset + PAGE_SIZE, merged);
+            });
+
+            const requestProduct = () => {
+                if (!includeExtended) {
+                    return ajax('GET', '/product', options);
+                }
+                if (!loadedExtendedData || !loadedExtendedData.version) {
+                    return requestPages(0, null);
+                }
+
+                return ajax('GET', '/product', {
+                    ...options,
+                    params: { ...options.params, version: loadedExtendedData.version }
+                }).then(function(product) {
+                    const delta = product.extendedData;
+                    if (!delta || !delta.baseVersion) {
+                        if (delta) {
+                            loadElements(delta);
+                        }
+                        return product;
+                    }
+
+                    const current = getState().product.workspaces[workspaceId].products[productId];
+                    if (!current || !current.extendedData || current.extendedData.version !== delta.baseVersion) {
+                        return requestPages(0, null);
+                    }
+                    loadElements(delta);
+                    return { ...product, extendedData: applyExtendedDataDelta(current.extendedData, delta) };
+                });
+            };
+
             if (!invalidate && product) {
                 if (!product.extendedData && includeExtended) {
-                    request = ajax('GET', '/product', options);
+                    request = requestProduct();
                 }
             } else if (invalidate || !product) {
-                request = ajax('GET', '/product', options);
+                request = requestProduct();
             }
 
             if (request) {
-                request.then(function(product) {
+                return request.then(function(product) {
                     dispatch(api.update(product));
-
-                    if (includeExtended) {
-                        const { vertices, edges } = product.extendedData;
-                        const vertexIds = Object.keys(vertices);
-                        const edgeIds = Object.keys(edges);
-                        const includeAncillary = _.any(vertices, ({ancillary}) => ancillary === true)
-
-                        dispatch(elementActions.get({ workspaceId, vertexIds, edgeIds, includeAncillary }));
-                    }
                 })
             }
+            return Promise.resolve();
         },
 
         previewChanged: ({ productId, workspaceId, md5 }) => (dispatch, getState) => dispatch({
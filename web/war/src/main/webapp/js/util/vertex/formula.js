@@ -1,6 +1,9 @@
 define([], function() {
     'use strict';
 
+    // formulas compiled once for each set of scope names
+    var compiledFormulas = {};
+
     return formulaFunction;
 
     function formulaFunction(formula, vertex, V, optionalKey, optionalOpts) {
@@ -43,8 +46,14 @@ define([], function() {
                 keys.push(key);
             });
 
-            /*eslint no-new-func:0*/
-            return (new Function(keys.join(','), formula)).apply(null, values);
+            var argNames = keys.join(','),
+                cacheKey = argNames + '\n' + formula,
+                compiled = compiledFormulas[cacheKey];
+            if (!compiled) {
+                /*eslint no-new-func:0*/
+                compiled = compiledFormulas[cacheKey] = new Function(argNames, formula);
+            }
+            return compiled.apply(null, values);
         } catch(e) {
             console.warn('Unable to execute formula: ' + formula + ' Reason: ', e);
         }
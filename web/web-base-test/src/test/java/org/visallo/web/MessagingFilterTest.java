@@ -12,11 +12,14 @@ import org.visallo.vertexium.model.user.InMemoryUser;
 
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
 public class MessagingFilterTest {
     private MessagingFilter messagingFilter;
+    private MessagingConnectionIndex messagingConnectionIndex;
 
     @Mock
     private UserRepository userRepository;
@@ -30,6 +33,8 @@ public class MessagingFilterTest {
     public void before() {
         messagingFilter = new MessagingFilter();
         messagingFilter.setUserRepository(userRepository);
+        messagingConnectionIndex = new MessagingConnectionIndex(userRepository);
+        messagingFilter.setMessagingConnectionIndex(messagingConnectionIndex);
         when(request.getAttribute(CurrentUser.CURRENT_USER_REQ_ATTR_NAME)).thenReturn(user);
     }
 
@@ -77,4 +82,30 @@ public class MessagingFilterTest {
         JSONObject message = new JSONObject("{ permissions: { workspaces: ['workspace456'] } }");
         assertFalse(messagingFilter.shouldSendMessage(message, request));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testShouldSendMessageBasedOnIndexedWorkspace() {
+        when(userRepository.getCurrentWorkspaceId("user123")).thenReturn("workspace123");
+        messagingConnectionIndex.addConnection("user123", "connection1");
+        JSONObject message = new JSONObject("{ permissions: { workspaces: ['workspace123'] } }");
+        assertTrue(messagingFilter.shouldSendMessage(message, request));
+        assertTrue(messagingFilter.shouldSendMessage(message, request));
+        verify(userRepository, times(1)).getCurrentWorkspaceId("user123");
+
+        messagingConnectionIndex.update(new JSONObject("{ type: 'userWorkspaceChange', data: { id: 'user123', workspaceId: 'workspace456' } }"));
+        assertFalse(messagingFilter.shouldSendMessage(message, request));
+        assertTrue(messagingFilter.shouldSendMessage(new JSONObject("{ permissions: { workspaces: ['workspace456'] } }"), request));
+        verify(userRepository, times(1)).getCurrentWorkspaceId("user123");
+    }
+
+    @Test
+    public void testConnectionIndexForgetsUserAfterLastConnection() {
+        when(userRepository.getCurrentWorkspaceId("user123")).thenReturn("workspace123");
+        messagingConnectionIndex.addConnection("user123", "connection1");
+        messagingConnectionIndex.setCurrentWorkspaceId("user123", "workspace456");
+        messagingConnectionIndex.removeConnection("user123", "connection1");
+
+        JSONObject message = new JSONObject("{ permissions: { workspaces: ['workspace123'] } }");
+        assertTrue(messagingFilter.shouldSendMessage(message, request));
+    }
+}
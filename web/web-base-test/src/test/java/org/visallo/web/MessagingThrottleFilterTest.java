@@ -0,0 +1,119 @@
+package org.visallo.web;
+
+import org.atmosphere.cpr.AtmosphereResource;
+import org.atmosphere.cpr.BroadcastFilter.BroadcastAction;
+import org.atmosphere.cpr.Broadcaster;
+import org.atmosphere.cpr.BroadcasterConfig;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.visallo.core.config.Configuration;
+import org.visallo.core.model.user.UserRepository;
+import org.visallo.core.status.JmxMetricsManager;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MessagingThrottleFilterTest {
+    private MessagingThrottleFilter messagingThrottleFilter;
+
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private Configuration configuration;
+    @Mock
+    private AtmosphereResource resource;
+    @Mock
+    private Broadcaster broadcaster;
+    @Mock
+    private BroadcasterConfig broadcasterConfig;
+    @Mock
+    private ScheduledExecutorService scheduledExecutorService;
+
+    @Before
+    public void before() {
+        when(resource.uuid()).thenReturn("uuid1");
+        when(resource.getBroadcaster()).thenReturn(broadcaster);
+        when(broadcaster.getBroadcasterConfig()).thenReturn(broadcasterConfig);
+        when(broadcasterConfig.getScheduledExecutorService()).thenReturn(scheduledExecutorService);
+    }
+
+    @Test
+    public void testQueueIsBoundedByBytes() {
+        String vertex1 = propertyChange("v1", 1);
+        String vertex2 = propertyChange("v2", 2);
+        String vertex1Again = propertyChange("v1", 3);
+        String vertex3 = propertyChange("v3", 4);
+        createFilter(2 * ParsedBroadcastMessage.get(vertex1).getSize());
+
+        assertEquals(BroadcastAction.ACTION.CONTINUE, filter(propertyChange("v0", 0)));
+        assertEquals(BroadcastAction.ACTION.ABORT, filter(vertex1));
+        assertEquals(BroadcastAction.ACTION.ABORT, filter(vertex2));
+        assertEquals(BroadcastAction.ACTION.ABORT, filter(vertex1Again));
+        assertEquals(BroadcastAction.ACTION.ABORT, filter(vertex3));
+
+        JSONObject batchMessage = runScheduledBroadcast();
+        assertEquals("batch", batchMessage.getString("type"));
+        assertEquals(1, batchMessage.getInt("droppedCount"));
+        JSONArray data = batchMessage.getJSONArray("data");
+        assertEquals(2, data.length());
+        assertEquals(3, data.getJSONObject(0).getJSONObject("data").getInt("sequence"));
+        assertEquals(4, data.getJSONObject(1).getJSONObject("data").getInt("sequence"));
+    }
+
+    @Test
+    public void testMessageLargerThanQueueIsKept() {
+        createFilter(1);
+
+        filter(propertyChange("v0", 0));
+        filter(propertyChange("v1", 1));
+
+        JSONObject batchMessage = runScheduledBroadcast();
+        assertEquals(1, batchMessage.getJSONArray("data").length());
+        assertFalse(batchMessage.has("droppedCount"));
+    }
+
+    private void createFilter(int queueBytes) {
+        when(configuration.getInt(WebConfiguration.THROTTLE_MESSAGING_SECONDS)).thenReturn(60);
+        when(configuration.getInt(WebConfiguration.THROTTLE_MESSAGING_QUEUE_BYTES)).thenReturn(queueBytes);
+        messagingThrottleFilter = new MessagingThrottleFilter();
+        messagingThrottleFilter.setUserRepository(userRepository);
+        messagingThrottleFilter.setConfiguration(configuration);
+        messagingThrottleFilter.setMetricsManager(new JmxMetricsManager());
+    }
+
+    private BroadcastAction.ACTION filter(String message) {
+        return messagingThrottleFilter.filter("broadcaster1", resource, message, message).action();
+    }
+
+    private JSONObject runScheduledBroadcast() {
+        ArgumentCaptor<Runnable> broadcast = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduledExecutorService, times(1)).schedule(broadcast.capture(), anyLong(), eq(TimeUnit.MILLISECONDS));
+        verify(broadcaster, never()).broadcast(any(), any(AtmosphereResource.class));
+        broadcast.getValue().run();
+
+        ArgumentCaptor<String> batchMessage = ArgumentCaptor.forClass(String.class);
+        verify(broadcaster).broadcast(batchMessage.capture(), eq(resource));
+        return new JSONObject(batchMessage.getValue());
+    }
+
+    private static String propertyChange(String vertexId, int sequence) {
+        return "{\"type\":\"propertyChange\",\"data\":{\"graphVertexId\":\"" + vertexId + "\",\"sequence\":" + sequence + "}}";
+    }
+}
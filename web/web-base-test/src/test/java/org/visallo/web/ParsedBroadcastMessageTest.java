@@ -0,0 +1,87 @@
+package org.visallo.web;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ParsedBroadcastMessageTest {
+    @Test
+    public void testParsesRouting() {
+        String message = "{ type: 'workProductChange', permissions: { users: ['user1', 'user2'], workspaces: ['ws1'] } }";
+        ParsedBroadcastMessage parsedMessage = ParsedBroadcastMessage.get(message);
+        assertEquals("workProductChange", parsedMessage.getType());
+        assertEquals(2, parsedMessage.getUserIds().size());
+        assertTrue(parsedMessage.getUserIds().contains("user2"));
+        assertTrue(parsedMessage.getWorkspaceIds().contains("ws1"));
+        assertSame(parsedMessage, ParsedBroadcastMessage.get(message));
+    }
+
+    @Test
+    public void testUnrestrictedMessage() {
+        ParsedBroadcastMessage parsedMessage = new ParsedBroadcastMessage(new JSONObject("{ type: 'textUpdated' }"));
+        assertNull(parsedMessage.getUserIds());
+        assertNull(parsedMessage.getWorkspaceIds());
+    }
+
+    @Test
+    public void testCoalesceKeyIgnoresProgress() {
+        ParsedBroadcastMessage progress1 = new ParsedBroadcastMessage(new JSONObject(
+                "{ type: 'longRunningProcessChange', data: { id: 'lrp1', progress: 0.1, progressMessage: 'a' } }"
+        ));
+        ParsedBroadcastMessage progress2 = new ParsedBroadcastMessage(new JSONObject(
+                "{ type: 'longRunningProcessChange', data: { id: 'lrp1', progress: 0.2, progressMessage: 'b' } }"
+        ));
+        ParsedBroadcastMessage otherProcess = new ParsedBroadcastMessage(new JSONObject(
+                "{ type: 'longRunningProcessChange', data: { id: 'lrp2', progress: 0.2, progressMessage: 'b' } }"
+        ));
+        assertEquals(progress1.getCoalesceKey(), progress2.getCoalesceKey());
+        assertNotEquals(progress1.getCoalesceKey(), otherProcess.getCoalesceKey());
+        assertEquals(0.2, progress2.getJson().getJSONObject("data").getDouble("progress"), 0.0001);
+    }
+
+    @Test
+    public void testCoalesceKeyIdentifiesObject() {
+        ParsedBroadcastMessage vertex1 = new ParsedBroadcastMessage(new JSONObject(
+                "{ type: 'propertyChange', data: { graphVertexId: 'v1', workspaceId: 'ws1' } }"
+        ));
+        ParsedBroadcastMessage vertex1Again = new ParsedBroadcastMessage(new JSONObject(
+                "{ type: 'propertyChange', data: { graphVertexId: 'v1', workspaceId: 'ws1' } }"
+        ));
+        ParsedBroadcastMessage vertex1OtherWorkspace = new ParsedBroadcastMessage(new JSONObject(
+                "{ type: 'propertyChange', data: { graphVertexId: 'v1', workspaceId: 'ws2' } }"
+        ));
+        ParsedBroadcastMessage edge1 = new ParsedBroadcastMessage(new JSONObject(
+                "{ type: 'propertyChange', data: { graphEdgeId: 'v1', outVertexId: 'v2', inVertexId: 'v3' } }"
+        ));
+        ParsedBroadcastMessage product1 = new ParsedBroadcastMessage(new JSONObject(
+                "{ type: 'workProductChange', data: { id: 'p1', workspaceId: 'ws1' } }"
+        ));
+        ParsedBroadcastMessage product1OtherSource = new ParsedBroadcastMessage(new JSONObject(
+                "{ type: 'workProductChange', data: { id: 'p1', workspaceId: 'ws1', sourceGuid: 'guid1' } }"
+        ));
+        assertEquals(vertex1.getCoalesceKey(), vertex1Again.getCoalesceKey());
+        assertNotEquals(vertex1.getCoalesceKey(), vertex1OtherWorkspace.getCoalesceKey());
+        assertNotEquals(vertex1.getCoalesceKey(), edge1.getCoalesceKey());
+        assertNotEquals(product1.getCoalesceKey(), product1OtherSource.getCoalesceKey());
+        assertTrue("the key is small", vertex1.getCoalesceKey().length() <= 32);
+    }
+
+    @Test
+    public void testMessagesNotReplaced() {
+        assertNull(new ParsedBroadcastMessage(new JSONObject(
+                "{ type: 'verticesDeleted', data: { vertexIds: ['v1'] } }"
+        )).getCoalesceKey());
+        assertNull(new ParsedBroadcastMessage(new JSONObject(
+                "{ type: 'propertyChange', data: { } }"
+        )).getCoalesceKey());
+        assertNull(new ParsedBroadcastMessage(new JSONObject("{ type: 'textUpdated' }")).getCoalesceKey());
+    }
+
+    @Test
+    public void testSize() {
+        assertEquals(20, ParsedBroadcastMessage.get("{\"type\":\"workspace\"}").getSize());
+        assertEquals(21, ParsedBroadcastMessage.get("{\"type\":\"workspac\u00e9\"}").getSize());
+        assertEquals(23, ParsedBroadcastMessage.get("{\"type\":\"workspac\ud83d\ude00\"}").getSize());
+    }
+}
@@ -15,7 +15,11 @@ import java.io.IOException;
 import java.util.Arrays;
 
 import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -30,7 +34,7 @@ public class MeGetTest extends RouteTestBase {
     @Before
     public void before() throws IOException {
         super.before();
-        meGet = new MeGet(userRepository, workspaceRepository);
+        meGet = new MeGet(userRepository, workspaceRepository, workQueueRepository);
         User otherUser = new InMemoryUser("other-user");
 
         workspaceShared1 = new TestWorkspace("junit-id-1", "B-junit-display-title");
@@ -55,6 +59,8 @@ public class MeGetTest extends RouteTestBase {
         ClientApiUser userResponse = meGet.handle(request, response, user);
         assertEquals(workspace.getWorkspaceId(), userResponse.getCurrentWorkspaceId());
         assertEquals(workspace.getDisplayTitle(), userResponse.getCurrentWorkspaceName());
+        verify(userRepository).setCurrentWorkspace(user.getUserId(), workspace.getWorkspaceId());
+        verify(workQueueRepository).pushUserCurrentWorkspaceChange(user, workspace.getWorkspaceId());
     }
 
     @Test
@@ -66,6 +72,7 @@ public class MeGetTest extends RouteTestBase {
 
         ClientApiUser userResponse = meGet.handle(request, response, user);
         assertEquals("WORKSPACE_123", userResponse.getCurrentWorkspaceId());
+        verify(workQueueRepository, never()).pushUserCurrentWorkspaceChange(any(User.class), anyString());
     }
 
     @Test
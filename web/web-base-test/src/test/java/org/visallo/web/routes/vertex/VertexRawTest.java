@@ -0,0 +1,158 @@
+package org.visallo.web.routes.vertex;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.vertexium.Authorizations;
+import org.vertexium.Vertex;
+import org.vertexium.VertexBuilder;
+import org.vertexium.property.StreamingPropertyValue;
+import org.visallo.core.model.properties.VisalloProperties;
+import org.visallo.core.util.StreamingPropertyValueRangeReader;
+import org.visallo.core.util.StreamingPropertyValueSpoolCache;
+import org.visallo.web.VisalloResponse;
+import org.visallo.web.routes.RouteTestBase;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class VertexRawTest extends RouteTestBase {
+    private static final String CONTENT = "0123456789abcdefghij";
+    private VertexRaw route;
+    private Authorizations authorizations;
+    private VisalloResponse visalloResponse;
+    private Vertex vertex;
+
+    @Mock
+    private StreamingPropertyValueSpoolCache spoolCache;
+
+    @Before
+    public void before() throws IOException {
+        super.before();
+        authorizations = graph.createAuthorizations("junit");
+
+        VertexBuilder vertexBuilder = graph.prepareVertex("v1", visibilityTranslator.getDefaultVisibility());
+        StreamingPropertyValue value = StreamingPropertyValue.create(
+                new ByteArrayInputStream(CONTENT.getBytes(StandardCharsets.UTF_8)),
+                byte[].class,
+                (long) CONTENT.length()
+        );
+        VisalloProperties.RAW.setProperty(vertexBuilder, value, visibilityTranslator.getDefaultVisibility());
+        VisalloProperties.FILE_NAME.addPropertyValue(vertexBuilder, "", "test.txt", visibilityTranslator.getDefaultVisibility());
+        VisalloProperties.MIME_TYPE.addPropertyValue(vertexBuilder, "", "text/plain", visibilityTranslator.getDefaultVisibility());
+        vertex = vertexBuilder.save(authorizations);
+        graph.flush();
+
+        when(request.getDateHeader("If-Modified-Since")).thenReturn(-1L);
+        visalloResponse = new VisalloResponse(request, response);
+        route = new VertexRaw(graph, new StreamingPropertyValueRangeReader(spoolCache));
+    }
+
+    @Test
+    public void testWholeContent() throws Exception {
+        assertEquals(CONTENT, read(handle()));
+        verify(response).setHeader("Content-Length", "20");
+        verify(response).setHeader("Accept-Ranges", "bytes");
+        verify(response, never()).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+    }
+
+    @Test
+    public void testSingleRange() throws Exception {
+        when(request.getHeader("Range")).thenReturn("bytes=5-9");
+
+        assertEquals("56789", read(handle()));
+        verify(response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        verify(response).setHeader("Content-Range", "bytes 5-9/20");
+        verify(response).setHeader("Content-Length", "5");
+    }
+
+    @Test
+    public void testEvictedSpoolFileFallsBackToValue() throws Exception {
+        File evictedFile = new File(System.getProperty("java.io.tmpdir"), "evicted-" + System.nanoTime() + ".spool");
+        when(spoolCache.getFile(any(), any())).thenReturn(evictedFile);
+        when(request.getHeader("Range")).thenReturn("bytes=5-9");
+
+        assertEquals("56789", read(handle()));
+    }
+
+    @Test
+    public void testMultipleRanges() throws Exception {
+        when(request.getHeader("Range")).thenReturn("bytes=0-1,-2");
+
+        String result = read(handle());
+        assertTrue(result, result.contains("Content-Range: bytes 0-1/20\r\n\r\n01\r\n"));
+        assertTrue(result, result.contains("Content-Range: bytes 18-19/20\r\n\r\nij\r\n"));
+        verify(response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        verify(response).setHeader("Content-Length", "" + result.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    @Test
+    public void testUnsatisfiableRange() throws Exception {
+        when(request.getHeader("Range")).thenReturn("bytes=50-");
+
+        assertNull(handle());
+        verify(response).setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        verify(response).setHeader("Content-Range", "bytes */20");
+    }
+
+    @Test
+    public void testNotModified() throws Exception {
+        handle();
+        String eTag = getETag();
+
+        reset(response);
+        when(request.getHeader("If-None-Match")).thenReturn(eTag);
+        assertNull(handle());
+        verify(response).sendError(HttpServletResponse.SC_NOT_MODIFIED);
+    }
+
+    @Test
+    public void testNotModifiedSince() throws Exception {
+        long timestamp = VisalloProperties.RAW.getProperty(vertex).getTimestamp();
+        when(request.getDateHeader("If-Modified-Since")).thenReturn(timestamp);
+
+        assertNull(handle());
+        verify(response).sendError(HttpServletResponse.SC_NOT_MODIFIED);
+    }
+
+    @Test
+    public void testIfRangeMismatchReturnsWholeContent() throws Exception {
+        when(request.getHeader("Range")).thenReturn("bytes=5-9");
+        when(request.getHeader("If-Range")).thenReturn("\"stale\"");
+
+        assertEquals(CONTENT, read(handle()));
+        verify(response, never()).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+    }
+
+    private InputStream handle() throws Exception {
+        return route.handle(request, vertex.getId(), false, false, null, authorizations, visalloResponse);
+    }
+
+    private String getETag() {
+        ArgumentCaptor<String> eTag = ArgumentCaptor.forClass(String.class);
+        verify(response).setHeader(eq("ETag"), eTag.capture());
+        return eTag.getValue();
+    }
+
+    private static String read(InputStream in) throws IOException {
+        try {
+            return IOUtils.toString(in, StandardCharsets.UTF_8);
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package org.visallo.web.routes.vertex;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.vertexium.Authorizations;
+import org.vertexium.Vertex;
+import org.vertexium.VertexBuilder;
+import org.vertexium.property.StreamingPropertyValue;
+import org.visallo.core.model.properties.VisalloProperties;
+import org.visallo.core.model.thumbnails.AsyncThumbnailGenerator;
+import org.visallo.core.model.thumbnails.Thumbnail;
+import org.visallo.core.model.thumbnails.ThumbnailRepository;
+import org.visallo.core.user.User;
+import org.visallo.web.VisalloResponse;
+import org.visallo.web.routes.RouteTestBase;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class VertexThumbnailTest extends RouteTestBase {
+    private VertexThumbnail route;
+    private Authorizations authorizations;
+    private VisalloResponse visalloResponse;
+    private Vertex vertex;
+
+    @Mock
+    private ThumbnailRepository thumbnailRepository;
+    @Mock
+    private AsyncThumbnailGenerator asyncThumbnailGenerator;
+    @Mock
+    private ServletOutputStream out;
+
+    @Before
+    public void before() throws IOException {
+        super.before();
+        authorizations = graph.createAuthorizations("junit");
+
+        VertexBuilder vertexBuilder = graph.prepareVertex("v1", visibilityTranslator.getDefaultVisibility());
+        StreamingPropertyValue value = StreamingPropertyValue.create(
+                new ByteArrayInputStream("image".getBytes(StandardCharsets.UTF_8)),
+                byte[].class,
+                5L
+        );
+        VisalloProperties.RAW.setProperty(vertexBuilder, value, visibilityTranslator.getDefaultVisibility());
+        vertex = vertexBuilder.save(authorizations);
+        graph.flush();
+
+        when(response.getOutputStream()).thenReturn(out);
+        visalloResponse = new VisalloResponse(request, response);
+        configuration.set(VertexThumbnail.CONFIG_WAIT_MILLIS, 10);
+        route = new VertexThumbnail(thumbnailRepository, asyncThumbnailGenerator, graph, configuration);
+    }
+
+    @Test
+    public void testStillGeneratingRespondsWithPlaceholder() throws Exception {
+        when(asyncThumbnailGenerator.generateThumbnail(any(Vertex.class), anyString(), anyString(), any(StreamingPropertyValue.class), any(int[].class), any(User.class)))
+                .thenReturn(new CompletableFuture<>());
+
+        handle();
+        verify(response).setStatus(HttpServletResponse.SC_ACCEPTED);
+        verifyPlaceholder();
+    }
+
+    @Test
+    public void testQueueFullRespondsWithPlaceholder() throws Exception {
+        when(asyncThumbnailGenerator.generateThumbnail(any(Vertex.class), anyString(), anyString(), any(StreamingPropertyValue.class), any(int[].class), any(User.class)))
+                .thenReturn(null);
+
+        handle();
+        verify(response).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        verifyPlaceholder();
+    }
+
+    @Test
+    public void testGeneratedThumbnail() throws Exception {
+        byte[] data = "thumbnail".getBytes(StandardCharsets.UTF_8);
+        Thumbnail thumbnail = new Thumbnail(vertex.getId(), "raw", data, "png", 150, 150);
+        when(asyncThumbnailGenerator.generateThumbnail(any(Vertex.class), anyString(), anyString(), any(StreamingPropertyValue.class), any(int[].class), any(User.class)))
+                .thenReturn(CompletableFuture.completedFuture(thumbnail));
+
+        handle();
+        verify(response).setContentType("image/png");
+        verify(response).setHeader("Cache-Control", "max-age=" + VisalloResponse.EXPIRES_1_HOUR);
+        verify(out).write(data);
+    }
+
+    private void handle() throws Exception {
+        route.handle(vertex.getId(), 150, WORKSPACE_ID, user, authorizations, visalloResponse);
+    }
+
+    private void verifyPlaceholder() throws IOException {
+        verify(response).setHeader("Retry-After", "1");
+        verify(response).setHeader("Cache-Control", "no-store");
+        verify(response).setContentType("image/gif");
+        ArgumentCaptor<byte[]> image = ArgumentCaptor.forClass(byte[].class);
+        verify(out).write(image.capture());
+        assertEquals("GIF89a", new String(image.getValue(), 0, 6, StandardCharsets.US_ASCII));
+        verify(thumbnailRepository).getThumbnail(eq(vertex.getId()), eq("raw"), eq(150), eq(150), eq(WORKSPACE_ID), eq(user));
+    }
+}
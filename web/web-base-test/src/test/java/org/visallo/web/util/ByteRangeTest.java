@@ -0,0 +1,40 @@
+package org.visallo.web.util;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ByteRangeTest {
+    @Test
+    public void testParseSingleRanges() {
+        assertEquals(Collections.singletonList(new ByteRange(0, 499)), ByteRange.parse("bytes=0-499", 1000));
+        assertEquals(Collections.singletonList(new ByteRange(500, 999)), ByteRange.parse("bytes=500-", 1000));
+        assertEquals(Collections.singletonList(new ByteRange(900, 999)), ByteRange.parse("bytes=-100", 1000));
+        assertEquals(Collections.singletonList(new ByteRange(900, 999)), ByteRange.parse("bytes=900-5000", 1000));
+    }
+
+    @Test
+    public void testParseMultipleRanges() {
+        List<ByteRange> ranges = ByteRange.parse("bytes=500-599, 0-99, 50-149, 150-199", 1000);
+        assertEquals(Arrays.asList(new ByteRange(0, 199), new ByteRange(500, 599)), ranges);
+    }
+
+    @Test
+    public void testParseUnsatisfiableRanges() {
+        assertTrue(ByteRange.parse("bytes=1000-", 1000).isEmpty());
+        assertTrue(ByteRange.parse("bytes=-0", 1000).isEmpty());
+    }
+
+    @Test
+    public void testParseIgnoredRanges() {
+        assertNull(ByteRange.parse(null, 1000));
+        assertNull(ByteRange.parse("items=0-10", 1000));
+        assertNull(ByteRange.parse("bytes=10-5", 1000));
+        assertNull(ByteRange.parse("bytes=abc", 1000));
+        assertNull(ByteRange.parse("bytes=-", 1000));
+    }
+}
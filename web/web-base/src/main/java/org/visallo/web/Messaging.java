@@ -56,6 +56,7 @@ public class Messaging implements AtmosphereHandler { //extends AbstractReflecto
     private WorkspaceRepository workspaceRepository;
     private WorkQueueRepository workQueueRepository;
     private UserSessionCounterRepository userSessionCounterRepository;
+    private MessagingConnectionIndex messagingConnectionIndex;
     private WorkQueueRepository.BroadcastConsumer broadcastConsumer;
     private Map<AtmosphereResource.TRANSPORT, Counter> requestsCounters = new HashMap<>();
 
@@ -105,6 +106,7 @@ public class Messaging implements AtmosphereHandler { //extends AbstractReflecto
             broadcastConsumer = new WorkQueueRepository.BroadcastConsumer() {
                 @Override
                 public void broadcastReceived(JSONObject json) {
+                    messagingConnectionIndex.update(json);
                     if (broadcaster != null) {
                         broadcaster.broadcast(json.toString());
                     }
@@ -170,9 +172,13 @@ public class Messaging implements AtmosphereHandler { //extends AbstractReflecto
             return;
         }
 
+        String userId = getCurrentUserId(event.getResource());
+        if (userId != null) {
+            messagingConnectionIndex.removeConnection(userId, event.getResource().uuid());
+        }
+
         boolean lastConnection = decrementUserConnectionCount(event.getResource());
         if (lastConnection) {
-            String userId = getCurrentUserId(event.getResource());
             LOGGER.info("last connection for user %s", userId);
             auditService.auditLogout(userId);
         }
@@ -228,6 +234,7 @@ public class Messaging implements AtmosphereHandler { //extends AbstractReflecto
             User authUser = userRepository.findById(authUserId);
             Workspace workspace = workspaceRepository.findById(workspaceId, authUser);
             userRepository.setCurrentWorkspace(authUserId, workspace.getWorkspaceId());
+            messagingConnectionIndex.setCurrentWorkspaceId(authUserId, workspace.getWorkspaceId());
             workQueueRepository.pushUserCurrentWorkspaceChange(authUser, workspace.getWorkspaceId());
 
             LOGGER.debug("User %s switched current workspace to %s", authUserId, workspaceId);
@@ -251,6 +258,9 @@ public class Messaging implements AtmosphereHandler { //extends AbstractReflecto
 
     private void incrementUserConnectionCount(AtmosphereResource resource) {
         String userId = getCurrentUserId(resource);
+        if (userId != null) {
+            messagingConnectionIndex.addConnection(userId, resource.uuid());
+        }
         boolean autoDelete = !(resource.transport() == AtmosphereResource.TRANSPORT.WEBSOCKET);
         userSessionCounterRepository.updateSession(userId, resource.uuid(), autoDelete);
     }
@@ -302,6 +312,11 @@ public class Messaging implements AtmosphereHandler { //extends AbstractReflecto
         this.userSessionCounterRepository = userSessionCounterRepository;
     }
 
+    @Inject
+    public void setMessagingConnectionIndex(MessagingConnectionIndex messagingConnectionIndex) {
+        this.messagingConnectionIndex = messagingConnectionIndex;
+    }
+
     @Inject
     public void setMetricsManager(JmxMetricsManager metricsManager) {
         for (AtmosphereResource.TRANSPORT transport : AtmosphereResource.TRANSPORT.values()) {
@@ -0,0 +1,89 @@
+package org.visallo.web;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.json.JSONObject;
+import org.visallo.core.model.user.UserRepository;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Indexes the users of the open messaging connections and the current workspace of each of those users so
+ * messages restricted to workspaces are filtered without looking up the current workspace for every connection
+ * and message. Workspaces are updated when a connection sets its active workspace and from the user workspace
+ * change and workspace delete broadcasts, which keeps the index current on every web server.
+ */
+@Singleton
+public class MessagingConnectionIndex {
+    private final UserRepository userRepository;
+    private final Map<String, Set<String>> connectionIdsByUserId = new ConcurrentHashMap<>();
+    private final Map<String, String> currentWorkspaceIdByUserId = new ConcurrentHashMap<>();
+
+    @Inject
+    public MessagingConnectionIndex(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    public void addConnection(String userId, String connectionId) {
+        connectionIdsByUserId.computeIfAbsent(userId, k -> ConcurrentHashMap.newKeySet()).add(connectionId);
+    }
+
+    public void removeConnection(String userId, String connectionId) {
+        connectionIdsByUserId.computeIfPresent(userId, (k, connectionIds) -> {
+            connectionIds.remove(connectionId);
+            if (connectionIds.isEmpty()) {
+                currentWorkspaceIdByUserId.remove(userId);
+                return null;
+            }
+            return connectionIds;
+        });
+    }
+
+    public String getCurrentWorkspaceId(String userId) {
+        String workspaceId = currentWorkspaceIdByUserId.get(userId);
+        if (workspaceId != null) {
+            return workspaceId;
+        }
+        workspaceId = userRepository.getCurrentWorkspaceId(userId);
+        // only connected users are indexed, a concurrent workspace change wins over this lookup
+        if (workspaceId != null && connectionIdsByUserId.containsKey(userId)) {
+            String existingWorkspaceId = currentWorkspaceIdByUserId.putIfAbsent(userId, workspaceId);
+            if (existingWorkspaceId != null) {
+                return existingWorkspaceId;
+            }
+        }
+        return workspaceId;
+    }
+
+    public void setCurrentWorkspaceId(String userId, String workspaceId) {
+        if (workspaceId == null || !connectionIdsByUserId.containsKey(userId)) {
+            currentWorkspaceIdByUserId.remove(userId);
+        } else {
+            currentWorkspaceIdByUserId.put(userId, workspaceId);
+        }
+    }
+
+    public void removeWorkspace(String workspaceId) {
+        currentWorkspaceIdByUserId.values().removeIf(workspaceId::equals);
+    }
+
+    /**
+     * Updates the index from a broadcast message, messages which don't change current workspaces are ignored.
+     */
+    public void update(JSONObject json) {
+        String type = json.optString("type", null);
+        if ("userWorkspaceChange".equals(type)) {
+            JSONObject data = json.optJSONObject("data");
+            if (data != null && data.optString("id", null) != null) {
+                setCurrentWorkspaceId(data.getString("id"), data.optString("workspaceId", null));
+            }
+        } else if ("workspaceDelete".equals(type)) {
+            String workspaceId = json.optString("workspaceId", null);
+            if (workspaceId != null) {
+                removeWorkspace(workspaceId);
+            }
+        }
+    }
+}
@@ -3,17 +3,17 @@ package org.visallo.web;
 import com.google.inject.Inject;
 import org.atmosphere.cpr.AtmosphereResource;
 import org.atmosphere.cpr.PerRequestBroadcastFilter;
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.visallo.core.bootstrap.InjectHelper;
+import org.visallo.core.cache.DistributedCacheService;
 import org.visallo.core.model.user.UserRepository;
 import org.visallo.core.user.User;
-import org.visallo.core.util.JSONUtil;
 import org.visallo.core.util.VisalloLogger;
 import org.visallo.core.util.VisalloLoggerFactory;
 
 import javax.servlet.http.HttpServletRequest;
+import java.util.Set;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -22,6 +22,7 @@ public class MessagingFilter implements PerRequestBroadcastFilter {
     public static final String TYPE_SET_ACTIVE_WORKSPACE = "setActiveWorkspace";
     public static final String TYPE_SET_ACTIVE_PRODUCT = "setActiveProduct";
     private UserRepository userRepository;
+    private MessagingConnectionIndex messagingConnectionIndex;
 
     @Override
     public BroadcastAction filter(String broadcasterId, Object originalMessage, Object message) {
@@ -36,9 +37,9 @@ public class MessagingFilter implements PerRequestBroadcastFilter {
             if (message == null || r.isCancelled()) {
                 return new BroadcastAction(BroadcastAction.ACTION.ABORT, null);
             }
-            JSONObject json = new JSONObject(message.toString());
+            ParsedBroadcastMessage parsedMessage = ParsedBroadcastMessage.get(message);
 
-            if (shouldSendMessage(json, r.getRequest())) {
+            if (shouldSendMessage(parsedMessage, r.getRequest())) {
                 return new BroadcastAction(message);
             } else {
                 return new BroadcastAction(BroadcastAction.ACTION.ABORT, message);
@@ -50,8 +51,14 @@ public class MessagingFilter implements PerRequestBroadcastFilter {
     }
 
     boolean shouldSendMessage(JSONObject json, HttpServletRequest request) {
-        String type = json.optString("type", null);
-        if (TYPE_SET_ACTIVE_WORKSPACE.equals(type) || TYPE_SET_ACTIVE_PRODUCT.equals(type)) {
+        return shouldSendMessage(new ParsedBroadcastMessage(json), request);
+    }
+
+    private boolean shouldSendMessage(ParsedBroadcastMessage parsedMessage, HttpServletRequest request) {
+        String type = parsedMessage.getType();
+        if (TYPE_SET_ACTIVE_WORKSPACE.equals(type)
+                || TYPE_SET_ACTIVE_PRODUCT.equals(type)
+                || DistributedCacheService.BROADCAST_TYPE.equals(type)) {
             return false;
         }
 
@@ -59,48 +66,39 @@ public class MessagingFilter implements PerRequestBroadcastFilter {
             return false;
         }
 
-        return shouldSendMessageByPermissions(json, request);
-    }
-
-    private boolean shouldSendMessageByPermissions(JSONObject json, HttpServletRequest request) {
-        JSONObject permissionsJson = json.optJSONObject("permissions");
-        if (permissionsJson != null) {
-            if (shouldRejectMessageByUsers(permissionsJson, request)) {
-                return false;
-            }
+        if (shouldRejectMessageByUsers(parsedMessage.getUserIds(), request)) {
+            return false;
+        }
 
-            if (shouldRejectMessageToWorkspaces(permissionsJson, request)) {
-                return false;
-            }
+        if (shouldRejectMessageToWorkspaces(parsedMessage.getWorkspaceIds(), request)) {
+            return false;
         }
         return true;
     }
 
-    private boolean shouldRejectMessageToWorkspaces(JSONObject permissionsJson, HttpServletRequest request) {
-        JSONArray workspaces = permissionsJson.optJSONArray("workspaces");
-        if (workspaces != null) {
+    private boolean shouldRejectMessageToWorkspaces(Set<String> workspaceIds, HttpServletRequest request) {
+        if (workspaceIds != null) {
             User currentUser = CurrentUser.get(request);
             if (currentUser == null) {
                 return true;
             }
 
-            String currentWorkspaceId = userRepository.getCurrentWorkspaceId(currentUser.getUserId());
+            String currentWorkspaceId = messagingConnectionIndex.getCurrentWorkspaceId(currentUser.getUserId());
             if (currentWorkspaceId == null) {
                 return true;
             }
 
-            if (!JSONUtil.isInArray(workspaces, currentWorkspaceId)) {
+            if (!workspaceIds.contains(currentWorkspaceId)) {
                 return true;
             }
         }
         return false;
     }
 
-    private boolean shouldRejectMessageByUsers(JSONObject permissionsJson, HttpServletRequest request) {
-        JSONArray users = permissionsJson.optJSONArray("users");
-        if (users != null) {
+    private boolean shouldRejectMessageByUsers(Set<String> userIds, HttpServletRequest request) {
+        if (userIds != null) {
             User currentUser = CurrentUser.get(request);
-            if (currentUser != null && currentUser.getUserId() != null && !JSONUtil.isInArray(users, currentUser.getUserId())) {
+            if (currentUser != null && currentUser.getUserId() != null && !userIds.contains(currentUser.getUserId())) {
                 return true;
             }
         }
@@ -122,4 +120,9 @@ public class MessagingFilter implements PerRequestBroadcastFilter {
         this.userRepository = userRepository;
     }
 
+    @Inject
+    public void setMessagingConnectionIndex(MessagingConnectionIndex messagingConnectionIndex) {
+        this.messagingConnectionIndex = messagingConnectionIndex;
+    }
+
 }
@@ -1,5 +1,6 @@
 package org.visallo.web;
 
+import com.codahale.metrics.Counter;
 import com.google.inject.Inject;
 import org.atmosphere.cpr.AtmosphereResource;
 import org.atmosphere.cpr.PerRequestBroadcastFilter;
@@ -9,26 +10,33 @@ import org.json.JSONObject;
 import org.visallo.core.bootstrap.InjectHelper;
 import org.visallo.core.config.Configuration;
 import org.visallo.core.model.user.UserRepository;
-import org.visallo.core.util.JSONUtil;
+import org.visallo.core.status.MetricsManager;
 import org.visallo.core.util.VisalloLogger;
 import org.visallo.core.util.VisalloLoggerFactory;
 
-import java.util.*;
-import java.util.concurrent.Callable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+/**
+ * Messages sent to a connection within the throttle period of its previous message are queued and sent together
+ * as a batch. Each connection's queue holds at most the configured number of bytes, a queued message is replaced
+ * by a newer message about the same object and the oldest messages are dropped when the queue is full. The number
+ * of dropped messages is included in the batch.
+ */
 public class MessagingThrottleFilter implements PerRequestBroadcastFilter {
     private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(MessagingThrottleFilter.class);
     private UserRepository userRepository;
     private Integer throttleMillis;
+    private Integer queueBytes;
+    private Counter queuedMessagesCounter;
+    private Counter droppedMessagesCounter;
 
-    private final Map<String, Long> lastRequestForUuid = new ConcurrentHashMap<>();
-    private final Map<String, List<JSONObject>> messagesForUuid = new ConcurrentHashMap<>();
-    private final Map<String, Boolean> broadcastScheduledForUuid = new ConcurrentHashMap<>();
+    private final Map<String, OutboundQueue> queuesByUuid = new ConcurrentHashMap<>();
 
     @Override
     public BroadcastAction filter(String broadcasterId, Object originalMessage, Object message) {
@@ -41,21 +49,23 @@ public class MessagingThrottleFilter implements PerRequestBroadcastFilter {
 
         try {
             if (message == null || r.isCancelled()) {
+                if (r.isCancelled()) {
+                    removeQueue(r.uuid());
+                }
                 return new BroadcastAction(BroadcastAction.ACTION.ABORT, null);
             }
-            JSONObject json = new JSONObject(message.toString());
+            ParsedBroadcastMessage parsedMessage = ParsedBroadcastMessage.get(message);
 
-            if (this.throttleMillis > 0 && !"batch".equals(json.optString("type"))) {
-                String uuid = r.uuid();
+            if (this.throttleMillis > 0 && !"batch".equals(parsedMessage.getType())) {
+                OutboundQueue queue = queuesByUuid.computeIfAbsent(r.uuid(), uuid -> new OutboundQueue());
 
-                synchronized (getMutex(uuid)) {
-                    boolean queueFuture = !broadcastScheduledForUuid.containsKey(uuid);
-                    Long timeSinceLastRequest = getTimeSinceLastRequest(uuid);
+                synchronized (queue) {
+                    long timeSinceLastRequest = queue.getTimeSinceLastRequest();
 
                     if (timeSinceLastRequest < this.throttleMillis) {
-                        addMessageToBatch(json, uuid);
-                        if (queueFuture) {
-                            delayBatchBroadcast(r, this.throttleMillis - timeSinceLastRequest);
+                        queue.add(parsedMessage);
+                        if (!queue.broadcastScheduled) {
+                            delayBatchBroadcast(r, queue, this.throttleMillis - timeSinceLastRequest);
                         }
                         return new BroadcastAction(BroadcastAction.ACTION.ABORT, message);
                     }
@@ -69,88 +79,32 @@ public class MessagingThrottleFilter implements PerRequestBroadcastFilter {
         }
     }
 
-    private void addMessageToBatch(JSONObject json, String uuid) {
-        List<JSONObject> messages;
-        if (!messagesForUuid.containsKey(uuid)) {
-            messages = new ArrayList<>();
-            messagesForUuid.put(uuid, messages);
-        } else {
-            messages = messagesForUuid.get(uuid);
-        }
-
-        boolean contains = messages.stream().anyMatch(jsonObject -> {
-            return JSONUtil.areEqual(jsonObject, json);
-        });
-
-        if (!contains) {
-            // check if any message is equal after removing the progress and progressMessage
-            // don't need to send multiple progress updates with no other changes
-            if (json.has("data")) {
-                JSONObject jsonNoProgress = cloneWithoutProgress(json);
-
-                List<JSONObject> outdated = messages.stream().filter(existing -> {
-                    JSONObject existingNoProgress = cloneWithoutProgress(existing);
-                    return JSONUtil.areEqual(existingNoProgress, jsonNoProgress);
-                }).collect(Collectors.toList());
-                messages.removeAll(outdated);
+    private void delayBatchBroadcast(final AtmosphereResource r, OutboundQueue queue, long delay) {
+        r.getBroadcaster().getBroadcasterConfig().getScheduledExecutorService().schedule(() -> {
+            JSONObject batchMessage;
+            synchronized (queue) {
+                queue.broadcastScheduled = false;
+                batchMessage = queue.drain();
             }
-            messages.add(json);
-        }
-    }
-
-    private JSONObject cloneWithoutProgress(JSONObject json) {
-        JSONObject clone = new JSONObject(json, (String[]) json.keySet().toArray(new String[0]));
-
-        if (json.has("data")) {
-            JSONObject jsonData = clone.getJSONObject("data");
-            Set<String> keySetWithoutProgress = new HashSet<>(jsonData.keySet());
-            keySetWithoutProgress.remove("progress");
-            keySetWithoutProgress.remove("progressMessage");
-            keySetWithoutProgress.remove("row");
-            String[] keysWithoutProgress = keySetWithoutProgress.toArray(new String[0]);
-            clone.put("data", new JSONObject(jsonData, keysWithoutProgress));
-        }
-
-        return clone;
-    }
-
-    private Long getTimeSinceLastRequest(String uuid) {
-        Long lastRequest = 0L;
-        Long now = new Date().getTime();
-        if (lastRequestForUuid.containsKey(uuid)) {
-            lastRequest = lastRequestForUuid.get(uuid);
-        }
-        lastRequestForUuid.put(uuid, now);
-
-        return now - lastRequest;
-    }
-
-    private void delayBatchBroadcast(final AtmosphereResource r, Long delay) {
-        String uuid = r.uuid();
-        r.getBroadcaster().getBroadcasterConfig().getScheduledExecutorService().schedule(new Runnable() {
-            @Override
-            public void run() {
-                synchronized (getMutex(uuid)) {
-                    List<JSONObject> messages = messagesForUuid.get(uuid);
-                    if (messages != null) {
-                        JSONObject batchMessage = new JSONObject();
-                        JSONArray jsonMessages = new JSONArray(messages);
-                        batchMessage.put("data", jsonMessages);
-                        batchMessage.put("type", "batch");
-
-                        r.getBroadcaster().broadcast(batchMessage.toString(), r);
-
-                        broadcastScheduledForUuid.remove(uuid);
-                        messages.clear();
-                    }
-                }
+            if (batchMessage == null) {
+                return;
             }
+            if (r.isCancelled()) {
+                removeQueue(r.uuid());
+                return;
+            }
+            r.getBroadcaster().broadcast(batchMessage.toString(), r);
         }, delay, TimeUnit.MILLISECONDS);
-        broadcastScheduledForUuid.put(uuid, true);
+        queue.broadcastScheduled = true;
     }
 
-    private String getMutex(String uuid) {
-        return (this.getClass().getName() + uuid).intern();
+    private void removeQueue(String uuid) {
+        OutboundQueue queue = queuesByUuid.remove(uuid);
+        if (queue != null) {
+            synchronized (queue) {
+                queue.drain();
+            }
+        }
     }
 
     public void ensureInitialized() {
@@ -175,5 +129,79 @@ public class MessagingThrottleFilter implements PerRequestBroadcastFilter {
     @Inject
     public void setConfiguration(Configuration configuration) {
         this.throttleMillis = configuration.getInt(WebConfiguration.THROTTLE_MESSAGING_SECONDS) * 1000;
+        this.queueBytes = Math.max(1, configuration.getInt(WebConfiguration.THROTTLE_MESSAGING_QUEUE_BYTES));
+    }
+
+    @Inject
+    public void setMetricsManager(MetricsManager metricsManager) {
+        this.queuedMessagesCounter = metricsManager.counter(this, "queuedMessages");
+        this.droppedMessagesCounter = metricsManager.counter(this, "droppedMessages");
+    }
+
+    /**
+     * Messages waiting to be sent to one connection, in the order they were queued. Messages are keyed by their
+     * coalesce key, or by the message itself if it must not be replaced. All access is synchronized on the queue.
+     */
+    private class OutboundQueue {
+        private final LinkedHashMap<Object, ParsedBroadcastMessage> messages = new LinkedHashMap<>();
+        private long queuedBytes;
+        private long lastRequest;
+        private int droppedCount;
+        private boolean broadcastScheduled;
+
+        private long getTimeSinceLastRequest() {
+            long now = System.currentTimeMillis();
+            long timeSinceLastRequest = now - lastRequest;
+            lastRequest = now;
+            return timeSinceLastRequest;
+        }
+
+        private void add(ParsedBroadcastMessage parsedMessage) {
+            Object key = parsedMessage.getCoalesceKey() == null ? parsedMessage : parsedMessage.getCoalesceKey();
+            ParsedBroadcastMessage replacedMessage = messages.remove(key);
+            if (replacedMessage == null) {
+                queuedMessagesCounter.inc();
+            } else {
+                queuedBytes -= replacedMessage.getSize();
+            }
+            messages.put(key, parsedMessage);
+            queuedBytes += parsedMessage.getSize();
+
+            // the newest message is always kept, even if it is larger than the queue
+            Iterator<ParsedBroadcastMessage> oldest = messages.values().iterator();
+            while (queuedBytes > queueBytes && messages.size() > 1) {
+                queuedBytes -= oldest.next().getSize();
+                oldest.remove();
+                droppedCount++;
+                queuedMessagesCounter.dec();
+                droppedMessagesCounter.inc();
+            }
+        }
+
+        /**
+         * @return the queued messages as a batch message, or null if no messages are queued.
+         */
+        private JSONObject drain() {
+            if (messages.isEmpty()) {
+                return null;
+            }
+            JSONArray data = new JSONArray();
+            for (ParsedBroadcastMessage message : messages.values()) {
+                data.put(message.getJson());
+            }
+            JSONObject batchMessage = new JSONObject();
+            batchMessage.put("data", data);
+            batchMessage.put("type", "batch");
+            if (droppedCount > 0) {
+                LOGGER.debug("dropped %d messages while throttling", droppedCount);
+                batchMessage.put("droppedCount", droppedCount);
+            }
+
+            queuedMessagesCounter.dec(messages.size());
+            messages.clear();
+            queuedBytes = 0;
+            droppedCount = 0;
+            return batchMessage;
+        }
     }
 }
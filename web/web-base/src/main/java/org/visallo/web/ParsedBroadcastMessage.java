@@ -0,0 +1,169 @@
+package org.visallo.web;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.visallo.core.exception.VisalloException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A broadcast message and its routing metadata. Atmosphere calls the broadcast filters once for every connection
+ * with the same message object, so messages are parsed once and shared by identity until they are garbage
+ * collected. The parsed JSON is shared and must not be modified.
+ */
+class ParsedBroadcastMessage {
+    /**
+     * Types of messages describing the current state of one object, a newer message replaces an older one.
+     */
+    private static final Set<String> COALESCED_TYPES = new HashSet<>(Arrays.asList(
+            "entityImageUpdated",
+            "longRunningProcessChange",
+            "propertyChange",
+            "textUpdated",
+            "workProductChange",
+            "workProductPreviewChange"
+    ));
+    private static final String[] ID_KEYS = new String[]{"id", "graphVertexId", "graphEdgeId"};
+    private static final Cache<Object, ParsedBroadcastMessage> parsedMessages = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build();
+    private final JSONObject json;
+    private final String type;
+    private final Set<String> userIds;
+    private final Set<String> workspaceIds;
+    private final String coalesceKey;
+    private final int size;
+
+    ParsedBroadcastMessage(JSONObject json) {
+        this(json, json.toString());
+    }
+
+    private ParsedBroadcastMessage(JSONObject json, String message) {
+        this.json = json;
+        this.size = utf8Length(message);
+        this.type = json.optString("type", null);
+        JSONObject permissionsJson = json.optJSONObject("permissions");
+        if (permissionsJson == null) {
+            this.userIds = null;
+            this.workspaceIds = null;
+        } else {
+            this.userIds = toSet(permissionsJson.optJSONArray("users"));
+            this.workspaceIds = toSet(permissionsJson.optJSONArray("workspaces"));
+        }
+        this.coalesceKey = createCoalesceKey(type, json.optJSONObject("data"));
+    }
+
+    static ParsedBroadcastMessage get(Object message) {
+        try {
+            return parsedMessages.get(message, () -> {
+                String messageString = message.toString();
+                return new ParsedBroadcastMessage(new JSONObject(messageString), messageString);
+            });
+        } catch (UncheckedExecutionException ex) {
+            if (ex.getCause() instanceof JSONException) {
+                throw (JSONException) ex.getCause();
+            }
+            throw ex;
+        } catch (ExecutionException ex) {
+            throw new VisalloException("Could not parse message: " + message, ex.getCause());
+        }
+    }
+
+    private static Set<String> toSet(JSONArray array) {
+        if (array == null) {
+            return null;
+        }
+        Set<String> results = new HashSet<>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            results.add(array.getString(i));
+        }
+        return Collections.unmodifiableSet(results);
+    }
+
+    private static String createCoalesceKey(String type, JSONObject data) {
+        if (data == null || !COALESCED_TYPES.contains(type)) {
+            return null;
+        }
+        String id = null;
+        for (String idKey : ID_KEYS) {
+            id = data.optString(idKey, null);
+            if (id != null) {
+                break;
+            }
+        }
+        if (id == null) {
+            return null;
+        }
+        // a client ignores the messages caused by its own changes, so those replace only each other
+        return type + "|" + id
+                + "|" + data.optString("propertyKey", "") + "|" + data.optString("propertyName", "")
+                + "|" + data.optString("workspaceId", "") + "|" + data.optString("sourceGuid", "");
+    }
+
+    private static int utf8Length(String str) {
+        int length = 0;
+        for (int i = 0; i < str.length(); i++) {
+            char ch = str.charAt(i);
+            if (ch < 0x80) {
+                length++;
+            } else if (ch < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(ch)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Messages with the same key describe the same object, so a newer message can replace an older one which has
+     * not been sent yet.
+     *
+     * @return the type, object id, property and workspace of the message, or null if the message must not be
+     * replaced.
+     */
+    public String getCoalesceKey() {
+        return coalesceKey;
+    }
+
+    /**
+     * @return the size of the message in bytes, encoded as UTF-8.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    public JSONObject getJson() {
+        return json;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @return the users allowed to receive the message, or null if the message is not restricted by user.
+     */
+    public Set<String> getUserIds() {
+        return userIds;
+    }
+
+    /**
+     * @return the workspaces whose users may receive the message, or null if the message is not restricted by
+     * workspace.
+     */
+    public Set<String> getWorkspaceIds() {
+        return workspaceIds;
+    }
+}
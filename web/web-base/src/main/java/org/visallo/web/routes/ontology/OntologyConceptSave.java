@@ -14,6 +14,8 @@ import org.visallo.core.user.User;
 import org.visallo.web.clientapi.model.ClientApiOntology;
 import org.visallo.web.parameterProviders.ActiveWorkspaceId;
 
+import java.util.Collections;
+
 @Singleton
 public class OntologyConceptSave implements ParameterizedHandler {
     private final OntologyRepository ontologyRepository;
@@ -55,7 +57,7 @@ public class OntologyConceptSave implements ParameterizedHandler {
 
         Concept concept = ontologyRepository.getOrCreateConcept(parent, iri, displayName, glyphIconHref, color, null, user, workspaceId);
 
-        ontologyRepository.clearCache(workspaceId);
+        ontologyRepository.updateCache(workspaceId, Collections.singletonList(concept), null, null);
         workQueueRepository.pushOntologyConceptsChange(workspaceId, concept.getId());
 
         return concept.toClientApi();
@@ -16,6 +16,7 @@ import org.visallo.core.user.User;
 import org.visallo.web.clientapi.model.ClientApiOntology;
 import org.visallo.web.parameterProviders.ActiveWorkspaceId;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -66,7 +67,8 @@ public class OntologyRelationshipSave extends OntologyBase {
         }
 
         Relationship relationship = ontologyRepository.getRelationshipByIRI(relationshipIri, workspaceId);
-        if (relationship == null) {
+        boolean created = relationship == null;
+        if (created) {
             relationship = ontologyRepository.getOrCreateRelationshipType(parent, domainConcepts, rangeConcepts, relationshipIri, displayName, false, user, workspaceId);
         } else {
             List<String> foundDomainIris = domainConcepts.stream().map(Concept::getIRI).collect(Collectors.toList());
@@ -76,7 +78,11 @@ public class OntologyRelationshipSave extends OntologyBase {
         }
         relationship.setProperty(OntologyProperties.DISPLAY_NAME.getPropertyName(), displayName, user, authorizations);
 
-        ontologyRepository.clearCache(workspaceId);
+        if (created) {
+            ontologyRepository.updateCache(workspaceId, null, Collections.singletonList(relationship), null);
+        } else {
+            ontologyRepository.clearCache(workspaceId);
+        }
         workQueueRepository.pushOntologyRelationshipsChange(workspaceId, relationship.getId());
 
         return ontologyRepository.getRelationshipByIRI(relationshipIri, workspaceId).toClientApi();
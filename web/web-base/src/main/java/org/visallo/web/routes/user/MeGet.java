@@ -3,6 +3,7 @@ package org.visallo.web.routes.user;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.visallo.core.model.user.UserRepository;
+import org.visallo.core.model.workQueue.WorkQueueRepository;
 import org.visallo.core.model.workspace.Workspace;
 import org.visallo.core.model.workspace.WorkspaceRepository;
 import org.visallo.core.user.User;
@@ -26,14 +27,17 @@ public class MeGet implements ParameterizedHandler {
     private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(MeGet.class);
     private final UserRepository userRepository;
     private final WorkspaceRepository workspaceRepository;
+    private final WorkQueueRepository workQueueRepository;
 
     @Inject
     public MeGet(
             final UserRepository userRepository,
-            final WorkspaceRepository workspaceRepository
+            final WorkspaceRepository workspaceRepository,
+            final WorkQueueRepository workQueueRepository
     ) {
         this.userRepository = userRepository;
         this.workspaceRepository = workspaceRepository;
+        this.workQueueRepository = workQueueRepository;
     }
 
     @Handle
@@ -76,6 +80,8 @@ public class MeGet implements ParameterizedHandler {
             }
 
             userRepository.setCurrentWorkspace(user.getUserId(), workspace.getWorkspaceId());
+            // updates the messaging connection index of every web server, as switching workspaces does
+            workQueueRepository.pushUserCurrentWorkspaceChange(user, workspace.getWorkspaceId());
             userMe.setCurrentWorkspaceId(workspace.getWorkspaceId());
             userMe.setCurrentWorkspaceName(workspace.getDisplayTitle());
         }
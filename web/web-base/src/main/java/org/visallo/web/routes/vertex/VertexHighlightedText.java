@@ -16,6 +16,7 @@ import org.visallo.core.ingest.video.VideoTranscript;
 import org.visallo.core.model.properties.MediaVisalloProperties;
 import org.visallo.core.model.properties.VisalloProperties;
 import org.visallo.core.model.termMention.TermMentionRepository;
+import org.visallo.core.model.textHighlighting.OffsetItem;
 import org.visallo.core.user.User;
 import org.visallo.core.util.JsonSerializer;
 import org.visallo.core.util.VisalloLogger;
@@ -29,8 +30,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
-import static org.visallo.core.util.StreamUtil.stream;
-
 @Singleton
 public class VertexHighlightedText implements ParameterizedHandler {
     private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(VertexHighlightedText.class);
@@ -57,13 +56,13 @@ public class VertexHighlightedText implements ParameterizedHandler {
             @Required(name = "graphVertexId") String graphVertexId,
             @Required(name = "propertyKey") String propertyKey,
             @Optional(name = "propertyName") String propertyName,
+            @Optional(name = "offset", defaultValue = "0") long offset,
+            @Optional(name = "length", defaultValue = "-1") long length,
             @ActiveWorkspaceId String workspaceId,
             User user,
             Authorizations authorizations,
             VisalloResponse response
     ) throws Exception {
-        Authorizations authorizationsWithTermMention = termMentionRepository.getAuthorizations(authorizations);
-
         Vertex artifactVertex = graph.getVertex(graphVertexId, authorizations);
         if (artifactVertex == null) {
             throw new VisalloResourceNotFoundException("Could not find vertex with id: " + graphVertexId);
@@ -85,28 +84,24 @@ public class VertexHighlightedText implements ParameterizedHandler {
             if (inputStream == null) {
                 response.respondWithHtml("");
             } else {
-                Iterable<Vertex> termMentions = termMentionRepository.findByOutVertexAndProperty(artifactVertex.getId(), propertyKey, propertyName, authorizationsWithTermMention);
-                List<String> resolvedToVertexIds = stream(termMentions)
-                        .map(VisalloProperties.TERM_MENTION_FOR_ELEMENT_ID::getPropertyValue)
-                        .filter(id -> id != null)
-                        .collect(Collectors.toList());
-                Map<String, Boolean> resolvedVerticesExist = graph.doVerticesExist(resolvedToVertexIds, authorizations);
-
-                termMentions = stream(termMentions)
-                        .filter(termMention -> {
-                            String resolvedToVertexId = VisalloProperties.TERM_MENTION_FOR_ELEMENT_ID.getPropertyValue(termMention);
-                            return resolvedToVertexId == null || resolvedVerticesExist.getOrDefault(resolvedToVertexId, false);
-                        }).collect(Collectors.toList());
-
-                entityHighlighter.transformHighlightedText(inputStream, response.getOutputStream(), termMentions, maxTextLength, workspaceId, authorizationsWithTermMention);
+                List<OffsetItem> offsetItems = findOffsetItems(artifactVertex, propertyKey, propertyName, workspaceId, authorizations);
+                EntityHighlighter.transformToHighlightedText(
+                        inputStream,
+                        response.getOutputStream(),
+                        offsetItems,
+                        offset,
+                        length,
+                        maxTextLength,
+                        EntityHighlighter.DefaultOptions
+                );
             }
         }
 
         VideoTranscript videoTranscript = MediaVisalloProperties.VIDEO_TRANSCRIPT.getPropertyValue(artifactVertex, propertyKey);
         if (videoTranscript != null) {
             LOGGER.debug("returning video transcript for vertexId:%s property:%s", artifactVertex.getId(), propertyKey);
-            Iterable<Vertex> termMentions = termMentionRepository.findByOutVertexAndProperty(artifactVertex.getId(), propertyKey, propertyName, authorizations);
-            VideoTranscript highlightedVideoTranscript = entityHighlighter.getHighlightedVideoTranscript(videoTranscript, termMentions, workspaceId, authorizations);
+            List<OffsetItem> offsetItems = findOffsetItems(artifactVertex, propertyKey, propertyName, workspaceId, authorizations);
+            VideoTranscript highlightedVideoTranscript = entityHighlighter.getHighlightedVideoTranscript(videoTranscript, offsetItems);
             response.setContentType("application/json");
             response.respondWithJson(highlightedVideoTranscript.toJson());
         }
@@ -114,10 +109,41 @@ public class VertexHighlightedText implements ParameterizedHandler {
         videoTranscript = JsonSerializer.getSynthesisedVideoTranscription(artifactVertex, propertyKey);
         if (videoTranscript != null) {
             LOGGER.debug("returning synthesised video transcript for vertexId:%s property:%s", artifactVertex.getId(), propertyKey);
-            Iterable<Vertex> termMentions = termMentionRepository.findByOutVertexAndProperty(artifactVertex.getId(), propertyKey, propertyName, authorizations);
-            VideoTranscript highlightedVideoTranscript = entityHighlighter.getHighlightedVideoTranscript(videoTranscript, termMentions, workspaceId, authorizationsWithTermMention);
+            List<OffsetItem> offsetItems = findOffsetItems(artifactVertex, propertyKey, propertyName, workspaceId, authorizations);
+            VideoTranscript highlightedVideoTranscript = entityHighlighter.getHighlightedVideoTranscript(videoTranscript, offsetItems);
             response.setContentType("application/json");
             response.respondWithJson(highlightedVideoTranscript.toJson());
         }
     }
+
+    /**
+     * Term mentions resolved to vertices which have since been deleted are not highlighted.
+     */
+    private List<OffsetItem> findOffsetItems(
+            Vertex artifactVertex,
+            String propertyKey,
+            String propertyName,
+            String workspaceId,
+            Authorizations authorizations
+    ) {
+        List<OffsetItem> offsetItems = termMentionRepository.findOffsetItemsByOutVertexAndProperty(
+                artifactVertex.getId(),
+                propertyKey,
+                propertyName,
+                workspaceId,
+                authorizations
+        );
+        List<String> resolvedToVertexIds = offsetItems.stream()
+                .map(OffsetItem::getTermMentionForElementId)
+                .filter(id -> id != null)
+                .collect(Collectors.toList());
+        Map<String, Boolean> resolvedVerticesExist = graph.doVerticesExist(resolvedToVertexIds, authorizations);
+
+        return offsetItems.stream()
+                .filter(offsetItem -> {
+                    String resolvedToVertexId = offsetItem.getTermMentionForElementId();
+                    return resolvedToVertexId == null || resolvedVerticesExist.getOrDefault(resolvedToVertexId, false);
+                })
+                .collect(Collectors.toList());
+    }
 }
@@ -8,35 +8,51 @@ import org.visallo.webster.annotations.Optional;
 import org.visallo.webster.annotations.Required;
 import org.vertexium.Authorizations;
 import org.vertexium.Graph;
+import org.vertexium.Property;
 import org.vertexium.Vertex;
 import org.vertexium.property.StreamingPropertyValue;
 import org.visallo.core.exception.VisalloException;
 import org.visallo.core.exception.VisalloResourceNotFoundException;
 import org.visallo.core.model.properties.MediaVisalloProperties;
 import org.visallo.core.model.properties.VisalloProperties;
-import org.visallo.core.util.LimitInputStream;
+import org.visallo.core.util.StreamingPropertyValueRangeReader;
 import org.visallo.web.BadRequestException;
 import org.visallo.web.VisalloResponse;
+import org.visallo.web.util.ByteRange;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Supplier;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+/**
+ * Serves raw and media property values. Requests may read byte ranges, including multiple ranges, and are
+ * validated against the property's ETag and last modified time.
+ */
 @Singleton
 public class VertexRaw implements ParameterizedHandler {
-    private static final Pattern RANGE_PATTERN = Pattern.compile("bytes=([0-9]*)-([0-9]*)");
+    private static final String MULTIPART_BOUNDARY = "VISALLO_BYTE_RANGES";
 
     private final Graph graph;
+    private final StreamingPropertyValueRangeReader rangeReader;
 
     @Inject
-    public VertexRaw(final Graph graph) {
+    public VertexRaw(
+            final Graph graph,
+            final StreamingPropertyValueRangeReader rangeReader
+    ) {
         this.graph = graph;
+        this.rangeReader = rangeReader;
     }
 
     @Handle
@@ -56,11 +72,20 @@ public class VertexRaw implements ParameterizedHandler {
 
         String fileName = VisalloProperties.FILE_NAME.getOnlyPropertyValue(artifactVertex);
 
+        Property property;
+        String contentType;
         if (playback) {
-            return handlePartialPlayback(request, response, artifactVertex, fileName, type);
+            if (type == null) {
+                throw new BadRequestException("type is required for partial playback");
+            }
+            contentType = type;
+            response.setCharacterEncoding(null);
+            response.setContentType(type);
+            response.addHeader("Content-Disposition", "attachment; filename=" + fileName);
+            property = getMediaProperty(artifactVertex, type);
         } else {
-            String mimeType = getMimeType(artifactVertex);
-            response.setContentType(mimeType);
+            contentType = getMimeType(artifactVertex);
+            response.setContentType(contentType);
             response.setMaxAge(VisalloResponse.EXPIRES_1_HOUR);
             if (fileName == null) {
                 throw new VisalloResourceNotFoundException("Could not find fileName on artifact: " + artifactVertex.getId());
@@ -72,94 +97,141 @@ public class VertexRaw implements ParameterizedHandler {
                 response.addHeader("Content-Disposition", "inline; filename=\"" + fileNameWithoutQuotes + "\"");
             }
 
-            StreamingPropertyValue rawValue = VisalloProperties.RAW.getPropertyValue(artifactVertex);
-            if (rawValue == null) {
+            property = VisalloProperties.RAW.getProperty(artifactVertex);
+            if (property == null) {
                 throw new VisalloResourceNotFoundException("Could not find raw on artifact: " + artifactVertex.getId());
             }
-            return rawValue.getInputStream();
         }
+
+        return handleRanges(request, response, artifactVertex, property, contentType);
     }
 
-    private InputStream handlePartialPlayback(HttpServletRequest request, VisalloResponse response, Vertex artifactVertex, String fileName, String type) throws IOException {
-        if (type == null) {
-            throw new BadRequestException("type is required for partial playback");
+    private InputStream handleRanges(
+            HttpServletRequest request,
+            VisalloResponse response,
+            Vertex artifactVertex,
+            Property property,
+            String contentType
+    ) throws IOException {
+        StreamingPropertyValue value = (StreamingPropertyValue) property.getValue();
+        Long totalLength = value.getLength();
+        if (totalLength == null) {
+            return value.getInputStream();
         }
 
-        InputStream in;
-        Long totalLength;
-        long partialStart = 0;
-        Long partialEnd = null;
-        String range = request.getHeader("Range");
-
-        if (range != null) {
-            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
-
-            Matcher m = RANGE_PATTERN.matcher(range);
-            if (m.matches()) {
-                partialStart = Long.parseLong(m.group(1));
-                if (m.group(2).length() > 0) {
-                    partialEnd = Long.parseLong(m.group(2));
-                }
-            }
+        String eTag = response.generateETag((artifactVertex.getId() + "\u001f" + property.getName() + "\u001f" + property.getKey()
+                + "\u001f" + property.getTimestamp() + "\u001f" + totalLength).getBytes(StandardCharsets.UTF_8));
+        if (response.testEtagHeaders(eTag) || isNotModifiedSince(request, response, property.getTimestamp())) {
+            return null;
+        }
+        response.addETagHeader(eTag);
+        response.getHttpServletResponse().setDateHeader("Last-Modified", property.getTimestamp());
+        response.setHeader("Accept-Ranges", "bytes");
+
+        List<ByteRange> ranges = null;
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange == null || ifRange.equals("\"" + eTag + "\"")) {
+            ranges = ByteRange.parse(request.getHeader("Range"), totalLength);
         }
 
-        response.setCharacterEncoding(null);
-        response.setContentType(type);
-        response.addHeader("Content-Disposition", "attachment; filename=" + fileName);
-
-        StreamingPropertyValue mediaPropertyValue = getStreamingPropertyValue(artifactVertex, type);
+        if (ranges == null) {
+            response.setHeader("Content-Length", "" + totalLength);
+            return rangeReader.read(artifactVertex, property, 0, totalLength);
+        }
 
-        totalLength = mediaPropertyValue.getLength();
-        in = mediaPropertyValue.getInputStream();
+        if (ranges.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader("Content-Range", "bytes */" + totalLength);
+            return null;
+        }
 
-        if (partialEnd == null) {
-            partialEnd = totalLength;
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        if (ranges.size() == 1) {
+            ByteRange range = ranges.get(0);
+            response.setHeader("Content-Range", range.toContentRange(totalLength));
+            response.setHeader("Content-Length", "" + range.getLength());
+            return rangeReader.read(artifactVertex, property, range.getStart(), range.getLength());
         }
 
-        // Ensure that the last byte position is less than the instance-length
-        partialEnd = Math.min(partialEnd, totalLength - 1);
-        long partialLength = totalLength;
+        return handleMultipleRanges(response, artifactVertex, property, contentType, ranges, totalLength);
+    }
 
-        if (range != null) {
-            partialLength = partialEnd - partialStart + 1;
-            response.addHeader("Content-Range", "bytes " + partialStart + "-" + partialEnd + "/" + totalLength);
-            if (partialStart > 0) {
-                in.skip(partialStart);
-            }
+    private InputStream handleMultipleRanges(
+            VisalloResponse response,
+            Vertex artifactVertex,
+            Property property,
+            String contentType,
+            List<ByteRange> ranges,
+            long totalLength
+    ) {
+        List<Supplier<InputStream>> parts = new ArrayList<>();
+        long contentLength = 0;
+        for (ByteRange range : ranges) {
+            byte[] partHeader = ("\r\n--" + MULTIPART_BOUNDARY + "\r\n"
+                    + "Content-Type: " + contentType + "\r\n"
+                    + "Content-Range: " + range.toContentRange(totalLength) + "\r\n\r\n").getBytes(StandardCharsets.UTF_8);
+            parts.add(() -> new ByteArrayInputStream(partHeader));
+            parts.add(() -> {
+                try {
+                    return rangeReader.read(artifactVertex, property, range.getStart(), range.getLength());
+                } catch (IOException ex) {
+                    throw new VisalloException("Could not read " + range + " of " + artifactVertex.getId(), ex);
+                }
+            });
+            contentLength += partHeader.length + range.getLength();
         }
+        byte[] end = ("\r\n--" + MULTIPART_BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8);
+        parts.add(() -> new ByteArrayInputStream(end));
+        contentLength += end.length;
+
+        response.setContentType("multipart/byteranges; boundary=" + MULTIPART_BOUNDARY);
+        response.setHeader("Content-Length", "" + contentLength);
+
+        // each range is only opened once the previous part has been written
+        Iterator<Supplier<InputStream>> partsIterator = parts.iterator();
+        return new SequenceInputStream(new Enumeration<InputStream>() {
+            @Override
+            public boolean hasMoreElements() {
+                return partsIterator.hasNext();
+            }
 
-        response.addHeader("Content-Length", "" + partialLength);
+            @Override
+            public InputStream nextElement() {
+                return partsIterator.next().get();
+            }
+        });
+    }
 
-        return new LimitInputStream(in, partialLength);
+    private boolean isNotModifiedSince(HttpServletRequest request, VisalloResponse response, long lastModified) throws IOException {
+        long ifModifiedSince;
+        try {
+            ifModifiedSince = request.getDateHeader("If-Modified-Since");
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+        // HTTP dates have a resolution of seconds
+        if (ifModifiedSince < 0 || request.getHeader("If-None-Match") != null || lastModified / 1000 > ifModifiedSince / 1000) {
+            return false;
+        }
+        response.respondWithNotModified();
+        return true;
     }
 
-    private StreamingPropertyValue getStreamingPropertyValue(Vertex artifactVertex, String type) {
-        StreamingPropertyValue mediaPropertyValue;
+    private Property getMediaProperty(Vertex artifactVertex, String type) {
+        Property mediaProperty;
         if (MediaVisalloProperties.MIME_TYPE_AUDIO_MP4.equals(type)) {
-            mediaPropertyValue = MediaVisalloProperties.AUDIO_MP4.getPropertyValue(artifactVertex);
-            checkNotNull(mediaPropertyValue, String.format("Could not find %s property on artifact %s", MediaVisalloProperties.MIME_TYPE_AUDIO_MP4, artifactVertex.getId()));
+            mediaProperty = MediaVisalloProperties.AUDIO_MP4.getProperty(artifactVertex);
         } else if (MediaVisalloProperties.MIME_TYPE_AUDIO_OGG.equals(type)) {
-            mediaPropertyValue = MediaVisalloProperties.AUDIO_OGG.getPropertyValue(artifactVertex);
-            checkNotNull(mediaPropertyValue, String.format("Could not find %s property on artifact %s", MediaVisalloProperties.MIME_TYPE_AUDIO_OGG, artifactVertex.getId()));
+            mediaProperty = MediaVisalloProperties.AUDIO_OGG.getProperty(artifactVertex);
         } else if (MediaVisalloProperties.MIME_TYPE_VIDEO_MP4.equals(type)) {
-            mediaPropertyValue = MediaVisalloProperties.VIDEO_MP4.getPropertyValue(artifactVertex);
-            checkNotNull(mediaPropertyValue, String.format("Could not find %s property on artifact %s", MediaVisalloProperties.MIME_TYPE_VIDEO_MP4, artifactVertex.getId()));
+            mediaProperty = MediaVisalloProperties.VIDEO_MP4.getProperty(artifactVertex);
         } else if (MediaVisalloProperties.MIME_TYPE_VIDEO_WEBM.equals(type)) {
-            mediaPropertyValue = MediaVisalloProperties.VIDEO_WEBM.getPropertyValue(artifactVertex);
-            checkNotNull(mediaPropertyValue, String.format("Could not find %s property on artifact %s", MediaVisalloProperties.MIME_TYPE_VIDEO_WEBM, artifactVertex.getId()));
+            mediaProperty = MediaVisalloProperties.VIDEO_WEBM.getProperty(artifactVertex);
         } else {
             throw new VisalloException("Invalid video type: " + type);
         }
-        return mediaPropertyValue;
-    }
-
-    private void copy(InputStream in, OutputStream out, Long length) throws IOException {
-        byte[] buffer = new byte[1024];
-        int read;
-        while (length > 0 && (read = in.read(buffer, 0, (int) Math.min(length, buffer.length))) > 0) {
-            out.write(buffer, 0, read);
-            length -= read;
-        }
+        checkNotNull(mediaProperty, String.format("Could not find %s property on artifact %s", type, artifactVertex.getId()));
+        return mediaProperty;
     }
 
     private String getMimeType(Vertex artifactVertex) {
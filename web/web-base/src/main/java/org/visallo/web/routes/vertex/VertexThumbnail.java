@@ -11,8 +11,11 @@ import org.vertexium.Graph;
 import org.vertexium.Property;
 import org.vertexium.Vertex;
 import org.vertexium.property.StreamingPropertyValue;
+import org.visallo.core.config.Configuration;
+import org.visallo.core.exception.VisalloException;
 import org.visallo.core.exception.VisalloResourceNotFoundException;
 import org.visallo.core.model.properties.VisalloProperties;
+import org.visallo.core.model.thumbnails.AsyncThumbnailGenerator;
 import org.visallo.core.model.thumbnails.Thumbnail;
 import org.visallo.core.model.thumbnails.ThumbnailRepository;
 import org.visallo.core.user.User;
@@ -21,23 +24,46 @@ import org.visallo.core.util.VisalloLoggerFactory;
 import org.visallo.web.VisalloResponse;
 import org.visallo.web.parameterProviders.ActiveWorkspaceId;
 
-import java.io.InputStream;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+/**
+ * Responds with a cached thumbnail or generates it in the background, waiting a limited time for the generation
+ * to finish. If it takes longer a 202 response asks the client to retry while the generation continues. Browsers
+ * do not retry images on their own, so retry responses carry a placeholder image which is not cached, and the
+ * thumbnail is requested again the next time the image is shown.
+ */
 @Singleton
 public class VertexThumbnail implements ParameterizedHandler {
     private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(VertexThumbnail.class);
+    public static final String CONFIG_WAIT_MILLIS = VertexThumbnail.class.getName() + ".waitMillis";
+    public static final int DEFAULT_WAIT_MILLIS = 5000;
+    private static final String RETRY_AFTER_SECONDS = "1";
+    // a transparent 1x1 GIF
+    private static final byte[] PLACEHOLDER_IMAGE = Base64.getDecoder().decode("R0lGODlhAQABAIAAAAAAAP///yH5BAEAAAAALAAAAAABAAEAAAIBRAA7");
 
     private final ThumbnailRepository thumbnailRepository;
+    private final AsyncThumbnailGenerator asyncThumbnailGenerator;
     private final Graph graph;
+    private final long waitMillis;
 
     @Inject
     public VertexThumbnail(
             final ThumbnailRepository thumbnailRepository,
-            final Graph graph
+            final AsyncThumbnailGenerator asyncThumbnailGenerator,
+            final Graph graph,
+            final Configuration configuration
     ) {
         this.thumbnailRepository = thumbnailRepository;
+        this.asyncThumbnailGenerator = asyncThumbnailGenerator;
         this.graph = graph;
+        this.waitMillis = configuration.getInt(CONFIG_WAIT_MILLIS, DEFAULT_WAIT_MILLIS);
     }
 
     @Handle
@@ -59,27 +85,16 @@ public class VertexThumbnail implements ParameterizedHandler {
             boundaryDims[0] = boundaryDims[1] = width;
         }
 
-        byte[] thumbnailData;
         Thumbnail thumbnail = thumbnailRepository.getThumbnail(
                 artifactVertex.getId(),
                 "raw",
                 boundaryDims[0], boundaryDims[1],
                 workspaceId,
                 user);
-        if (thumbnail != null) {
-            String format = thumbnail.getFormat();
-            response.setContentType("image/" + format);
-            response.addHeader("Content-Disposition", "inline; filename=thumbnail" + boundaryDims[0] + "." + format);
-            response.setMaxAge(VisalloResponse.EXPIRES_1_HOUR);
-
-            thumbnailData = thumbnail.getData();
-            if (thumbnailData != null) {
-                LOGGER.debug("Cache hit for: %s (raw) %d x %d", artifactVertex.getId(), boundaryDims[0], boundaryDims[1]);
-                try (OutputStream out = response.getOutputStream()) {
-                    out.write(thumbnailData);
-                }
-                return;
-            }
+        if (thumbnail != null && thumbnail.getData() != null) {
+            LOGGER.debug("Cache hit for: %s (raw) %d x %d", artifactVertex.getId(), boundaryDims[0], boundaryDims[1]);
+            respondWithThumbnail(response, thumbnail, boundaryDims);
+            return;
         }
 
         LOGGER.info("Cache miss for: %s (raw) %d x %d", artifactVertex.getId(), boundaryDims[0], boundaryDims[1]);
@@ -89,18 +104,50 @@ public class VertexThumbnail implements ParameterizedHandler {
             throw new VisalloResourceNotFoundException("Could not find raw property on vertex: " + artifactVertex.getId());
         }
 
-        try (InputStream in = rawPropertyValue.getInputStream()) {
-            thumbnail = thumbnailRepository.createThumbnail(artifactVertex, rawProperty.getKey(), "raw", in, boundaryDims, user);
-
-            String format = thumbnail.getFormat();
-            response.setContentType("image/" + format);
-            response.addHeader("Content-Disposition", "inline; filename=thumbnail" + boundaryDims[0] + "." + format);
-            response.setMaxAge(VisalloResponse.EXPIRES_1_HOUR);
+        CompletableFuture<Thumbnail> generation = asyncThumbnailGenerator.generateThumbnail(
+                artifactVertex,
+                rawProperty.getKey(),
+                "raw",
+                rawPropertyValue,
+                boundaryDims,
+                user
+        );
+        if (generation == null) {
+            respondWithRetry(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
 
-            thumbnailData = thumbnail.getData();
+        try {
+            thumbnail = generation.get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            LOGGER.debug("Thumbnail still generating for: %s (raw) %d x %d", artifactVertex.getId(), boundaryDims[0], boundaryDims[1]);
+            respondWithRetry(response, HttpServletResponse.SC_ACCEPTED);
+            return;
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new VisalloException("Could not generate thumbnail for vertex: " + artifactVertex.getId(), ex.getCause());
         }
+        respondWithThumbnail(response, thumbnail, boundaryDims);
+    }
+
+    private void respondWithThumbnail(VisalloResponse response, Thumbnail thumbnail, int[] boundaryDims) throws Exception {
+        String format = thumbnail.getFormat();
+        response.setContentType("image/" + format);
+        response.addHeader("Content-Disposition", "inline; filename=thumbnail" + boundaryDims[0] + "." + format);
+        response.setMaxAge(VisalloResponse.EXPIRES_1_HOUR);
+
         try (OutputStream out = response.getOutputStream()) {
-            out.write(thumbnailData);
+            out.write(thumbnail.getData());
         }
     }
+
+    private void respondWithRetry(VisalloResponse response, int statusCode) throws IOException {
+        response.setStatus(statusCode);
+        response.setHeader("Retry-After", RETRY_AFTER_SECONDS);
+        response.setHeader("Cache-Control", "no-store");
+        response.setContentType("image/gif");
+        response.write(PLACEHOLDER_IMAGE);
+    }
 }
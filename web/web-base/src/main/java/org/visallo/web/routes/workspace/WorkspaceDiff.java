@@ -4,6 +4,7 @@ import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.visallo.webster.ParameterizedHandler;
 import org.visallo.webster.annotations.Handle;
+import org.visallo.webster.annotations.Optional;
 import org.visallo.core.exception.VisalloResourceNotFoundException;
 import org.visallo.core.formula.FormulaEvaluator;
 import org.visallo.core.model.workspace.Workspace;
@@ -24,6 +25,8 @@ public class WorkspaceDiff implements ParameterizedHandler {
     @Handle
     public ClientApiWorkspaceDiff handle(
             @ActiveWorkspaceId String workspaceId,
+            @Optional(name = "offset", defaultValue = "0") int offset,
+            @Optional(name = "size", defaultValue = "-1") int size,
             FormulaEvaluator.UserContext userContext,
             User user
     ) throws Exception {
@@ -32,6 +35,9 @@ public class WorkspaceDiff implements ParameterizedHandler {
             throw new VisalloResourceNotFoundException("Cannot find workspace: " + workspaceId);
         }
 
-        return this.workspaceRepository.getDiff(workspace, user, userContext);
+        if (offset <= 0 && size < 0) {
+            return this.workspaceRepository.getDiff(workspace, user, userContext);
+        }
+        return this.workspaceRepository.getDiff(workspace, user, userContext, offset, size);
     }
 }
@@ -0,0 +1,51 @@
+package org.visallo.web.routes.workspace;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.visallo.webster.ParameterizedHandler;
+import org.visallo.webster.annotations.Handle;
+import org.visallo.webster.annotations.Optional;
+import org.visallo.webster.annotations.Required;
+import org.vertexium.Authorizations;
+import org.visallo.core.model.longRunningProcess.LongRunningProcessRepository;
+import org.visallo.core.model.longRunningProcess.PublishLongRunningProcessQueueItem;
+import org.visallo.core.user.User;
+import org.visallo.core.util.VisalloLogger;
+import org.visallo.core.util.VisalloLoggerFactory;
+import org.visallo.web.clientapi.model.ClientApiLongRunningProcessSubmitResponse;
+import org.visallo.web.clientapi.model.ClientApiPublishItem;
+import org.visallo.web.parameterProviders.ActiveWorkspaceId;
+
+/**
+ * Publishes in a long running process instead of the request, for publishes too large to finish before the
+ * request times out. The failures are the results of the long running process.
+ */
+@Singleton
+public class WorkspacePublishLongRunningProcess implements ParameterizedHandler {
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(WorkspacePublishLongRunningProcess.class);
+    private final LongRunningProcessRepository longRunningProcessRepository;
+
+    @Inject
+    public WorkspacePublishLongRunningProcess(LongRunningProcessRepository longRunningProcessRepository) {
+        this.longRunningProcessRepository = longRunningProcessRepository;
+    }
+
+    @Handle
+    public ClientApiLongRunningProcessSubmitResponse handle(
+            @Required(name = "publishData") ClientApiPublishItem[] publishData,
+            @Optional(name = "chunkSize") Integer chunkSize,
+            @ActiveWorkspaceId String workspaceId,
+            User user,
+            Authorizations authorizations
+    ) throws Exception {
+        LOGGER.debug("publishing %d items in a long running process", publishData.length);
+        PublishLongRunningProcessQueueItem queueItem = new PublishLongRunningProcessQueueItem(
+                workspaceId,
+                publishData,
+                chunkSize,
+                authorizations
+        );
+        String id = longRunningProcessRepository.enqueue(queueItem, user, authorizations);
+        return new ClientApiLongRunningProcessSubmitResponse(id);
+    }
+}
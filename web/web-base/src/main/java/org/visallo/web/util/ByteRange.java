@@ -0,0 +1,130 @@
+package org.visallo.web.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An inclusive range of bytes requested by an HTTP Range header.
+ */
+public class ByteRange {
+    private static final Pattern RANGE_PATTERN = Pattern.compile("^\\s*([0-9]*)\\s*-\\s*([0-9]*)\\s*$");
+    private static final String BYTES_UNIT = "bytes=";
+    public static final int MAX_RANGES = 20;
+    private final long start;
+    private final long end;
+
+    public ByteRange(long start, long end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Parses a Range header. Overlapping and adjacent ranges are merged.
+     *
+     * @return the satisfiable ranges ordered by position, an empty list if none of the ranges can be satisfied, or
+     * null if the header is missing, invalid or requests too many ranges and the whole content should be returned.
+     */
+    public static List<ByteRange> parse(String rangeHeader, long totalLength) {
+        if (rangeHeader == null || !rangeHeader.startsWith(BYTES_UNIT)) {
+            return null;
+        }
+
+        List<ByteRange> ranges = new ArrayList<>();
+        for (String rangeSpec : rangeHeader.substring(BYTES_UNIT.length()).split(",")) {
+            Matcher m = RANGE_PATTERN.matcher(rangeSpec);
+            if (!m.matches() || (m.group(1).isEmpty() && m.group(2).isEmpty())) {
+                return null;
+            }
+            try {
+                if (m.group(1).isEmpty()) {
+                    long suffixLength = Long.parseLong(m.group(2));
+                    if (suffixLength > 0 && totalLength > 0) {
+                        ranges.add(new ByteRange(Math.max(0, totalLength - suffixLength), totalLength - 1));
+                    }
+                    continue;
+                }
+
+                long start = Long.parseLong(m.group(1));
+                long end = m.group(2).isEmpty() ? totalLength - 1 : Long.parseLong(m.group(2));
+                if (end < start) {
+                    return null;
+                }
+                if (start < totalLength) {
+                    ranges.add(new ByteRange(start, Math.min(end, totalLength - 1)));
+                }
+            } catch (NumberFormatException ex) {
+                return null;
+            }
+        }
+
+        ranges = merge(ranges);
+        if (ranges.size() > MAX_RANGES) {
+            return null;
+        }
+        return ranges;
+    }
+
+    private static List<ByteRange> merge(List<ByteRange> ranges) {
+        if (ranges.size() < 2) {
+            return ranges;
+        }
+        ranges.sort(Comparator.comparingLong(ByteRange::getStart));
+        List<ByteRange> results = new ArrayList<>();
+        ByteRange current = ranges.get(0);
+        for (ByteRange range : ranges.subList(1, ranges.size())) {
+            if (range.getStart() <= current.getEnd() + 1) {
+                current = new ByteRange(current.getStart(), Math.max(current.getEnd(), range.getEnd()));
+            } else {
+                results.add(current);
+                current = range;
+            }
+        }
+        results.add(current);
+        return Collections.unmodifiableList(results);
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    public long getLength() {
+        return end - start + 1;
+    }
+
+    public String toContentRange(long totalLength) {
+        return "bytes " + start + "-" + end + "/" + totalLength;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ByteRange byteRange = (ByteRange) o;
+        return start == byteRange.start && end == byteRange.end;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(start) + Long.hashCode(end);
+    }
+
+    @Override
+    public String toString() {
+        return "ByteRange{" +
+                "start=" + start +
+                ", end=" + end +
+                '}';
+    }
+}